@@ -1,13 +1,17 @@
 package com.example.project;
 
+import com.example.project.repository.SearchJpaRepository;
 import io.swagger.v3.oas.models.OpenAPI;
 import io.swagger.v3.oas.models.info.Info;
 import io.swagger.v3.oas.models.info.License;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 
 @SpringBootApplication
+// every repository gets SearchJpaRepository.search, the filtered lists use it
+@EnableJpaRepositories(repositoryBaseClass = SearchJpaRepository.class)
 public class ProjectApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,44 @@
+package com.example.project.config;
+
+import com.example.project.model.Product;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.cache.CacheManager;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+// the hibernate second-level cache: one bounded caffeine cache per region, entries expire ttl-seconds after they were written
+// hits and misses of every region (hibernate statistics): /actuator/metrics/hibernate.second.level.cache.requests?tag=region:<region>
+@Configuration
+public class SecondLevelCacheConfig {
+    // hibernate is started with missing_cache_strategy=fail, an entity cached in a region that is not listed here stops the startup
+    static final List<String> REGIONS = List.of(Product.CACHE_REGION);
+
+    @Bean(destroyMethod = "close")
+    public CacheManager secondLevelCacheManager(Environment environment) {
+        // a provider of its own, so every application context gets its own caches
+        CaffeineCachingProvider provider = new CaffeineCachingProvider();
+        CacheManager cacheManager = provider.getCacheManager(provider.getDefaultURI(), getClass().getClassLoader());
+        for (String region : REGIONS) {
+            CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+            configuration.setMaximumSize(OptionalLong.of(
+                    environment.getProperty("petshop.second-level-cache." + region + ".max-size", Long.class, 10000L)));
+            configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(
+                    environment.getProperty("petshop.second-level-cache." + region + ".ttl-seconds", Long.class, 600L))));
+            cacheManager.createCache(region, configuration);
+        }
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager secondLevelCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+    }
+}
@@ -1,10 +1,15 @@
 package com.example.project.controller;
 
 import com.example.project.dto.AnimalDto;
+import com.example.project.dto.PageDto;
 import com.example.project.exception.BadRequestException;
 import com.example.project.mapper.AnimalMapper;
 import com.example.project.model.Animal;
+import com.example.project.model.FieldSet;
+import com.example.project.model.KeysetPage;
 import com.example.project.service.AnimalService;
+import com.example.project.service.NdjsonExportService;
+import com.example.project.service.ResourceVersions;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -14,20 +19,30 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
 import java.util.List;
 
 @RestController
 @RequestMapping("/animals")
 //@Api(value = "/animals", tags = "All animals existing in  the database")
 public class AnimalController {
+    private static final String NDJSON = "application/x-ndjson";
+
     private final AnimalService animalService;
+    private final ResourceVersions resourceVersions;
     private final AnimalMapper animalMapper;
+    private final NdjsonExportService ndjsonExportService;
 
-    public AnimalController(AnimalService animalService, AnimalMapper animalMapper) {
+    public AnimalController(AnimalService animalService, ResourceVersions resourceVersions, AnimalMapper animalMapper,
+                            NdjsonExportService ndjsonExportService) {
         this.animalService = animalService;
+        this.resourceVersions = resourceVersions;
         this.animalMapper = animalMapper;
+        this.ndjsonExportService = ndjsonExportService;
     }
 
     @GetMapping
@@ -35,11 +50,39 @@ public class AnimalController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "The animals were successfully retrieved from the database",
                     content = {@Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
-                            schema = @Schema(implementation = AnimalDto[].class))})
+                            schema = @Schema(implementation = PageDto.class))}),
+            @ApiResponse(responseCode = "400", description = "The cursor, size, sort, view or fields parameter is not valid"),
+            @ApiResponse(responseCode = "304", description = "Nothing changed since the ETag sent in If-None-Match, the body is empty")
+    })
+    public ResponseEntity<PageDto<AnimalDto>> getAll(@RequestParam(required = false) String cursor,
+                                                     @RequestParam(required = false) Integer size,
+                                                     @RequestParam(required = false) String sort,
+                                                     @RequestParam(required = false) String view,
+                                                     @RequestParam(required = false) String fields,
+                                                     WebRequest webRequest) {
+        // view=summary or fields=owner; without the owner no client is joined
+        FieldSet fieldSet = FieldSet.of(view, fields, AnimalService.ASSOCIATIONS);
+        if (webRequest.checkNotModified(resourceVersions.collectionTag(ResourceVersions.ANIMALS))) {
+            return null;
+        }
+        KeysetPage<AnimalDto> response = animalService.findAll(cursor, size, sort, fieldSet);
+        return new ResponseEntity<>(new PageDto<>(response.getContent(), response.getNextCursor()), HttpStatus.OK);
+    }
+
+    @GetMapping(produces = NDJSON)
+    @Operation(operationId = "Stream all animals", summary = "Get all animals from the database as NDJSON, one per line")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "The animals are written while they are read, whatever their number"),
+            @ApiResponse(responseCode = "400", description = "The view or fields parameter is not valid")
     })
-    public ResponseEntity<List<AnimalDto>> getAll() {
-        List<Animal> response = animalService.findAll();
-        return  new ResponseEntity<>(animalMapper.toDto(response), HttpStatus.OK);
+    public void streamAll(@RequestParam(required = false) String view,
+                          @RequestParam(required = false) String fields,
+                          HttpServletResponse response) throws IOException {
+        FieldSet fieldSet = FieldSet.of(view, fields, AnimalService.ASSOCIATIONS);
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(NDJSON);
+        ndjsonExportService.exportAll(Animal.class, fieldSet.includes(AnimalService.OWNER) ? "Animal.owner" : null, Animal::getId,
+                animal -> animalMapper.toDto(animal, fieldSet), response.getOutputStream());
     }
 
     @GetMapping("/owner")
@@ -47,22 +90,33 @@ public class AnimalController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "The animals were successfully retrieved from the database",
                     content = {@Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
-                            schema = @Schema(implementation = AnimalDto[].class))})
+                            schema = @Schema(implementation = AnimalDto[].class))}),
+            @ApiResponse(responseCode = "400", description = "The view or fields parameter is not valid"),
+            @ApiResponse(responseCode = "304", description = "Nothing changed since the ETag sent in If-None-Match, the body is empty")
     })
-    public ResponseEntity<List<AnimalDto>> getByOwner(@RequestParam Long id) {
-            List<Animal> response = animalService.findByClient(id);
-            return  new ResponseEntity<>(animalMapper.toDto(response), HttpStatus.OK);
+    public ResponseEntity<List<AnimalDto>> getByOwner(@RequestParam Long id,
+                                                      @RequestParam(required = false) String view,
+                                                      @RequestParam(required = false) String fields,
+                                                      WebRequest webRequest) {
+            FieldSet fieldSet = FieldSet.of(view, fields, AnimalService.ASSOCIATIONS);
+            if (webRequest.checkNotModified(resourceVersions.collectionTag(ResourceVersions.ANIMALS))) {
+                return null;
+            }
+            return new ResponseEntity<>(animalService.findDtosByClient(id, fieldSet), HttpStatus.OK);
     }
 
     @GetMapping("/{id}")
     @Operation(operationId = "Get an animal by id", summary = "Get an animal from the database by animal id")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "The animal was successfully retrieved from the database"),
-            @ApiResponse(responseCode = "404", description = "The animal was not found in the database")
+            @ApiResponse(responseCode = "404", description = "The animal was not found in the database"),
+            @ApiResponse(responseCode = "304", description = "Nothing changed since the ETag sent in If-None-Match, the body is empty")
     })
-    public ResponseEntity<AnimalDto> getAnimalById(@PathVariable Long id) {
-        Animal response = animalService.findById(id);
-        return new ResponseEntity<>(animalMapper.toDto(response), HttpStatus.OK);
+    public ResponseEntity<AnimalDto> getAnimalById(@PathVariable Long id, WebRequest webRequest) {
+        if (webRequest.checkNotModified(resourceVersions.animalTag(id))) {
+            return null;
+        }
+        return new ResponseEntity<>(animalService.findDtoById(id), HttpStatus.OK);
     }
 
     @PostMapping
@@ -72,8 +126,7 @@ public class AnimalController {
             @ApiResponse(responseCode = "400", description = "Validation error on the received request")
     })
     public ResponseEntity<AnimalDto> createAnimal(@RequestBody @Valid AnimalDto animal) {
-        Animal response = animalService.create(animalMapper.toEntity(animal));
-        return new ResponseEntity<>(animalMapper.toDto(response), HttpStatus.CREATED);
+        return new ResponseEntity<>(animalService.create(animalMapper.toEntity(animal)), HttpStatus.CREATED);
     }
 
     @PutMapping("/{id}")
@@ -87,8 +140,7 @@ public class AnimalController {
         if (id != animal.getId()) {
             throw new BadRequestException("The path variable does not match the request body id");
         }
-        Animal response = animalService.update(animalMapper.toEntity(animal));
-        return new ResponseEntity<>(animalMapper.toDto(response), HttpStatus.OK);
+        return new ResponseEntity<>(animalService.update(animalMapper.toEntity(animal)), HttpStatus.OK);
     }
 
     @DeleteMapping("/{id}")
@@ -1,10 +1,14 @@
 package com.example.project.controller;
 
 import com.example.project.dto.ClientDto;
+import com.example.project.dto.PageDto;
 import com.example.project.exception.BadRequestException;
 import com.example.project.mapper.ClientMapper;
 import com.example.project.model.Client;
+import com.example.project.model.KeysetPage;
 import com.example.project.service.ClientService;
+import com.example.project.service.NdjsonExportService;
+import com.example.project.service.ResourceVersions;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -14,19 +18,28 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
-import java.util.List;
+import java.io.IOException;
 
 @RestController
 @RequestMapping("/clients")
 public class ClientController {
+    private static final String NDJSON = "application/x-ndjson";
+
     private final ClientService clientService;
+    private final ResourceVersions resourceVersions;
     private final ClientMapper clientMapper;
+    private final NdjsonExportService ndjsonExportService;
 
-    public ClientController(ClientService clientService, ClientMapper clientMapper) {
+    public ClientController(ClientService clientService, ResourceVersions resourceVersions, ClientMapper clientMapper,
+                            NdjsonExportService ndjsonExportService) {
         this.clientService = clientService;
+        this.resourceVersions = resourceVersions;
         this.clientMapper = clientMapper;
+        this.ndjsonExportService = ndjsonExportService;
     }
 
     @GetMapping
@@ -34,22 +47,44 @@ public class ClientController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "The clients were successfully retrieved from the database",
                     content = {@Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
-                            schema = @Schema(implementation = Client[].class))})
+                            schema = @Schema(implementation = PageDto.class))}),
+            @ApiResponse(responseCode = "400", description = "The cursor, size or sort parameter is not valid"),
+            @ApiResponse(responseCode = "304", description = "Nothing changed since the ETag sent in If-None-Match, the body is empty")
+    })
+    public ResponseEntity<PageDto<ClientDto>> getAll(@RequestParam(required = false) String cursor,
+                                                     @RequestParam(required = false) Integer size,
+                                                     @RequestParam(required = false) String sort,
+                                                     WebRequest webRequest) {
+        if (webRequest.checkNotModified(resourceVersions.collectionTag(ResourceVersions.CLIENTS))) {
+            return null;
+        }
+        KeysetPage<ClientDto> response = clientService.findAll(cursor, size, sort);
+        return new ResponseEntity<>(new PageDto<>(response.getContent(), response.getNextCursor()), HttpStatus.OK);
+    }
+
+    @GetMapping(produces = NDJSON)
+    @Operation(operationId = "Stream all clients", summary = "Get all clients from the database as NDJSON, one per line")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "The clients are written while they are read, whatever their number")
     })
-    public ResponseEntity<List<ClientDto>> getAll() {
-        List<Client> response = clientService.findAll();
-        return new ResponseEntity<>(clientMapper.toDto(response), HttpStatus.OK);
+    public void streamAll(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(NDJSON);
+        ndjsonExportService.exportAll(Client.class, null, Client::getId, clientMapper::toDto, response.getOutputStream());
     }
 
     @GetMapping("/{id}")
     @Operation(operationId = "Get a client by id", summary = "Get a client from the database by client id")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "The client was successfully retrieved from the database"),
-            @ApiResponse(responseCode = "404", description = "The client was not found in the database")
+            @ApiResponse(responseCode = "404", description = "The client was not found in the database"),
+            @ApiResponse(responseCode = "304", description = "Nothing changed since the ETag sent in If-None-Match, the body is empty")
     })
-    public ResponseEntity<ClientDto> getClientById(@PathVariable Long id) {
-        Client response = clientService.findById(id);
-        return new ResponseEntity<>(clientMapper.toDto(response), HttpStatus.OK);
+    public ResponseEntity<ClientDto> getClientById(@PathVariable Long id, WebRequest webRequest) {
+        if (webRequest.checkNotModified(resourceVersions.clientTag(id))) {
+            return null;
+        }
+        return new ResponseEntity<>(clientService.findDtoById(id), HttpStatus.OK);
     }
 
     @PostMapping
@@ -59,8 +94,7 @@ public class ClientController {
             @ApiResponse(responseCode = "400", description = "Validation error on the received request")
     })
     public ResponseEntity<ClientDto> addClient(@RequestBody @Valid ClientDto client) {
-        Client response = clientService.create(clientMapper.toEntity(client));
-        return new ResponseEntity<>(clientMapper.toDto(response), HttpStatus.CREATED);
+        return new ResponseEntity<>(clientService.create(clientMapper.toEntity(client)), HttpStatus.CREATED);
     }
 
     @PutMapping("/{id}")
@@ -74,8 +108,7 @@ public class ClientController {
         if (id != client.getId()) {
             throw new BadRequestException("The path variable does not match the request body id");
         }
-        Client response = clientService.update(clientMapper.toEntity(client));
-        return new ResponseEntity<>(clientMapper.toDto(response), HttpStatus.OK);
+        return new ResponseEntity<>(clientService.update(clientMapper.toEntity(client)), HttpStatus.OK);
     }
 
     @DeleteMapping("/{id}")
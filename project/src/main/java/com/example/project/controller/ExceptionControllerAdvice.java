@@ -3,6 +3,7 @@ package com.example.project.controller;
 import com.example.project.dto.ErrorDto;
 import com.example.project.exception.BadRequestException;
 import com.example.project.exception.EntityNotFoundException;
+import com.example.project.exception.ServiceUnavailableException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -25,4 +26,12 @@ public class ExceptionControllerAdvice {
                 HttpStatus.BAD_REQUEST
         );
     }
+
+    @ExceptionHandler
+    protected ResponseEntity<ErrorDto> handleServiceUnavailableException(ServiceUnavailableException ex) {
+        return new ResponseEntity<>(
+                ErrorDto.builder().code(503).message(ex.getMessage()).build(),
+                HttpStatus.SERVICE_UNAVAILABLE
+        );
+    }
 }
@@ -1,10 +1,13 @@
 package com.example.project.controller;
 
 import com.example.project.dto.FoodDto;
+import com.example.project.dto.PageDto;
 import com.example.project.exception.BadRequestException;
 import com.example.project.mapper.FoodMapper;
-import com.example.project.model.Food;
+import com.example.project.model.KeysetPage;
+import com.example.project.model.ProductFilter;
 import com.example.project.service.FoodService;
+import com.example.project.service.ResourceVersions;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -14,18 +17,20 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.validation.Valid;
-import java.util.List;
 
 @RestController
 @RequestMapping("/food")
 public class FoodController {
     private final FoodService foodService;
+    private final ResourceVersions resourceVersions;
     private final FoodMapper foodMapper;
 
-    public FoodController(FoodService foodService, FoodMapper foodMapper) {
+    public FoodController(FoodService foodService, ResourceVersions resourceVersions, FoodMapper foodMapper) {
         this.foodService = foodService;
+        this.resourceVersions = resourceVersions;
         this.foodMapper = foodMapper;
     }
     @GetMapping
@@ -33,22 +38,43 @@ public class FoodController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "The food was successfully retrieved from the database",
                     content = {@Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
-                            schema = @Schema(implementation = FoodDto[].class))})
+                            schema = @Schema(implementation = PageDto.class))}),
+            @ApiResponse(responseCode = "400", description = "The cursor, size or sort parameter is not valid OR minPrice is above maxPrice"),
+            @ApiResponse(responseCode = "304", description = "Nothing changed since the ETag sent in If-None-Match, the body is empty")
     })
-    public ResponseEntity<List<FoodDto>> getAll() {
-        List<Food> response = foodService.findAll();
-        return  new ResponseEntity<>(foodMapper.toDto(response), HttpStatus.OK);
+    public ResponseEntity<PageDto<FoodDto>> getAll(@RequestParam(required = false) String animal,
+                                                   @RequestParam(required = false) String brand,
+                                                   @RequestParam(required = false) String type,
+                                                   @RequestParam(required = false) Float minPrice,
+                                                   @RequestParam(required = false) Float maxPrice,
+                                                   @RequestParam(required = false) Boolean inStock,
+                                                   @RequestParam(required = false) String cursor,
+                                                   @RequestParam(required = false) Integer size,
+                                                   @RequestParam(required = false) String sort,
+                                                   WebRequest webRequest) {
+        // one tag for every page and filter of the food, while it is current nothing is read
+        if (webRequest.checkNotModified(resourceVersions.collectionTag(ResourceVersions.FOOD))) {
+            return null;
+        }
+        // the filters are applied by the database and can be combined, the cursor is only valid with the same filters
+        ProductFilter filter = ProductFilter.builder().animal(animal).brand(brand).type(type).minPrice(minPrice).maxPrice(maxPrice).inStock(inStock).build();
+        KeysetPage<FoodDto> response = foodService.findAll(filter, cursor, size, sort);
+        return new ResponseEntity<>(new PageDto<>(response.getContent(), response.getNextCursor()), HttpStatus.OK);
     }
 
     @GetMapping("/{id}")
     @Operation(operationId = "Get a food item by id", summary = "Get a food item from the database by food id")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "The food item was successfully retrieved from the database"),
-            @ApiResponse(responseCode = "404", description = "The food item was not found in the database")
+            @ApiResponse(responseCode = "404", description = "The food item was not found in the database"),
+            @ApiResponse(responseCode = "304", description = "Nothing changed since the ETag sent in If-None-Match, the body is empty")
     })
-    public ResponseEntity<FoodDto> getFoodById(@PathVariable Long id) {
-        Food response = foodService.findById(id);
-        return new ResponseEntity<>(foodMapper.toDto(response), HttpStatus.OK);
+    public ResponseEntity<FoodDto> getFoodById(@PathVariable Long id, WebRequest webRequest) {
+        // a 304 from the version columns alone, a 200 gets the tag as its ETag (set by checkNotModified)
+        if (webRequest.checkNotModified(resourceVersions.productTag("food", id))) {
+            return null;
+        }
+        return new ResponseEntity<>(foodService.findDtoById(id), HttpStatus.OK);
     }
 
     @PostMapping
@@ -58,8 +84,7 @@ public class FoodController {
             @ApiResponse(responseCode = "400", description = "Validation error on the received request")
     })
     public ResponseEntity<FoodDto> createFood(@RequestBody @Valid FoodDto food) {
-        Food response = foodService.create(foodMapper.toEntity(food));
-        return new ResponseEntity<>(foodMapper.toDto(response), HttpStatus.CREATED);
+        return new ResponseEntity<>(foodService.create(foodMapper.toEntity(food)), HttpStatus.CREATED);
     }
 
     @PutMapping("/{id}")
@@ -73,8 +98,7 @@ public class FoodController {
         if (id != food.getId()) {
             throw new BadRequestException("The path variable does not match the request body id");
         }
-        Food response = foodService.update(foodMapper.toEntity(food));
-        return new ResponseEntity<>(foodMapper.toDto(response), HttpStatus.OK);
+        return new ResponseEntity<>(foodService.update(foodMapper.toEntity(food)), HttpStatus.OK);
     }
 
     @DeleteMapping("/{id}")
@@ -1,13 +1,15 @@
 package com.example.project.controller;
 
 import com.example.project.dto.InventoryDto;
+import com.example.project.dto.PageDto;
 import com.example.project.dto.ProductTypeDto;
 import com.example.project.exception.BadRequestException;
 import com.example.project.mapper.InventoryMapper;
 import com.example.project.mapper.ProductTypeMapper;
-import com.example.project.model.Inventory;
+import com.example.project.model.KeysetPage;
 import com.example.project.model.ProductType;
 import com.example.project.service.InventoryService;
+import com.example.project.service.ResourceVersions;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -17,19 +19,22 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.validation.Valid;
-import java.util.List;
 
 @RestController
 @RequestMapping("/inventory")
 public class InventoryController {
     private final InventoryService inventoryService;
+    private final ResourceVersions resourceVersions;
     private final InventoryMapper inventoryMapper;
     private final ProductTypeMapper productTypeMapper;
 
-    public InventoryController(InventoryService inventoryService, InventoryMapper inventoryMapper, ProductTypeMapper productTypeMapper) {
+    public InventoryController(InventoryService inventoryService, ResourceVersions resourceVersions, InventoryMapper inventoryMapper,
+                               ProductTypeMapper productTypeMapper) {
         this.inventoryService = inventoryService;
+        this.resourceVersions = resourceVersions;
         this.inventoryMapper = inventoryMapper;
         this.productTypeMapper = productTypeMapper;
     }
@@ -39,22 +44,33 @@ public class InventoryController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "The inventories were successfully retrieved from the database",
                     content = {@Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
-                            schema = @Schema(implementation = InventoryDto[].class))})
+                            schema = @Schema(implementation = PageDto.class))}),
+            @ApiResponse(responseCode = "400", description = "The cursor, size or sort parameter is not valid"),
+            @ApiResponse(responseCode = "304", description = "Nothing changed since the ETag sent in If-None-Match, the body is empty")
     })
-    public ResponseEntity<List<InventoryDto>> getAll() {
-        List<Inventory> response = inventoryService.findAll();
-        return  new ResponseEntity<>(inventoryMapper.toDto(response), HttpStatus.OK);
+    public ResponseEntity<PageDto<InventoryDto>> getAll(@RequestParam(required = false) String cursor,
+                                                        @RequestParam(required = false) Integer size,
+                                                        @RequestParam(required = false) String sort,
+                                                        WebRequest webRequest) {
+        if (webRequest.checkNotModified(resourceVersions.collectionTag(ResourceVersions.INVENTORY))) {
+            return null;
+        }
+        KeysetPage<InventoryDto> response = inventoryService.findAll(cursor, size, sort);
+        return new ResponseEntity<>(new PageDto<>(response.getContent(), response.getNextCursor()), HttpStatus.OK);
     }
 
     @GetMapping("/{id}")
     @Operation(operationId = "Get an inventory by id", summary = "Get an inventory from the database by inventory id")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "The inventory was successfully retrieved from the database"),
-            @ApiResponse(responseCode = "404", description = "The inventory was not found in the database")
+            @ApiResponse(responseCode = "404", description = "The inventory was not found in the database"),
+            @ApiResponse(responseCode = "304", description = "Nothing changed since the ETag sent in If-None-Match, the body is empty")
     })
-    public ResponseEntity<InventoryDto> getInventoryById(@PathVariable Long id) {
-        Inventory response = inventoryService.findById(id);
-        return new ResponseEntity<>(inventoryMapper.toDto(response), HttpStatus.OK);
+    public ResponseEntity<InventoryDto> getInventoryById(@PathVariable Long id, WebRequest webRequest) {
+        if (webRequest.checkNotModified(resourceVersions.inventoryTag(id))) {
+            return null;
+        }
+        return new ResponseEntity<>(inventoryService.findDtoById(id), HttpStatus.OK);
     }
 
     /*@PostMapping
@@ -80,8 +96,7 @@ public class InventoryController {
         if (id != inventory.getId()) {
             throw new BadRequestException("The path variable does not match the request body id");
         }
-        Inventory response = inventoryService.update(inventoryMapper.toEntity(inventory));
-        return new ResponseEntity<>(inventoryMapper.toDto(response), HttpStatus.OK);
+        return new ResponseEntity<>(inventoryService.update(inventoryMapper.toEntity(inventory)), HttpStatus.OK);
     }
 
     @DeleteMapping("/{id}")
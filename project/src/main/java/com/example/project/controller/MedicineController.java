@@ -1,10 +1,13 @@
 package com.example.project.controller;
 
 import com.example.project.dto.MedicineDto;
+import com.example.project.dto.PageDto;
 import com.example.project.exception.BadRequestException;
 import com.example.project.mapper.MedicineMapper;
-import com.example.project.model.Medicine;
+import com.example.project.model.KeysetPage;
+import com.example.project.model.ProductFilter;
 import com.example.project.service.MedicineService;
+import com.example.project.service.ResourceVersions;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -14,18 +17,20 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.validation.Valid;
-import java.util.List;
 
 @RestController
 @RequestMapping("/medicine")
 public class MedicineController {
     private final MedicineService medicineService;
+    private final ResourceVersions resourceVersions;
     private final MedicineMapper medicineMapper;
 
-    public MedicineController(MedicineService medicineService, MedicineMapper medicineMapper) {
+    public MedicineController(MedicineService medicineService, ResourceVersions resourceVersions, MedicineMapper medicineMapper) {
         this.medicineService = medicineService;
+        this.resourceVersions = resourceVersions;
         this.medicineMapper = medicineMapper;
     }
 
@@ -34,22 +39,40 @@ public class MedicineController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "The medicine items were successfully retrieved from the database",
                     content = {@Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
-                            schema = @Schema(implementation = MedicineDto[].class))})
+                            schema = @Schema(implementation = PageDto.class))}),
+            @ApiResponse(responseCode = "400", description = "The cursor, size or sort parameter is not valid OR minPrice is above maxPrice"),
+            @ApiResponse(responseCode = "304", description = "Nothing changed since the ETag sent in If-None-Match, the body is empty")
     })
-    public ResponseEntity<List<MedicineDto>> getAll() {
-        List<Medicine> response = medicineService.findAll();
-        return  new ResponseEntity<>(medicineMapper.toDto(response), HttpStatus.OK);
+    public ResponseEntity<PageDto<MedicineDto>> getAll(@RequestParam(required = false) String animal,
+                                                       @RequestParam(required = false) String purpose,
+                                                       @RequestParam(required = false) Float minPrice,
+                                                       @RequestParam(required = false) Float maxPrice,
+                                                       @RequestParam(required = false) Boolean inStock,
+                                                       @RequestParam(required = false) String cursor,
+                                                       @RequestParam(required = false) Integer size,
+                                                       @RequestParam(required = false) String sort,
+                                                       WebRequest webRequest) {
+        if (webRequest.checkNotModified(resourceVersions.collectionTag(ResourceVersions.MEDICINE))) {
+            return null;
+        }
+        // the filters are applied by the database and can be combined, the cursor is only valid with the same filters
+        ProductFilter filter = ProductFilter.builder().animal(animal).purpose(purpose).minPrice(minPrice).maxPrice(maxPrice).inStock(inStock).build();
+        KeysetPage<MedicineDto> response = medicineService.findAll(filter, cursor, size, sort);
+        return new ResponseEntity<>(new PageDto<>(response.getContent(), response.getNextCursor()), HttpStatus.OK);
     }
 
     @GetMapping("/{id}")
     @Operation(operationId = "Get medicine by id", summary = "Get a medicine item from the database by medicine id")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "The medicine item was successfully retrieved from the database"),
-            @ApiResponse(responseCode = "404", description = "The medicine item was not found in the database")
+            @ApiResponse(responseCode = "404", description = "The medicine item was not found in the database"),
+            @ApiResponse(responseCode = "304", description = "Nothing changed since the ETag sent in If-None-Match, the body is empty")
     })
-    public ResponseEntity<MedicineDto> getMedicinelById(@PathVariable Long id) {
-        Medicine response = medicineService.findById(id);
-        return new ResponseEntity<>(medicineMapper.toDto(response), HttpStatus.OK);
+    public ResponseEntity<MedicineDto> getMedicinelById(@PathVariable Long id, WebRequest webRequest) {
+        if (webRequest.checkNotModified(resourceVersions.productTag("medicine", id))) {
+            return null;
+        }
+        return new ResponseEntity<>(medicineService.findDtoById(id), HttpStatus.OK);
     }
 
     @PostMapping
@@ -59,8 +82,7 @@ public class MedicineController {
             @ApiResponse(responseCode = "400", description = "Validation error on the received request")
     })
     public ResponseEntity<MedicineDto> createMedicine(@RequestBody @Valid MedicineDto medicine) {
-        Medicine response = medicineService.create(medicineMapper.toEntity(medicine));
-        return new ResponseEntity<>(medicineMapper.toDto(response), HttpStatus.CREATED);
+        return new ResponseEntity<>(medicineService.create(medicineMapper.toEntity(medicine)), HttpStatus.CREATED);
     }
 
     @PutMapping("/{id}")
@@ -74,8 +96,7 @@ public class MedicineController {
         if (id != medicine.getId()) {
             throw new BadRequestException("The path variable does not match the request body id");
         }
-        Medicine response = medicineService.update(medicineMapper.toEntity(medicine));
-        return new ResponseEntity<>(medicineMapper.toDto(response), HttpStatus.OK);
+        return new ResponseEntity<>(medicineService.update(medicineMapper.toEntity(medicine)), HttpStatus.OK);
     }
 
     @DeleteMapping("/{id}")
@@ -1,9 +1,19 @@
 package com.example.project.controller;
 
+import com.example.project.dto.PageDto;
 import com.example.project.dto.PurchaseDto;
+import com.example.project.dto.PurchaseTicketDto;
 import com.example.project.mapper.PurchaseMapper;
+import com.example.project.model.FieldSet;
+import com.example.project.model.KeysetPage;
 import com.example.project.model.Purchase;
+import com.example.project.service.NdjsonExportService;
+import com.example.project.service.PurchaseIdempotencyStore;
+import com.example.project.service.PurchaseImportService;
+import com.example.project.service.PurchasePipeline;
 import com.example.project.service.PurchaseService;
+import com.example.project.service.PurchaseTicketService;
+import com.example.project.service.ResourceVersions;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -13,20 +23,43 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.net.URI;
 import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/purchases")
 //@Api(value = "/purchases", tags = "All purchases existing in  the database")
 public class PurchaseController {
+    private static final String NDJSON = "application/x-ndjson";
+
     private final PurchaseService purchaseService;
+    private final ResourceVersions resourceVersions;
     private final PurchaseMapper purchaseMapper;
+    private final PurchasePipeline purchasePipeline;
+    private final PurchaseIdempotencyStore idempotencyStore;
+    private final PurchaseTicketService purchaseTicketService;
+    private final PurchaseImportService purchaseImportService;
+    private final NdjsonExportService ndjsonExportService;
 
-    public PurchaseController(PurchaseService purchaseService, PurchaseMapper purchaseMapper) {
+    public PurchaseController(PurchaseService purchaseService, ResourceVersions resourceVersions, PurchaseMapper purchaseMapper,
+                              PurchasePipeline purchasePipeline, PurchaseIdempotencyStore idempotencyStore, PurchaseTicketService purchaseTicketService,
+                              PurchaseImportService purchaseImportService, NdjsonExportService ndjsonExportService) {
         this.purchaseService = purchaseService;
+        this.resourceVersions = resourceVersions;
         this.purchaseMapper = purchaseMapper;
+        this.purchasePipeline = purchasePipeline;
+        this.idempotencyStore = idempotencyStore;
+        this.purchaseTicketService = purchaseTicketService;
+        this.purchaseImportService = purchaseImportService;
+        this.ndjsonExportService = ndjsonExportService;
     }
 
     @GetMapping
@@ -34,22 +67,53 @@ public class PurchaseController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "The purchases were successfully retrieved from the database",
                     content = {@Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
-                            schema = @Schema(implementation = PurchaseDto[].class))})
+                            schema = @Schema(implementation = PageDto.class))}),
+            @ApiResponse(responseCode = "400", description = "The cursor, size, sort, view or fields parameter is not valid"),
+            @ApiResponse(responseCode = "304", description = "Nothing changed since the ETag sent in If-None-Match, the body is empty")
     })
-    public ResponseEntity<List<PurchaseDto>> findAll() {
-        List<Purchase> response = purchaseService.findAll();
-        return new ResponseEntity<>(purchaseMapper.toDto(response), HttpStatus.OK);
+    public ResponseEntity<PageDto<PurchaseDto>> findAll(@RequestParam(required = false) String cursor,
+                                                        @RequestParam(required = false) Integer size,
+                                                        @RequestParam(required = false) String sort,
+                                                        @RequestParam(required = false) String view,
+                                                        @RequestParam(required = false) String fields,
+                                                        WebRequest webRequest) {
+        // view=summary or fields=client,items; a list screen that leaves out the items saves their select
+        FieldSet fieldSet = FieldSet.of(view, fields, PurchaseService.ASSOCIATIONS);
+        if (webRequest.checkNotModified(resourceVersions.collectionTag(ResourceVersions.PURCHASES))) {
+            return null;
+        }
+        KeysetPage<PurchaseDto> response = purchaseService.findAll(cursor, size, sort, fieldSet);
+        return new ResponseEntity<>(new PageDto<>(response.getContent(), response.getNextCursor()), HttpStatus.OK);
+    }
+
+    @GetMapping(produces = NDJSON)
+    @Operation(operationId = "Stream all purchases", summary = "Get all purchases from the database as NDJSON, one per line")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "The purchases are written while they are read, whatever their number"),
+            @ApiResponse(responseCode = "400", description = "The view or fields parameter is not valid")
+    })
+    public void streamAll(@RequestParam(required = false) String view,
+                          @RequestParam(required = false) String fields,
+                          HttpServletResponse response) throws IOException {
+        FieldSet fieldSet = FieldSet.of(view, fields, PurchaseService.ASSOCIATIONS);
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(NDJSON);
+        ndjsonExportService.exportAll(Purchase.class, fieldSet.includes(PurchaseService.CLIENT) ? "Purchase.client" : null, Purchase::getId,
+                purchase -> purchaseMapper.toDto(purchase, fieldSet), response.getOutputStream());
     }
 
     @GetMapping("/{id}")
     @Operation(operationId = "Get a purchase by id", summary = "Get a purchase from the database by purchase id")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "The purchase was successfully retrieved from the database"),
-            @ApiResponse(responseCode = "404", description = "The purchase was not found in the database")
+            @ApiResponse(responseCode = "404", description = "The purchase was not found in the database"),
+            @ApiResponse(responseCode = "304", description = "Nothing changed since the ETag sent in If-None-Match, the body is empty")
     })
-    public ResponseEntity<PurchaseDto> findById(@PathVariable Long id) {
-        Purchase response = purchaseService.findById(id);
-        return new ResponseEntity<>(purchaseMapper.toDto(response), HttpStatus.OK);
+    public ResponseEntity<PurchaseDto> findById(@PathVariable Long id, WebRequest webRequest) {
+        if (webRequest.checkNotModified(resourceVersions.purchaseTag(id))) {
+            return null;
+        }
+        return new ResponseEntity<>(purchaseService.findDtoById(id), HttpStatus.OK);
     }
 
     @GetMapping("/client")
@@ -57,11 +121,19 @@ public class PurchaseController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "The purchases were successfully retrieved from the database",
                     content = {@Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
-                            schema = @Schema(implementation = PurchaseDto[].class))})
+                            schema = @Schema(implementation = PurchaseDto[].class))}),
+            @ApiResponse(responseCode = "400", description = "The view or fields parameter is not valid"),
+            @ApiResponse(responseCode = "304", description = "Nothing changed since the ETag sent in If-None-Match, the body is empty")
     })
-    public ResponseEntity<List<PurchaseDto>> findByClient(@RequestParam Long id) {
-        List<Purchase> response = purchaseService.findByClient(id);
-        return new ResponseEntity<>(purchaseMapper.toDto(response), HttpStatus.OK);
+    public ResponseEntity<List<PurchaseDto>> findByClient(@RequestParam Long id,
+                                                          @RequestParam(required = false) String view,
+                                                          @RequestParam(required = false) String fields,
+                                                          WebRequest webRequest) {
+        FieldSet fieldSet = FieldSet.of(view, fields, PurchaseService.ASSOCIATIONS);
+        if (webRequest.checkNotModified(resourceVersions.collectionTag(ResourceVersions.PURCHASES))) {
+            return null;
+        }
+        return new ResponseEntity<>(purchaseService.findDtosByClient(id, fieldSet), HttpStatus.OK);
     }
 
     @PostMapping
@@ -70,9 +142,64 @@ public class PurchaseController {
             @ApiResponse(responseCode = "201", description = "The purchase was successfully added into the database"),
             @ApiResponse(responseCode = "400", description = "Validation error on the received request")
     })
-    public ResponseEntity<PurchaseDto> createPurchase(@RequestBody @Valid PurchaseDto purchase) {
-        Purchase response = purchaseService.create(purchaseMapper.toEntity(purchase));
-        return new ResponseEntity<>(purchaseMapper.toDto(response), HttpStatus.CREATED);
+    public ResponseEntity<PurchaseDto> createPurchase(@RequestBody @Valid PurchaseDto purchase,
+                                                      @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return new ResponseEntity<>(create(purchase), HttpStatus.CREATED);
+        }
+        // a retry with the same key gets the purchase created by the first request
+        PurchaseDto response = idempotencyStore.execute(idempotencyKey, fingerprint(purchase), () -> create(purchase));
+        return new ResponseEntity<>(response, HttpStatus.CREATED);
+    }
+
+    @PostMapping("/async")
+    @Operation(operationId = "Submit a purchase", summary = "Queue a purchase and return a ticket to poll for the result")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "The purchase was queued, its ticket was returned"),
+            @ApiResponse(responseCode = "400", description = "Validation error on the received request"),
+            @ApiResponse(responseCode = "503", description = "Too many purchases are waiting, the request should be retried later")
+    })
+    public ResponseEntity<PurchaseTicketDto> submitPurchase(@RequestBody @Valid PurchaseDto purchase) {
+        PurchaseTicketDto response = purchaseTicketService.submit(() -> create(purchase));
+        return ResponseEntity.accepted()
+                .location(URI.create("/purchases/async/" + response.getId()))
+                .body(response);
+    }
+
+    @GetMapping("/async/{ticketId}")
+    @Operation(operationId = "Get a purchase ticket", summary = "Get the status of a queued purchase, with the purchase once it was created")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "The ticket was found"),
+            @ApiResponse(responseCode = "404", description = "The ticket does not exist or has expired")
+    })
+    public ResponseEntity<PurchaseTicketDto> findTicket(@PathVariable String ticketId) {
+        return new ResponseEntity<>(purchaseTicketService.findById(ticketId), HttpStatus.OK);
+    }
+
+    @PostMapping(value = "/bulk", consumes = NDJSON, produces = NDJSON)
+    @Operation(operationId = "Import purchases", summary = "Add many purchases sent as NDJSON, one PurchaseDto per line")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "One result per line is streamed back while the purchases are added, each with its own status code")
+    })
+    public void importPurchases(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(NDJSON);
+        purchaseImportService.importAll(request.getInputStream(), response.getOutputStream());
+    }
+
+    private PurchaseDto create(PurchaseDto purchase) {
+        Purchase response = purchasePipeline.create(purchaseMapper.toEntity(purchase));
+        return purchaseMapper.toDto(response);
+    }
+
+    // the client and the ordered quantities, used to reject a key reused for another purchase
+    private static String fingerprint(PurchaseDto purchase) {
+        Long clientId = purchase.getClientDto() == null ? null : purchase.getClientDto().getId();
+        String items = purchase.getProductsDto().stream()
+                .map(item -> (item.getInventoryDto() == null ? null : item.getInventoryDto().getId()) + "x" + item.getOrderedQuantity())
+                .sorted()
+                .collect(Collectors.joining(","));
+        return Objects.toString(clientId) + ":" + items;
     }
 
     /*@PutMapping("/{id}") ----> un user nu poate sa modifice o comanda, poate doar sa o anuleze(delete)
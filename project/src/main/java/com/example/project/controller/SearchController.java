@@ -0,0 +1,36 @@
+package com.example.project.controller;
+
+import com.example.project.dto.ProductSearchHitDto;
+import com.example.project.service.ProductSearchIndex;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/search")
+public class SearchController {
+    private final ProductSearchIndex productSearchIndex;
+
+    public SearchController(ProductSearchIndex productSearchIndex) {
+        this.productSearchIndex = productSearchIndex;
+    }
+
+    @GetMapping
+    @Operation(operationId = "Search products", summary = "Search food, toys and medicine by the words of their brand, type, purpose and animal, typos included")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "The matching products, the best match first"),
+            @ApiResponse(responseCode = "400", description = "The query has no word OR too many words OR the size is not valid")
+    })
+    public ResponseEntity<List<ProductSearchHitDto>> search(@RequestParam String q,
+                                                            @RequestParam(required = false) Integer size) {
+        return new ResponseEntity<>(productSearchIndex.search(q, size), HttpStatus.OK);
+    }
+}
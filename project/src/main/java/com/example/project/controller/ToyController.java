@@ -1,9 +1,12 @@
 package com.example.project.controller;
 
+import com.example.project.dto.PageDto;
 import com.example.project.dto.ToyDto;
 import com.example.project.exception.BadRequestException;
 import com.example.project.mapper.ToyMapper;
-import com.example.project.model.Toy;
+import com.example.project.model.KeysetPage;
+import com.example.project.model.ProductFilter;
+import com.example.project.service.ResourceVersions;
 import com.example.project.service.ToyService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -14,18 +17,20 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.validation.Valid;
-import java.util.List;
 
 @RestController
 @RequestMapping("/toys")
 public class ToyController {
     private final ToyService toyService;
+    private final ResourceVersions resourceVersions;
     private final ToyMapper toyMapper;
 
-    public ToyController(ToyService toyService, ToyMapper toyMapper) {
+    public ToyController(ToyService toyService, ResourceVersions resourceVersions, ToyMapper toyMapper) {
         this.toyService = toyService;
+        this.resourceVersions = resourceVersions;
         this.toyMapper = toyMapper;
     }
 
@@ -34,22 +39,40 @@ public class ToyController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "The toys were successfully retrieved from the database",
                     content = {@Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
-                            schema = @Schema(implementation = ToyDto[].class))})
+                            schema = @Schema(implementation = PageDto.class))}),
+            @ApiResponse(responseCode = "400", description = "The cursor, size or sort parameter is not valid OR minPrice is above maxPrice"),
+            @ApiResponse(responseCode = "304", description = "Nothing changed since the ETag sent in If-None-Match, the body is empty")
     })
-    public ResponseEntity<List<ToyDto>> getAll() {
-        List<Toy> response = toyService.findAll();
-        return  new ResponseEntity<>(toyMapper.toDto(response), HttpStatus.OK);
+    public ResponseEntity<PageDto<ToyDto>> getAll(@RequestParam(required = false) String animal,
+                                                  @RequestParam(required = false) String brand,
+                                                  @RequestParam(required = false) Float minPrice,
+                                                  @RequestParam(required = false) Float maxPrice,
+                                                  @RequestParam(required = false) Boolean inStock,
+                                                  @RequestParam(required = false) String cursor,
+                                                  @RequestParam(required = false) Integer size,
+                                                  @RequestParam(required = false) String sort,
+                                                  WebRequest webRequest) {
+        if (webRequest.checkNotModified(resourceVersions.collectionTag(ResourceVersions.TOYS))) {
+            return null;
+        }
+        // the filters are applied by the database and can be combined, the cursor is only valid with the same filters
+        ProductFilter filter = ProductFilter.builder().animal(animal).brand(brand).minPrice(minPrice).maxPrice(maxPrice).inStock(inStock).build();
+        KeysetPage<ToyDto> response = toyService.findAll(filter, cursor, size, sort);
+        return new ResponseEntity<>(new PageDto<>(response.getContent(), response.getNextCursor()), HttpStatus.OK);
     }
 
     @GetMapping("/{id}")
     @Operation(operationId = "Get a toy by id", summary = "Get a toy from the database by toy id")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "The toy was successfully retrieved from the database"),
-            @ApiResponse(responseCode = "404", description = "The toy was not found in the database")
+            @ApiResponse(responseCode = "404", description = "The toy was not found in the database"),
+            @ApiResponse(responseCode = "304", description = "Nothing changed since the ETag sent in If-None-Match, the body is empty")
     })
-    public ResponseEntity<ToyDto> getToyById(@PathVariable Long id) {
-        Toy response = toyService.findById(id);
-        return new ResponseEntity<>(toyMapper.toDto(response), HttpStatus.OK);
+    public ResponseEntity<ToyDto> getToyById(@PathVariable Long id, WebRequest webRequest) {
+        if (webRequest.checkNotModified(resourceVersions.productTag("toy", id))) {
+            return null;
+        }
+        return new ResponseEntity<>(toyService.findDtoById(id), HttpStatus.OK);
     }
 
     @PostMapping
@@ -59,8 +82,7 @@ public class ToyController {
             @ApiResponse(responseCode = "400", description = "Validation error on the received request")
     })
     public ResponseEntity<ToyDto> createToy(@RequestBody @Valid ToyDto toy) {
-        Toy response = toyService.create(toyMapper.toEntity(toy));
-        return new ResponseEntity<>(toyMapper.toDto(response), HttpStatus.CREATED);
+        return new ResponseEntity<>(toyService.create(toyMapper.toEntity(toy)), HttpStatus.CREATED);
     }
 
     @PutMapping("/{id}")
@@ -74,8 +96,7 @@ public class ToyController {
         if (id != toy.getId()) {
             throw new BadRequestException("The path variable does not match the request body id");
         }
-        Toy response = toyService.update(toyMapper.toEntity(toy));
-        return new ResponseEntity<>(toyMapper.toDto(response), HttpStatus.OK);
+        return new ResponseEntity<>(toyService.update(toyMapper.toEntity(toy)), HttpStatus.OK);
     }
 
     @DeleteMapping("/{id}")
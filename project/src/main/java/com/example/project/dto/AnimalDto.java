@@ -1,6 +1,7 @@
 package com.example.project.dto;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.*;
 
 import javax.validation.constraints.NotBlank;
@@ -31,7 +32,19 @@ public class AnimalDto {
     @JsonFormat(pattern = "yyyy-MM-dd")
     private LocalDate birth_date;
 
+    // null and left out of the json when the fields of the request leave the owner out
     @NotNull
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private ClientDto ownerDto;
 
+    // for the "select new" projections of AnimalRepository, the owner comes from the joined row
+    public AnimalDto(Long id, String name, String species, String breed, LocalDate birth_date,
+                     Long ownerId, String ownerFirstName, String ownerLastName, String ownerEmail, String ownerCity, LocalDate ownerBirthDate) {
+        this(id, name, species, breed, birth_date, ClientDto.of(ownerId, ownerFirstName, ownerLastName, ownerEmail, ownerCity, ownerBirthDate));
+    }
+
+    // the animal row alone, for AnimalRepository.SELECT_SUMMARY
+    public AnimalDto(Long id, String name, String species, String breed, LocalDate birth_date) {
+        this(id, name, species, breed, birth_date, null);
+    }
 }
@@ -32,4 +32,9 @@ public class ClientDto {
 
     @JsonFormat(pattern = "yyyy-MM-dd")
     private LocalDate birth_date;
+
+    // null when the joined client is missing
+    public static ClientDto of(Long id, String first_name, String last_name, String email, String city, LocalDate birth_date) {
+        return id == null ? null : new ClientDto(id, first_name, last_name, email, city, birth_date);
+    }
 }
@@ -36,4 +36,9 @@ public class FoodDto {
     @NotNull
     private InventoryDto inventoryDto;
 
+    // for the "select new" projections of FoodRepository, the inventory comes from the joined row
+    public FoodDto(Long id, String brand, String type, Float price, Long quantityPerUnit, String animal,
+                   Long inventoryId, Long availableQuantity) {
+        this(id, brand, type, price, quantityPerUnit, animal, InventoryDto.of(inventoryId, availableQuantity));
+    }
 }
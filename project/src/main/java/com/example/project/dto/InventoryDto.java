@@ -17,4 +17,9 @@ public class InventoryDto {
     @NotNull
     @Min(0)
     private Long availableQuantity;
+
+    // null when the joined inventory is missing
+    public static InventoryDto of(Long id, Long availableQuantity) {
+        return id == null ? null : new InventoryDto(id, availableQuantity);
+    }
 }
@@ -1,5 +1,6 @@
 package com.example.project.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
 
 @Getter
@@ -11,5 +12,20 @@ public class ItemDto {
     private Long id;
     private Long orderedQuantity;
 
+    // filled in at checkout, ignored when sent
+    private Float unitPrice;
+    private String productType;
+    private Long productId;
+
     private InventoryDto inventoryDto;
+
+    // groups the items read for a page of purchases, never sent nor read
+    @JsonIgnore
+    private Long purchaseId;
+
+    // for the "select new" projection of ItemRepository
+    public ItemDto(Long id, Long orderedQuantity, Float unitPrice, String productType, Long productId,
+                   Long inventoryId, Long availableQuantity, Long purchaseId) {
+        this(id, orderedQuantity, unitPrice, productType, productId, InventoryDto.of(inventoryId, availableQuantity), purchaseId);
+    }
 }
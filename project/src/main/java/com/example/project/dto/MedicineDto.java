@@ -22,4 +22,9 @@ public class MedicineDto {
     private Float price;
     @NotNull
     private InventoryDto inventoryDto;
+
+    // for the "select new" projections of MedicineRepository, the inventory comes from the joined row
+    public MedicineDto(Long id, String animal, String purpose, Float price, Long inventoryId, Long availableQuantity) {
+        this(id, animal, purpose, price, InventoryDto.of(inventoryId, availableQuantity));
+    }
 }
@@ -0,0 +1,17 @@
+package com.example.project.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class PageDto<T> {
+    private List<T> content;
+
+    // pass it back as ?cursor= to get the next page, missing on the last page
+    private String nextCursor;
+}
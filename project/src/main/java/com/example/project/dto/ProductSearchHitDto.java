@@ -0,0 +1,28 @@
+package com.example.project.dto;
+
+import lombok.*;
+
+// one result of GET /search, the best match first; the stock is not part of it, GET /food/{id} (and so on) reads it
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ProductSearchHitDto {
+    // food, toy or medicine
+    private String productType;
+
+    private Long id;
+
+    private Float price;
+
+    private String animal;
+
+    private String brand;
+
+    private String type;
+
+    private String purpose;
+
+    private Float score;
+}
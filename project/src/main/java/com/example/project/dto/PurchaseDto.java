@@ -1,10 +1,13 @@
 package com.example.project.dto;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.*;
 
 import javax.validation.constraints.NotNull;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 @Getter
@@ -14,6 +17,9 @@ import java.util.List;
 @Builder
 public class PurchaseDto {
     private Long id;
+
+    // the associations are null and left out of the json when the fields of the request leave them out
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private ClientDto clientDto;
 
     private Float price;
@@ -22,6 +28,19 @@ public class PurchaseDto {
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
     private LocalDateTime time;
 
+    // a null item is rejected here, before the idempotency fingerprint or the mapping read it
     @NotNull
-    private List<ItemDto> productsDto;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<@NotNull ItemDto> productsDto;
+
+    // for the "select new" projections of PurchaseRepository; the items are read by a second query and set afterwards
+    public PurchaseDto(Long id, Float price, LocalDateTime time,
+                       Long clientId, String clientFirstName, String clientLastName, String clientEmail, String clientCity, LocalDate clientBirthDate) {
+        this(id, ClientDto.of(clientId, clientFirstName, clientLastName, clientEmail, clientCity, clientBirthDate), price, time, new ArrayList<>());
+    }
+
+    // the purchase row alone, for PurchaseRepository.SELECT_SUMMARY
+    public PurchaseDto(Long id, Float price, LocalDateTime time) {
+        this(id, null, price, time, new ArrayList<>());
+    }
 }
@@ -0,0 +1,21 @@
+package com.example.project.dto;
+
+import lombok.*;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class PurchaseImportResultDto {
+    // line of the record in the imported body, starting at 1
+    private Long line;
+
+    // id of the created purchase
+    private Long id;
+
+    // 201 when the purchase was created, otherwise the status POST /purchases would have answered
+    private Integer code;
+
+    private String message;
+}
@@ -0,0 +1,25 @@
+package com.example.project.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class PurchaseTicketDto {
+    private String id;
+
+    // PENDING, RUNNING, DONE or FAILED
+    private String status;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime submittedAt;
+
+    private PurchaseDto purchaseDto;
+
+    private ErrorDto error;
+}
@@ -25,4 +25,9 @@ public class ToyDto {
 
     @NotNull
     private InventoryDto inventoryDto;
+
+    // for the "select new" projections of ToyRepository, the inventory comes from the joined row
+    public ToyDto(Long id, String animal, Float price, String brand, Long inventoryId, Long availableQuantity) {
+        this(id, animal, price, brand, InventoryDto.of(inventoryId, availableQuantity));
+    }
 }
@@ -2,8 +2,11 @@ package com.example.project.mapper;
 
 import com.example.project.dto.AnimalDto;
 import com.example.project.model.Animal;
+import com.example.project.model.FieldSet;
+import com.example.project.service.AnimalService;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
+import org.mapstruct.Named;
 
 
 @Mapper(uses = {ClientMapper.class})
@@ -13,5 +16,16 @@ public interface AnimalMapper extends EntityMapper<AnimalDto, Animal> {
     AnimalDto toDto(Animal animal);
 
     @Mapping(target="owner", source = "ownerDto")
+    @Mapping(target = "version", ignore = true)
     Animal toEntity(AnimalDto animalDto);
+
+    // the owner is never touched if the fields leave it out, so a lazy one is never loaded
+    default AnimalDto toDto(Animal animal, FieldSet fields) {
+        return fields.includes(AnimalService.OWNER) ? toDto(animal) : toSummaryDto(animal);
+    }
+
+    // named, so it is never picked for the mappings above
+    @Named("fields")
+    @Mapping(target = "ownerDto", ignore = true)
+    AnimalDto toSummaryDto(Animal animal);
 }
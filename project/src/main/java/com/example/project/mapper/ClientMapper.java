@@ -3,7 +3,11 @@ package com.example.project.mapper;
 import com.example.project.dto.ClientDto;
 import com.example.project.model.Client;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 
 @Mapper
 public interface ClientMapper extends EntityMapper<ClientDto, Client>{
+
+    @Mapping(target = "version", ignore = true)
+    Client toEntity(ClientDto clientDto);
 }
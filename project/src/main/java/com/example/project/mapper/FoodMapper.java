@@ -13,5 +13,7 @@ public interface FoodMapper extends EntityMapper<FoodDto, Food>{
     FoodDto toDto(Food food);
 
     @Mapping(target = "inventory", source = "inventoryDto")
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "productType", ignore = true)
     Food toEntity(FoodDto foodDto);
 }
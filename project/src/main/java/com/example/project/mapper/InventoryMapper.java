@@ -2,7 +2,11 @@ package com.example.project.mapper;
 import com.example.project.dto.InventoryDto;
 import com.example.project.model.Inventory;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 
 @Mapper
 public interface InventoryMapper  extends EntityMapper<InventoryDto, Inventory>{
+
+    @Mapping(target = "version", ignore = true)
+    Inventory toEntity(InventoryDto inventoryDto);
 }
@@ -4,10 +4,14 @@ import com.example.project.dto.ItemDto;
 import com.example.project.model.Item;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
+import org.mapstruct.Mappings;
 
 @Mapper(uses = {InventoryMapper.class})
 public interface ItemMapper extends EntityMapper<ItemDto, Item>{
-    @Mapping(target = "inventoryDto", source = "inventory")
+    @Mappings({
+            @Mapping(target = "inventoryDto", source = "inventory"),
+            @Mapping(target = "purchaseId", source = "purchase.id")
+    })
     ItemDto toDto(Item item);
 
     @Mapping(target = "inventory", source = "inventoryDto")
@@ -11,5 +11,7 @@ public interface MedicineMapper extends EntityMapper<MedicineDto, Medicine>{
     MedicineDto toDto(Medicine medicine);
 
     @Mapping(target = "inventory", source = "inventoryDto")
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "productType", ignore = true)
     Medicine toEntity(MedicineDto medicineDto);
 }
@@ -3,7 +3,13 @@ package com.example.project.mapper;
 import com.example.project.dto.ProductTypeDto;
 import com.example.project.model.ProductType;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 
 @Mapper
 public interface ProductTypeMapper extends EntityMapper<ProductTypeDto, ProductType>{
+
+    // the price and the inventory are only used to create purchases, the dto does not carry them
+    @Mapping(target = "price", ignore = true)
+    @Mapping(target = "inventoryId", ignore = true)
+    ProductType toEntity(ProductTypeDto productTypeDto);
 }
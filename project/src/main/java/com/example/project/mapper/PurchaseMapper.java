@@ -1,10 +1,19 @@
 package com.example.project.mapper;
 
+import com.example.project.dto.ClientDto;
+import com.example.project.dto.ItemDto;
 import com.example.project.dto.PurchaseDto;
+import com.example.project.model.Client;
+import com.example.project.model.FieldSet;
+import com.example.project.model.Item;
 import com.example.project.model.Purchase;
+import com.example.project.service.PurchaseService;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.Mappings;
+import org.mapstruct.Named;
+
+import java.util.List;
 
 @Mapper(uses  = {ItemMapper.class, ClientMapper.class})
 public interface PurchaseMapper extends EntityMapper<PurchaseDto, Purchase>{
@@ -19,4 +28,30 @@ public interface PurchaseMapper extends EntityMapper<PurchaseDto, Purchase>{
             @Mapping(target = "client", source = "clientDto")
     })
     Purchase toEntity(PurchaseDto purchaseDto);
+
+    // an association the fields leave out is never touched, so a lazy one is never loaded
+    default PurchaseDto toDto(Purchase purchase, FieldSet fields) {
+        PurchaseDto dto = toSummaryDto(purchase);
+        if (fields.includes(PurchaseService.CLIENT)) {
+            dto.setClientDto(toClientDto(purchase.getClient()));
+        }
+        if (fields.includes(PurchaseService.ITEMS)) {
+            dto.setProductsDto(toItemDtos(purchase.getProducts()));
+        }
+        return dto;
+    }
+
+    // named, so they are only used by toDto(purchase, fields) and never picked for the mappings above
+    @Named("fields")
+    @Mappings({
+            @Mapping(target = "productsDto", ignore = true),
+            @Mapping(target = "clientDto", ignore = true)
+    })
+    PurchaseDto toSummaryDto(Purchase purchase);
+
+    @Named("fields")
+    ClientDto toClientDto(Client client);
+
+    @Named("fields")
+    List<ItemDto> toItemDtos(List<Item> items);
 }
@@ -11,5 +11,7 @@ public interface ToyMapper  extends EntityMapper<ToyDto, Toy>{
     ToyDto toDto(Toy toy);
 
     @Mapping(target = "inventory", source = "inventoryDto")
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "productType", ignore = true)
     Toy toEntity(ToyDto toyDto);
 }
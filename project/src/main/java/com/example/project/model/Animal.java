@@ -1,12 +1,14 @@
 package com.example.project.model;
 
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 
 import javax.persistence.*;
 import java.time.LocalDate;
 
 @Entity
 @Table(name="animal")
+@NamedEntityGraph(name = "Animal.owner", attributeNodes = @NamedAttributeNode("owner"))
 @Getter
 @Setter
 @AllArgsConstructor
@@ -14,7 +16,9 @@ import java.time.LocalDate;
 @Builder
 public class Animal {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "animal_id")
+    @TableGenerator(name = "animal_id", table = "id_generator", pkColumnName = "name", valueColumnName = "next_val",
+            pkColumnValue = "animal", allocationSize = 50)
     @Column(name="animal_id")
     private Long id;
 
@@ -29,7 +33,13 @@ public class Animal {
     @Column(name="animal_birth_date")
     private LocalDate birth_date;
 
+    // raised by ResourceVersions with every update, never written by hibernate
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    @Setter(AccessLevel.NONE)
+    private Long version;
 
-    @ManyToOne
+
+    @ManyToOne(fetch = FetchType.LAZY)
     private Client owner;
 }
@@ -1,6 +1,8 @@
 package com.example.project.model;
 
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.ColumnDefault;
 
 import javax.persistence.*;
 import java.time.LocalDate;
@@ -8,6 +10,8 @@ import java.util.List;
 
 @Entity
 @Table(name="client")
+// owners and buyers referenced from a list of animals or purchases are loaded 50 per select
+@BatchSize(size = 50)
 @Getter
 @Setter
 @AllArgsConstructor
@@ -15,7 +19,9 @@ import java.util.List;
 @Builder
 public class Client {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "client_id")
+    @TableGenerator(name = "client_id", table = "id_generator", pkColumnName = "name", valueColumnName = "next_val",
+            pkColumnValue = "client", allocationSize = 50)
     @Column(name="client_id")
     private Long id;
 
@@ -31,6 +37,12 @@ public class Client {
     @Column(name="client_birth_date")
     private LocalDate birth_date;
 
+    // raised by ResourceVersions with every update, never written by hibernate
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    @Setter(AccessLevel.NONE)
+    private Long version;
+
 
     @OneToMany(mappedBy = "owner", cascade = {CascadeType.PERSIST, CascadeType.MERGE})
     private List<Animal> animals;
@@ -0,0 +1,53 @@
+package com.example.project.model;
+
+import com.example.project.exception.BadRequestException;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// ?view=&fields= of the purchase and animal lists: the associations the dtos embed. All of them by default, none with
+// view=summary, only the listed ones with fields=client,items; one that is left out is neither read nor serialized.
+// The columns of the row itself are always sent, they come with the same select
+public class FieldSet {
+    public static final String FULL = "full";
+    public static final String SUMMARY = "summary";
+
+    private final Set<String> associations;
+
+    private FieldSet(Set<String> associations) {
+        this.associations = associations;
+    }
+
+    // known are the associations the resource has
+    public static FieldSet of(String view, String fields, List<String> known) {
+        if (view != null && fields != null) {
+            throw new BadRequestException("Either the view or the fields can be chosen, not both.");
+        }
+        if (fields != null) {
+            Set<String> requested = new HashSet<>();
+            for (String field : fields.split(",")) {
+                String name = field.trim();
+                if (name.isEmpty()) {
+                    continue;
+                }
+                if (!known.contains(name)) {
+                    throw new BadRequestException(String.format("The fields can only be %s.", String.join(", ", known)));
+                }
+                requested.add(name);
+            }
+            return new FieldSet(requested);
+        }
+        if (view == null || FULL.equals(view)) {
+            return new FieldSet(new HashSet<>(known));
+        }
+        if (SUMMARY.equals(view)) {
+            return new FieldSet(Set.of());
+        }
+        throw new BadRequestException(String.format("The view can only be %s or %s.", FULL, SUMMARY));
+    }
+
+    public boolean includes(String association) {
+        return associations.contains(association);
+    }
+}
@@ -1,12 +1,16 @@
 package com.example.project.model;
 
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.ColumnDefault;
 
 import javax.persistence.*;
 import java.util.List;
 
 @Entity
 @Table(name="inventory")
+// the lazy inventories of a list of items are initialized 50 at a time
+@BatchSize(size = 50)
 @Getter
 @Setter
 @AllArgsConstructor
@@ -14,22 +18,24 @@ import java.util.List;
 @Builder
 public class Inventory {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "inventory_id")
+    @TableGenerator(name = "inventory_id", table = "id_generator", pkColumnName = "name", valueColumnName = "next_val",
+            pkColumnValue = "inventory", allocationSize = 50)
     private Long id;
 
     //private String type;
 
     private Long availableQuantity;
 
+    // raised with every change of the quantity (the stock statements and ResourceVersions), never written by hibernate
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    @Setter(AccessLevel.NONE)
+    private Long version;
+
     @OneToMany(mappedBy = "inventory",  cascade = {CascadeType.MERGE, CascadeType.PERSIST})
     private List<Item> itemList;
 
-    @OneToOne
-    private Food food;
-
-    @OneToOne
-    private Toy toy;
-
-    @OneToOne
-    private  Medicine medicine;
+    // no link back to the product: product.inventory_id is the only foreign key, so loading an inventory reads the
+    // inventory table alone; the product of an inventory is looked up through ProductRepository
 }
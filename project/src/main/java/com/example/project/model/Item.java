@@ -1,11 +1,13 @@
 package com.example.project.model;
 
 import lombok.*;
+import org.hibernate.annotations.Immutable;
 
 import javax.persistence.*;
 
 @Entity
 @Table(name="item")
+@Immutable
 @Getter
 @Setter
 @AllArgsConstructor
@@ -13,14 +15,21 @@ import javax.persistence.*;
 @Builder
 public class Item {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "item_id")
+    @TableGenerator(name = "item_id", table = "id_generator", pkColumnName = "name", valueColumnName = "next_val",
+            pkColumnValue = "item", allocationSize = 50)
     private Long id;
 
     private Long orderedQuantity;
 
-    @ManyToOne
+    // the product and its price at checkout, a later change in the catalog does not change the purchase
+    private Float unitPrice;
+    private String productType;
+    private Long productId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     private Inventory inventory;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Purchase purchase;
 }
@@ -0,0 +1,14 @@
+package com.example.project.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+// one page of a list endpoint; nextCursor is null on the last page
+@Getter
+@AllArgsConstructor
+public class KeysetPage<T> {
+    private final List<T> content;
+    private final String nextCursor;
+}
@@ -1,24 +1,16 @@
 package com.example.project.model;
 
 import lombok.*;
+import lombok.experimental.SuperBuilder;
 
 import javax.persistence.*;
 
 @Entity
-@Table(name="medicine")
+@DiscriminatorValue("medicine")
 @Getter
 @Setter
-@AllArgsConstructor
 @NoArgsConstructor
-@Builder
-public class Medicine {
-    @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Long id;
-    private String animal;
-    private Float price;
+@SuperBuilder
+public class Medicine extends Product {
     private String purpose;
-
-    @OneToOne(cascade = CascadeType.ALL)
-    private Inventory inventory;
 }
@@ -0,0 +1,57 @@
+package com.example.project.model;
+
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+
+import javax.persistence.*;
+
+// food, toys and medicine share one table, so an inventory is resolved to its product and price with a single lookup
+// the /food, /toys and /medicine pages read one product_type in id order, hence the (product_type, id) index,
+// and their animal and brand filters one product_type and animal / brand in id order
+// the rows (inventory_id included) are kept in the second-level cache, the inventory and its stock are not
+@Entity
+@Table(name="product", indexes = {@Index(name = "product_type_id_idx", columnList = "product_type, id"),
+        @Index(name = "product_type_animal_idx", columnList = "product_type, animal"),
+        @Index(name = "product_type_brand_idx", columnList = "product_type, brand")})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Product.CACHE_REGION)
+@Inheritance(strategy = InheritanceType.SINGLE_TABLE)
+@DiscriminatorColumn(name = "product_type")
+@Getter
+@Setter
+@NoArgsConstructor
+@SuperBuilder
+public abstract class Product {
+    public static final String CACHE_REGION = "product";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "product_id")
+    @TableGenerator(name = "product_id", table = "id_generator", pkColumnName = "name", valueColumnName = "next_val",
+            pkColumnValue = "product", allocationSize = 50)
+    private Long id;
+
+    private Float price;
+    private String animal;
+
+    // the one owning side of product <-> inventory, a proxy until the inventory itself is read
+    // a new product creates its new inventory, but the stock is only changed through the StockLedger: a product update
+    // keeps the quantity of its inventory and a product delete leaves it, it is deleted through InventoryService
+    @OneToOne(cascade = CascadeType.PERSIST, fetch = FetchType.LAZY)
+    @JoinColumn(name = "inventory_id", unique = true)
+    private Inventory inventory;
+
+    // the discriminator value (food, toy or medicine), read only so it can be selected in queries
+    @Column(name = "product_type", insertable = false, updatable = false)
+    @Setter(AccessLevel.NONE)
+    private String productType;
+
+    // raised by ResourceVersions in the transaction of every change, past hibernate, so the cached rows keep an older
+    // value: it is only ever read with ProductRepository.findVersionById
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    @Setter(AccessLevel.NONE)
+    private Long version;
+}
@@ -0,0 +1,26 @@
+package com.example.project.model;
+
+import lombok.Builder;
+import lombok.Getter;
+import org.springframework.util.StringUtils;
+
+import java.util.stream.Stream;
+
+// the query parameters of GET /food, /toys and /medicine, a missing one does not filter
+// brand applies to food and toys, type to food, purpose to medicine
+@Getter
+@Builder
+public class ProductFilter {
+    private final String animal;
+    private final String brand;
+    private final String type;
+    private final String purpose;
+    private final Float minPrice;
+    private final Float maxPrice;
+    private final Boolean inStock;
+
+    public boolean isEmpty() {
+        return Stream.of(animal, brand, type, purpose).noneMatch(StringUtils::hasText)
+                && Stream.of(minPrice, maxPrice, inStock).allMatch(value -> value == null);
+    }
+}
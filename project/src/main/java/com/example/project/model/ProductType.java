@@ -10,4 +10,11 @@ import lombok.*;
 public class ProductType {
     private String type;
     private Long id;
+    private Float price;
+    private Long inventoryId;
+
+    public ProductType(String type, Long id) {
+        this.type = type;
+        this.id = id;
+    }
 }
@@ -1,6 +1,8 @@
 package com.example.project.model;
 
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Immutable;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
@@ -8,6 +10,15 @@ import java.util.List;
 
 @Entity
 @Table(name="purchase")
+// a purchase is only ever inserted or cancelled (deleted), hibernate neither snapshots nor dirty-checks it
+@Immutable
+// every association is lazy, each read says what it needs: the client alone (pages, the ndjson export)
+// or the client with the items and their inventories (a single purchase)
+@NamedEntityGraph(name = "Purchase.client", attributeNodes = @NamedAttributeNode("client"))
+@NamedEntityGraph(name = "Purchase.items", attributeNodes = {
+        @NamedAttributeNode("client"),
+        @NamedAttributeNode(value = "products", subgraph = "item.inventory")
+}, subgraphs = @NamedSubgraph(name = "item.inventory", attributeNodes = @NamedAttributeNode("inventory")))
 @Getter
 @Setter
 @AllArgsConstructor
@@ -15,15 +26,20 @@ import java.util.List;
 @Builder
 public class Purchase {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // ids are reserved 50 at a time from the id_generator table, unlike IDENTITY this lets hibernate batch the inserts
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "purchase_id")
+    @TableGenerator(name = "purchase_id", table = "id_generator", pkColumnName = "name", valueColumnName = "next_val",
+            pkColumnValue = "purchase", allocationSize = 50)
     private Long id;
 
     private Float price;
     private LocalDateTime time;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Client client;
 
+    // the items of up to 50 purchases already in the persistence context come with one select
+    @BatchSize(size = 50)
     @OneToMany(mappedBy = "purchase",  cascade = {CascadeType.MERGE, CascadeType.PERSIST})
     private List<Item> products;
 }
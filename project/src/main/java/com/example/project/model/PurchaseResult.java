@@ -0,0 +1,22 @@
+package com.example.project.model;
+
+import lombok.*;
+
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class PurchaseResult {
+    private Purchase purchase;
+    private RuntimeException error;
+
+    public static PurchaseResult success(Purchase purchase) {
+        return new PurchaseResult(purchase, null);
+    }
+
+    public static PurchaseResult failure(RuntimeException error) {
+        return new PurchaseResult(null, error);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
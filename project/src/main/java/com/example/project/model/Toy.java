@@ -1,24 +1,16 @@
 package com.example.project.model;
 
 import lombok.*;
+import lombok.experimental.SuperBuilder;
 
 import javax.persistence.*;
 
 @Entity
-@Table(name="toy")
+@DiscriminatorValue("toy")
 @Getter
 @Setter
-@AllArgsConstructor
 @NoArgsConstructor
-@Builder
-public class Toy {
-    @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Long id;
-    private String animal;
-    private Float price;
+@SuperBuilder
+public class Toy extends Product {
     private String brand;
-
-    @OneToOne(cascade = CascadeType.ALL)
-    private Inventory inventory;
 }
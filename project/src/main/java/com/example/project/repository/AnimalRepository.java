@@ -1,12 +1,55 @@
 package com.example.project.repository;
 
+import com.example.project.dto.AnimalDto;
 import com.example.project.model.Animal;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface AnimalRepository extends JpaRepository<Animal, Long> {
+    // the owner is joined into the same row instead of being loaded as an entity
+    String SELECT_DTO = "select new com.example.project.dto.AnimalDto(a.id, a.name, a.species, a.breed, a.birth_date, " +
+            "o.id, o.first_name, o.last_name, o.email, o.city, o.birth_date) from Animal a left join a.owner o";
+    // without the owner nothing is joined, the owner id is the foreign key column of animal
+    String SELECT_SUMMARY = "select new com.example.project.dto.AnimalDto(a.id, a.name, a.species, a.breed, a.birth_date) from Animal a";
+
+    @Query(SELECT_DTO + " where a.id > :id")
+    List<AnimalDto> findDtosByIdGreaterThan(@Param("id") Long id, Pageable pageable);
+
+    @Query(SELECT_DTO + " where a.id < :id")
+    List<AnimalDto> findDtosByIdLessThan(@Param("id") Long id, Pageable pageable);
+
+    @Query(SELECT_SUMMARY + " where a.id > :id")
+    List<AnimalDto> findSummariesByIdGreaterThan(@Param("id") Long id, Pageable pageable);
+
+    @Query(SELECT_SUMMARY + " where a.id < :id")
+    List<AnimalDto> findSummariesByIdLessThan(@Param("id") Long id, Pageable pageable);
+
+    @Query(SELECT_DTO + " where a.id = :id")
+    Optional<AnimalDto> findDtoById(@Param("id") Long id);
+
+    // the owner is part of the dto, so its version is part of the animal's: "<animal version>.<owner version>"
+    @Query("select concat(str(a.version), '.', coalesce(str(o.version), '')) from Animal a left join a.owner o where a.id = :id")
+    Optional<String> findVersionById(@Param("id") Long id);
+
+    @Query(SELECT_DTO + " where o.id = :ownerId order by a.id")
+    List<AnimalDto> findDtosByOwnerId(@Param("ownerId") Long ownerId);
+
+    @Query(SELECT_SUMMARY + " where a.owner.id = :ownerId order by a.id")
+    List<AnimalDto> findSummariesByOwnerId(@Param("ownerId") Long ownerId);
+
+    // the owner is lazy, the entity reads join it in rather than selecting it afterwards
+    @EntityGraph("Animal.owner")
     List<Animal> findByOwnerId(Long id);
+
+    @Override
+    @EntityGraph("Animal.owner")
+    Optional<Animal> findById(Long id);
 }
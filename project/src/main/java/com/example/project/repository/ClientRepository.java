@@ -1,10 +1,31 @@
 package com.example.project.repository;
 
+import com.example.project.dto.ClientDto;
 import com.example.project.model.Client;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 @Repository
-public interface ClientRepository extends JpaRepository<Client,Long> {
+public interface ClientRepository extends JpaRepository<Client, Long> {
+    String SELECT_DTO = "select new com.example.project.dto.ClientDto(c.id, c.first_name, c.last_name, c.email, c.city, c.birth_date) " +
+            "from Client c";
+
+    @Query(SELECT_DTO + " where c.id > :id")
+    List<ClientDto> findDtosByIdGreaterThan(@Param("id") Long id, Pageable pageable);
+
+    @Query(SELECT_DTO + " where c.id < :id")
+    List<ClientDto> findDtosByIdLessThan(@Param("id") Long id, Pageable pageable);
+
+    @Query(SELECT_DTO + " where c.id = :id")
+    Optional<ClientDto> findDtoById(@Param("id") Long id);
 
+    // answers a conditional GET /clients/{id} through the primary key, empty if there is no such client
+    @Query("select c.version from Client c where c.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
 }
@@ -1,11 +1,32 @@
 package com.example.project.repository;
 
+import com.example.project.dto.FoodDto;
 import com.example.project.model.Food;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 @Repository
-public interface FoodRepository extends JpaRepository<Food, Long> {
+public interface FoodRepository extends JpaRepository<Food, Long>, SearchRepository<Food> {
+    // read endpoints: the dto is built straight from the selected columns, no entity is loaded nor tracked
+    String SELECT_DTO = "select new com.example.project.dto.FoodDto(f.id, f.brand, f.type, f.price, f.quantityPerUnit, f.animal, i.id, i.availableQuantity) " +
+            "from Food f left join f.inventory i";
+
+    @Query(SELECT_DTO + " where f.id > :id")
+    List<FoodDto> findDtosByIdGreaterThan(@Param("id") Long id, Pageable pageable);
+
+    @Query(SELECT_DTO + " where f.id < :id")
+    List<FoodDto> findDtosByIdLessThan(@Param("id") Long id, Pageable pageable);
+
     Boolean existsByInventoryId(Long id);
+
+    // the inventory the product has right now, read before a write so its catalog cache entry can be dropped
+    @Query("select i.id from Food f left join f.inventory i where f.id = :id")
+    Optional<Long> findInventoryIdById(@Param("id") Long id);
     Food findByInventoryId(Long id);
 }
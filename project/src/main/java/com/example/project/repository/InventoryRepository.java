@@ -2,8 +2,49 @@ package com.example.project.repository;
 
 import com.example.project.model.Inventory;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface InventoryRepository extends JpaRepository<Inventory, Long> {
+public interface InventoryRepository extends JpaRepository<Inventory, Long>, KeysetRepository<Inventory> {
+
+    // guarded in the statement itself: the row is only changed if the stock does not go below zero
+    // returns the number of affected rows, 0 meaning not enough stock (or no such inventory)
+    @Modifying
+    @Transactional
+    @Query("update Inventory i set i.availableQuantity = i.availableQuantity + :delta, i.version = i.version + 1 " +
+            "where i.id = :id and i.availableQuantity + :delta >= 0")
+    int adjustAvailableQuantity(@Param("id") Long id, @Param("delta") Long delta);
+
+    // puts back everything ordered in the purchase, in one statement over its items
+    @Modifying
+    @Query("update Inventory i set i.availableQuantity = i.availableQuantity + " +
+            "(select sum(it.orderedQuantity) from Item it where it.inventory = i and it.purchase.id = :purchaseId), i.version = i.version + 1 " +
+            "where i.id in (select it.inventory.id from Item it where it.purchase.id = :purchaseId)")
+    int restockPurchase(@Param("purchaseId") Long purchaseId);
+
+    @Query("select i.id as id, i.availableQuantity as availableQuantity from Inventory i")
+    List<Stock> findAllQuantities();
+
+    @Query("select i.id as id, i.availableQuantity as availableQuantity from Inventory i where i.id in :ids")
+    List<Stock> findQuantitiesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select i.availableQuantity from Inventory i where i.id = :id")
+    Long findAvailableQuantityById(@Param("id") Long id);
+
+    // answers a conditional GET /inventory/{id} through the primary key, empty if there is no such inventory
+    @Query("select i.version from Inventory i where i.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    interface Stock {
+        Long getId();
+        Long getAvailableQuantity();
+    }
 }
@@ -1,12 +1,33 @@
 package com.example.project.repository;
 
+import com.example.project.dto.ItemDto;
 import com.example.project.model.Item;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface ItemRepository extends JpaRepository<Item, Long> {
     List<Item> findByPurchaseId(Long id);
+
+    @Query("select it.inventory.id as inventoryId, sum(it.orderedQuantity) as quantity from Item it where it.purchase.id = :purchaseId group by it.inventory.id")
+    List<OrderedQuantity> findOrderedQuantitiesByPurchaseId(@Param("purchaseId") Long purchaseId);
+
+    @Query("select new com.example.project.dto.ItemDto(it.id, it.orderedQuantity, it.unitPrice, it.productType, it.productId, " +
+            "i.id, i.availableQuantity, it.purchase.id) from Item it left join it.inventory i where it.purchase.id in :purchaseIds order by it.id")
+    List<ItemDto> findDtosByPurchaseIds(@Param("purchaseIds") Collection<Long> purchaseIds);
+
+    @Modifying
+    @Query("delete from Item it where it.purchase.id = :purchaseId")
+    int deleteByPurchaseId(@Param("purchaseId") Long purchaseId);
+
+    interface OrderedQuantity {
+        Long getInventoryId();
+        Long getQuantity();
+    }
 }
@@ -0,0 +1,15 @@
+package com.example.project.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.NoRepositoryBean;
+
+import java.util.List;
+
+// the list endpoints page through the rows by id: "where id > last order by id limit n" walks the primary key,
+// so a deep page costs as much as the first one (unlike an offset, which reads and throws away the rows before it)
+@NoRepositoryBean
+public interface KeysetRepository<T> {
+    List<T> findByIdGreaterThan(Long id, Pageable pageable);
+
+    List<T> findByIdLessThan(Long id, Pageable pageable);
+}
@@ -1,11 +1,30 @@
 package com.example.project.repository;
 
+import com.example.project.dto.MedicineDto;
 import com.example.project.model.Medicine;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 @Repository
-public interface MedicineRepository extends JpaRepository<Medicine, Long> {
+public interface MedicineRepository extends JpaRepository<Medicine, Long>, SearchRepository<Medicine> {
+    String SELECT_DTO = "select new com.example.project.dto.MedicineDto(m.id, m.animal, m.purpose, m.price, i.id, i.availableQuantity) " +
+            "from Medicine m left join m.inventory i";
+
+    @Query(SELECT_DTO + " where m.id > :id")
+    List<MedicineDto> findDtosByIdGreaterThan(@Param("id") Long id, Pageable pageable);
+
+    @Query(SELECT_DTO + " where m.id < :id")
+    List<MedicineDto> findDtosByIdLessThan(@Param("id") Long id, Pageable pageable);
+
     Boolean existsByInventoryId(Long id);
+
+    @Query("select i.id from Medicine m left join m.inventory i where m.id = :id")
+    Optional<Long> findInventoryIdById(@Param("id") Long id);
     Medicine findByInventoryId(Long id);
 }
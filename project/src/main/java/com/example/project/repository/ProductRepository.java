@@ -0,0 +1,52 @@
+package com.example.project.repository;
+
+import com.example.project.model.Product;
+import com.example.project.model.ProductType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ProductRepository extends JpaRepository<Product, Long> {
+
+    // one lookup on the unique inventory_id key, whatever the kind of product
+    @Query("select new com.example.project.model.ProductType(p.productType, p.id, p.price, p.inventory.id) from Product p where p.inventory.id = :id")
+    Optional<ProductType> findProductTypeByInventoryId(@Param("id") Long id);
+
+    @Query("select new com.example.project.model.ProductType(p.productType, p.id, p.price, p.inventory.id) from Product p where p.inventory.id in :ids")
+    List<ProductType> findProductTypesByInventoryIds(@Param("ids") Collection<Long> ids);
+
+    @Query("select min(p.id) as min, max(p.id) as max from Product p")
+    IdRange findIdRange();
+
+    // the searched columns of food, toys and medicine, straight from the shared table (the ones a kind does not have are null)
+    @Query(value = "select product_type as productType, id, price, animal, brand, type, purpose from product where id between :from and :to",
+            nativeQuery = true)
+    List<SearchText> findSearchTextByIdBetween(@Param("from") Long from, @Param("to") Long to);
+
+    // the inventory is part of the dto, so its version is part of the product's: "<product version>.<inventory version>",
+    // read from the table and not the second-level cache, empty if there is no such product of that kind
+    @Query("select concat(str(p.version), '.', coalesce(str(i.version), '')) from Product p left join p.inventory i " +
+            "where p.id = :id and p.productType = :productType")
+    Optional<String> findVersionById(@Param("productType") String productType, @Param("id") Long id);
+
+    interface IdRange {
+        Long getMin();
+        Long getMax();
+    }
+
+    interface SearchText {
+        String getProductType();
+        Long getId();
+        Float getPrice();
+        String getAnimal();
+        String getBrand();
+        String getType();
+        String getPurpose();
+    }
+}
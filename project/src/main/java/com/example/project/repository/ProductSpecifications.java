@@ -0,0 +1,70 @@
+package com.example.project.repository;
+
+import com.example.project.exception.BadRequestException;
+import com.example.project.model.Inventory;
+import com.example.project.model.Product;
+import com.example.project.model.ProductFilter;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+
+// the where clauses of the filtered /food, /toys and /medicine pages, a filter that was not sent adds nothing
+// the product_type of the repository is added by hibernate, (product_type, animal) and (product_type, brand) are indexed
+public final class ProductSpecifications {
+
+    private ProductSpecifications() {
+    }
+
+    // the filters every kind of product has, with its inventory read in the same select
+    public static <T extends Product> Specification<T> matching(ProductFilter filter) {
+        return Specification.where(ProductSpecifications.<T>withInventory(filter.getInStock()))
+                .and(equalTo("animal", filter.getAnimal()))
+                .and(priceBetween(filter.getMinPrice(), filter.getMaxPrice()));
+    }
+
+    public static <T extends Product> Specification<T> equalTo(String attribute, String value) {
+        if (!StringUtils.hasText(value)) {
+            return null;
+        }
+        return (root, query, builder) -> builder.equal(root.get(attribute), value);
+    }
+
+    public static <T extends Product> Specification<T> priceBetween(Float min, Float max) {
+        if (min == null && max == null) {
+            return null;
+        }
+        if (min != null && max != null && min > max) {
+            throw new BadRequestException(String.format("The minimum price (%s) is above the maximum price (%s).", min, max));
+        }
+        return (root, query, builder) -> {
+            if (min == null) {
+                return builder.le(root.<Float>get("price"), max);
+            }
+            if (max == null) {
+                return builder.ge(root.<Float>get("price"), min);
+            }
+            return builder.between(root.<Float>get("price"), min, max);
+        };
+    }
+
+    // the inventory is fetched with the product (a page costs one select, not one more per row); the stock filter
+    // reads available_quantity from the same join, a product without an inventory counts as out of stock
+    @SuppressWarnings("unchecked")
+    public static <T extends Product> Specification<T> withInventory(Boolean inStock) {
+        return (root, query, builder) -> {
+            boolean count = Long.class.equals(query.getResultType()) || long.class.equals(query.getResultType());
+            if (count && inStock == null) {
+                return null;
+            }
+            Join<T, Inventory> inventory = count ? root.join("inventory", JoinType.LEFT)
+                    : (Join<T, Inventory>) root.<T, Inventory>fetch("inventory", JoinType.LEFT);
+            if (inStock == null) {
+                return null;
+            }
+            return inStock ? builder.gt(inventory.<Long>get("availableQuantity"), 0L)
+                    : builder.or(builder.isNull(inventory.<Long>get("availableQuantity")), builder.le(inventory.<Long>get("availableQuantity"), 0L));
+        };
+    }
+}
@@ -1,12 +1,69 @@
 package com.example.project.repository;
 
+import com.example.project.dto.PurchaseDto;
 import com.example.project.model.Purchase;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface PurchaseRepository extends JpaRepository<Purchase, Long> {
+    // one row per purchase with its client, the items are added from ItemRepository.findDtosByPurchaseIds
+    String SELECT_DTO = "select new com.example.project.dto.PurchaseDto(p.id, p.price, p.time, " +
+            "c.id, c.first_name, c.last_name, c.email, c.city, c.birth_date) from Purchase p left join p.client c";
+    // without the client nothing is joined, the client id is the foreign key column of purchase
+    String SELECT_SUMMARY = "select new com.example.project.dto.PurchaseDto(p.id, p.price, p.time) from Purchase p";
+
+    @Query(SELECT_DTO + " where p.id > :id")
+    List<PurchaseDto> findDtosByIdGreaterThan(@Param("id") Long id, Pageable pageable);
+
+    @Query(SELECT_DTO + " where p.id < :id")
+    List<PurchaseDto> findDtosByIdLessThan(@Param("id") Long id, Pageable pageable);
+
+    @Query(SELECT_SUMMARY + " where p.id > :id")
+    List<PurchaseDto> findSummariesByIdGreaterThan(@Param("id") Long id, Pageable pageable);
+
+    @Query(SELECT_SUMMARY + " where p.id < :id")
+    List<PurchaseDto> findSummariesByIdLessThan(@Param("id") Long id, Pageable pageable);
+
+    @Query(SELECT_DTO + " where p.id = :id")
+    Optional<PurchaseDto> findDtoById(@Param("id") Long id);
+
+    // a purchase never changes, its dto does with the client and the stock of the ordered inventories:
+    // "<client version>.<inventories>.<sum of their versions>", the versions only grow so any change raises the sum
+    @Query("select concat(coalesce(str(c.version), ''), '.', str(count(i.id)), '.', str(coalesce(sum(i.version), 0))) " +
+            "from Purchase p left join p.client c left join p.products it left join it.inventory i where p.id = :id group by p.id, c.version")
+    Optional<String> findVersionById(@Param("id") Long id);
+
+    @Query(SELECT_DTO + " where c.id = :clientId order by p.id")
+    List<PurchaseDto> findDtosByClientId(@Param("clientId") Long clientId);
+
+    @Query(SELECT_SUMMARY + " where p.client.id = :clientId order by p.id")
+    List<PurchaseDto> findSummariesByClientId(@Param("clientId") Long clientId);
+
+    // the items of the whole list follow in one batch, see Purchase.products
+    @EntityGraph("Purchase.client")
     List<Purchase> findByClientId(Long id);
+
+    @Override
+    @EntityGraph("Purchase.items")
+    Optional<Purchase> findById(Long id);
+
+    // select ... for update: a second cancellation of the same purchase waits here and then finds nothing
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select p from Purchase p where p.id = :id")
+    Optional<Purchase> findForUpdateById(@Param("id") Long id);
+
+    @Modifying
+    @Query("delete from Purchase p where p.id = :id")
+    int deletePurchaseById(@Param("id") Long id);
 }
@@ -0,0 +1,29 @@
+package com.example.project.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.support.JpaEntityInformation;
+import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.io.Serializable;
+import java.util.List;
+
+// the base class of the repositories (see ProjectApplication), it adds search to the spring data methods
+public class SearchJpaRepository<T, ID extends Serializable> extends SimpleJpaRepository<T, ID> implements SearchRepository<T> {
+
+    public SearchJpaRepository(JpaEntityInformation<T, ?> entityInformation, EntityManager entityManager) {
+        super(entityInformation, entityManager);
+    }
+
+    @Override
+    public List<T> search(Specification<T> specification, Pageable pageable) {
+        TypedQuery<T> query = getQuery(specification, pageable);
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+        }
+        return query.getResultList();
+    }
+}
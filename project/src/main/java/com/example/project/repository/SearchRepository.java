@@ -0,0 +1,18 @@
+package com.example.project.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.repository.NoRepositoryBean;
+
+import java.util.List;
+
+// the filtered list endpoints: the where clause is put together from the filters that were sent
+// (implemented for every repository by SearchJpaRepository)
+@NoRepositoryBean
+public interface SearchRepository<T> extends JpaSpecificationExecutor<T> {
+
+    // the first pageable.getPageSize() rows that match, in the order of the pageable; unlike findAll(specification, pageable)
+    // no count query is sent, the keyset pages only need to know whether one more row is there
+    List<T> search(Specification<T> specification, Pageable pageable);
+}
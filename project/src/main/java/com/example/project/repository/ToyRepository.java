@@ -1,11 +1,30 @@
 package com.example.project.repository;
 
+import com.example.project.dto.ToyDto;
 import com.example.project.model.Toy;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 @Repository
-public interface ToyRepository extends JpaRepository<Toy, Long> {
+public interface ToyRepository extends JpaRepository<Toy, Long>, SearchRepository<Toy> {
+    String SELECT_DTO = "select new com.example.project.dto.ToyDto(t.id, t.animal, t.price, t.brand, i.id, i.availableQuantity) " +
+            "from Toy t left join t.inventory i";
+
+    @Query(SELECT_DTO + " where t.id > :id")
+    List<ToyDto> findDtosByIdGreaterThan(@Param("id") Long id, Pageable pageable);
+
+    @Query(SELECT_DTO + " where t.id < :id")
+    List<ToyDto> findDtosByIdLessThan(@Param("id") Long id, Pageable pageable);
+
     Boolean existsByInventoryId(Long id);
+
+    @Query("select i.id from Toy t left join t.inventory i where t.id = :id")
+    Optional<Long> findInventoryIdById(@Param("id") Long id);
     Toy findByInventoryId(Long id);
 }
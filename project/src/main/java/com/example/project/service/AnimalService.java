@@ -1,54 +1,94 @@
 package com.example.project.service;
 
+import com.example.project.dto.AnimalDto;
 import com.example.project.exception.BadRequestException;
 import com.example.project.exception.EntityNotFoundException;
+import com.example.project.mapper.AnimalMapper;
 import com.example.project.model.Animal;
+import com.example.project.model.FieldSet;
+import com.example.project.model.KeysetPage;
 import com.example.project.repository.AnimalRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
 @Service
 public class AnimalService {
+    // the association an animal dto can embed, see FieldSet
+    public static final String OWNER = "owner";
+    public static final List<String> ASSOCIATIONS = List.of(OWNER);
 
     private final AnimalRepository animalRepository;
     private final ClientService clientService;
-    public AnimalService(AnimalRepository animalRepository, ClientService clientService) {
+    private final ResourceVersions resourceVersions;
+    private final KeysetPagination keysetPagination;
+    private final AnimalMapper animalMapper;
+
+    public AnimalService(AnimalRepository animalRepository, ClientService clientService, ResourceVersions resourceVersions,
+                         KeysetPagination keysetPagination, AnimalMapper animalMapper) {
         this.animalRepository = animalRepository;
         this.clientService = clientService;
+        this.resourceVersions = resourceVersions;
+        this.keysetPagination = keysetPagination;
+        this.animalMapper = animalMapper;
     }
 
-    public List<Animal> findAll() {
-        return animalRepository.findAll();
+    // the owner is joined only if the fields include it
+    @Transactional(readOnly = true)
+    public KeysetPage<AnimalDto> findAll(String cursor, Integer size, String sort, FieldSet fields) {
+        if (!fields.includes(OWNER)) {
+            return keysetPagination.page(animalRepository::findSummariesByIdGreaterThan, animalRepository::findSummariesByIdLessThan, AnimalDto::getId, cursor, size, sort);
+        }
+        return keysetPagination.page(animalRepository::findDtosByIdGreaterThan, animalRepository::findDtosByIdLessThan, AnimalDto::getId, cursor, size, sort);
     }
 
+    @Transactional(readOnly = true)
     public List<Animal> findByClient(Long id) {
         return animalRepository.findByOwnerId(id);
     }
 
+    @Transactional(readOnly = true)
     public Animal findById(Long id) {
         return animalRepository.findById(id).orElseThrow(()-> new EntityNotFoundException(String.format("The animal with id = %s does not exist in the database.",id.toString())));
     }
 
+    @Transactional(readOnly = true)
+    public AnimalDto findDtoById(Long id) {
+        return animalRepository.findDtoById(id).orElseThrow(() -> new EntityNotFoundException(String.format("The animal with id = %s does not exist in the database.", id.toString())));
+    }
+
+    @Transactional(readOnly = true)
+    public List<AnimalDto> findDtosByClient(Long id, FieldSet fields) {
+        return fields.includes(OWNER) ? animalRepository.findDtosByOwnerId(id) : animalRepository.findSummariesByOwnerId(id);
+    }
+
     public void deleteById(Long id) {
         if(animalRepository.existsById(id)){
                 animalRepository.deleteById(id);
+                resourceVersions.animalChanged(null);
         } else {
             throw new EntityNotFoundException(String.format("The animal with id = %s does not exist in the database.",id.toString()));
         }
     }
 
-    public Animal create(Animal animal) {
+    // the dto is built inside the transaction: once it ends the owner may be an uninitialized proxy,
+    // and with open-in-view off nothing would load it while the controller serializes the response
+    @Transactional
+    public AnimalDto create(Animal animal) {
         if (clientService.existById(animal.getOwner().getId())) {
-            return animalRepository.save(animal);
+            resourceVersions.animalChanged(null);
+            return animalMapper.toDto(animalRepository.save(animal));
         } else {
             throw new BadRequestException("You have to create the client before adding its animal!");
         }
     }
 
-    public Animal update(Animal animal) {
+    @Transactional
+    public AnimalDto update(Animal animal) {
         if(animalRepository.existsById(animal.getId())){
-           return animalRepository.save(animal);
+           resourceVersions.animalChanged(animal.getId());
+           return animalMapper.toDto(animalRepository.save(animal));
         } else {
             throw new EntityNotFoundException(String.format("The animal with id = %s does not exist in the database.",animal.getId().toString()));
         }
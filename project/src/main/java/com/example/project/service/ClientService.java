@@ -1,47 +1,69 @@
 package com.example.project.service;
 
+import com.example.project.dto.ClientDto;
 import com.example.project.exception.EntityNotFoundException;
+import com.example.project.mapper.ClientMapper;
 import com.example.project.model.Client;
+import com.example.project.model.KeysetPage;
 import com.example.project.repository.ClientRepository;
 import org.springframework.stereotype.Service;
-
-import java.util.List;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class ClientService {
     private final ClientRepository clientRepository;
+    private final ResourceVersions resourceVersions;
+    private final KeysetPagination keysetPagination;
+    private final ClientMapper clientMapper;
 
-    public ClientService(ClientRepository clientRepository) {
+    public ClientService(ClientRepository clientRepository, ResourceVersions resourceVersions, KeysetPagination keysetPagination,
+                         ClientMapper clientMapper) {
         this.clientRepository = clientRepository;
+        this.resourceVersions = resourceVersions;
+        this.keysetPagination = keysetPagination;
+        this.clientMapper = clientMapper;
     }
 
-    public List<Client> findAll() {
-        return clientRepository.findAll();
+    @Transactional(readOnly = true)
+    public KeysetPage<ClientDto> findAll(String cursor, Integer size, String sort) {
+        return keysetPagination.page(clientRepository::findDtosByIdGreaterThan, clientRepository::findDtosByIdLessThan, ClientDto::getId, cursor, size, sort);
     }
 
+    @Transactional(readOnly = true)
     public Client findById(Long id) {
         return clientRepository.findById(id).orElseThrow(() -> new EntityNotFoundException(String.format("The client with id = %s does not exist in the database.", id.toString())));
     }
 
+    @Transactional(readOnly = true)
+    public ClientDto findDtoById(Long id) {
+        return clientRepository.findDtoById(id).orElseThrow(() -> new EntityNotFoundException(String.format("The client with id = %s does not exist in the database.", id.toString())));
+    }
+
     public void deleteById(Long id) {
         if (clientRepository.existsById(id)) {
             clientRepository.deleteById(id);
+            resourceVersions.clientChanged(null);
         } else {
             throw new EntityNotFoundException(String.format("The client with id = %s does not exist in the database.", id.toString()));
         }
     }
 
+    @Transactional(readOnly = true)
     public Boolean existById(Long id) {
         return clientRepository.existsById(id);
     }
 
-    public Client create(Client client) {
-        return clientRepository.save(client);
+    @Transactional
+    public ClientDto create(Client client) {
+        resourceVersions.clientChanged(null);
+        return clientMapper.toDto(clientRepository.save(client));
     }
 
-    public Client update(Client client) {
+    @Transactional
+    public ClientDto update(Client client) {
         if(clientRepository.existsById(client.getId())) {
-            return clientRepository.save(client);
+            resourceVersions.clientChanged(client.getId());
+            return clientMapper.toDto(clientRepository.save(client));
         } else {
             throw new EntityNotFoundException(String.format("The client with id = %s does not exist in the database.",client.getId().toString()));
         }
@@ -0,0 +1,67 @@
+package com.example.project.service;
+
+import com.example.project.repository.InventoryRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+// default mode: every change is a single guarded update on the inventory row
+@Component
+@ConditionalOnProperty(name = "petshop.inventory.stock-mode", havingValue = "database", matchIfMissing = true)
+public class DatabaseStockLedger implements StockLedger {
+    private final InventoryRepository inventoryRepository;
+    private final ResourceVersions resourceVersions;
+
+    public DatabaseStockLedger(InventoryRepository inventoryRepository, ResourceVersions resourceVersions) {
+        this.inventoryRepository = inventoryRepository;
+        this.resourceVersions = resourceVersions;
+    }
+
+    @Override
+    public boolean reserve(Long inventoryId, Long quantity) {
+        return adjust(inventoryId, -quantity);
+    }
+
+    @Override
+    public boolean release(Long inventoryId, Long quantity) {
+        return adjust(inventoryId, quantity);
+    }
+
+    @Override
+    public void releasePurchase(Long purchaseId) {
+        inventoryRepository.restockPurchase(purchaseId);
+        resourceVersions.stockChanged();
+    }
+
+    // one select for all the inventories
+    @Override
+    public Map<Long, Long> availableQuantities(Collection<Long> inventoryIds) {
+        Map<Long, Long> quantities = new HashMap<>();
+        if (!inventoryIds.isEmpty()) {
+            inventoryRepository.findQuantitiesByIdIn(inventoryIds).forEach(row -> quantities.put(row.getId(), row.getAvailableQuantity()));
+        }
+        return quantities;
+    }
+
+    @Override
+    public void overwrite(Long inventoryId, Long quantity) {
+        // the row already holds the new quantity
+    }
+
+    @Override
+    public void evict(Long inventoryId) {
+        // nothing is kept outside the database
+    }
+
+    // the statement raises the version of the row as well
+    private boolean adjust(Long inventoryId, Long delta) {
+        if (inventoryRepository.adjustAvailableQuantity(inventoryId, delta) != 1) {
+            return false;
+        }
+        resourceVersions.stockChanged();
+        return true;
+    }
+}
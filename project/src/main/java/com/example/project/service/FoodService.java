@@ -1,52 +1,106 @@
 package com.example.project.service;
 
+import com.example.project.dto.FoodDto;
+import com.example.project.exception.BadRequestException;
 import com.example.project.exception.EntityNotFoundException;
+import com.example.project.mapper.FoodMapper;
 import com.example.project.model.Food;
+import com.example.project.model.KeysetPage;
+import com.example.project.model.ProductFilter;
 import com.example.project.repository.FoodRepository;
+import com.example.project.repository.ProductSpecifications;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
-
-import java.util.List;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class FoodService {
     private final FoodRepository foodRepository;
+    private final ProductCatalogCache productCatalogCache;
+    private final ProductSearchIndex productSearchIndex;
+    private final ResourceVersions resourceVersions;
+    private final KeysetPagination keysetPagination;
+    private final FoodMapper foodMapper;
 
-    public FoodService(FoodRepository foodRepository) {
+    public FoodService(FoodRepository foodRepository, ProductCatalogCache productCatalogCache, ProductSearchIndex productSearchIndex,
+                       ResourceVersions resourceVersions, KeysetPagination keysetPagination, FoodMapper foodMapper) {
         this.foodRepository = foodRepository;
+        this.productCatalogCache = productCatalogCache;
+        this.productSearchIndex = productSearchIndex;
+        this.resourceVersions = resourceVersions;
+        this.keysetPagination = keysetPagination;
+        this.foodMapper = foodMapper;
     }
 
-    public List<Food> findAll() {
-        return foodRepository.findAll();
+    @Transactional(readOnly = true)
+    public KeysetPage<FoodDto> findAll(ProductFilter filter, String cursor, Integer size, String sort) {
+        if (!filter.isEmpty()) {
+            // filtered in the database, only the rows of the page are read
+            Specification<Food> specification = ProductSpecifications.<Food>matching(filter)
+                    .and(ProductSpecifications.equalTo("brand", filter.getBrand()))
+                    .and(ProductSpecifications.equalTo("type", filter.getType()));
+            return keysetPagination.page(foodRepository, specification, foodMapper::toDto, FoodDto::getId, cursor, size, sort);
+        }
+        return keysetPagination.page(foodRepository::findDtosByIdGreaterThan, foodRepository::findDtosByIdLessThan, FoodDto::getId, cursor, size, sort);
     }
 
+    @Transactional(readOnly = true)
     public Food findById(Long id) {
         return foodRepository.findById(id).orElseThrow(()-> new EntityNotFoundException(String.format("The purchase with id = %s does not exist in the database.",id.toString())));
     }
 
+    // the product row comes from the second-level cache once it was read, its inventory (the stock) from the database
+    @Transactional(readOnly = true)
+    public FoodDto findDtoById(Long id) {
+        return foodRepository.findById(id).map(foodMapper::toDto).orElseThrow(() -> new EntityNotFoundException(String.format("The food with id = %s does not exist in the database.", id.toString())));
+    }
+
+    @Transactional
     public void deleteById(Long id) {
         if(foodRepository.existsById(id)) {
+            Long inventoryId = foodRepository.findInventoryIdById(id).orElse(null);
             foodRepository.deleteById(id);
+            productCatalogCache.evictProduct(inventoryId, null);
+            productSearchIndex.remove("food", id);
+            resourceVersions.catalogChanged(null, null);
         } else {
             throw new EntityNotFoundException(String.format("The food item with id = %s does not exist in the database.",id.toString()));
         }
     }
 
-    public Food create(Food food) {
-        return  foodRepository.save(food);
+    @Transactional
+    public FoodDto create(Food food) {
+        Food result = foodRepository.save(food);
+        productCatalogCache.evictProduct(null, result.getInventory());
+        productSearchIndex.index(result);
+        resourceVersions.catalogChanged(null, null);
+        return foodMapper.toDto(result);
     }
 
-    public Food update(Food food) {
+    @Transactional
+    public FoodDto update(Food food) {
         if(foodRepository.existsById(food.getId())) {
-            return foodRepository.save(food);
+            // the stock is only written through the StockLedger, a new inventory is not created with an update
+            if (food.getInventory() != null && food.getInventory().getId() == null) {
+                throw new BadRequestException("The inventory of an existing food item is given by its id, its stock is changed through /inventory.");
+            }
+            Long previousInventoryId = foodRepository.findInventoryIdById(food.getId()).orElse(null);
+            Food result = foodRepository.save(food);
+            productCatalogCache.evictProduct(previousInventoryId, result.getInventory());
+            productSearchIndex.index(result);
+            resourceVersions.catalogChanged(result.getId(), result.getInventory() == null ? null : result.getInventory().getId());
+            return foodMapper.toDto(result);
         } else {
             throw new EntityNotFoundException(String.format("The food item with id = %s does not exist in the database.",food.getId().toString()));
         }
     }
 
+    @Transactional(readOnly = true)
     public Boolean existsByInventoryId(Long id) {
         return foodRepository.existsByInventoryId(id);
     }
 
+    @Transactional(readOnly = true)
     public Long findByInventoryId(Long id) {
         return foodRepository.findByInventoryId(id).getId();
     }
@@ -0,0 +1,247 @@
+package com.example.project.service;
+
+import com.example.project.repository.InventoryRepository;
+import com.example.project.repository.ItemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// flash sale mode: the quantities live in memory and the changed rows are written back in batches,
+// at most petshop.inventory.flush-interval-ms after the change
+@Component
+@ConditionalOnProperty(name = "petshop.inventory.stock-mode", havingValue = "memory")
+public class InMemoryStockLedger implements StockLedger {
+    private static final Logger log = LoggerFactory.getLogger(InMemoryStockLedger.class);
+    private static final String FLUSH_STATEMENT = "update inventory set available_quantity = ?, version = version + 1 where id = ?";
+    private static final int FLUSH_BATCH_SIZE = 500;
+
+    private final InventoryRepository inventoryRepository;
+    private final ItemRepository itemRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ResourceVersions resourceVersions;
+    private final TransactionTemplate transactionTemplate;
+    private final long flushIntervalMillis;
+    private final int maxDirtyInventories;
+
+    private final ConcurrentHashMap<Long, AtomicLong> stock = new ConcurrentHashMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "stock-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public InMemoryStockLedger(InventoryRepository inventoryRepository, ItemRepository itemRepository, JdbcTemplate jdbcTemplate, ResourceVersions resourceVersions,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${petshop.inventory.flush-interval-ms:200}") long flushIntervalMillis,
+                               @Value("${petshop.inventory.max-dirty-inventories:1000}") int maxDirtyInventories) {
+        this.inventoryRepository = inventoryRepository;
+        this.itemRepository = itemRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.resourceVersions = resourceVersions;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.maxDirtyInventories = maxDirtyInventories;
+    }
+
+    @PostConstruct
+    public void start() {
+        inventoryRepository.findAllQuantities().forEach(row -> stock.put(row.getId(), new AtomicLong(row.getAvailableQuantity())));
+        log.info("Loaded the stock of {} inventories", stock.size());
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void drain() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(flushIntervalMillis * 10, TimeUnit.MILLISECONDS);
+        flush();
+    }
+
+    @Override
+    public boolean reserve(Long inventoryId, Long quantity) {
+        AtomicLong available = load(inventoryId);
+        if (available == null) {
+            return false;
+        }
+        long current;
+        do {
+            current = available.get();
+            if (current < quantity) {
+                return false;
+            }
+        } while (!available.compareAndSet(current, current - quantity));
+        changed(inventoryId);
+        onRollback(() -> {
+            available.addAndGet(quantity);
+            changed(inventoryId);
+        });
+        return true;
+    }
+
+    @Override
+    public boolean release(Long inventoryId, Long quantity) {
+        AtomicLong available = load(inventoryId);
+        if (available == null) {
+            return false;
+        }
+        available.addAndGet(quantity);
+        changed(inventoryId);
+        onRollback(() -> {
+            available.addAndGet(-quantity);
+            changed(inventoryId);
+        });
+        return true;
+    }
+
+    // one query for the quantities of the whole purchase, the stock itself is only changed in memory
+    @Override
+    public void releasePurchase(Long purchaseId) {
+        itemRepository.findOrderedQuantitiesByPurchaseId(purchaseId)
+                .forEach(ordered -> release(ordered.getInventoryId(), ordered.getQuantity()));
+    }
+
+    // the quantities in memory, reservations not flushed yet included
+    @Override
+    public Map<Long, Long> availableQuantities(Collection<Long> inventoryIds) {
+        Map<Long, Long> quantities = new HashMap<>();
+        for (Long inventoryId : inventoryIds) {
+            AtomicLong available = load(inventoryId);
+            if (available != null) {
+                quantities.put(inventoryId, available.get());
+            }
+        }
+        return quantities;
+    }
+
+    // only once the row is committed, a rolled back update leaves the quantity in memory as it was
+    @Override
+    public void overwrite(Long inventoryId, Long quantity) {
+        afterCommit(() -> {
+            stock.computeIfAbsent(inventoryId, id -> new AtomicLong()).set(quantity);
+            // an older value may still be on its way to the database
+            changed(inventoryId);
+        });
+    }
+
+    @Override
+    public void evict(Long inventoryId) {
+        afterCommit(() -> {
+            stock.remove(inventoryId);
+            dirty.remove(inventoryId);
+        });
+    }
+
+    Long availableQuantity(Long inventoryId) {
+        AtomicLong available = stock.get(inventoryId);
+        return available == null ? null : available.get();
+    }
+
+    // the current quantities are written, not the deltas, so a late or repeated flush cannot count a change twice
+    synchronized void flush() {
+        flushRequested.set(false);
+        if (dirty.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(dirty);
+        ids.forEach(dirty::remove);
+        List<Object[]> rows = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            AtomicLong available = stock.get(id);
+            if (available != null) {
+                rows.add(new Object[]{available.get(), id});
+            }
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(FLUSH_STATEMENT, rows, FLUSH_BATCH_SIZE,
+                    (statement, row) -> {
+                        statement.setLong(1, (Long) row[0]);
+                        statement.setLong(2, (Long) row[1]);
+                    }));
+        } catch (RuntimeException ex) {
+            dirty.addAll(ids);
+            throw ex;
+        }
+        // what the pages read from the database only changes now, not with the reservations in memory
+        resourceVersions.stockChanged();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException ex) {
+            log.warn("Could not write the stock back to the database, retrying on the next flush", ex);
+        }
+    }
+
+    // inventories created after startup are picked up on first use
+    private AtomicLong load(Long inventoryId) {
+        AtomicLong available = stock.get(inventoryId);
+        if (available == null) {
+            Long persisted = inventoryRepository.findAvailableQuantityById(inventoryId);
+            if (persisted == null) {
+                return null;
+            }
+            available = stock.computeIfAbsent(inventoryId, id -> new AtomicLong(persisted));
+        }
+        return available;
+    }
+
+    private void changed(Long inventoryId) {
+        dirty.add(inventoryId);
+        if (dirty.size() >= maxDirtyInventories && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(this::flushQuietly);
+        }
+    }
+
+    // outside a transaction the change is applied right away
+    private void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+
+    // a change made inside a transaction that rolls back is undone in memory as well
+    private void onRollback(Runnable compensation) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        compensation.run();
+                    }
+                }
+            });
+        }
+    }
+}
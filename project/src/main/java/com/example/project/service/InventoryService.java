@@ -1,38 +1,63 @@
 package com.example.project.service;
 
+import com.example.project.dto.InventoryDto;
 import com.example.project.exception.EntityNotFoundException;
+import com.example.project.mapper.InventoryMapper;
 import com.example.project.model.Inventory;
+import com.example.project.model.KeysetPage;
 import com.example.project.model.ProductType;
 import com.example.project.repository.InventoryRepository;
+import com.example.project.repository.ProductRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
+import java.util.*;
 
 @Service
 public class InventoryService {
     private final InventoryRepository inventoryRepository;
-    private final FoodService foodService;
-    private final ToyService toyService;
-    private final MedicineService medicineService;
+    private final ProductRepository productRepository;
+    private final StockLedger stockLedger;
+    private final ProductCatalogCache productCatalogCache;
+    private final ResourceVersions resourceVersions;
+    private final KeysetPagination keysetPagination;
+    private final InventoryMapper inventoryMapper;
 
-    public InventoryService(InventoryRepository inventoryRepository, FoodService foodService, ToyService toyService, MedicineService medicineService) {
+    public InventoryService(InventoryRepository inventoryRepository, ProductRepository productRepository, StockLedger stockLedger,
+                            ProductCatalogCache productCatalogCache, ResourceVersions resourceVersions, KeysetPagination keysetPagination,
+                            InventoryMapper inventoryMapper) {
         this.inventoryRepository = inventoryRepository;
-        this.foodService = foodService;
-        this.toyService = toyService;
-        this.medicineService = medicineService;
+        this.productRepository = productRepository;
+        this.stockLedger = stockLedger;
+        this.productCatalogCache = productCatalogCache;
+        this.resourceVersions = resourceVersions;
+        this.keysetPagination = keysetPagination;
+        this.inventoryMapper = inventoryMapper;
     }
 
-    public List<Inventory> findAll() {
-        return inventoryRepository.findAll();
+    @Transactional(readOnly = true)
+    public KeysetPage<InventoryDto> findAll(String cursor, Integer size, String sort) {
+        KeysetPage<Inventory> page = keysetPagination.page(inventoryRepository, Inventory::getId, cursor, size, sort);
+        return new KeysetPage<>(inventoryMapper.toDto(page.getContent()), page.getNextCursor());
     }
 
+    @Transactional(readOnly = true)
     public Inventory findById(Long id) {
         return inventoryRepository.findById(id).orElseThrow(()-> new EntityNotFoundException(String.format("The inventory with id = %s does not exist in the database.",id.toString())));
     }
 
+    @Transactional(readOnly = true)
+    public InventoryDto findDtoById(Long id) {
+        return inventoryMapper.toDto(findById(id));
+    }
+
+    @Transactional
     public void deleteById(Long id) {
         if(inventoryRepository.existsById(id)){
             inventoryRepository.deleteById(id);
+            stockLedger.evict(id);
+            productCatalogCache.evictInventory(id);
+            resourceVersions.catalogChanged(null, null);
         } else {
             throw new EntityNotFoundException(String.format("The inventory with id = %s does not exist in the database.",id.toString()));
         }
@@ -42,27 +67,54 @@ public class InventoryService {
         return inventoryRepository.save(inventory);
     }
 
-    public Inventory update(Inventory inventory) {
+    @Transactional
+    public InventoryDto update(Inventory inventory) {
         if(inventoryRepository.existsById(inventory.getId())){
-            return inventoryRepository.save(inventory);
+            Inventory result = inventoryRepository.save(inventory);
+            stockLedger.overwrite(result.getId(), result.getAvailableQuantity());
+            productCatalogCache.evictInventory(result.getId());
+            resourceVersions.catalogChanged(null, result.getId());
+            return inventoryMapper.toDto(result);
         } else {
             throw new EntityNotFoundException(String.format("The inventory with id = %s does not exist in the database.",inventory.getId().toString()));
         }
     }
 
-    public ProductType findProductForInventory(Long id) {
-        if (inventoryRepository.existsById(id)) {
-            if (foodService.existsByInventoryId(id)) {
-                return new ProductType("food", foodService.findByInventoryId(id));
-            } else if (toyService.existsByInventoryId(id)) {
-                return new ProductType("toy", toyService.findByInventoryId(id));
-            } else if (medicineService.existsByInventoryId(id)) {
-                return new ProductType("medicine", medicineService.findByInventoryId(id));
-            } else {
-                throw new EntityNotFoundException(String.format("The inventory with id = %s does not exist in the database.", id.toString()));
-            }
-        } else {
-            throw new EntityNotFoundException(String.format("The inventory with id = %s does not exist in the database.", id.toString()));
+    // false if there is not enough left; the ledger decides whether this is a guarded update or an in-memory decrement
+    public boolean reserve(Long id, Long quantity) {
+        return stockLedger.reserve(id, quantity);
+    }
+
+    public void restock(Long id, Long quantity) {
+        if (!stockLedger.release(id, quantity)) {
+            throw new EntityNotFoundException(String.format("The inventory with id = %s does not exist in the database.",id.toString()));
         }
     }
+
+    public void restockPurchase(Long purchaseId) {
+        stockLedger.releasePurchase(purchaseId);
+    }
+
+    // what is left right now, nothing is reserved; a missing inventory is left out
+    @Transactional(readOnly = true)
+    public Map<Long, Long> findAvailableQuantities(Collection<Long> ids) {
+        return stockLedger.availableQuantities(ids);
+    }
+
+    @Transactional(readOnly = true)
+    public ProductType findProductForInventory(Long id) {
+        return productRepository.findProductTypeByInventoryId(id).orElseThrow(() -> new EntityNotFoundException(String.format("The inventory with id = %s does not exist in the database.", id.toString())));
+    }
+
+    // usually answered from the cache, only the inventories that are not cached yet are loaded
+    public Map<Long, ProductType> findProductsForInventories(Collection<Long> ids) {
+        return productCatalogCache.getAll(ids, this::loadProductsForInventories);
+    }
+
+    // a single query, whatever the number of inventories
+    private Map<Long, ProductType> loadProductsForInventories(Collection<Long> ids) {
+        Map<Long, ProductType> products = new HashMap<>();
+        productRepository.findProductTypesByInventoryIds(ids).forEach(product -> products.put(product.getInventoryId(), product));
+        return products;
+    }
 }
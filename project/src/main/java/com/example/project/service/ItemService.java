@@ -1,10 +1,12 @@
 package com.example.project.service;
 
+import com.example.project.dto.ItemDto;
 import com.example.project.exception.EntityNotFoundException;
 import com.example.project.model.Item;
 import com.example.project.repository.ItemRepository;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.List;
 
 @Service
@@ -21,6 +23,14 @@ public class ItemService {
 
     public List<Item> findByPurchaseId(Long id) { return itemRepository.findByPurchaseId(id);}
 
+    public List<ItemDto> findDtosByPurchaseIds(Collection<Long> purchaseIds) {
+        return itemRepository.findDtosByPurchaseIds(purchaseIds);
+    }
+
+    public int deleteByPurchaseId(Long purchaseId) {
+        return itemRepository.deleteByPurchaseId(purchaseId);
+    }
+
     public void deleteById(Long id) {
         if(itemRepository.existsById(id)){
             itemRepository.deleteById(id);
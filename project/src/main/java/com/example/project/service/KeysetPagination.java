@@ -0,0 +1,114 @@
+package com.example.project.service;
+
+import com.example.project.exception.BadRequestException;
+import com.example.project.model.KeysetPage;
+import com.example.project.repository.KeysetRepository;
+import com.example.project.repository.SearchRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// ?cursor=&size=&sort= of the list endpoints; the cursor is the sort order and the id of the last row sent
+@Component
+public class KeysetPagination {
+    private static final String ASCENDING = "id";
+    private static final String DESCENDING = "-id";
+
+    private final int defaultSize;
+    private final int maxSize;
+
+    public KeysetPagination(@Value("${petshop.pagination.default-size:50}") int defaultSize,
+                            @Value("${petshop.pagination.max-size:500}") int maxSize) {
+        this.defaultSize = defaultSize;
+        this.maxSize = maxSize;
+    }
+
+    public <T> KeysetPage<T> page(KeysetRepository<T> repository, Function<T, Long> id, String cursor, Integer size, String sort) {
+        return page(repository::findByIdGreaterThan, repository::findByIdLessThan, id, cursor, size, sort);
+    }
+
+    // the rows of a filtered list: the specification is narrowed to the ids above / below the cursor and the entities
+    // that are read are turned into dtos
+    public <E, T> KeysetPage<T> page(SearchRepository<E> repository, Specification<E> specification, Function<E, T> toDto,
+                                     Function<T, Long> id, String cursor, Integer size, String sort) {
+        return page((last, pageable) -> toDtos(repository.search(specification.and(idGreaterThan(last)), pageable), toDto),
+                (last, pageable) -> toDtos(repository.search(specification.and(idLessThan(last)), pageable), toDto),
+                id, cursor, size, sort);
+    }
+
+    // after and before read the rows with an id above / below the given one, in the order and up to the size of the pageable
+    public <T> KeysetPage<T> page(BiFunction<Long, Pageable, List<T>> after, BiFunction<Long, Pageable, List<T>> before,
+                                  Function<T, Long> id, String cursor, Integer size, String sort) {
+        String order = sort == null ? ASCENDING : sort;
+        if (!ASCENDING.equals(order) && !DESCENDING.equals(order)) {
+            throw new BadRequestException(String.format("The list can only be sorted by %s or %s.", ASCENDING, DESCENDING));
+        }
+        int limit = size == null ? defaultSize : size;
+        if (limit < 1 || limit > maxSize) {
+            throw new BadRequestException(String.format("The page size must be between 1 and %s.", maxSize));
+        }
+
+        // one row more than asked tells whether there is a next page without counting the table
+        List<T> rows;
+        if (DESCENDING.equals(order)) {
+            Long last = cursor == null ? Long.MAX_VALUE : decode(cursor, order);
+            rows = before.apply(last, PageRequest.of(0, limit + 1, Sort.by("id").descending()));
+        } else {
+            Long last = cursor == null ? Long.MIN_VALUE : decode(cursor, order);
+            rows = after.apply(last, PageRequest.of(0, limit + 1, Sort.by("id")));
+        }
+        if (rows.size() <= limit) {
+            return new KeysetPage<>(rows, null);
+        }
+        List<T> content = new ArrayList<>(rows.subList(0, limit));
+        return new KeysetPage<>(content, encode(order, id.apply(content.get(limit - 1))));
+    }
+
+    private static <E> Specification<E> idGreaterThan(Long id) {
+        return (root, query, builder) -> builder.gt(root.get("id"), id);
+    }
+
+    private static <E> Specification<E> idLessThan(Long id) {
+        return (root, query, builder) -> builder.lt(root.get("id"), id);
+    }
+
+    private static <E, T> List<T> toDtos(List<E> entities, Function<E, T> toDto) {
+        return entities.stream().map(toDto).collect(Collectors.toList());
+    }
+
+    private static String encode(String order, Long id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString((order + ":" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Long decode(String cursor, String order) {
+        String value;
+        try {
+            value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException ex) {
+            throw new BadRequestException("The cursor is not valid.");
+        }
+        int separator = value.lastIndexOf(':');
+        if (separator < 0) {
+            throw new BadRequestException("The cursor is not valid.");
+        }
+        if (!value.substring(0, separator).equals(order)) {
+            throw new BadRequestException(String.format("The cursor was not issued for sort = %s.", order));
+        }
+        try {
+            return Long.valueOf(value.substring(separator + 1));
+        } catch (NumberFormatException ex) {
+            throw new BadRequestException("The cursor is not valid.");
+        }
+    }
+}
@@ -1,52 +1,105 @@
 package com.example.project.service;
 
+import com.example.project.dto.MedicineDto;
+import com.example.project.exception.BadRequestException;
 import com.example.project.exception.EntityNotFoundException;
+import com.example.project.mapper.MedicineMapper;
+import com.example.project.model.KeysetPage;
 import com.example.project.model.Medicine;
+import com.example.project.model.ProductFilter;
 import com.example.project.repository.MedicineRepository;
+import com.example.project.repository.ProductSpecifications;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
-
-import java.util.List;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class MedicineService {
     private final MedicineRepository medicineRepository;
+    private final ProductCatalogCache productCatalogCache;
+    private final ProductSearchIndex productSearchIndex;
+    private final ResourceVersions resourceVersions;
+    private final KeysetPagination keysetPagination;
+    private final MedicineMapper medicineMapper;
 
-    public MedicineService(MedicineRepository medicineRepository) {
+    public MedicineService(MedicineRepository medicineRepository, ProductCatalogCache productCatalogCache, ProductSearchIndex productSearchIndex,
+                           ResourceVersions resourceVersions, KeysetPagination keysetPagination, MedicineMapper medicineMapper) {
         this.medicineRepository = medicineRepository;
+        this.productCatalogCache = productCatalogCache;
+        this.productSearchIndex = productSearchIndex;
+        this.resourceVersions = resourceVersions;
+        this.keysetPagination = keysetPagination;
+        this.medicineMapper = medicineMapper;
     }
 
-    public List<Medicine> findAll() {
-        return medicineRepository.findAll();
+    @Transactional(readOnly = true)
+    public KeysetPage<MedicineDto> findAll(ProductFilter filter, String cursor, Integer size, String sort) {
+        if (!filter.isEmpty()) {
+            // filtered in the database, only the rows of the page are read
+            Specification<Medicine> specification = ProductSpecifications.<Medicine>matching(filter)
+                    .and(ProductSpecifications.equalTo("purpose", filter.getPurpose()));
+            return keysetPagination.page(medicineRepository, specification, medicineMapper::toDto, MedicineDto::getId, cursor, size, sort);
+        }
+        return keysetPagination.page(medicineRepository::findDtosByIdGreaterThan, medicineRepository::findDtosByIdLessThan, MedicineDto::getId, cursor, size, sort);
     }
 
+    @Transactional(readOnly = true)
     public Medicine findById(Long id) {
         return medicineRepository.findById(id).orElseThrow(()-> new EntityNotFoundException(String.format("The medicine with id = %s does not exist in the database.",id.toString())));
     }
 
+    // the product row comes from the second-level cache once it was read, its inventory (the stock) from the database
+    @Transactional(readOnly = true)
+    public MedicineDto findDtoById(Long id) {
+        return medicineRepository.findById(id).map(medicineMapper::toDto).orElseThrow(() -> new EntityNotFoundException(String.format("The medicine with id = %s does not exist in the database.", id.toString())));
+    }
+
+    @Transactional
     public void deleteById(Long id) {
         if(medicineRepository.existsById(id)) {
+            Long inventoryId = medicineRepository.findInventoryIdById(id).orElse(null);
             medicineRepository.deleteById(id);
+            productCatalogCache.evictProduct(inventoryId, null);
+            productSearchIndex.remove("medicine", id);
+            resourceVersions.catalogChanged(null, null);
         } else {
             throw new EntityNotFoundException(String.format("The medicine item with id = %s does not exist in the database.",id.toString()));
         }
     }
 
-    public Medicine create(Medicine medicine) {
-        return  medicineRepository.save(medicine);
+    @Transactional
+    public MedicineDto create(Medicine medicine) {
+        Medicine result = medicineRepository.save(medicine);
+        productCatalogCache.evictProduct(null, result.getInventory());
+        productSearchIndex.index(result);
+        resourceVersions.catalogChanged(null, null);
+        return medicineMapper.toDto(result);
     }
 
-    public Medicine update(Medicine medicine) {
+    @Transactional
+    public MedicineDto update(Medicine medicine) {
         if(medicineRepository.existsById(medicine.getId())) {
-            return medicineRepository.save(medicine);
+            // the stock is only written through the StockLedger, a new inventory is not created with an update
+            if (medicine.getInventory() != null && medicine.getInventory().getId() == null) {
+                throw new BadRequestException("The inventory of an existing medicine item is given by its id, its stock is changed through /inventory.");
+            }
+            Long previousInventoryId = medicineRepository.findInventoryIdById(medicine.getId()).orElse(null);
+            Medicine result = medicineRepository.save(medicine);
+            productCatalogCache.evictProduct(previousInventoryId, result.getInventory());
+            productSearchIndex.index(result);
+            resourceVersions.catalogChanged(result.getId(), result.getInventory() == null ? null : result.getInventory().getId());
+            return medicineMapper.toDto(result);
         } else {
             throw new EntityNotFoundException(String.format("The medicine item with id = %s does not exist in the database.",medicine.getId().toString()));
         }
     }
 
+    @Transactional(readOnly = true)
     public Boolean existsByInventoryId(Long id) {
         return medicineRepository.existsByInventoryId(id);
     }
 
+    @Transactional(readOnly = true)
     public Long findByInventoryId(Long id) {
         return medicineRepository.findByInventoryId(id).getId();
     }
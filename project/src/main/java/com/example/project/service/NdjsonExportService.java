@@ -0,0 +1,94 @@
+package com.example.project.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+// GET /purchases, /clients and /animals with Accept: application/x-ndjson: the whole table, one dto per line.
+// The rows are scrolled chunk-size at a time, each chunk in its own short read-only transaction, and the chunk
+// is written only after its transaction is over, so the connection is back in the pool while the client reads
+@Service
+public class NdjsonExportService {
+    private final EntityManager entityManager;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectWriter writer;
+    private final int chunkSize;
+    private final int fetchSize;
+
+    public NdjsonExportService(EntityManager entityManager, PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                               @Value("${petshop.export.chunk-size:500}") int chunkSize,
+                               @Value("${petshop.export.fetch-size:100}") int fetchSize) {
+        this.entityManager = entityManager;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.writer = objectMapper.writer();
+        this.chunkSize = chunkSize;
+        this.fetchSize = fetchSize;
+    }
+
+    // graph names the associations joined into the chunk query, null for none; the other lazy associations
+    // the dto needs are initialized while mapping, batch by batch for the whole chunk (see @BatchSize)
+    public <E, D> void exportAll(Class<E> type, String graph, Function<E, Long> id, Function<E, D> toDto, OutputStream out) throws IOException {
+        String query = "select e from " + entityManager.getMetamodel().entity(type).getName() + " e where e.id > :id order by e.id";
+        Long last = Long.MIN_VALUE;
+        while (true) {
+            Long after = last;
+            Chunk<D> chunk = readOnlyTransaction.execute(status -> read(query, type, graph, after, id, toDto));
+            for (D dto : chunk.rows) {
+                out.write(writer.writeValueAsBytes(dto));
+                out.write('\n');
+            }
+            out.flush();
+            if (chunk.rows.size() < chunkSize) {
+                return;
+            }
+            last = chunk.last;
+        }
+    }
+
+    // the whole chunk is in the persistence context before the first entity is mapped, so a lazy association
+    // is loaded for up to batch-size entities of the chunk at once instead of once per row
+    private <E, D> Chunk<D> read(String query, Class<E> type, String graph, Long after, Function<E, Long> id, Function<E, D> toDto) {
+        TypedQuery<E> select = entityManager.createQuery(query, type)
+                .setParameter("id", after)
+                .setMaxResults(chunkSize)
+                .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(QueryHints.HINT_READONLY, true);
+        if (graph != null) {
+            select.setHint(QueryHints.HINT_FETCHGRAPH, entityManager.getEntityGraph(graph));
+        }
+        List<E> entities = select.getResultList();
+        List<D> rows = new ArrayList<>(entities.size());
+        Long last = after;
+        for (E entity : entities) {
+            rows.add(toDto.apply(entity));
+            last = id.apply(entity);
+        }
+        // the persistence context ends with the transaction of the chunk anyway, this only lets go of the entities
+        // and what they loaded as soon as they are mapped, before the commit
+        entityManager.clear();
+        return new Chunk<>(rows, last);
+    }
+
+    private static class Chunk<D> {
+        private final List<D> rows;
+        private final Long last;
+
+        Chunk(List<D> rows, Long last) {
+            this.rows = rows;
+            this.last = last;
+        }
+    }
+}
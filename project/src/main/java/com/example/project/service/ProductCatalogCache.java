@@ -0,0 +1,98 @@
+package com.example.project.service;
+
+import com.example.project.model.Inventory;
+import com.example.project.model.ProductType;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// inventory id -> product (type, id, price) for checkout; dropped by FoodService, ToyService and MedicineService on every write
+@Component
+public class ProductCatalogCache {
+    private final Cache<Long, ProductType> cache;
+    // bumped by every eviction, a lookup that started before it does not store what it read
+    private long generation;
+
+    public ProductCatalogCache(MeterRegistry meterRegistry, @Value("${petshop.catalog.cache.max-size:10000}") long maxSize) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "product_catalog");
+    }
+
+    // only the inventories that are not cached are passed to the loader; inventories without a product are not cached
+    public Map<Long, ProductType> getAll(Collection<Long> inventoryIds, Function<Set<Long>, Map<Long, ProductType>> loader) {
+        Map<Long, ProductType> products = new HashMap<>(cache.getAllPresent(inventoryIds));
+        Set<Long> missing = inventoryIds.stream().filter(id -> !products.containsKey(id)).collect(Collectors.toSet());
+        if (missing.isEmpty()) {
+            return products;
+        }
+        long startedAt = currentGeneration();
+        Map<Long, ProductType> loaded = loader.apply(missing);
+        products.putAll(loaded);
+        synchronized (this) {
+            if (generation == startedAt) {
+                cache.putAll(loaded);
+            }
+        }
+        return products;
+    }
+
+    public void evictInventory(Long inventoryId) {
+        evict(() -> cache.invalidate(inventoryId));
+    }
+
+    // the product may have been moved away from the inventory it was cached for, so the entry of the inventory it had
+    // before the write (read by the caller) is dropped along with the one of its inventory now
+    public void evictProduct(Long previousInventoryId, Inventory inventory) {
+        Long inventoryId = inventory == null ? null : inventory.getId();
+        evict(() -> {
+            if (previousInventoryId != null) {
+                cache.invalidate(previousInventoryId);
+            }
+            if (inventoryId != null) {
+                cache.invalidate(inventoryId);
+            }
+        });
+    }
+
+    long size() {
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+
+    // inside a transaction the entry is dropped again after the commit, a lookup may have read the old row in between
+    private void evict(Runnable invalidation) {
+        invalidate(invalidation);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate(invalidation);
+                }
+            });
+        }
+    }
+
+    private synchronized void invalidate(Runnable invalidation) {
+        generation++;
+        invalidation.run();
+    }
+
+    private synchronized long currentGeneration() {
+        return generation;
+    }
+}
@@ -0,0 +1,463 @@
+package com.example.project.service;
+
+import com.example.project.dto.ProductSearchHitDto;
+import com.example.project.exception.BadRequestException;
+import com.example.project.model.Food;
+import com.example.project.model.Medicine;
+import com.example.project.model.Toy;
+import com.example.project.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+// GET /search: the words of food (brand, type, animal), toys (brand, animal) and medicine (purpose, animal) in memory,
+// word -> products, so a search never reaches the database
+// a word of 4 to 7 letters also matches the indexed words one typo away, a longer one two typos away (a typo being a letter
+// missing, added, changed or two letters swapped); the candidates are found through the indexed words with letters
+// deleted, not by comparing the word to the whole vocabulary
+// FoodService, ToyService and MedicineService pass on every committed write, the table is read again at startup
+@Component
+public class ProductSearchIndex {
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchIndex.class);
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final int MAX_QUERY_WORDS = 10;
+    private static final ThreadLocal<Scores> SCORES = ThreadLocal.withInitial(Scores::new);
+
+    private final ProductRepository productRepository;
+    private final int rebuildThreads;
+    private final int defaultResults;
+    private final int maxResults;
+
+    // searches share the read lock, a write takes the index for itself for the few microseconds it needs
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Index index = new Index();
+    // the writes committed while a rebuild reads the table, applied again to the rebuilt index; null when not rebuilding
+    private List<Consumer<Index>> pending;
+
+    public ProductSearchIndex(ProductRepository productRepository,
+                              @Value("${petshop.search.rebuild-threads:4}") int rebuildThreads,
+                              @Value("${petshop.search.default-results:20}") int defaultResults,
+                              @Value("${petshop.search.max-results:100}") int maxResults) {
+        this.productRepository = productRepository;
+        this.rebuildThreads = rebuildThreads;
+        this.defaultResults = defaultResults;
+        this.maxResults = maxResults;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        long start = System.nanoTime();
+        write(() -> pending = new ArrayList<>());
+        Index rebuilt = new Index();
+        try {
+            read().forEach(slice -> slice.forEach(rebuilt::put));
+        } catch (RuntimeException ex) {
+            write(() -> pending = null);
+            throw ex;
+        }
+        write(() -> {
+            pending.forEach(change -> change.accept(rebuilt));
+            pending = null;
+            index = rebuilt;
+        });
+        log.info("Indexed {} products for search in {} ms", rebuilt.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    // the best matches first: every word of the query adds the rarity of the indexed word it matched, less for a typo
+    public List<ProductSearchHitDto> search(String query, Integer size) {
+        int limit = size == null ? defaultResults : size;
+        if (limit < 1 || limit > maxResults) {
+            throw new BadRequestException(String.format("The number of results must be between 1 and %s.", maxResults));
+        }
+        Set<String> words = words(query);
+        if (words.isEmpty()) {
+            throw new BadRequestException("The search query must contain a letter or a digit.");
+        }
+        if (words.size() > MAX_QUERY_WORDS) {
+            throw new BadRequestException(String.format("The search query can have at most %s words.", MAX_QUERY_WORDS));
+        }
+        lock.readLock().lock();
+        try {
+            return index.search(words, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void index(Food food) {
+        afterCommit(new Document("food", food.getId(), food.getPrice(), food.getAnimal(), food.getBrand(), food.getType(), null));
+    }
+
+    public void index(Toy toy) {
+        afterCommit(new Document("toy", toy.getId(), toy.getPrice(), toy.getAnimal(), toy.getBrand(), null, null));
+    }
+
+    public void index(Medicine medicine) {
+        afterCommit(new Document("medicine", medicine.getId(), medicine.getPrice(), medicine.getAnimal(), null, null, medicine.getPurpose()));
+    }
+
+    public void remove(String productType, Long id) {
+        afterCommit(index -> index.remove(key(productType, id)));
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void afterCommit(Document document) {
+        afterCommit(index -> index.put(document));
+    }
+
+    // a rolled back write never reaches the index
+    private void afterCommit(Consumer<Index> change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(change);
+                }
+            });
+        } else {
+            apply(change);
+        }
+    }
+
+    private void apply(Consumer<Index> change) {
+        write(() -> {
+            change.accept(index);
+            if (pending != null) {
+                pending.add(change);
+            }
+        });
+    }
+
+    private void write(Runnable write) {
+        lock.writeLock().lock();
+        try {
+            write.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // the id range is cut into one slice per thread, the slices are read and split into words at the same time
+    private List<List<Document>> read() {
+        ProductRepository.IdRange range = productRepository.findIdRange();
+        if (range == null || range.getMin() == null) {
+            return List.of();
+        }
+        long step = (range.getMax() - range.getMin()) / rebuildThreads + 1;
+        ExecutorService executor = Executors.newFixedThreadPool(rebuildThreads, runnable -> {
+            Thread thread = new Thread(runnable, "search-index-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<CompletableFuture<List<Document>>> slices = new ArrayList<>();
+            for (long from = range.getMin(); from <= range.getMax(); from += step) {
+                long to = Math.min(range.getMax(), from + step - 1);
+                long first = from;
+                slices.add(CompletableFuture.supplyAsync(() -> productRepository.findSearchTextByIdBetween(first, to).stream()
+                        .map(Document::new)
+                        .collect(Collectors.toList()), executor));
+            }
+            return slices.stream().map(CompletableFuture::join).collect(Collectors.toList());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    // lower case, without diacritics ("Câine" is found as "caine"), split on everything but letters and digits
+    static Set<String> words(String... texts) {
+        Set<String> words = new LinkedHashSet<>();
+        for (String text : texts) {
+            if (text == null) {
+                continue;
+            }
+            String plain = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+            for (String word : SEPARATORS.split(plain)) {
+                if (!word.isEmpty()) {
+                    words.add(word);
+                }
+            }
+        }
+        return words;
+    }
+
+    // the typos a word of this length may have and still match; a word with digits (a size, a model) only matches exactly
+    static int maxTypos(String word) {
+        if (word.length() < 4 || word.chars().anyMatch(Character::isDigit)) {
+            return 0;
+        }
+        return word.length() < 8 ? 1 : 2;
+    }
+
+    // the optimal string alignment distance: letters deleted, inserted or changed and two neighbours swapped
+    static int typos(String a, String b) {
+        // more letters apart than any word may have typos
+        if (Math.abs(a.length() - b.length()) > 2) {
+            return Math.abs(a.length() - b.length());
+        }
+        int[][] distance = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            distance[i][0] = i;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            distance[0][j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int changed = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                distance[i][j] = Math.min(Math.min(distance[i - 1][j] + 1, distance[i][j - 1] + 1), distance[i - 1][j - 1] + changed);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    distance[i][j] = Math.min(distance[i][j], distance[i - 2][j - 2] + 1);
+                }
+            }
+        }
+        return distance[a.length()][b.length()];
+    }
+
+    // the word itself and every word made from it by deleting up to the given number of letters
+    private static Set<String> deletions(String word, int letters) {
+        Set<String> deletions = new HashSet<>();
+        deletions.add(word);
+        Set<String> last = Set.of(word);
+        for (int round = 0; round < letters; round++) {
+            Set<String> next = new HashSet<>();
+            for (String variant : last) {
+                for (int i = 0; i < variant.length(); i++) {
+                    next.add(variant.substring(0, i) + variant.substring(i + 1));
+                }
+            }
+            deletions.addAll(next);
+            last = next;
+        }
+        return deletions;
+    }
+
+    private static String key(String productType, Long id) {
+        return productType + ":" + id;
+    }
+
+    private static final class Document {
+        private final String productType;
+        private final Long id;
+        private final Float price;
+        private final String animal;
+        private final String brand;
+        private final String type;
+        private final String purpose;
+        private final Set<String> words;
+
+        private Document(String productType, Long id, Float price, String animal, String brand, String type, String purpose) {
+            this.productType = productType;
+            this.id = id;
+            this.price = price;
+            this.animal = animal;
+            this.brand = brand;
+            this.type = type;
+            this.purpose = purpose;
+            this.words = words(animal, brand, type, purpose);
+        }
+
+        private Document(ProductRepository.SearchText text) {
+            this(text.getProductType(), text.getId(), text.getPrice(), text.getAnimal(), text.getBrand(), text.getType(), text.getPurpose());
+        }
+
+        private ProductSearchHitDto toHit(float score) {
+            return new ProductSearchHitDto(productType, id, price, animal, brand, type, purpose, score);
+        }
+    }
+
+    // the products are numbered in the order they were indexed; a removed or replaced product leaves a hole in the
+    // numbers (skipped by the searches) until there are more holes than products and everything is numbered again
+    private static final class Index {
+        private final List<Document> documents = new ArrayList<>();
+        // the product id of every number, next to each other for the ranking
+        private long[] ids = new long[16];
+        private final Map<String, Integer> numbers = new HashMap<>();
+        private final Map<String, Postings> postings = new HashMap<>();
+        // an indexed word with up to maxTypos letters deleted -> the indexed words it was made from
+        private final Map<String, List<String>> deletions = new HashMap<>();
+        private int holes;
+
+        private void put(Document document) {
+            remove(key(document.productType, document.id));
+            int number = documents.size();
+            documents.add(document);
+            if (number == ids.length) {
+                ids = Arrays.copyOf(ids, number * 2);
+            }
+            ids[number] = document.id;
+            numbers.put(key(document.productType, document.id), number);
+            for (String word : document.words) {
+                postings.computeIfAbsent(word, this::addWord).add(number);
+            }
+        }
+
+        private void remove(String key) {
+            Integer number = numbers.remove(key);
+            if (number == null) {
+                return;
+            }
+            documents.set(number, null);
+            holes++;
+            if (holes > numbers.size()) {
+                renumber();
+            }
+        }
+
+        private int size() {
+            return numbers.size();
+        }
+
+        private Postings addWord(String word) {
+            for (String deletion : deletions(word, maxTypos(word))) {
+                deletions.computeIfAbsent(deletion, key -> new ArrayList<>(1)).add(word);
+            }
+            return new Postings();
+        }
+
+        private void renumber() {
+            List<Document> live = documents.stream().filter(Objects::nonNull).collect(Collectors.toList());
+            documents.clear();
+            numbers.clear();
+            postings.clear();
+            deletions.clear();
+            holes = 0;
+            live.forEach(this::put);
+        }
+
+        private List<ProductSearchHitDto> search(Set<String> words, int limit) {
+            Scores scratch = SCORES.get().ensureCapacity(documents.size());
+            float[] scores = scratch.scores;
+            float[] best = scratch.best;
+            Postings matched = new Postings();
+            Postings wordMatched = new Postings();
+            for (String word : words) {
+                // a word of the query counts once per product, with the best of the indexed words it matched
+                wordMatched.size = 0;
+                for (Map.Entry<String, Integer> match : matches(word).entrySet()) {
+                    Postings products = postings.get(match.getKey());
+                    float score = (float) Math.log(1 + (double) numbers.size() / products.size) / (1 + match.getValue());
+                    for (int i = 0; i < products.size; i++) {
+                        int number = products.numbers[i];
+                        if (documents.get(number) == null) {
+                            continue;
+                        }
+                        if (best[number] == 0) {
+                            wordMatched.add(number);
+                        }
+                        best[number] = Math.max(best[number], score);
+                    }
+                }
+                for (int i = 0; i < wordMatched.size; i++) {
+                    int number = wordMatched.numbers[i];
+                    if (scores[number] == 0) {
+                        matched.add(number);
+                    }
+                    scores[number] += best[number];
+                    best[number] = 0;
+                }
+            }
+
+            // the limit best ones, equal scores by product id; once there are limit of them, most products are turned
+            // away by one comparison with the worst one kept
+            Comparator<Integer> ranking = (a, b) -> ranksAbove(scores, a, b) ? 1 : ranksAbove(scores, b, a) ? -1 : 0;
+            PriorityQueue<Integer> top = new PriorityQueue<>(limit + 1, ranking);
+            for (int i = 0; i < matched.size; i++) {
+                int number = matched.numbers[i];
+                if (top.size() == limit && !ranksAbove(scores, number, top.peek())) {
+                    continue;
+                }
+                top.add(number);
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+            List<ProductSearchHitDto> hits = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                int number = top.poll();
+                hits.add(documents.get(number).toHit(scores[number]));
+            }
+            Collections.reverse(hits);
+            for (int i = 0; i < matched.size; i++) {
+                scores[matched.numbers[i]] = 0;
+            }
+            return hits;
+        }
+
+        private boolean ranksAbove(float[] scores, int a, int b) {
+            if (scores[a] != scores[b]) {
+                return scores[a] > scores[b];
+            }
+            return ids[a] < ids[b];
+        }
+
+        // indexed word -> typos, for the indexed words close enough to the query word
+        private Map<String, Integer> matches(String word) {
+            int allowed = maxTypos(word);
+            Map<String, Integer> matches = new HashMap<>();
+            for (String deletion : deletions(word, allowed)) {
+                for (String indexed : deletions.getOrDefault(deletion, List.of())) {
+                    if (!matches.containsKey(indexed)) {
+                        int typos = typos(word, indexed);
+                        if (typos <= allowed) {
+                            matches.put(indexed, typos);
+                        }
+                    }
+                }
+            }
+            return matches;
+        }
+    }
+
+    // the score of every product number, kept per thread so a search does not allocate it; only the numbers a search
+    // matched are written, and set back to zero before it returns
+    private static final class Scores {
+        private float[] scores = new float[0];
+        private float[] best = new float[0];
+
+        private Scores ensureCapacity(int documents) {
+            if (scores.length < documents) {
+                scores = new float[documents * 2];
+                best = new float[documents * 2];
+            }
+            return this;
+        }
+    }
+
+    // the product numbers of one word, in the order they were indexed
+    private static final class Postings {
+        private int[] numbers = new int[4];
+        private int size;
+
+        private void add(int number) {
+            if (size == numbers.length) {
+                numbers = Arrays.copyOf(numbers, size * 2);
+            }
+            numbers[size++] = number;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.project.service;
+
+import com.example.project.model.ProductType;
+import com.example.project.model.Purchase;
+import com.example.project.model.PurchaseResult;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+// creates many purchases in one transaction, so they share a single commit
+@Service
+public class PurchaseBatchService {
+    private final PurchaseService purchaseService;
+    private final TransactionTemplate transactionTemplate;
+
+    public PurchaseBatchService(PurchaseService purchaseService, PlatformTransactionManager transactionManager) {
+        this.purchaseService = purchaseService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // every purchase gets its own result. The purchases that cannot go through with the stock left are rejected before the
+    // transaction, so the others normally share one commit; when one still fails inside it (the stock moved meanwhile), the
+    // transaction is rolled back, that purchase is reported and the rest get one transaction each, never the whole batch again
+    public List<PurchaseResult> createAll(List<Purchase> purchases) {
+        // the products and the stock of the whole batch are looked up once, the fallback reuses them
+        Map<Long, ProductType> products = purchaseService.findProducts(purchases);
+        Map<Long, Long> stock = purchaseService.findStock(products);
+        PurchaseResult[] results = new PurchaseResult[purchases.size()];
+        List<Integer> pending = new ArrayList<>();
+        for (int index = 0; index < purchases.size(); index++) {
+            RuntimeException rejection = purchaseService.check(purchases.get(index), products, stock);
+            if (rejection != null) {
+                results[index] = PurchaseResult.failure(rejection);
+            } else {
+                pending.add(index);
+            }
+        }
+        if (pending.isEmpty()) {
+            return Arrays.asList(results);
+        }
+
+        int[] current = {-1};
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Integer index : pending) {
+                    current[0] = index;
+                    results[index] = PurchaseResult.success(purchaseService.create(purchases.get(index), products));
+                }
+                current[0] = -1;
+            });
+        } catch (RuntimeException ex) {
+            // when the commit itself failed, no purchase can be blamed
+            if (current[0] != -1) {
+                results[current[0]] = PurchaseResult.failure(ex);
+                pending.remove(Integer.valueOf(current[0]));
+            }
+            pending.forEach(index -> results[index] = createAlone(purchases.get(index), products));
+        }
+        return Arrays.asList(results);
+    }
+
+    private PurchaseResult createAlone(Purchase purchase, Map<Long, ProductType> products) {
+        resetForRetry(purchase);
+        try {
+            return PurchaseResult.success(transactionTemplate.execute(status -> purchaseService.create(purchase, products)));
+        } catch (RuntimeException ex) {
+            return PurchaseResult.failure(ex);
+        }
+    }
+
+    // the ids handed out in the rolled back transaction do not exist in the database
+    private void resetForRetry(Purchase purchase) {
+        purchase.setId(null);
+        if (purchase.getProducts() != null) {
+            purchase.getProducts().forEach(it -> it.setId(null));
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.project.service;
+
+import com.example.project.dto.PurchaseDto;
+import com.example.project.exception.BadRequestException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+// remembers the response of POST /purchases per Idempotency-Key, so a retried request gets the purchase
+// created the first time instead of creating (and reserving stock for) it again
+@Component
+public class PurchaseIdempotencyStore {
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // every entry lives for the same ttl, so the insertion order is also the expiry order
+    private final Queue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final LongSupplier nanoClock;
+    private final Counter replays;
+
+    @Autowired
+    public PurchaseIdempotencyStore(MeterRegistry meterRegistry,
+                                    @Value("${petshop.purchases.idempotency.ttl-seconds:600}") long ttlSeconds,
+                                    @Value("${petshop.purchases.idempotency.max-entries:10000}") int maxEntries) {
+        this(meterRegistry, ttlSeconds, maxEntries, System::nanoTime);
+    }
+
+    PurchaseIdempotencyStore(MeterRegistry meterRegistry, long ttlSeconds, int maxEntries, LongSupplier nanoClock) {
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.maxEntries = maxEntries;
+        this.nanoClock = nanoClock;
+        this.replays = Counter.builder("purchases.idempotency.replays")
+                .description("Purchase requests answered from the idempotency store")
+                .register(meterRegistry);
+        Gauge.builder("purchases.idempotency.entries", entries, Map::size)
+                .description("Idempotency keys currently remembered")
+                .register(meterRegistry);
+    }
+
+    // runs create only for the first request with this key; concurrent duplicates wait for that execution,
+    // later ones get the stored result. A failed execution is forgotten so the client can retry it.
+    public PurchaseDto execute(String key, String fingerprint, Supplier<PurchaseDto> create) {
+        evict();
+        Entry entry = new Entry(key, fingerprint, nanoClock.getAsLong());
+        Entry existing = entries.putIfAbsent(key, entry);
+        if (existing != null) {
+            if (!existing.fingerprint.equals(fingerprint)) {
+                throw new BadRequestException(String.format("The Idempotency-Key %s was already used for a different purchase.", key));
+            }
+            replays.increment();
+            return await(existing);
+        }
+        insertionOrder.add(entry);
+        try {
+            entry.result.complete(create.get());
+        } catch (RuntimeException ex) {
+            entries.remove(key, entry);
+            entry.result.completeExceptionally(ex);
+        }
+        return await(entry);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    // drops the expired keys and, above max-entries, the oldest ones, finished keys only in both cases: an in-flight key is
+    // skipped, even an expired one, so its duplicates keep waiting for it and the finished keys behind it are still dropped
+    private void evict() {
+        long now = nanoClock.getAsLong();
+        Iterator<Entry> oldestFirst = insertionOrder.iterator();
+        while (oldestFirst.hasNext()) {
+            Entry oldest = oldestFirst.next();
+            if (!oldest.result.isDone()) {
+                continue;
+            }
+            boolean expired = now - oldest.createdAt >= ttlNanos;
+            boolean overCapacity = entries.size() > maxEntries;
+            if (!expired && !overCapacity) {
+                return;
+            }
+            oldestFirst.remove();
+            entries.remove(oldest.key, oldest);
+        }
+    }
+
+    private static PurchaseDto await(Entry entry) {
+        try {
+            return entry.result.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    private static class Entry {
+        private final String key;
+        private final String fingerprint;
+        private final long createdAt;
+        private final CompletableFuture<PurchaseDto> result = new CompletableFuture<>();
+
+        Entry(String key, String fingerprint, long createdAt) {
+            this.key = key;
+            this.fingerprint = fingerprint;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.project.service;
+
+import com.example.project.dto.PurchaseDto;
+import com.example.project.dto.PurchaseImportResultDto;
+import com.example.project.exception.BadRequestException;
+import com.example.project.exception.EntityNotFoundException;
+import com.example.project.mapper.PurchaseMapper;
+import com.example.project.model.Purchase;
+import com.example.project.model.PurchaseResult;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// bulk import of purchases sent as NDJSON (one PurchaseDto per line): the body is read line by line and
+// the purchases are created chunk by chunk, so the memory used does not depend on the size of the import
+@Service
+public class PurchaseImportService {
+    private final PurchaseBatchService purchaseBatchService;
+    private final PurchaseMapper purchaseMapper;
+    private final Validator validator;
+    private final ObjectReader reader;
+    private final ObjectWriter writer;
+    private final int chunkSize;
+
+    public PurchaseImportService(PurchaseBatchService purchaseBatchService, PurchaseMapper purchaseMapper, Validator validator,
+                                 ObjectMapper objectMapper, @Value("${petshop.purchases.import.chunk-size:500}") int chunkSize) {
+        this.purchaseBatchService = purchaseBatchService;
+        this.purchaseMapper = purchaseMapper;
+        this.validator = validator;
+        this.reader = objectMapper.readerFor(PurchaseDto.class);
+        this.writer = objectMapper.writerFor(PurchaseImportResultDto.class);
+        this.chunkSize = chunkSize;
+    }
+
+    // writes one result line per record, in the order of the records, after every chunk
+    public void importAll(InputStream in, OutputStream out) throws IOException {
+        BufferedReader lines = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        List<Record> chunk = new ArrayList<>(chunkSize);
+        String line;
+        long lineNumber = 0;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            chunk.add(parse(lineNumber, line));
+            if (chunk.size() == chunkSize) {
+                apply(chunk, out);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            apply(chunk, out);
+        }
+    }
+
+    private Record parse(long lineNumber, String line) {
+        PurchaseDto purchaseDto;
+        try {
+            purchaseDto = reader.readValue(line);
+        } catch (JsonProcessingException ex) {
+            return Record.rejected(lineNumber, 400, "Malformed purchase: " + ex.getOriginalMessage());
+        }
+        // the line null is read as no purchase at all
+        if (purchaseDto == null) {
+            return Record.rejected(lineNumber, 400, "Malformed purchase: a purchase object is expected");
+        }
+        Set<ConstraintViolation<PurchaseDto>> violations = validator.validate(purchaseDto);
+        if (!violations.isEmpty()) {
+            return Record.rejected(lineNumber, 400, violations.stream()
+                    .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", ")));
+        }
+        boolean withoutInventory = purchaseDto.getProductsDto().stream()
+                .anyMatch(it -> it.getInventoryDto() == null || it.getInventoryDto().getId() == null);
+        if (withoutInventory) {
+            return Record.rejected(lineNumber, 400, "Every item needs an inventory id");
+        }
+        return Record.accepted(lineNumber, purchaseMapper.toEntity(purchaseDto));
+    }
+
+    private void apply(List<Record> chunk, OutputStream out) throws IOException {
+        List<Record> accepted = chunk.stream().filter(record -> record.purchase != null).collect(Collectors.toList());
+        if (!accepted.isEmpty()) {
+            List<PurchaseResult> results = purchaseBatchService.createAll(accepted.stream().map(record -> record.purchase).collect(Collectors.toList()));
+            for (int i = 0; i < accepted.size(); i++) {
+                accepted.get(i).complete(results.get(i));
+            }
+        }
+        for (Record record : chunk) {
+            out.write(writer.writeValueAsBytes(record.result));
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    private static int code(RuntimeException ex) {
+        if (ex instanceof BadRequestException) {
+            return 400;
+        }
+        if (ex instanceof EntityNotFoundException) {
+            return 404;
+        }
+        return 500;
+    }
+
+    private static class Record {
+        private final Purchase purchase;
+        private PurchaseImportResultDto result;
+
+        private Record(Purchase purchase, PurchaseImportResultDto result) {
+            this.purchase = purchase;
+            this.result = result;
+        }
+
+        static Record accepted(long line, Purchase purchase) {
+            return new Record(purchase, PurchaseImportResultDto.builder().line(line).build());
+        }
+
+        static Record rejected(long line, int code, String message) {
+            return new Record(null, PurchaseImportResultDto.builder().line(line).code(code).message(message).build());
+        }
+
+        void complete(PurchaseResult purchaseResult) {
+            if (purchaseResult.isSuccess()) {
+                result.setId(purchaseResult.getPurchase().getId());
+                result.setCode(201);
+            } else {
+                result.setCode(code(purchaseResult.getError()));
+                result.setMessage(purchaseResult.getError().getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.project.service;
+
+import com.example.project.exception.ServiceUnavailableException;
+import com.example.project.model.Purchase;
+import com.example.project.model.PurchaseResult;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// group commit for POST /purchases: the requests are queued and drained in micro-batches,
+// each batch being created in one transaction by PurchaseBatchService
+@Component
+public class PurchasePipeline {
+    private static final Logger log = LoggerFactory.getLogger(PurchasePipeline.class);
+
+    private final PurchaseService purchaseService;
+    private final PurchaseBatchService purchaseBatchService;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long maxWaitNanos;
+    private final int workers;
+
+    private final BlockingQueue<Submission> queue = new LinkedBlockingQueue<>();
+    private final List<Thread> drainers = new ArrayList<>();
+    // taken by submit and stop, so nothing is queued once the drainers may have left
+    private final Object lock = new Object();
+    private final DistributionSummary batchSizes;
+    private volatile boolean running;
+
+    public PurchasePipeline(PurchaseService purchaseService, PurchaseBatchService purchaseBatchService, MeterRegistry meterRegistry,
+                            @Value("${petshop.purchases.group-commit.enabled:false}") boolean enabled,
+                            @Value("${petshop.purchases.group-commit.batch-size:32}") int batchSize,
+                            @Value("${petshop.purchases.group-commit.max-wait-ms:5}") long maxWaitMillis,
+                            @Value("${petshop.purchases.group-commit.workers:1}") int workers) {
+        this.purchaseService = purchaseService;
+        this.purchaseBatchService = purchaseBatchService;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.workers = workers;
+        this.batchSizes = DistributionSummary.builder("purchases.group_commit.batch_size")
+                .description("Number of purchases committed together")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("purchases.group_commit.queue_size", queue, BlockingQueue::size)
+                .description("Purchases waiting for the next batch")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            Thread drainer = new Thread(this::drain, "purchase-group-commit-" + i);
+            drainer.setDaemon(true);
+            drainer.start();
+            drainers.add(drainer);
+        }
+    }
+
+    // the queued purchases are still committed before the application stops
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        synchronized (lock) {
+            running = false;
+        }
+        for (Thread drainer : drainers) {
+            drainer.join(TimeUnit.SECONDS.toMillis(30));
+        }
+    }
+
+    // blocks until the batch holding the purchase has been committed; failures are rethrown as they are
+    public Purchase create(Purchase purchase) {
+        if (!enabled) {
+            return purchaseService.create(purchase);
+        }
+        try {
+            return submit(purchase).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    // rejected once the pipeline is stopped, no drainer would ever take the purchase
+    public CompletableFuture<Purchase> submit(Purchase purchase) {
+        Submission submission = new Submission(purchase);
+        synchronized (lock) {
+            if (!running) {
+                submission.result.completeExceptionally(new ServiceUnavailableException("The application is shutting down, please retry later."));
+                return submission.result;
+            }
+            queue.add(submission);
+        }
+        return submission.result;
+    }
+
+    private void drain() {
+        while (running || !queue.isEmpty()) {
+            try {
+                List<Submission> batch = nextBatch();
+                if (!batch.isEmpty()) {
+                    run(batch);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // waits for a first purchase, then at most max-wait-ms for the batch to fill up
+    List<Submission> nextBatch() throws InterruptedException {
+        List<Submission> batch = new ArrayList<>(batchSize);
+        Submission first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return batch;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + maxWaitNanos;
+        while (batch.size() < batchSize) {
+            long remaining = deadline - System.nanoTime();
+            Submission next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        return batch;
+    }
+
+    void run(List<Submission> batch) {
+        batchSizes.record(batch.size());
+        try {
+            List<PurchaseResult> results = purchaseBatchService.createAll(batch.stream().map(submission -> submission.purchase).collect(Collectors.toList()));
+            for (int i = 0; i < batch.size(); i++) {
+                PurchaseResult result = results.get(i);
+                if (result.isSuccess()) {
+                    batch.get(i).result.complete(result.getPurchase());
+                } else {
+                    batch.get(i).result.completeExceptionally(result.getError());
+                }
+            }
+        } catch (RuntimeException ex) {
+            log.error("Could not create a batch of {} purchases", batch.size(), ex);
+            batch.forEach(submission -> submission.result.completeExceptionally(ex));
+        }
+    }
+
+    static class Submission {
+        private final Purchase purchase;
+        private final CompletableFuture<Purchase> result = new CompletableFuture<>();
+
+        Submission(Purchase purchase) {
+            this.purchase = purchase;
+        }
+    }
+}
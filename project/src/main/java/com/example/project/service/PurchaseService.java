@@ -1,111 +1,194 @@
 package com.example.project.service;
 
+import com.example.project.dto.ItemDto;
+import com.example.project.dto.PurchaseDto;
 import com.example.project.exception.BadRequestException;
 import com.example.project.exception.EntityNotFoundException;
 import com.example.project.model.*;
 import com.example.project.repository.PurchaseRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
-import javax.transaction.Transactional;
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static java.lang.Math.abs;
 
 @Service
 @Transactional // se fac updateuri in bd ddecat daca totu mwrge corect
 public class PurchaseService {
+    // the associations a purchase dto can embed, see FieldSet
+    public static final String CLIENT = "client";
+    public static final String ITEMS = "items";
+    public static final List<String> ASSOCIATIONS = List.of(CLIENT, ITEMS);
+
     private final PurchaseRepository purchaseRepository;
     private final InventoryService inventoryService;
-    private final FoodService foodService;
-    private final MedicineService medicineService;
-    private final ToyService toyService;
     private final ItemService itemService;
+    private final ResourceVersions resourceVersions;
+    private final KeysetPagination keysetPagination;
 
-    public PurchaseService(PurchaseRepository purchaseRepository, InventoryService inventoryService, FoodService foodService, MedicineService medicineService, ToyService toyService, ItemService itemService) {
+    public PurchaseService(PurchaseRepository purchaseRepository, InventoryService inventoryService, ItemService itemService,
+                           ResourceVersions resourceVersions, KeysetPagination keysetPagination) {
         this.purchaseRepository = purchaseRepository;
         this.inventoryService = inventoryService;
-        this.foodService = foodService;
-        this.medicineService = medicineService;
-        this.toyService = toyService;
         this.itemService = itemService;
+        this.resourceVersions = resourceVersions;
+        this.keysetPagination = keysetPagination;
     }
 
-    public List<Purchase> findAll() {
-        return purchaseRepository.findAll();
+    // the finders run read-only: hibernate keeps no snapshots of what they load and never flushes
+    // the client is joined and the items are read only if the fields include them
+    @Transactional(readOnly = true)
+    public KeysetPage<PurchaseDto> findAll(String cursor, Integer size, String sort, FieldSet fields) {
+        KeysetPage<PurchaseDto> page;
+        if (fields.includes(CLIENT)) {
+            page = keysetPagination.page(purchaseRepository::findDtosByIdGreaterThan, purchaseRepository::findDtosByIdLessThan, PurchaseDto::getId, cursor, size, sort);
+        } else {
+            page = keysetPagination.page(purchaseRepository::findSummariesByIdGreaterThan, purchaseRepository::findSummariesByIdLessThan, PurchaseDto::getId, cursor, size, sort);
+        }
+        addItems(page.getContent(), fields);
+        return page;
     }
 
+    @Transactional(readOnly = true)
     public Purchase findById(Long id) {
         return purchaseRepository.findById(id).orElseThrow(()-> new EntityNotFoundException(String.format("The purchase with id = %s does not exist in the database.",id.toString())));
      }
 
-     public List<Purchase> findByClient(Long id) {
+    @Transactional(readOnly = true)
+    public PurchaseDto findDtoById(Long id) {
+        PurchaseDto purchase = purchaseRepository.findDtoById(id).orElseThrow(() -> new EntityNotFoundException(String.format("The purchase with id = %s does not exist in the database.", id.toString())));
+        addItems(List.of(purchase));
+        return purchase;
+    }
+
+    @Transactional(readOnly = true)
+    public List<Purchase> findByClient(Long id) {
         return purchaseRepository.findByClientId(id);
      }
 
+    @Transactional(readOnly = true)
+    public List<PurchaseDto> findDtosByClient(Long id, FieldSet fields) {
+        return addItems(fields.includes(CLIENT) ? purchaseRepository.findDtosByClientId(id) : purchaseRepository.findSummariesByClientId(id), fields);
+    }
+
+    // the same four statements whatever the size of the purchase: lock, restock, delete the items, delete the purchase
     public void deleteById(Long id) {
-        if(purchaseRepository.existsById(id)) {
-            List<Item> itemsToBeDeleted = itemService.findByPurchaseId(id);
-            for(Item it: itemsToBeDeleted) {
-                Inventory inventoryToBeModified = it.getInventory();
-                inventoryToBeModified.setAvailableQuantity(inventoryToBeModified.getAvailableQuantity() + it.getOrderedQuantity());
-                inventoryToBeModified = inventoryService.update(inventoryToBeModified);
-                itemService.deleteById(it.getId());
-            }
-            purchaseRepository.deleteById(id);
-        } else {
+        if (purchaseRepository.findForUpdateById(id).isEmpty()) {
             throw new EntityNotFoundException(String.format("The purchase with id = %s does not exist in the database.",id.toString()));
         }
+        inventoryService.restockPurchase(id);
+        itemService.deleteByPurchaseId(id);
+        purchaseRepository.deletePurchaseById(id);
+        resourceVersions.purchasesChanged();
     }
 
     public Purchase create(Purchase purchase) {
-        Float price = 0F;
+        return create(purchase, findProducts(List.of(purchase)));
+    }
+
+    // the whole cart (or a whole batch of carts) is resolved up front, so the number of queries does not depend on the number of items
+    // answered from the product catalog cache, so it joins the transaction of the caller instead of opening one
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public Map<Long, ProductType> findProducts(List<Purchase> purchases) {
+        List<Long> inventoryIds = purchases.stream()
+                .filter(purchase -> purchase.getProducts() != null)
+                .flatMap(purchase -> purchase.getProducts().stream())
+                .filter(it -> it.getInventory() != null && it.getInventory().getId() != null)
+                .map(it -> it.getInventory().getId())
+                .distinct()
+                .collect(Collectors.toList());
+        return inventoryService.findProductsForInventories(inventoryIds);
+    }
 
+    // the stock left for the inventories of findProducts, read without reserving anything
+    @Transactional(readOnly = true)
+    public Map<Long, Long> findStock(Map<Long, ProductType> products) {
+        return new HashMap<>(inventoryService.findAvailableQuantities(products.keySet()));
+    }
+
+    // the checks create makes, run against stock instead of the database: returns the exception create would throw, or null
+    // when the purchase goes through, in which case its quantities are taken out of stock for the purchases checked after it
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public RuntimeException check(Purchase purchase, Map<Long, ProductType> products, Map<Long, Long> stock) {
+        Map<Long, Long> orderedQuantities = new TreeMap<>();
         for (Item it : purchase.getProducts()) {
-            Inventory existingInventory = inventoryService.findById(it.getInventory().getId());
-            if (existingInventory.getAvailableQuantity() - it.getOrderedQuantity() >= 0) {
-                ProductType product = inventoryService.findProductForInventory(it.getInventory().getId());
-                switch (product.getType()) {
-                    case "food":
-                        Food food = foodService.findById(product.getId());
-                        price+=food.getPrice() * abs(it.getOrderedQuantity());
-                        break;
-                    case "toy":
-                        Toy toy = toyService.findById(product.getId());
-                        price += toy.getPrice() * abs(it.getOrderedQuantity());
-                        break;
-                    case "medicine":
-                        Medicine medicine = medicineService.findById(product.getId());
-                        price +=medicine.getPrice() * abs(it.getOrderedQuantity());
-                        break;
-                }
-                existingInventory.setAvailableQuantity(existingInventory.getAvailableQuantity() - it.getOrderedQuantity());
-
-                existingInventory = inventoryService.update(existingInventory);
+            if (it.getInventory() == null || it.getInventory().getId() == null) {
+                // left for create to fail on
+                return null;
             }
-            else {
-                throw new BadRequestException("the purchase cannot be confirmed; not enough items in inventory");
+            Long inventoryId = it.getInventory().getId();
+            if (products.get(inventoryId) == null) {
+                return new EntityNotFoundException(String.format("The inventory with id = %s does not exist in the database.", inventoryId.toString()));
             }
+            orderedQuantities.merge(inventoryId, it.getOrderedQuantity(), Long::sum);
         }
-        purchase.setPrice(price);
-        purchase.setTime(LocalDateTime.now());
-        Purchase result =   purchaseRepository.save(purchase);
+        for (Map.Entry<Long, Long> ordered : orderedQuantities.entrySet()) {
+            if (stock.getOrDefault(ordered.getKey(), 0L) < ordered.getValue()) {
+                return new BadRequestException("the purchase cannot be confirmed; not enough items in inventory");
+            }
+        }
+        orderedQuantities.forEach((inventoryId, quantity) -> stock.merge(inventoryId, -quantity, Long::sum));
+        return null;
+    }
 
-        for(Item it: purchase.getProducts()){
-            it.setPurchase(result);
-            Item savedItem = itemService.create(it);
+    // products must hold the products of every inventory in the purchase, as returned by findProducts
+    public Purchase create(Purchase purchase, Map<Long, ProductType> products) {
+        Float price = 0F;
+        // sorted by inventory id, so concurrent checkouts always lock the inventory rows in the same order
+        Map<Long, Long> orderedQuantities = new TreeMap<>();
+        for (Item it : purchase.getProducts()) {
+            Long inventoryId = it.getInventory().getId();
+            ProductType product = products.get(inventoryId);
+            if (product == null) {
+                throw new EntityNotFoundException(String.format("The inventory with id = %s does not exist in the database.", inventoryId.toString()));
+            }
+            it.setUnitPrice(product.getPrice());
+            it.setProductType(product.getType());
+            it.setProductId(product.getId());
+            price += product.getPrice() * abs(it.getOrderedQuantity());
+            orderedQuantities.merge(inventoryId, it.getOrderedQuantity(), Long::sum);
         }
 
-        return result;
+        // the stock is only touched once the prices are known, no row lock is held during the lookups
+        orderedQuantities.forEach((inventoryId, quantity) -> {
+            if (!inventoryService.reserve(inventoryId, quantity)) {
+                throw new BadRequestException("the purchase cannot be confirmed; not enough items in inventory");
+            }
+        });
+        purchase.setPrice(price);
+        purchase.setTime(LocalDateTime.now());
+
+        // the items are inserted through the cascade on Purchase.products, in the same flush as the purchase
+        purchase.getProducts().forEach(it -> it.setPurchase(purchase));
+        resourceVersions.purchasesChanged();
+        return purchaseRepository.save(purchase);
     }
 
-    public Purchase update(Purchase purchase) {
-        if(purchaseRepository.existsById(purchase.getId())) {
-            return purchaseRepository.save(purchase);
-        } else {
-            throw new EntityNotFoundException(String.format("The purchase with id = %s does not exist in the database.",purchase.getId().toString()));
+    private List<PurchaseDto> addItems(List<PurchaseDto> purchases, FieldSet fields) {
+        if (fields.includes(ITEMS)) {
+            return addItems(purchases);
         }
+        purchases.forEach(purchase -> purchase.setProductsDto(null));
+        return purchases;
     }
 
-
+    // the items of all the purchases in one query, whatever their number
+    private List<PurchaseDto> addItems(List<PurchaseDto> purchases) {
+        if (purchases.isEmpty()) {
+            return purchases;
+        }
+        Map<Long, PurchaseDto> byId = purchases.stream().collect(Collectors.toMap(PurchaseDto::getId, Function.identity()));
+        for (ItemDto item : itemService.findDtosByPurchaseIds(byId.keySet())) {
+            byId.get(item.getPurchaseId()).getProductsDto().add(item);
+        }
+        return purchases;
+    }
 }
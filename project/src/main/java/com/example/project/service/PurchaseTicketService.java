@@ -0,0 +1,184 @@
+package com.example.project.service;
+
+import com.example.project.dto.ErrorDto;
+import com.example.project.dto.PurchaseDto;
+import com.example.project.dto.PurchaseTicketDto;
+import com.example.project.exception.BadRequestException;
+import com.example.project.exception.EntityNotFoundException;
+import com.example.project.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// POST /purchases/async: the purchase is queued, a bounded pool of workers creates it and the client polls its ticket
+@Component
+public class PurchaseTicketService {
+    private static final Logger log = LoggerFactory.getLogger(PurchaseTicketService.class);
+
+    private final Map<String, Ticket> tickets = new ConcurrentHashMap<>();
+    private final Queue<Ticket> submissionOrder = new ConcurrentLinkedQueue<>();
+    private final BlockingQueue<Runnable> queue;
+    private final ThreadPoolExecutor executor;
+    private final long retentionNanos;
+    private final Timer waitTime;
+    private final Timer completed;
+    private final Timer failed;
+
+    public PurchaseTicketService(MeterRegistry meterRegistry,
+                                 @Value("${petshop.purchases.async.workers:4}") int workers,
+                                 @Value("${petshop.purchases.async.queue-capacity:1000}") int queueCapacity,
+                                 @Value("${petshop.purchases.async.retention-seconds:600}") long retentionSeconds) {
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS, queue, runnable -> {
+            Thread thread = new Thread(runnable, "purchase-async-" + threads.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.retentionNanos = TimeUnit.SECONDS.toNanos(retentionSeconds);
+        Gauge.builder("purchases.async.queue_size", queue, BlockingQueue::size)
+                .description("Purchases waiting for a worker")
+                .register(meterRegistry);
+        this.waitTime = Timer.builder("purchases.async.wait")
+                .description("Time from submission until a worker picks the purchase up")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.completed = latency(meterRegistry, "done");
+        this.failed = latency(meterRegistry, "failed");
+    }
+
+    private static Timer latency(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("purchases.async.latency")
+                .description("Time from submission until the purchase is created or rejected")
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    // returns right away; a full queue is answered with 503 so the client backs off instead of piling up
+    public PurchaseTicketDto submit(Supplier<PurchaseDto> create) {
+        evictFinished();
+        Ticket ticket = new Ticket(UUID.randomUUID().toString());
+        tickets.put(ticket.id, ticket);
+        submissionOrder.add(ticket);
+        try {
+            executor.execute(() -> run(ticket, create));
+        } catch (RejectedExecutionException ex) {
+            tickets.remove(ticket.id);
+            submissionOrder.remove(ticket);
+            throw new ServiceUnavailableException("Too many purchases are waiting to be processed, please retry later.");
+        }
+        return ticket.toDto();
+    }
+
+    public PurchaseTicketDto findById(String id) {
+        Ticket ticket = tickets.get(id);
+        if (ticket == null) {
+            throw new EntityNotFoundException(String.format("The ticket with id = %s does not exist.", id));
+        }
+        return ticket.toDto();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    private void run(Ticket ticket, Supplier<PurchaseDto> create) {
+        waitTime.record(System.nanoTime() - ticket.submittedNanos, TimeUnit.NANOSECONDS);
+        ticket.status = Status.RUNNING;
+        try {
+            ticket.purchase = create.get();
+            ticket.finish(Status.DONE);
+            completed.record(ticket.finishedNanos - ticket.submittedNanos, TimeUnit.NANOSECONDS);
+        } catch (RuntimeException ex) {
+            if (!(ex instanceof BadRequestException) && !(ex instanceof EntityNotFoundException)) {
+                log.error("Could not create the purchase of ticket {}", ticket.id, ex);
+            }
+            ticket.error = ErrorDto.builder().code(errorCode(ex)).message(ex.getMessage()).build();
+            ticket.finish(Status.FAILED);
+            failed.record(ticket.finishedNanos - ticket.submittedNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static int errorCode(RuntimeException ex) {
+        if (ex instanceof BadRequestException) {
+            return 400;
+        }
+        if (ex instanceof EntityNotFoundException) {
+            return 404;
+        }
+        return 500;
+    }
+
+    // finished tickets are kept for retention-seconds so the client can still read the result
+    private void evictFinished() {
+        long now = System.nanoTime();
+        Ticket oldest;
+        while ((oldest = submissionOrder.peek()) != null) {
+            if (oldest.status != Status.DONE && oldest.status != Status.FAILED) {
+                return;
+            }
+            if (now - oldest.finishedNanos < retentionNanos) {
+                return;
+            }
+            if (submissionOrder.remove(oldest)) {
+                tickets.remove(oldest.id);
+            }
+        }
+    }
+
+    private enum Status {
+        PENDING, RUNNING, DONE, FAILED
+    }
+
+    private static class Ticket {
+        private final String id;
+        private final LocalDateTime submittedAt = LocalDateTime.now();
+        private final long submittedNanos = System.nanoTime();
+        private volatile Status status = Status.PENDING;
+        private volatile PurchaseDto purchase;
+        private volatile ErrorDto error;
+        private volatile long finishedNanos;
+
+        Ticket(String id) {
+            this.id = id;
+        }
+
+        // the finish time is written before the status, the eviction reads them in the opposite order
+        void finish(Status status) {
+            this.finishedNanos = System.nanoTime();
+            this.status = status;
+        }
+
+        PurchaseTicketDto toDto() {
+            return PurchaseTicketDto.builder()
+                    .id(id)
+                    .status(status.name())
+                    .submittedAt(submittedAt)
+                    .purchaseDto(purchase)
+                    .error(error)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.project.service;
+
+import com.example.project.repository.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// the etags of the conditional GETs, answered without reading or serializing what they stand for:
+// a single resource has the version columns of the rows its dto is built from, read through the primary key,
+// a list a change counter kept in memory, raised after the commit of every write that can change one of its pages
+// (like the other caches here the counters belong to this instance, a write through another one is not seen)
+@Component
+public class ResourceVersions {
+    public static final String FOOD = "food";
+    public static final String TOYS = "toys";
+    public static final String MEDICINE = "medicine";
+    public static final String INVENTORY = "inventory";
+    public static final String CLIENTS = "clients";
+    public static final String ANIMALS = "animals";
+    public static final String PURCHASES = "purchases";
+
+    // the product pages and the purchases show the stock of the inventories
+    private static final List<String> CATALOG = List.of(FOOD, TOYS, MEDICINE, INVENTORY, PURCHASES);
+    // the animals and the purchases show their client
+    private static final List<String> CLIENT = List.of(CLIENTS, ANIMALS, PURCHASES);
+
+    // plain jdbc: a jpql update of product would clear the whole product region of the second-level cache
+    private static final String PRODUCT_STATEMENT = "update product set version = version + 1 where id = ?";
+    private static final String INVENTORY_STATEMENT = "update inventory set version = version + 1 where id = ?";
+    private static final String CLIENT_STATEMENT = "update client set version = version + 1 where client_id = ?";
+    private static final String ANIMAL_STATEMENT = "update animal set version = version + 1 where animal_id = ?";
+
+    private final ProductRepository productRepository;
+    private final InventoryRepository inventoryRepository;
+    private final ClientRepository clientRepository;
+    private final AnimalRepository animalRepository;
+    private final PurchaseRepository purchaseRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    // the counters start again from 0 with the application, the start time keeps the etags of an earlier run from matching
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<String, AtomicLong> counters = new HashMap<>();
+
+    public ResourceVersions(ProductRepository productRepository, InventoryRepository inventoryRepository, ClientRepository clientRepository,
+                            AnimalRepository animalRepository, PurchaseRepository purchaseRepository, JdbcTemplate jdbcTemplate) {
+        this.productRepository = productRepository;
+        this.inventoryRepository = inventoryRepository;
+        this.clientRepository = clientRepository;
+        this.animalRepository = animalRepository;
+        this.purchaseRepository = purchaseRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        List.of(FOOD, TOYS, MEDICINE, INVENTORY, CLIENTS, ANIMALS, PURCHASES).forEach(collection -> counters.put(collection, new AtomicLong()));
+    }
+
+    // null if there is no such resource, the request then goes on to its 404
+    public String productTag(String productType, Long id) {
+        return productRepository.findVersionById(productType, id).map(version -> tag(productType + "-" + id, version)).orElse(null);
+    }
+
+    public String inventoryTag(Long id) {
+        return inventoryRepository.findVersionById(id).map(version -> tag("inventory-" + id, version.toString())).orElse(null);
+    }
+
+    public String clientTag(Long id) {
+        return clientRepository.findVersionById(id).map(version -> tag("client-" + id, version.toString())).orElse(null);
+    }
+
+    public String animalTag(Long id) {
+        return animalRepository.findVersionById(id).map(version -> tag("animal-" + id, version)).orElse(null);
+    }
+
+    public String purchaseTag(Long id) {
+        return purchaseRepository.findVersionById(id).map(version -> tag("purchase-" + id, version)).orElse(null);
+    }
+
+    // one tag for every page, filter and sort of the collection
+    public String collectionTag(String collection) {
+        return tag(collection + "-list", epoch + "." + counters.get(collection).get());
+    }
+
+    // called in the transaction of a product or inventory write, with the rows it changed (null for none: a new or deleted row)
+    public void catalogChanged(Long productId, Long inventoryId) {
+        if (productId != null) {
+            jdbcTemplate.update(PRODUCT_STATEMENT, productId);
+        }
+        if (inventoryId != null) {
+            jdbcTemplate.update(INVENTORY_STATEMENT, inventoryId);
+        }
+        afterCommit(CATALOG);
+    }
+
+    // called once the stock is written to the database, the stock statements raise the inventory versions themselves
+    public void stockChanged() {
+        afterCommit(CATALOG);
+    }
+
+    public void clientChanged(Long clientId) {
+        if (clientId != null) {
+            jdbcTemplate.update(CLIENT_STATEMENT, clientId);
+        }
+        afterCommit(CLIENT);
+    }
+
+    public void animalChanged(Long animalId) {
+        if (animalId != null) {
+            jdbcTemplate.update(ANIMAL_STATEMENT, animalId);
+        }
+        afterCommit(List.of(ANIMALS));
+    }
+
+    public void purchasesChanged() {
+        afterCommit(List.of(PURCHASES));
+    }
+
+    private static String tag(String name, String version) {
+        return "W/\"" + name + "-" + version + "\"";
+    }
+
+    // once per transaction however many writes it makes, never after a rollback; a counter raised before the commit
+    // would let a read of the old rows be tagged with the new value
+    private void afterCommit(Collection<String> collections) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            raise(collections);
+            return;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof Changes && ((Changes) synchronization).of(this)) {
+                ((Changes) synchronization).collections.addAll(collections);
+                return;
+            }
+        }
+        Changes changes = new Changes();
+        changes.collections.addAll(collections);
+        TransactionSynchronizationManager.registerSynchronization(changes);
+    }
+
+    private void raise(Collection<String> collections) {
+        collections.forEach(collection -> counters.get(collection).incrementAndGet());
+    }
+
+    private class Changes implements TransactionSynchronization {
+        private final Set<String> collections = new HashSet<>();
+
+        private boolean of(ResourceVersions versions) {
+            return versions == ResourceVersions.this;
+        }
+
+        @Override
+        public void afterCommit() {
+            raise(collections);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.project.service;
+
+import java.util.Collection;
+import java.util.Map;
+
+// the authority for Inventory.availableQuantity; which implementation is active is chosen with petshop.inventory.stock-mode
+public interface StockLedger {
+
+    // takes the quantity out of stock, false if there is not enough left
+    boolean reserve(Long inventoryId, Long quantity);
+
+    // puts the quantity back into stock, false if the inventory does not exist
+    boolean release(Long inventoryId, Long quantity);
+
+    // puts back everything ordered in the purchase, called before its items are deleted
+    void releasePurchase(Long purchaseId);
+
+    // the quantities left, by inventory id, without taking anything; an inventory that does not exist is left out
+    Map<Long, Long> availableQuantities(Collection<Long> inventoryIds);
+
+    // called after the quantity was written through InventoryService.update, the only write of the quantity besides
+    // the ledger itself; applied once the transaction commits
+    void overwrite(Long inventoryId, Long quantity);
+
+    // called after the inventory was deleted through InventoryService.deleteById; applied once the transaction commits
+    void evict(Long inventoryId);
+}
@@ -1,52 +1,105 @@
 package com.example.project.service;
 
+import com.example.project.dto.ToyDto;
+import com.example.project.exception.BadRequestException;
 import com.example.project.exception.EntityNotFoundException;
+import com.example.project.mapper.ToyMapper;
+import com.example.project.model.KeysetPage;
+import com.example.project.model.ProductFilter;
 import com.example.project.model.Toy;
 import com.example.project.repository.ToyRepository;
+import com.example.project.repository.ProductSpecifications;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
-
-import java.util.List;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class ToyService {
     private final ToyRepository toyRepository;
-
-    public ToyService(ToyRepository toyRepository) {
+    private final ProductCatalogCache productCatalogCache;
+    private final ProductSearchIndex productSearchIndex;
+    private final ResourceVersions resourceVersions;
+    private final KeysetPagination keysetPagination;
+    private final ToyMapper toyMapper;
+
+    public ToyService(ToyRepository toyRepository, ProductCatalogCache productCatalogCache, ProductSearchIndex productSearchIndex,
+                      ResourceVersions resourceVersions, KeysetPagination keysetPagination, ToyMapper toyMapper) {
         this.toyRepository = toyRepository;
+        this.productCatalogCache = productCatalogCache;
+        this.productSearchIndex = productSearchIndex;
+        this.resourceVersions = resourceVersions;
+        this.keysetPagination = keysetPagination;
+        this.toyMapper = toyMapper;
     }
 
-    public List<Toy> findAll() {
-        return toyRepository.findAll();
+    @Transactional(readOnly = true)
+    public KeysetPage<ToyDto> findAll(ProductFilter filter, String cursor, Integer size, String sort) {
+        if (!filter.isEmpty()) {
+            // filtered in the database, only the rows of the page are read
+            Specification<Toy> specification = ProductSpecifications.<Toy>matching(filter)
+                    .and(ProductSpecifications.equalTo("brand", filter.getBrand()));
+            return keysetPagination.page(toyRepository, specification, toyMapper::toDto, ToyDto::getId, cursor, size, sort);
+        }
+        return keysetPagination.page(toyRepository::findDtosByIdGreaterThan, toyRepository::findDtosByIdLessThan, ToyDto::getId, cursor, size, sort);
     }
 
+    @Transactional(readOnly = true)
     public Toy findById(Long id) {
         return toyRepository.findById(id).orElseThrow(()-> new EntityNotFoundException(String.format("The toy with id = %s does not exist in the database.",id.toString())));
     }
 
+    // the product row comes from the second-level cache once it was read, its inventory (the stock) from the database
+    @Transactional(readOnly = true)
+    public ToyDto findDtoById(Long id) {
+        return toyRepository.findById(id).map(toyMapper::toDto).orElseThrow(() -> new EntityNotFoundException(String.format("The toy with id = %s does not exist in the database.", id.toString())));
+    }
+
+    @Transactional
     public void deleteById(Long id) {
         if(toyRepository.existsById(id)){
+            Long inventoryId = toyRepository.findInventoryIdById(id).orElse(null);
             toyRepository.deleteById(id);
+            productCatalogCache.evictProduct(inventoryId, null);
+            productSearchIndex.remove("toy", id);
+            resourceVersions.catalogChanged(null, null);
         } else {
             throw new EntityNotFoundException(String.format("The toy with id = %s does not exist in the database.",id.toString()));
         }
     }
 
-    public Toy create(Toy toy) {
-        return toyRepository.save(toy);
+    @Transactional
+    public ToyDto create(Toy toy) {
+        Toy result = toyRepository.save(toy);
+        productCatalogCache.evictProduct(null, result.getInventory());
+        productSearchIndex.index(result);
+        resourceVersions.catalogChanged(null, null);
+        return toyMapper.toDto(result);
     }
 
-    public Toy update(Toy toy) {
+    @Transactional
+    public ToyDto update(Toy toy) {
         if(toyRepository.existsById(toy.getId())){
-            return toyRepository.save(toy);
+            // the stock is only written through the StockLedger, a new inventory is not created with an update
+            if (toy.getInventory() != null && toy.getInventory().getId() == null) {
+                throw new BadRequestException("The inventory of an existing toy is given by its id, its stock is changed through /inventory.");
+            }
+            Long previousInventoryId = toyRepository.findInventoryIdById(toy.getId()).orElse(null);
+            Toy result = toyRepository.save(toy);
+            productCatalogCache.evictProduct(previousInventoryId, result.getInventory());
+            productSearchIndex.index(result);
+            resourceVersions.catalogChanged(result.getId(), result.getInventory() == null ? null : result.getInventory().getId());
+            return toyMapper.toDto(result);
         } else {
             throw new EntityNotFoundException(String.format("The animal with id = %s does not exist in the database.",toy.getId().toString()));
         }
     }
 
+    @Transactional(readOnly = true)
     public Boolean existsByInventoryId(Long id) {
         return toyRepository.existsByInventoryId(id);
     }
 
+    @Transactional(readOnly = true)
     public Long findByInventoryId(Long id) {
         return toyRepository.findByInventoryId(id).getId();
     }
@@ -0,0 +1,101 @@
+-- the schema the application started from, as hibernate created it from the original entities: identity ids, food,
+-- toys and medicine in a table each, and a foreign key both ways between a product and its inventory.
+-- A database created before the migrations already has it and is baselined at this version (see application.properties),
+-- so this script only runs on an empty database; every change after it is a migration of its own, which both kinds of
+-- database run. The constraint names are the ones hibernate generated, the later migrations drop some of them by name
+
+create table animal (
+    animal_id bigint not null auto_increment,
+    animal_birth_date date,
+    breed varchar(255),
+    animal_name varchar(255),
+    species varchar(255),
+    owner_client_id bigint,
+    primary key (animal_id)
+) engine=InnoDB;
+
+create table client (
+    client_id bigint not null auto_increment,
+    client_birth_date date,
+    city varchar(255),
+    email varchar(255),
+    first_name varchar(255),
+    last_name varchar(255),
+    primary key (client_id)
+) engine=InnoDB;
+
+create table food (
+    id bigint not null auto_increment,
+    animal varchar(255),
+    brand varchar(255),
+    price float,
+    quantity_per_unit bigint,
+    type varchar(255),
+    inventory_id bigint,
+    primary key (id)
+) engine=InnoDB;
+
+create table inventory (
+    id bigint not null auto_increment,
+    available_quantity bigint,
+    food_id bigint,
+    medicine_id bigint,
+    toy_id bigint,
+    primary key (id)
+) engine=InnoDB;
+
+create table item (
+    id bigint not null auto_increment,
+    ordered_quantity bigint,
+    inventory_id bigint,
+    purchase_id bigint,
+    primary key (id)
+) engine=InnoDB;
+
+create table medicine (
+    id bigint not null auto_increment,
+    animal varchar(255),
+    price float,
+    purpose varchar(255),
+    inventory_id bigint,
+    primary key (id)
+) engine=InnoDB;
+
+create table purchase (
+    id bigint not null auto_increment,
+    price float,
+    time datetime(6),
+    client_client_id bigint,
+    primary key (id)
+) engine=InnoDB;
+
+create table toy (
+    id bigint not null auto_increment,
+    animal varchar(255),
+    brand varchar(255),
+    price float,
+    inventory_id bigint,
+    primary key (id)
+) engine=InnoDB;
+
+alter table client add constraint UK_bfgjs3fem0hmjhvih80158x29 unique (email);
+
+alter table animal add constraint FKj7mk4bp5mvp8ar2amq29p2dbl foreign key (owner_client_id) references client (client_id);
+
+alter table food add constraint FKh4pq60r98hnr87rvfiv6ygdym foreign key (inventory_id) references inventory (id);
+
+alter table inventory add constraint FK5jd7a1m170ak8ppqrn5h0uiiv foreign key (food_id) references food (id);
+
+alter table inventory add constraint FK713k1svoloqbw0cua9dcnr77m foreign key (medicine_id) references medicine (id);
+
+alter table inventory add constraint FKjtvixpjvxolgorkwhg4i4ys6o foreign key (toy_id) references toy (id);
+
+alter table item add constraint FK69jrwlwin8x1qcbmg3k8ut7w1 foreign key (inventory_id) references inventory (id);
+
+alter table item add constraint FKi5wuew0jqa4kr4rupy4a2qswl foreign key (purchase_id) references purchase (id);
+
+alter table medicine add constraint FKqo51v75wuspl2652m7se8mtpx foreign key (inventory_id) references inventory (id);
+
+alter table purchase add constraint FK4jh3y8sttjxigm9cvw5y0ga1y foreign key (client_client_id) references client (client_id);
+
+alter table toy add constraint FK7qpoq0udouekcjxvt1wvesyak foreign key (inventory_id) references inventory (id);
@@ -0,0 +1,18 @@
+-- an item keeps the product and unit price it was bought at, a later price change does not rewrite the purchase
+alter table item add column product_id bigint;
+
+alter table item add column product_type varchar(255);
+
+alter table item add column unit_price float;
+
+-- the items bought before the snapshot get the product their inventory holds now and its current price, the price they
+-- were bought at is not known any more; an item whose inventory has no product keeps nulls. The ids are still the ones
+-- of the food, toy and medicine tables, V3 moves them along with the rows
+update item i join food f on f.inventory_id = i.inventory_id
+set i.product_type = 'food', i.product_id = f.id, i.unit_price = f.price;
+
+update item i join toy t on t.inventory_id = i.inventory_id
+set i.product_type = 'toy', i.product_id = t.id, i.unit_price = t.price;
+
+update item i join medicine m on m.inventory_id = i.inventory_id
+set i.product_type = 'medicine', i.product_id = m.id, i.unit_price = m.price;
@@ -0,0 +1,59 @@
+-- food, toys and medicine, told apart by product_type
+create table product (
+    product_type varchar(31) not null,
+    id bigint not null,
+    animal varchar(255),
+    price float,
+    brand varchar(255),
+    quantity_per_unit bigint,
+    type varchar(255),
+    purpose varchar(255),
+    inventory_id bigint,
+    primary key (id),
+    constraint product_inventory_uk unique (inventory_id),
+    constraint product_inventory_fk foreign key (inventory_id) references inventory (id)
+) engine=InnoDB;
+
+-- the rows of the three tables move into product: food keeps its ids, the toys are numbered on from the highest food id
+-- and the medicine from there on from the highest toy id, so no two products share an id
+insert into product (product_type, id, animal, price, brand, quantity_per_unit, type, inventory_id)
+select 'food', id, animal, price, brand, quantity_per_unit, type, inventory_id from food;
+
+insert into product (product_type, id, animal, price, brand, inventory_id)
+select 'toy', id + (select coalesce(max(id), 0) from food), animal, price, brand, inventory_id from toy;
+
+insert into product (product_type, id, animal, price, purpose, inventory_id)
+select 'medicine', id + (select coalesce(max(id), 0) from food) + (select coalesce(max(id), 0) from toy), animal, price, purpose, inventory_id
+from medicine;
+
+-- what refers to a toy or a medicine by id is renumbered the same way: the item snapshots of V2 and the back references
+-- of inventory, whose foreign keys now point at product
+update item set product_id = product_id + (select coalesce(max(id), 0) from food)
+where product_type = 'toy';
+
+update item set product_id = product_id + (select coalesce(max(id), 0) from food) + (select coalesce(max(id), 0) from toy)
+where product_type = 'medicine';
+
+alter table inventory drop foreign key FK5jd7a1m170ak8ppqrn5h0uiiv;
+
+alter table inventory drop foreign key FKjtvixpjvxolgorkwhg4i4ys6o;
+
+alter table inventory drop foreign key FK713k1svoloqbw0cua9dcnr77m;
+
+update inventory set toy_id = toy_id + (select coalesce(max(id), 0) from food)
+where toy_id is not null;
+
+update inventory set medicine_id = medicine_id + (select coalesce(max(id), 0) from food) + (select coalesce(max(id), 0) from toy)
+where medicine_id is not null;
+
+alter table inventory add constraint inventory_food_fk foreign key (food_id) references product (id);
+
+alter table inventory add constraint inventory_toy_fk foreign key (toy_id) references product (id);
+
+alter table inventory add constraint inventory_medicine_fk foreign key (medicine_id) references product (id);
+
+drop table food;
+
+drop table toy;
+
+drop table medicine;
@@ -0,0 +1,12 @@
+-- product.inventory_id is the only link between a product and its inventory, the columns of the other direction go
+alter table inventory drop foreign key inventory_food_fk;
+
+alter table inventory drop foreign key inventory_toy_fk;
+
+alter table inventory drop foreign key inventory_medicine_fk;
+
+alter table inventory drop column food_id;
+
+alter table inventory drop column toy_id;
+
+alter table inventory drop column medicine_id;
@@ -0,0 +1,19 @@
+-- the ids are handed out by hibernate in blocks of 50 from this table, so inserts can be batched; the auto_increment of
+-- the V1 keys stays, hibernate always sends the id
+create table id_generator (
+    name varchar(255) not null,
+    next_val bigint,
+    primary key (name)
+) engine=InnoDB;
+
+-- next_val holds the last id handed out (hibernate.id.generator.stored_last_used) and hibernate hands out the block of 50
+-- that ends one above it: a table with rows (a database created by hand) is seeded at its highest key + 51, so the first
+-- block starts past it, an empty one at 0, read as "start at 1" (a seed of 1 would give ids from -47). The products
+-- were numbered on across the three old tables by V3, so the highest product id is above all of them
+insert into id_generator (name, next_val)
+select 'client', coalesce(max(client_id) + 51, 0) from client
+union all select 'animal', coalesce(max(animal_id) + 51, 0) from animal
+union all select 'inventory', coalesce(max(id) + 51, 0) from inventory
+union all select 'product', coalesce(max(id) + 51, 0) from product
+union all select 'purchase', coalesce(max(id) + 51, 0) from purchase
+union all select 'item', coalesce(max(id) + 51, 0) from item;
@@ -0,0 +1,21 @@
+-- one index per query path (SchemaMigrationTest explains the queries against them)
+-- innodb appends the primary key to every secondary index: the rows of an index on (x) come in id order for one x,
+-- and a query that only needs x and id is answered from the index alone
+
+-- the items of a purchase (details, cancel, restock): the ordered quantity per inventory is read from the index alone
+-- it also backs the foreign key on purchase_id
+create index item_purchase_idx on item (purchase_id, inventory_id, ordered_quantity);
+
+-- the items that hold an inventory, checked by the foreign key on item.inventory_id when an inventory is deleted
+create index item_inventory_idx on item (inventory_id);
+
+-- the purchase history of a client, in id order and read from the index alone (it also backs the foreign key on client_client_id)
+-- nothing looks purchases up by time alone, so time is only carried here and has no index of its own
+create index purchase_client_idx on purchase (client_client_id, id, time, price);
+
+-- the animals of a client, in id order
+create index animal_owner_idx on animal (owner_client_id);
+
+-- the /food, /toys and /medicine pages, one product_type in id order
+-- checkout resolves inventories to products through product_inventory_uk
+create index product_type_id_idx on product (product_type, id);
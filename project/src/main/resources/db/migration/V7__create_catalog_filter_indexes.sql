@@ -0,0 +1,6 @@
+-- the filtered /food, /toys and /medicine pages: one product_type and one animal or brand, in id order
+-- (the primary key closes both indexes); a price range or the stock filter is checked on the rows these lead to,
+-- on its own it walks product_type_id_idx in id order and stops once the page is full
+create index product_type_animal_idx on product (product_type, animal);
+
+create index product_type_brand_idx on product (product_type, brand);
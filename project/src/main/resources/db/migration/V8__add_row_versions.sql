@@ -0,0 +1,10 @@
+-- a counter per row, raised by every statement that changes what GET /<collection>/{id} returns for it, so a
+-- conditional GET compares versions read through the primary key instead of the rows themselves; the purchases and
+-- their items are never updated and have none
+alter table product add column version bigint not null default 0;
+
+alter table inventory add column version bigint not null default 0;
+
+alter table client add column version bigint not null default 0;
+
+alter table animal add column version bigint not null default 0;
@@ -0,0 +1,67 @@
+package com.example.project;
+
+import com.example.project.dto.AnimalDto;
+import com.example.project.dto.ClientDto;
+import com.example.project.model.Animal;
+import com.example.project.model.Client;
+import com.example.project.service.AnimalService;
+import com.example.project.service.ClientService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// the application.properties of the project, on an in-memory database instead of mysql
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:open-in-view;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa", "spring.datasource.password=",
+        "spring.jpa.database=h2", "spring.jpa.hibernate.ddl-auto=create-drop", "spring.flyway.enabled=false"})
+@AutoConfigureMockMvc
+class OpenInViewDisabledTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private ClientService clientService;
+
+    @Autowired
+    private AnimalService animalService;
+
+    @Test
+    @DisplayName("open in view - no session is kept open for the whole request")
+    void test_openInView_disabled() {
+        assertThat(applicationContext.getBeanNamesForType(OpenEntityManagerInViewInterceptor.class)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("update an animal - the lazy owner is in the response, it was mapped before the transaction ended")
+    void test_updateAnimal_ownerMapped() throws Exception {
+        ClientDto owner = clientService.create(Client.builder().first_name("Ana").email("ana@mail.com").build());
+        AnimalDto animal = animalService.create(Animal.builder().name("Piscot").species("pisica").owner(Client.builder().id(owner.getId()).build()).build());
+        animal.setName("Miti");
+        animal.setOwnerDto(ClientDto.builder().id(owner.getId()).build());
+
+        mockMvc.perform(put("/animals/" + animal.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().findAndRegisterModules().writeValueAsString(animal)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Miti"))
+                .andExpect(jsonPath("$.ownerDto.first_name").value("Ana"));
+    }
+}
@@ -2,12 +2,17 @@ package com.example.project.controller;
 
 import com.example.project.dto.AnimalDto;
 import com.example.project.dto.ClientDto;
+import com.example.project.dto.PageDto;
 import com.example.project.exception.BadRequestException;
 import com.example.project.exception.EntityNotFoundException;
 import com.example.project.mapper.AnimalMapper;
 import com.example.project.model.Animal;
 import com.example.project.model.Client;
+import com.example.project.model.FieldSet;
+import com.example.project.model.KeysetPage;
 import com.example.project.service.AnimalService;
+import com.example.project.service.NdjsonExportService;
+import com.example.project.service.ResourceVersions;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -18,7 +23,11 @@ import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
@@ -35,9 +44,19 @@ class AnimalControllerTest {
     @Spy
     private AnimalMapper animalMapper;
 
+    @Mock
+    private NdjsonExportService ndjsonExportService;
+
+    @Mock
+    private ResourceVersions resourceVersions;
+
     @InjectMocks
     private AnimalController animalController;
 
+    private final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+    private final ServletWebRequest webRequest = new ServletWebRequest(request, response);
+
     private Animal expectedAnimal;
     private AnimalDto expectedDto;
 
@@ -64,34 +83,76 @@ class AnimalControllerTest {
     @Test
     @DisplayName("get all animals - happy flow")
     public void test_getAll_happyFlow() {
-        List<Animal> animalList = new ArrayList<>();
-        animalList.add(expectedAnimal);
+        List<AnimalDto> animalDtoList = new ArrayList<>();
+        animalDtoList.add(expectedDto);
 
-        when(animalService.findAll()).thenReturn(animalList);
-        ResponseEntity<List<AnimalDto>> result = animalController.getAll();
+        when(animalService.findAll(eq(null), eq(10), eq("-id"), any(FieldSet.class))).thenReturn(new KeysetPage<>(animalDtoList, "next"));
+        ResponseEntity<PageDto<AnimalDto>> result = animalController.getAll(null, 10, "-id", null, null, webRequest);
 
         assertThat(result.getStatusCodeValue()).isEqualTo(200);
-        assertThat(result.getBody()).isEqualTo(animalMapper.toDto(animalList));
+        assertThat(result.getBody().getContent()).isEqualTo(animalDtoList);
+        assertThat(result.getBody().getNextCursor()).isEqualTo("next");
 
-        verify(animalService).findAll();
-        verify(animalMapper, times(2)).toDto(animalList);
+        verify(animalService).findAll(eq(null), eq(10), eq("-id"), argThat(fields -> fields.includes(AnimalService.OWNER)));
+        verifyNoInteractions(animalMapper);
+    }
+
+    @Test
+    @DisplayName("stream all animals - written as ndjson by the export service")
+    public void test_streamAll_happyFlow() throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        animalController.streamAll(null, null, response);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentType()).isEqualTo("application/x-ndjson");
+        verify(ndjsonExportService, times(1)).exportAll(eq(Animal.class), eq("Animal.owner"), any(), any(), eq(response.getOutputStream()));
+    }
+
+    @Test
+    @DisplayName("stream all animals - view=summary joins no owner")
+    public void test_streamAll_summary() throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        animalController.streamAll("summary", null, response);
+
+        verify(ndjsonExportService, times(1)).exportAll(eq(Animal.class), isNull(), any(), any(), eq(response.getOutputStream()));
     }
 
     @Test
     @DisplayName("get all animals by owner id - happy flow")
     void test_getByOwner_happyFlow() {
-        List<Animal> animalList = new ArrayList<>();
-        animalList.add(expectedAnimal);
+        List<AnimalDto> animalDtoList = new ArrayList<>();
+        animalDtoList.add(expectedDto);
 
-        when(animalService.findByClient(expectedAnimal.getOwner().getId())).thenReturn(animalList);
+        when(animalService.findDtosByClient(eq(expectedAnimal.getOwner().getId()), any(FieldSet.class))).thenReturn(animalDtoList);
 
-        ResponseEntity<List<AnimalDto>> result = animalController.getByOwner(expectedAnimal.getOwner().getId());
+        ResponseEntity<List<AnimalDto>> result = animalController.getByOwner(expectedAnimal.getOwner().getId(), null, null, webRequest);
 
         assertThat(result.getStatusCodeValue()).isEqualTo(200);
-        assertThat(result.getBody()).isEqualTo(animalMapper.toDto(animalList));
+        assertThat(result.getBody()).isEqualTo(animalDtoList);
+
+        verify(animalService).findDtosByClient(eq(expectedAnimal.getOwner().getId()), argThat(fields -> fields.includes(AnimalService.OWNER)));
+        verifyNoInteractions(animalMapper);
+    }
 
-        verify(animalService).findByClient(expectedAnimal.getOwner().getId());
-        verify(animalMapper, times(2)).toDto(animalList);
+    @Test
+    @DisplayName("get all animals by owner id - fields= with no association asks for the animals without their owner")
+    void test_getByOwner_withoutOwner() {
+        when(animalService.findDtosByClient(eq(7L), any(FieldSet.class))).thenReturn(List.of(expectedDto));
+
+        animalController.getByOwner(7L, null, "", webRequest);
+
+        verify(animalService).findDtosByClient(eq(7L), argThat(fields -> !fields.includes(AnimalService.OWNER)));
+    }
+
+    @Test
+    @DisplayName("get all animals by owner id - an unknown field is rejected before any query")
+    void test_getByOwner_throwsBadRequestException_whenFieldUnknown() {
+        BadRequestException ex = Assertions.assertThrows(BadRequestException.class, () -> animalController.getByOwner(7L, null, "client", webRequest));
+
+        assertThat(ex.getMessage()).isEqualTo("The fields can only be owner.");
+        verifyNoInteractions(animalService, resourceVersions);
     }
 
     @Test
@@ -99,15 +160,15 @@ class AnimalControllerTest {
     void getAnimalById() {
         Long id = expectedAnimal.getId();
 
-        when(animalService.findById(id)).thenReturn(expectedAnimal);
+        when(animalService.findDtoById(id)).thenReturn(expectedDto);
 
-        ResponseEntity<AnimalDto> result = animalController.getAnimalById(id);
+        ResponseEntity<AnimalDto> result = animalController.getAnimalById(id, webRequest);
 
         assertThat(result.getStatusCodeValue()).isEqualTo(200);
-        assertThat(result.getBody()).isEqualTo(animalMapper.toDto(expectedAnimal));
+        assertThat(result.getBody()).isEqualTo(expectedDto);
 
-        verify(animalService).findById(id);
-        verify(animalMapper, times(2)).toDto(expectedAnimal);
+        verify(animalService).findDtoById(id);
+        verify(animalMapper, times(0)).toDto(expectedAnimal);
         verify(animalMapper, times(0)).toEntity(expectedDto);
     }
 
@@ -116,13 +177,13 @@ class AnimalControllerTest {
     public void test_getAnimalById_throwsEntityNotFoundException_whenAnimalNotFound() {
         Long id = expectedAnimal.getId();
 
-        when(animalService.findById(id)).thenThrow(new EntityNotFoundException(String.format("The animal with id = %s does not exist in the database.",id.toString())));
+        when(animalService.findDtoById(id)).thenThrow(new EntityNotFoundException(String.format("The animal with id = %s does not exist in the database.",id.toString())));
 
-        EntityNotFoundException ex = Assertions.assertThrows(EntityNotFoundException.class, () -> animalController.getAnimalById(id));
+        EntityNotFoundException ex = Assertions.assertThrows(EntityNotFoundException.class, () -> animalController.getAnimalById(id, webRequest));
 
         assertThat(ex.getMessage()).isEqualTo(String.format("The animal with id = %s does not exist in the database.",id.toString()));
 
-        verify(animalService).findById(id);
+        verify(animalService).findDtoById(id);
         verify(animalMapper, times(0)).toDto(expectedAnimal);
         verify(animalMapper, times(0)).toEntity(expectedDto);
     }
@@ -137,15 +198,15 @@ class AnimalControllerTest {
                 .birth_date(LocalDate.now())
                 .ownerDto(ClientDto.builder().id(1L).build())
                 .build();
-        when(animalService.create(animalMapper.toEntity(animalDto))).thenReturn(expectedAnimal);
+        when(animalService.create(animalMapper.toEntity(animalDto))).thenReturn(expectedDto);
 
         ResponseEntity<AnimalDto> result = animalController.createAnimal(animalDto);
 
         assertThat(result.getStatusCodeValue()).isEqualTo(201);
-        assertThat(result.getBody()).isEqualTo(animalMapper.toDto(expectedAnimal));
+        assertThat(result.getBody()).isEqualTo(expectedDto);
 
         verify(animalService, times(1)).create(animalMapper.toEntity(animalDto));
-        verify(animalMapper, times(2)).toDto(expectedAnimal);
+        verify(animalMapper, times(0)).toDto(expectedAnimal);
         verify(animalMapper, times(3)).toEntity(animalDto);
     }
 
@@ -154,15 +215,15 @@ class AnimalControllerTest {
     void test_updateAnimal_happyFlow() {
         Long id = expectedAnimal.getId();
 
-        when(animalService.update(animalMapper.toEntity(expectedDto))).thenReturn(expectedAnimal);
+        when(animalService.update(animalMapper.toEntity(expectedDto))).thenReturn(expectedDto);
 
         ResponseEntity<AnimalDto> result = animalController.updateAnimal(id, expectedDto);
 
         assertThat(result.getStatusCodeValue()).isEqualTo(200);
-        assertThat(result.getBody()).isEqualTo(animalMapper.toDto(expectedAnimal));
+        assertThat(result.getBody()).isEqualTo(expectedDto);
 
         verify(animalService).update(animalMapper.toEntity(expectedDto));
-        verify(animalMapper, times(2)).toDto(expectedAnimal);
+        verify(animalMapper, times(0)).toDto(expectedAnimal);
         verify(animalMapper, times(3)).toEntity(expectedDto);
     }
 
@@ -213,4 +274,28 @@ class AnimalControllerTest {
         verify(animalMapper, times(0)).toEntity(expectedDto);
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("get animal by id - the tag in If-None-Match is current, 304 without reading the animal")
+    public void test_getAnimalById_notModified() {
+        when(resourceVersions.animalTag(1L)).thenReturn("W/\"animal-1-0.2\"");
+        request.addHeader("If-None-Match", "W/\"animal-1-0.2\"");
+
+        ResponseEntity<AnimalDto> result = animalController.getAnimalById(1L, webRequest);
+
+        assertThat(result).isNull();
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getHeader("ETag")).isEqualTo("W/\"animal-1-0.2\"");
+        verifyNoInteractions(animalService);
+    }
+
+    @Test
+    @DisplayName("get all animals - nothing changed since the tag in If-None-Match, 304 without a query")
+    public void test_getAll_notModified() {
+        when(resourceVersions.collectionTag(ResourceVersions.ANIMALS)).thenReturn("W/\"animals-list-kx2.12\"");
+        request.addHeader("If-None-Match", "W/\"animals-list-kx2.12\"");
+
+        assertThat(animalController.getAll(null, null, null, null, null, webRequest)).isNull();
+        assertThat(response.getStatus()).isEqualTo(304);
+        verifyNoInteractions(animalService);
+    }
+}
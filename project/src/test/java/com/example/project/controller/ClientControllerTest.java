@@ -1,12 +1,16 @@
 package com.example.project.controller;
 
 import com.example.project.dto.ClientDto;
+import com.example.project.dto.PageDto;
 import com.example.project.exception.BadRequestException;
 import com.example.project.exception.EntityNotFoundException;
 import com.example.project.mapper.ClientMapper;
 import com.example.project.model.Animal;
 import com.example.project.model.Client;
+import com.example.project.model.KeysetPage;
 import com.example.project.service.ClientService;
+import com.example.project.service.NdjsonExportService;
+import com.example.project.service.ResourceVersions;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -17,7 +21,11 @@ import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
@@ -34,9 +42,19 @@ class ClientControllerTest {
     @Spy
     private ClientMapper clientMapper;
 
+    @Mock
+    private NdjsonExportService ndjsonExportService;
+
+    @Mock
+    private ResourceVersions resourceVersions;
+
     @InjectMocks
     private ClientController clientController;
 
+    private final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+    private final ServletWebRequest webRequest = new ServletWebRequest(request, response);
+
     private Client expectedClient;
     private ClientDto expectedDto;
 
@@ -66,17 +84,30 @@ class ClientControllerTest {
     @Test
     @DisplayName("get all clients - happy flow")
     public void test_getAll_happyFlow() {
-        List<Client> clientList = new ArrayList<>();
-        clientList.add(expectedClient);
+        List<ClientDto> clientDtoList = new ArrayList<>();
+        clientDtoList.add(expectedDto);
 
-        when(clientService.findAll()).thenReturn(clientList);
-        ResponseEntity<List<ClientDto>> result = clientController.getAll();
+        when(clientService.findAll(null, 10, "-id")).thenReturn(new KeysetPage<>(clientDtoList, "next"));
+        ResponseEntity<PageDto<ClientDto>> result = clientController.getAll(null, 10, "-id", webRequest);
 
         assertThat(result.getStatusCodeValue()).isEqualTo(200);
-        assertThat(result.getBody()).isEqualTo(clientMapper.toDto(clientList));
+        assertThat(result.getBody().getContent()).isEqualTo(clientDtoList);
+        assertThat(result.getBody().getNextCursor()).isEqualTo("next");
 
-        verify(clientService).findAll();
-        verify(clientMapper, times(2)).toDto(clientList);
+        verify(clientService).findAll(null, 10, "-id");
+        verifyNoInteractions(clientMapper);
+    }
+
+    @Test
+    @DisplayName("stream all clients - written as ndjson by the export service")
+    public void test_streamAll_happyFlow() throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        clientController.streamAll(response);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentType()).isEqualTo("application/x-ndjson");
+        verify(ndjsonExportService, times(1)).exportAll(eq(Client.class), isNull(), any(), any(), eq(response.getOutputStream()));
     }
 
     @Test
@@ -84,16 +115,15 @@ class ClientControllerTest {
     public void test_getClientById_happyFlow() {
         Long id = expectedClient.getId();
 
-        when(clientService.findById(id)).thenReturn(expectedClient);
-
+        when(clientService.findDtoById(id)).thenReturn(expectedDto);
 
-        ResponseEntity<ClientDto> result = clientController.getClientById(id);
+        ResponseEntity<ClientDto> result = clientController.getClientById(id, webRequest);
 
         assertThat(result.getStatusCodeValue()).isEqualTo(200);
-        assertThat(result.getBody()).isEqualTo(clientMapper.toDto(expectedClient));
+        assertThat(result.getBody()).isEqualTo(expectedDto);
 
-        verify(clientService).findById(id);
-        verify(clientMapper, times(2)).toDto(expectedClient);
+        verify(clientService).findDtoById(id);
+        verify(clientMapper, times(0)).toDto(expectedClient);
         verify(clientMapper, times(0)).toEntity(expectedDto);
     }
 
@@ -102,13 +132,13 @@ class ClientControllerTest {
     public void test_getClientById_throwsEntityNotFoundException_whenClientNotFound() {
         Long id = expectedClient.getId();
 
-        when(clientService.findById(id)).thenThrow(new EntityNotFoundException(String.format("The client with id = %s does not exist in the database.",id.toString())));
+        when(clientService.findDtoById(id)).thenThrow(new EntityNotFoundException(String.format("The client with id = %s does not exist in the database.",id.toString())));
 
-        EntityNotFoundException ex = Assertions.assertThrows(EntityNotFoundException.class, () -> clientController.getClientById(id));
+        EntityNotFoundException ex = Assertions.assertThrows(EntityNotFoundException.class, () -> clientController.getClientById(id, webRequest));
 
         assertThat(ex.getMessage()).isEqualTo(String.format("The client with id = %s does not exist in the database.",id.toString()));
 
-        verify(clientService).findById(id);
+        verify(clientService).findDtoById(id);
         verify(clientMapper, times(0)).toDto(expectedClient);
         verify(clientMapper, times(0)).toEntity(expectedDto);
     }
@@ -123,15 +153,15 @@ class ClientControllerTest {
                 .city("Bucharest")
                 .birth_date(LocalDate.of(1999, 06, 19))
                 .build();
-        when(clientService.create(clientMapper.toEntity(clientDto))).thenReturn(expectedClient);
+        when(clientService.create(clientMapper.toEntity(clientDto))).thenReturn(expectedDto);
 
         ResponseEntity<ClientDto> result = clientController.addClient(clientDto);
 
         assertThat(result.getStatusCodeValue()).isEqualTo(201);
-        assertThat(result.getBody()).isEqualTo(clientMapper.toDto(expectedClient));
+        assertThat(result.getBody()).isEqualTo(expectedDto);
 
         verify(clientService, times(1)).create(clientMapper.toEntity(clientDto));
-        verify(clientMapper, times(2)).toDto(expectedClient);
+        verify(clientMapper, times(0)).toDto(expectedClient);
         verify(clientMapper, times(3)).toEntity(clientDto);
     }
 
@@ -140,15 +170,15 @@ class ClientControllerTest {
     public void test_updateClient_happyFlow() {
         Long id = expectedClient.getId();
 
-        when(clientService.update(clientMapper.toEntity(expectedDto))).thenReturn(expectedClient);
+        when(clientService.update(clientMapper.toEntity(expectedDto))).thenReturn(expectedDto);
 
         ResponseEntity<ClientDto> result = clientController.updateClient(id, expectedDto);
 
         assertThat(result.getStatusCodeValue()).isEqualTo(200);
-        assertThat(result.getBody()).isEqualTo(clientMapper.toDto(expectedClient));
+        assertThat(result.getBody()).isEqualTo(expectedDto);
 
         verify(clientService).update(clientMapper.toEntity(expectedDto));
-        verify(clientMapper, times(2)).toDto(expectedClient);
+        verify(clientMapper, times(0)).toDto(expectedClient);
         verify(clientMapper, times(3)).toEntity(expectedDto);
     }
 
@@ -198,4 +228,29 @@ class ClientControllerTest {
         verify(clientMapper, times(0)).toDto(expectedClient);
         verify(clientMapper, times(0)).toEntity(expectedDto);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("get client by id - the tag in If-None-Match is current, 304 without reading the client")
+    public void test_getClientById_notModified() {
+        when(resourceVersions.clientTag(1L)).thenReturn("W/\"client-1-2\"");
+        request.addHeader("If-None-Match", "W/\"client-1-2\"");
+
+        ResponseEntity<ClientDto> result = clientController.getClientById(1L, webRequest);
+
+        assertThat(result).isNull();
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getHeader("ETag")).isEqualTo("W/\"client-1-2\"");
+        verifyNoInteractions(clientService);
+    }
+
+    @Test
+    @DisplayName("get all clients - nothing changed since the tag in If-None-Match, 304 without a query")
+    public void test_getAll_notModified() {
+        when(resourceVersions.collectionTag(ResourceVersions.CLIENTS)).thenReturn("W/\"clients-list-kx2.12\"");
+        request.addHeader("If-None-Match", "W/\"clients-list-kx2.12\"");
+
+        assertThat(clientController.getAll(null, null, null, webRequest)).isNull();
+        assertThat(response.getStatus()).isEqualTo(304);
+        verifyNoInteractions(clientService);
+    }
+}
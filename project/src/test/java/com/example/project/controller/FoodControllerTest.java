@@ -2,22 +2,30 @@ package com.example.project.controller;
 
 import com.example.project.dto.FoodDto;
 import com.example.project.dto.InventoryDto;
+import com.example.project.dto.PageDto;
 import com.example.project.exception.BadRequestException;
 import com.example.project.exception.EntityNotFoundException;
 import com.example.project.mapper.FoodMapper;
 import com.example.project.model.Food;
 import com.example.project.model.Inventory;
+import com.example.project.model.KeysetPage;
+import com.example.project.model.ProductFilter;
 import com.example.project.service.FoodService;
+import com.example.project.service.ResourceVersions;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -34,9 +42,16 @@ class FoodControllerTest {
     @Spy
     private FoodMapper foodMapper;
 
+    @Mock
+    private ResourceVersions resourceVersions;
+
     @InjectMocks
     private FoodController foodController;
 
+    private final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+    private final ServletWebRequest webRequest = new ServletWebRequest(request, response);
+
     private Food expectedFood;
     private FoodDto expectedDto;
 
@@ -67,17 +82,36 @@ class FoodControllerTest {
     @Test
     @DisplayName("get all food - happy flow")
     public void test_getAll_happyFlow() {
-        List<Food> foodList = new ArrayList<>();
-        foodList.add(expectedFood);
+        List<FoodDto> foodDtoList = new ArrayList<>();
+        foodDtoList.add(expectedDto);
 
-        when(foodService.findAll()).thenReturn(foodList);
-        ResponseEntity<List<FoodDto>> result = foodController.getAll();
+        when(foodService.findAll(any(ProductFilter.class), eq(null), eq(10), eq("-id"))).thenReturn(new KeysetPage<>(foodDtoList, "next"));
+        ResponseEntity<PageDto<FoodDto>> result = foodController.getAll(null, null, null, null, null, null, null, 10, "-id", webRequest);
 
         assertThat(result.getStatusCodeValue()).isEqualTo(200);
-        assertThat(result.getBody()).isEqualTo(foodMapper.toDto(foodList));
+        assertThat(result.getBody().getContent()).isEqualTo(foodDtoList);
+        assertThat(result.getBody().getNextCursor()).isEqualTo("next");
 
-        verify(foodService).findAll();
-        verify(foodMapper, times(2)).toDto(foodList);
+        verify(foodService).findAll(any(ProductFilter.class), eq(null), eq(10), eq("-id"));
+        verifyNoInteractions(foodMapper);
+    }
+
+    @Test
+    @DisplayName("get all food - the query parameters are passed on as one filter")
+    public void test_getAll_filtered() {
+        ArgumentCaptor<ProductFilter> filter = ArgumentCaptor.forClass(ProductFilter.class);
+        when(foodService.findAll(filter.capture(), eq("cursor"), eq(null), eq(null))).thenReturn(new KeysetPage<>(List.of(expectedDto), null));
+
+        ResponseEntity<PageDto<FoodDto>> result = foodController.getAll("pisica", "un brand", "uscata", 5F, 20F, true, "cursor", null, null, webRequest);
+
+        assertThat(result.getBody().getContent()).containsExactly(expectedDto);
+        assertThat(filter.getValue().getAnimal()).isEqualTo("pisica");
+        assertThat(filter.getValue().getBrand()).isEqualTo("un brand");
+        assertThat(filter.getValue().getType()).isEqualTo("uscata");
+        assertThat(filter.getValue().getMinPrice()).isEqualTo(5F);
+        assertThat(filter.getValue().getMaxPrice()).isEqualTo(20F);
+        assertThat(filter.getValue().getInStock()).isTrue();
+        assertThat(filter.getValue().getPurpose()).isNull();
     }
 
     @Test
@@ -85,16 +119,15 @@ class FoodControllerTest {
     public void test_getFoodById_happyFlow() {
         Long id = expectedFood.getId();
 
-        when(foodService.findById(id)).thenReturn(expectedFood);
+        when(foodService.findDtoById(id)).thenReturn(expectedDto);
 
-
-        ResponseEntity<FoodDto> result = foodController.getFoodById(id);
+        ResponseEntity<FoodDto> result = foodController.getFoodById(id, webRequest);
 
         assertThat(result.getStatusCodeValue()).isEqualTo(200);
-        assertThat(result.getBody()).isEqualTo(foodMapper.toDto(expectedFood));
+        assertThat(result.getBody()).isEqualTo(expectedDto);
 
-        verify(foodService).findById(id);
-        verify(foodMapper, times(2)).toDto(expectedFood);
+        verify(foodService).findDtoById(id);
+        verify(foodMapper, times(0)).toDto(expectedFood);
         verify(foodMapper, times(0)).toEntity(expectedDto);
     }
 
@@ -103,13 +136,13 @@ class FoodControllerTest {
     public void test_getFoodById_throwsEntityNotFoundException_whenFoodNotFound() {
         Long id = expectedFood.getId();
 
-        when(foodService.findById(id)).thenThrow(new EntityNotFoundException(String.format("The food item with id = %s does not exist in the database.",id.toString())));
+        when(foodService.findDtoById(id)).thenThrow(new EntityNotFoundException(String.format("The food item with id = %s does not exist in the database.",id.toString())));
 
-        EntityNotFoundException ex = Assertions.assertThrows(EntityNotFoundException.class, () -> foodController.getFoodById(id));
+        EntityNotFoundException ex = Assertions.assertThrows(EntityNotFoundException.class, () -> foodController.getFoodById(id, webRequest));
 
         assertThat(ex.getMessage()).isEqualTo(String.format("The food item with id = %s does not exist in the database.",id.toString()));
 
-        verify(foodService).findById(id);
+        verify(foodService).findDtoById(id);
         verify(foodMapper, times(0)).toDto(expectedFood);
         verify(foodMapper, times(0)).toEntity(expectedDto);
     }
@@ -125,15 +158,15 @@ class FoodControllerTest {
                 .quantityPerUnit(12L)
                 .inventoryDto(InventoryDto.builder().id(1L).build())
                 .build();
-        when(foodService.create(foodMapper.toEntity(foodDto))).thenReturn(expectedFood);
+        when(foodService.create(foodMapper.toEntity(foodDto))).thenReturn(expectedDto);
 
         ResponseEntity<FoodDto> result = foodController.createFood(foodDto);
 
         assertThat(result.getStatusCodeValue()).isEqualTo(201);
-        assertThat(result.getBody()).isEqualTo(foodMapper.toDto(expectedFood));
+        assertThat(result.getBody()).isEqualTo(expectedDto);
 
         verify(foodService, times(1)).create(foodMapper.toEntity(foodDto));
-        verify(foodMapper, times(2)).toDto(expectedFood);
+        verify(foodMapper, times(0)).toDto(expectedFood);
         verify(foodMapper, times(3)).toEntity(foodDto);
     }
 
@@ -142,15 +175,15 @@ class FoodControllerTest {
     public void test_updateFood_happyFlow() {
         Long id = expectedFood.getId();
 
-        when(foodService.update(foodMapper.toEntity(expectedDto))).thenReturn(expectedFood);
+        when(foodService.update(foodMapper.toEntity(expectedDto))).thenReturn(expectedDto);
 
         ResponseEntity<FoodDto> result = foodController.updateFood(id, expectedDto);
 
         assertThat(result.getStatusCodeValue()).isEqualTo(200);
-        assertThat(result.getBody()).isEqualTo(foodMapper.toDto(expectedFood));
+        assertThat(result.getBody()).isEqualTo(expectedDto);
 
         verify(foodService).update(foodMapper.toEntity(expectedDto));
-        verify(foodMapper, times(2)).toDto(expectedFood);
+        verify(foodMapper, times(0)).toDto(expectedFood);
         verify(foodMapper, times(3)).toEntity(expectedDto);
     }
 
@@ -200,4 +233,43 @@ class FoodControllerTest {
         verify(foodMapper, times(0)).toDto(expectedFood);
         verify(foodMapper, times(0)).toEntity(expectedDto);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("get food by id - the tag in If-None-Match is current, 304 without reading the food")
+    public void test_getFoodById_notModified() {
+        when(resourceVersions.productTag("food", 1L)).thenReturn("W/\"food-1-3.7\"");
+        request.addHeader("If-None-Match", "W/\"food-1-3.7\"");
+
+        ResponseEntity<FoodDto> result = foodController.getFoodById(1L, webRequest);
+
+        assertThat(result).isNull();
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getHeader("ETag")).isEqualTo("W/\"food-1-3.7\"");
+        verifyNoInteractions(foodService);
+    }
+
+    @Test
+    @DisplayName("get all food - nothing changed since the tag in If-None-Match, 304 without a query")
+    public void test_getAll_notModified() {
+        when(resourceVersions.collectionTag(ResourceVersions.FOOD)).thenReturn("W/\"food-list-kx2.12\"");
+        request.addHeader("If-None-Match", "W/\"food-list-kx2.12\"");
+
+        assertThat(foodController.getAll(null, null, null, null, null, null, null, null, null, webRequest)).isNull();
+        assertThat(response.getStatus()).isEqualTo(304);
+        verifyNoInteractions(foodService);
+    }
+
+    @Test
+    @DisplayName("get food by id - the food changed since the tag in If-None-Match, 200 with the new ETag")
+    public void test_getFoodById_modified() {
+        when(resourceVersions.productTag("food", 1L)).thenReturn("W/\"food-1-4.7\"");
+        when(foodService.findDtoById(1L)).thenReturn(expectedDto);
+        request.addHeader("If-None-Match", "W/\"food-1-3.7\"");
+
+        ResponseEntity<FoodDto> result = foodController.getFoodById(1L, webRequest);
+
+        assertThat(result.getBody()).isEqualTo(expectedDto);
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader("ETag")).isEqualTo("W/\"food-1-4.7\"");
+    }
+}
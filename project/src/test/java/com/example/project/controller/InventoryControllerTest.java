@@ -1,6 +1,7 @@
 package com.example.project.controller;
 
 import com.example.project.dto.InventoryDto;
+import com.example.project.dto.PageDto;
 import com.example.project.dto.ProductTypeDto;
 import com.example.project.exception.BadRequestException;
 import com.example.project.exception.EntityNotFoundException;
@@ -8,6 +9,7 @@ import com.example.project.mapper.InventoryMapper;
 import com.example.project.mapper.ProductTypeMapper;
 import com.example.project.model.*;
 import com.example.project.service.InventoryService;
+import com.example.project.service.ResourceVersions;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -18,6 +20,9 @@ import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -37,9 +42,16 @@ class InventoryControllerTest {
     @Spy
     private ProductTypeMapper productTypeMapper;
 
+    @Mock
+    private ResourceVersions resourceVersions;
+
     @InjectMocks
     private InventoryController inventoryController;
 
+    private final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+    private final ServletWebRequest webRequest = new ServletWebRequest(request, response);
+
     private Inventory expectedInventory;
     private InventoryDto expectedDto;
 
@@ -48,9 +60,6 @@ class InventoryControllerTest {
         expectedInventory = Inventory.builder()
                 .id(1L)
                 .availableQuantity(121L)
-                .food(Food.builder().id(2L).build())
-                .toy(Toy.builder().id(3L).build())
-                .medicine(Medicine.builder().id(4L).build())
                 //.purchases()
                 .build();
         expectedDto = InventoryDto.builder()
@@ -62,17 +71,18 @@ class InventoryControllerTest {
     @Test
     @DisplayName("get all inventories - happy flow")
     public void test_getAll_happyFlow() {
-        List<Inventory> inventoryList = new ArrayList<>();
-        inventoryList.add(expectedInventory);
+        List<InventoryDto> inventoryDtoList = new ArrayList<>();
+        inventoryDtoList.add(expectedDto);
 
-        when(inventoryService.findAll()).thenReturn(inventoryList);
-        ResponseEntity<List<InventoryDto>> result = inventoryController.getAll();
+        when(inventoryService.findAll(null, 10, "-id")).thenReturn(new KeysetPage<>(inventoryDtoList, "next"));
+        ResponseEntity<PageDto<InventoryDto>> result = inventoryController.getAll(null, 10, "-id", webRequest);
 
         assertThat(result.getStatusCodeValue()).isEqualTo(200);
-        assertThat(result.getBody()).isEqualTo(inventoryMapper.toDto(inventoryList));
+        assertThat(result.getBody().getContent()).isEqualTo(inventoryDtoList);
+        assertThat(result.getBody().getNextCursor()).isEqualTo("next");
 
-        verify(inventoryService).findAll();
-        verify(inventoryMapper, times(2)).toDto(inventoryList);
+        verify(inventoryService).findAll(null, 10, "-id");
+        verifyNoInteractions(inventoryMapper);
     }
 
 
@@ -81,16 +91,16 @@ class InventoryControllerTest {
     void test_getInventoryById_happyFlow() {
         Long id = expectedInventory.getId();
 
-        when(inventoryService.findById(id)).thenReturn(expectedInventory);
+        when(inventoryService.findDtoById(id)).thenReturn(expectedDto);
 
 
-        ResponseEntity<InventoryDto> result = inventoryController.getInventoryById(id);
+        ResponseEntity<InventoryDto> result = inventoryController.getInventoryById(id, webRequest);
 
         assertThat(result.getStatusCodeValue()).isEqualTo(200);
-        assertThat(result.getBody()).isEqualTo(inventoryMapper.toDto(expectedInventory));
+        assertThat(result.getBody()).isEqualTo(expectedDto);
 
-        verify(inventoryService).findById(id);
-        verify(inventoryMapper, times(2)).toDto(expectedInventory);
+        verify(inventoryService).findDtoById(id);
+        verify(inventoryMapper, times(0)).toDto(expectedInventory);
         verify(inventoryMapper, times(0)).toEntity(expectedDto);
     }
 
@@ -99,13 +109,13 @@ class InventoryControllerTest {
     public void test_getMedicineById_throwsEntityNotFoundException_whenMedicineNotFound() {
         Long id = expectedInventory.getId();
 
-        when(inventoryService.findById(id)).thenThrow(new EntityNotFoundException(String.format("The inventory with id = %s does not exist in the database.",id.toString())));
+        when(inventoryService.findDtoById(id)).thenThrow(new EntityNotFoundException(String.format("The inventory with id = %s does not exist in the database.",id.toString())));
 
-        EntityNotFoundException ex = Assertions.assertThrows(EntityNotFoundException.class, () -> inventoryController.getInventoryById(id));
+        EntityNotFoundException ex = Assertions.assertThrows(EntityNotFoundException.class, () -> inventoryController.getInventoryById(id, webRequest));
 
         assertThat(ex.getMessage()).isEqualTo(String.format("The inventory with id = %s does not exist in the database.",id.toString()));
 
-        verify(inventoryService).findById(id);
+        verify(inventoryService).findDtoById(id);
         verify(inventoryMapper, times(0)).toDto(expectedInventory);
         verify(inventoryMapper, times(0)).toEntity(expectedDto);
     }
@@ -129,15 +139,15 @@ class InventoryControllerTest {
     public void test_updateInventory_happyFlow() {
         Long id = expectedInventory.getId();
 
-        when(inventoryService.update(inventoryMapper.toEntity(expectedDto))).thenReturn(expectedInventory);
+        when(inventoryService.update(inventoryMapper.toEntity(expectedDto))).thenReturn(expectedDto);
 
         ResponseEntity<InventoryDto> result = inventoryController.updateInventory(id, expectedDto);
 
         assertThat(result.getStatusCodeValue()).isEqualTo(200);
-        assertThat(result.getBody()).isEqualTo(inventoryMapper.toDto(expectedInventory));
+        assertThat(result.getBody()).isEqualTo(expectedDto);
 
         verify(inventoryService).update(inventoryMapper.toEntity(expectedDto));
-        verify(inventoryMapper, times(2)).toDto(expectedInventory);
+        verify(inventoryMapper, times(0)).toDto(expectedInventory);
         verify(inventoryMapper, times(3)).toEntity(expectedDto);
     }
 
@@ -187,4 +197,29 @@ class InventoryControllerTest {
         verify(inventoryMapper, times(0)).toDto(expectedInventory);
         verify(inventoryMapper, times(0)).toEntity(expectedDto);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("get inventory by id - the tag in If-None-Match is current, 304 without reading the inventory")
+    public void test_getInventoryById_notModified() {
+        when(resourceVersions.inventoryTag(1L)).thenReturn("W/\"inventory-1-8\"");
+        request.addHeader("If-None-Match", "W/\"inventory-1-8\"");
+
+        ResponseEntity<InventoryDto> result = inventoryController.getInventoryById(1L, webRequest);
+
+        assertThat(result).isNull();
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getHeader("ETag")).isEqualTo("W/\"inventory-1-8\"");
+        verifyNoInteractions(inventoryService);
+    }
+
+    @Test
+    @DisplayName("get all inventories - nothing changed since the tag in If-None-Match, 304 without a query")
+    public void test_getAll_notModified() {
+        when(resourceVersions.collectionTag(ResourceVersions.INVENTORY)).thenReturn("W/\"inventories-list-kx2.12\"");
+        request.addHeader("If-None-Match", "W/\"inventories-list-kx2.12\"");
+
+        assertThat(inventoryController.getAll(null, null, null, webRequest)).isNull();
+        assertThat(response.getStatus()).isEqualTo(304);
+        verifyNoInteractions(inventoryService);
+    }
+}
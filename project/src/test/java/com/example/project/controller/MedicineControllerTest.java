@@ -2,12 +2,16 @@ package com.example.project.controller;
 
 import com.example.project.dto.InventoryDto;
 import com.example.project.dto.MedicineDto;
+import com.example.project.dto.PageDto;
 import com.example.project.exception.BadRequestException;
 import com.example.project.exception.EntityNotFoundException;
 import com.example.project.mapper.MedicineMapper;
 import com.example.project.model.Inventory;
+import com.example.project.model.KeysetPage;
+import com.example.project.model.ProductFilter;
 import com.example.project.model.Medicine;
 import com.example.project.service.MedicineService;
+import com.example.project.service.ResourceVersions;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -18,6 +22,9 @@ import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -34,9 +41,16 @@ class MedicineControllerTest {
     @Spy
     private MedicineMapper medicineMapper;
 
+    @Mock
+    private ResourceVersions resourceVersions;
+
    @InjectMocks
    private MedicineController medicineController;
 
+    private final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+    private final ServletWebRequest webRequest = new ServletWebRequest(request, response);
+
    private Medicine expectedMedicine;
    private MedicineDto expectedDto;
 
@@ -61,17 +75,18 @@ class MedicineControllerTest {
     @Test
     @DisplayName("get all medicine - happy flow")
     public void test_getAll_happyFlow() {
-        List<Medicine> medicineList = new ArrayList<>();
-        medicineList.add(expectedMedicine);
+        List<MedicineDto> medicineDtoList = new ArrayList<>();
+        medicineDtoList.add(expectedDto);
 
-        when(medicineService.findAll()).thenReturn(medicineList);
-        ResponseEntity<List<MedicineDto>> result = medicineController.getAll();
+        when(medicineService.findAll(any(ProductFilter.class), eq(null), eq(10), eq("-id"))).thenReturn(new KeysetPage<>(medicineDtoList, "next"));
+        ResponseEntity<PageDto<MedicineDto>> result = medicineController.getAll(null, null, null, null, null, null, 10, "-id", webRequest);
 
         assertThat(result.getStatusCodeValue()).isEqualTo(200);
-        assertThat(result.getBody()).isEqualTo(medicineMapper.toDto(medicineList));
+        assertThat(result.getBody().getContent()).isEqualTo(medicineDtoList);
+        assertThat(result.getBody().getNextCursor()).isEqualTo("next");
 
-        verify(medicineService).findAll();
-        verify(medicineMapper, times(2)).toDto(medicineList);
+        verify(medicineService).findAll(any(ProductFilter.class), eq(null), eq(10), eq("-id"));
+        verifyNoInteractions(medicineMapper);
     }
 
     @Test
@@ -79,16 +94,15 @@ class MedicineControllerTest {
     void test_getMedicineById_happyFlow() {
         Long id = expectedMedicine.getId();
 
-        when(medicineService.findById(id)).thenReturn(expectedMedicine);
-
+        when(medicineService.findDtoById(id)).thenReturn(expectedDto);
 
-        ResponseEntity<MedicineDto> result = medicineController.getMedicinelById(id);
+        ResponseEntity<MedicineDto> result = medicineController.getMedicinelById(id, webRequest);
 
         assertThat(result.getStatusCodeValue()).isEqualTo(200);
-        assertThat(result.getBody()).isEqualTo(medicineMapper.toDto(expectedMedicine));
+        assertThat(result.getBody()).isEqualTo(expectedDto);
 
-        verify(medicineService).findById(id);
-        verify(medicineMapper, times(2)).toDto(expectedMedicine);
+        verify(medicineService).findDtoById(id);
+        verify(medicineMapper, times(0)).toDto(expectedMedicine);
         verify(medicineMapper, times(0)).toEntity(expectedDto);
     }
 
@@ -97,13 +111,13 @@ class MedicineControllerTest {
     public void test_getMedicineById_throwsEntityNotFoundException_whenMedicineNotFound() {
         Long id = expectedMedicine.getId();
 
-        when(medicineService.findById(id)).thenThrow(new EntityNotFoundException(String.format("The medicine with id = %s does not exist in the database.",id.toString())));
+        when(medicineService.findDtoById(id)).thenThrow(new EntityNotFoundException(String.format("The medicine with id = %s does not exist in the database.",id.toString())));
 
-        EntityNotFoundException ex = Assertions.assertThrows(EntityNotFoundException.class, () -> medicineController.getMedicinelById(id));
+        EntityNotFoundException ex = Assertions.assertThrows(EntityNotFoundException.class, () -> medicineController.getMedicinelById(id, webRequest));
 
         assertThat(ex.getMessage()).isEqualTo(String.format("The medicine with id = %s does not exist in the database.",id.toString()));
 
-        verify(medicineService).findById(id);
+        verify(medicineService).findDtoById(id);
         verify(medicineMapper, times(0)).toDto(expectedMedicine);
         verify(medicineMapper, times(0)).toEntity(expectedDto);
     }
@@ -117,15 +131,15 @@ class MedicineControllerTest {
                 .purpose("durere de burtica")
                 .inventoryDto(InventoryDto.builder().id(1L).build())
                 .build();
-        when(medicineService.create(medicineMapper.toEntity(medicineDto))).thenReturn(expectedMedicine);
+        when(medicineService.create(medicineMapper.toEntity(medicineDto))).thenReturn(expectedDto);
 
         ResponseEntity<MedicineDto> result = medicineController.createMedicine(medicineDto);
 
         assertThat(result.getStatusCodeValue()).isEqualTo(201);
-        assertThat(result.getBody()).isEqualTo(medicineMapper.toDto(expectedMedicine));
+        assertThat(result.getBody()).isEqualTo(expectedDto);
 
         verify(medicineService, times(1)).create(medicineMapper.toEntity(medicineDto));
-        verify(medicineMapper, times(2)).toDto(expectedMedicine);
+        verify(medicineMapper, times(0)).toDto(expectedMedicine);
         verify(medicineMapper, times(3)).toEntity(medicineDto);
 
     }
@@ -135,15 +149,15 @@ class MedicineControllerTest {
     public void test_updateMedicine_happyFlow() {
         Long id = expectedMedicine.getId();
 
-        when(medicineService.update(medicineMapper.toEntity(expectedDto))).thenReturn(expectedMedicine);
+        when(medicineService.update(medicineMapper.toEntity(expectedDto))).thenReturn(expectedDto);
 
         ResponseEntity<MedicineDto> result = medicineController.updateMedicine(id, expectedDto);
 
         assertThat(result.getStatusCodeValue()).isEqualTo(200);
-        assertThat(result.getBody()).isEqualTo(medicineMapper.toDto(expectedMedicine));
+        assertThat(result.getBody()).isEqualTo(expectedDto);
 
         verify(medicineService).update(medicineMapper.toEntity(expectedDto));
-        verify(medicineMapper, times(2)).toDto(expectedMedicine);
+        verify(medicineMapper, times(0)).toDto(expectedMedicine);
         verify(medicineMapper, times(3)).toEntity(expectedDto);
     }
 
@@ -193,4 +207,29 @@ class MedicineControllerTest {
         verify(medicineMapper, times(0)).toDto(expectedMedicine);
         verify(medicineMapper, times(0)).toEntity(expectedDto);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("get medicine by id - the tag in If-None-Match is current, 304 without reading the medicine")
+    public void test_getMedicinelById_notModified() {
+        when(resourceVersions.productTag("medicine", 1L)).thenReturn("W/\"medicine-1-3.7\"");
+        request.addHeader("If-None-Match", "W/\"medicine-1-3.7\"");
+
+        ResponseEntity<MedicineDto> result = medicineController.getMedicinelById(1L, webRequest);
+
+        assertThat(result).isNull();
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getHeader("ETag")).isEqualTo("W/\"medicine-1-3.7\"");
+        verifyNoInteractions(medicineService);
+    }
+
+    @Test
+    @DisplayName("get all medicine - nothing changed since the tag in If-None-Match, 304 without a query")
+    public void test_getAll_notModified() {
+        when(resourceVersions.collectionTag(ResourceVersions.MEDICINE)).thenReturn("W/\"medicine-list-kx2.12\"");
+        request.addHeader("If-None-Match", "W/\"medicine-list-kx2.12\"");
+
+        assertThat(medicineController.getAll(null, null, null, null, null, null, null, null, webRequest)).isNull();
+        assertThat(response.getStatus()).isEqualTo(304);
+        verifyNoInteractions(medicineService);
+    }
+}
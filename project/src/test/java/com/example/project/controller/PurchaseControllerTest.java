@@ -1,12 +1,25 @@
 package com.example.project.controller;
 
 import com.example.project.dto.ClientDto;
+import com.example.project.dto.InventoryDto;
+import com.example.project.dto.ItemDto;
+import com.example.project.dto.PageDto;
 import com.example.project.dto.PurchaseDto;
+import com.example.project.dto.PurchaseTicketDto;
+import com.example.project.exception.BadRequestException;
 import com.example.project.exception.EntityNotFoundException;
 import com.example.project.mapper.PurchaseMapper;
 import com.example.project.model.Client;
+import com.example.project.model.FieldSet;
+import com.example.project.model.KeysetPage;
 import com.example.project.model.Purchase;
+import com.example.project.service.NdjsonExportService;
+import com.example.project.service.PurchaseIdempotencyStore;
+import com.example.project.service.PurchaseImportService;
+import com.example.project.service.PurchasePipeline;
 import com.example.project.service.PurchaseService;
+import com.example.project.service.PurchaseTicketService;
+import com.example.project.service.ResourceVersions;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -17,7 +30,11 @@ import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -34,9 +51,31 @@ class PurchaseControllerTest {
     @Spy
     private PurchaseMapper purchaseMapper;
 
+    @Mock
+    private PurchasePipeline purchasePipeline;
+
+    @Mock
+    private PurchaseIdempotencyStore idempotencyStore;
+
+    @Mock
+    private PurchaseTicketService purchaseTicketService;
+
+    @Mock
+    private PurchaseImportService purchaseImportService;
+
+    @Mock
+    private NdjsonExportService ndjsonExportService;
+
+    @Mock
+    private ResourceVersions resourceVersions;
+
     @InjectMocks
     private PurchaseController purchaseController;
 
+    private final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+    private final ServletWebRequest webRequest = new ServletWebRequest(request, response);
+
     private Purchase expectedPurchase;
     private PurchaseDto expectedDto;
 
@@ -61,17 +100,79 @@ class PurchaseControllerTest {
     @Test
     @DisplayName("get all purchases - happy flow")
     public void test_findAll_happyFlow() {
-        List<Purchase> purchaseList = new ArrayList<>();
-        purchaseList.add(expectedPurchase);
+        List<PurchaseDto> purchaseDtoList = new ArrayList<>();
+        purchaseDtoList.add(expectedDto);
 
-        when(purchaseService.findAll()).thenReturn(purchaseList);
-        ResponseEntity<List<PurchaseDto>> result = purchaseController.findAll();
+        when(purchaseService.findAll(eq(null), eq(10), eq("-id"), any(FieldSet.class))).thenReturn(new KeysetPage<>(purchaseDtoList, "next"));
+        ResponseEntity<PageDto<PurchaseDto>> result = purchaseController.findAll(null, 10, "-id", null, null, webRequest);
 
         assertThat(result.getStatusCodeValue()).isEqualTo(200);
-        assertThat(result.getBody()).isEqualTo(purchaseMapper.toDto(purchaseList));
+        assertThat(result.getBody().getContent()).isEqualTo(purchaseDtoList);
+        assertThat(result.getBody().getNextCursor()).isEqualTo("next");
+
+        verify(purchaseService).findAll(eq(null), eq(10), eq("-id"),
+                argThat(fields -> fields.includes(PurchaseService.CLIENT) && fields.includes(PurchaseService.ITEMS)));
+        verifyNoInteractions(purchaseMapper);
+    }
 
-        verify(purchaseService).findAll();
-        verify(purchaseMapper, times(2)).toDto(purchaseList);
+    @Test
+    @DisplayName("get all purchases - view=summary asks the service for neither the client nor the items")
+    public void test_findAll_summary() {
+        when(purchaseService.findAll(eq(null), eq(null), eq(null), any(FieldSet.class))).thenReturn(new KeysetPage<>(List.of(expectedDto), null));
+
+        purchaseController.findAll(null, null, null, "summary", null, webRequest);
+
+        verify(purchaseService).findAll(eq(null), eq(null), eq(null),
+                argThat(fields -> !fields.includes(PurchaseService.CLIENT) && !fields.includes(PurchaseService.ITEMS)));
+    }
+
+    @Test
+    @DisplayName("get all purchases - fields=items leaves out the client only")
+    public void test_findAll_fields() {
+        when(purchaseService.findAll(eq(null), eq(null), eq(null), any(FieldSet.class))).thenReturn(new KeysetPage<>(List.of(expectedDto), null));
+
+        purchaseController.findAll(null, null, null, null, " items, ", webRequest);
+
+        verify(purchaseService).findAll(eq(null), eq(null), eq(null),
+                argThat(fields -> !fields.includes(PurchaseService.CLIENT) && fields.includes(PurchaseService.ITEMS)));
+    }
+
+    @Test
+    @DisplayName("get all purchases - an unknown view or field, or both a view and fields, are rejected before any query")
+    public void test_findAll_throwsBadRequestException_whenFieldsNotValid() {
+        BadRequestException view = Assertions.assertThrows(BadRequestException.class,
+                () -> purchaseController.findAll(null, null, null, "compact", null, webRequest));
+        BadRequestException field = Assertions.assertThrows(BadRequestException.class,
+                () -> purchaseController.findAll(null, null, null, null, "client,price", webRequest));
+        BadRequestException both = Assertions.assertThrows(BadRequestException.class,
+                () -> purchaseController.findAll(null, null, null, "summary", "client", webRequest));
+
+        assertThat(view.getMessage()).isEqualTo("The view can only be full or summary.");
+        assertThat(field.getMessage()).isEqualTo("The fields can only be client, items.");
+        assertThat(both.getMessage()).isEqualTo("Either the view or the fields can be chosen, not both.");
+        verifyNoInteractions(purchaseService, resourceVersions);
+    }
+
+    @Test
+    @DisplayName("stream all purchases - written as ndjson by the export service")
+    public void test_streamAll_happyFlow() throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        purchaseController.streamAll(null, null, response);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentType()).isEqualTo("application/x-ndjson");
+        verify(ndjsonExportService, times(1)).exportAll(eq(Purchase.class), eq("Purchase.client"), any(), any(), eq(response.getOutputStream()));
+    }
+
+    @Test
+    @DisplayName("stream all purchases - view=summary joins no client and maps the purchase row alone")
+    public void test_streamAll_summary() throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        purchaseController.streamAll("summary", null, response);
+
+        verify(ndjsonExportService, times(1)).exportAll(eq(Purchase.class), isNull(), any(), any(), eq(response.getOutputStream()));
     }
 
     @Test
@@ -79,16 +180,15 @@ class PurchaseControllerTest {
     void test_findPurchaseById_happyFlow() {
         Long id = expectedPurchase.getId();
 
-        when(purchaseService.findById(id)).thenReturn(expectedPurchase);
-
+        when(purchaseService.findDtoById(id)).thenReturn(expectedDto);
 
-        ResponseEntity<PurchaseDto> result = purchaseController.findById(id);
+        ResponseEntity<PurchaseDto> result = purchaseController.findById(id, webRequest);
 
         assertThat(result.getStatusCodeValue()).isEqualTo(200);
-        assertThat(result.getBody()).isEqualTo(purchaseMapper.toDto(expectedPurchase));
+        assertThat(result.getBody()).isEqualTo(expectedDto);
 
-        verify(purchaseService).findById(id);
-        verify(purchaseMapper, times(2)).toDto(expectedPurchase);
+        verify(purchaseService).findDtoById(id);
+        verify(purchaseMapper, times(0)).toDto(expectedPurchase);
         verify(purchaseMapper, times(0)).toEntity(expectedDto);
     }
 
@@ -97,13 +197,13 @@ class PurchaseControllerTest {
     public void test_findPurchaseById_throwsEntityNotFoundException_whenPurchaseNotFound() {
         Long id = expectedPurchase.getId();
 
-        when(purchaseService.findById(id)).thenThrow(new EntityNotFoundException(String.format("The purchase with id = %s does not exist in the database.",id.toString())));
+        when(purchaseService.findDtoById(id)).thenThrow(new EntityNotFoundException(String.format("The purchase with id = %s does not exist in the database.",id.toString())));
 
-        EntityNotFoundException ex = Assertions.assertThrows(EntityNotFoundException.class, () -> purchaseController.findById(id));
+        EntityNotFoundException ex = Assertions.assertThrows(EntityNotFoundException.class, () -> purchaseController.findById(id, webRequest));
 
         assertThat(ex.getMessage()).isEqualTo(String.format("The purchase with id = %s does not exist in the database.",id.toString()));
 
-        verify(purchaseService).findById(id);
+        verify(purchaseService).findDtoById(id);
         verify(purchaseMapper, times(0)).toDto(expectedPurchase);
         verify(purchaseMapper, times(0)).toEntity(expectedDto);
     }
@@ -111,19 +211,19 @@ class PurchaseControllerTest {
     @Test
     @DisplayName("find purchase by client id - happy flow")
     public void test_findByClient_happyFlow() {
-        List<Purchase> purchaseList = new ArrayList<>();
-        purchaseList.add(expectedPurchase);
+        List<PurchaseDto> purchaseDtoList = new ArrayList<>();
+        purchaseDtoList.add(expectedDto);
 
-        when(purchaseService.findByClient(expectedPurchase.getClient().getId())).thenReturn(purchaseList);
+        when(purchaseService.findDtosByClient(eq(expectedPurchase.getClient().getId()), any(FieldSet.class))).thenReturn(purchaseDtoList);
 
-        ResponseEntity<List<PurchaseDto>> result = purchaseController.findByClient(expectedPurchase.getClient().getId());
+        ResponseEntity<List<PurchaseDto>> result = purchaseController.findByClient(expectedPurchase.getClient().getId(), null, null, webRequest);
 
         assertThat(result.getStatusCodeValue()).isEqualTo(200);
-        assertThat(result.getBody()).isEqualTo(purchaseMapper.toDto(purchaseList));
-
-        verify(purchaseService).findByClient(expectedPurchase.getClient().getId());
-        verify(purchaseMapper, times(2)).toDto(purchaseList);
+        assertThat(result.getBody()).isEqualTo(purchaseDtoList);
 
+        verify(purchaseService).findDtosByClient(eq(expectedPurchase.getClient().getId()),
+                argThat(fields -> fields.includes(PurchaseService.CLIENT) && fields.includes(PurchaseService.ITEMS)));
+        verifyNoInteractions(purchaseMapper);
     }
 
     @Test
@@ -135,19 +235,83 @@ class PurchaseControllerTest {
                 .clientDto(ClientDto.builder().id(1L).build())
                 //.products()
                 .build();
-        when(purchaseService.create(purchaseMapper.toEntity(purchaseDto))).thenReturn(expectedPurchase);
+        when(purchasePipeline.create(purchaseMapper.toEntity(purchaseDto))).thenReturn(expectedPurchase);
 
-        ResponseEntity<PurchaseDto> result = purchaseController.createPurchase(purchaseDto);
+        ResponseEntity<PurchaseDto> result = purchaseController.createPurchase(purchaseDto, null);
 
         assertThat(result.getStatusCodeValue()).isEqualTo(201);
         assertThat(result.getBody()).isEqualTo(purchaseMapper.toDto(expectedPurchase));
 
-        verify(purchaseService, times(1)).create(purchaseMapper.toEntity(purchaseDto));
+        verify(purchasePipeline, times(1)).create(purchaseMapper.toEntity(purchaseDto));
         verify(purchaseMapper, times(2)).toDto(expectedPurchase);
         verify(purchaseMapper, times(3)).toEntity(purchaseDto);
 
     }
 
+    @Test
+    @DisplayName("add a purchase - with an Idempotency-Key the store decides whether it is created")
+    public void test_createPurchase_idempotencyKey() {
+        PurchaseDto purchaseDto = PurchaseDto.builder()
+                .clientDto(ClientDto.builder().id(1L).build())
+                .productsDto(List.of(ItemDto.builder().orderedQuantity(2L).inventoryDto(InventoryDto.builder().id(3L).build()).build()))
+                .build();
+        PurchaseDto storedDto = PurchaseDto.builder().id(1L).build();
+        when(idempotencyStore.execute(eq("key-1"), eq("1:3x2"), any())).thenReturn(storedDto);
+
+        ResponseEntity<PurchaseDto> result = purchaseController.createPurchase(purchaseDto, "key-1");
+
+        assertThat(result.getStatusCodeValue()).isEqualTo(201);
+        assertThat(result.getBody()).isEqualTo(storedDto);
+
+        verify(idempotencyStore, times(1)).execute(eq("key-1"), eq("1:3x2"), any());
+        verifyNoInteractions(purchasePipeline);
+    }
+
+    @Test
+    @DisplayName("submit a purchase - queued, 202 with the ticket")
+    public void test_submitPurchase_happyFlow() {
+        PurchaseDto purchaseDto = PurchaseDto.builder().clientDto(ClientDto.builder().id(1L).build()).build();
+        PurchaseTicketDto ticket = PurchaseTicketDto.builder().id("ticket-1").status("PENDING").build();
+        when(purchaseTicketService.submit(any())).thenReturn(ticket);
+
+        ResponseEntity<PurchaseTicketDto> result = purchaseController.submitPurchase(purchaseDto);
+
+        assertThat(result.getStatusCodeValue()).isEqualTo(202);
+        assertThat(result.getBody()).isEqualTo(ticket);
+        assertThat(result.getHeaders().getLocation()).hasToString("/purchases/async/ticket-1");
+
+        verify(purchaseTicketService, times(1)).submit(any());
+        verifyNoInteractions(purchasePipeline);
+    }
+
+    @Test
+    @DisplayName("get a purchase ticket - happy flow")
+    public void test_findTicket_happyFlow() {
+        PurchaseTicketDto ticket = PurchaseTicketDto.builder().id("ticket-1").status("DONE").purchaseDto(expectedDto).build();
+        when(purchaseTicketService.findById("ticket-1")).thenReturn(ticket);
+
+        ResponseEntity<PurchaseTicketDto> result = purchaseController.findTicket("ticket-1");
+
+        assertThat(result.getStatusCodeValue()).isEqualTo(200);
+        assertThat(result.getBody()).isEqualTo(ticket);
+
+        verify(purchaseTicketService, times(1)).findById("ticket-1");
+    }
+
+    @Test
+    @DisplayName("import purchases - the results are streamed as NDJSON")
+    public void test_importPurchases_happyFlow() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setContent("{}\n{}\n".getBytes());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        purchaseController.importPurchases(request, response);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentType()).isEqualTo("application/x-ndjson");
+        verify(purchaseImportService, times(1)).importAll(any(), any());
+    }
+
     @Test
     @DisplayName("delete purchase - happy flow")
     public void test_deletePurchase_happyFlow() {
@@ -163,4 +327,29 @@ class PurchaseControllerTest {
         verify(purchaseMapper, times(0)).toDto(expectedPurchase);
         verify(purchaseMapper, times(0)).toEntity(expectedDto);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("get purchase by id - the tag in If-None-Match is current, 304 without reading the purchase")
+    public void test_findById_notModified() {
+        when(resourceVersions.purchaseTag(1L)).thenReturn("W/\"purchase-1-2.3.41\"");
+        request.addHeader("If-None-Match", "W/\"purchase-1-2.3.41\"");
+
+        ResponseEntity<PurchaseDto> result = purchaseController.findById(1L, webRequest);
+
+        assertThat(result).isNull();
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getHeader("ETag")).isEqualTo("W/\"purchase-1-2.3.41\"");
+        verifyNoInteractions(purchaseService);
+    }
+
+    @Test
+    @DisplayName("get all purchases - nothing changed since the tag in If-None-Match, 304 without a query")
+    public void test_findAll_notModified() {
+        when(resourceVersions.collectionTag(ResourceVersions.PURCHASES)).thenReturn("W/\"purchases-list-kx2.12\"");
+        request.addHeader("If-None-Match", "W/\"purchases-list-kx2.12\"");
+
+        assertThat(purchaseController.findAll(null, null, null, null, null, webRequest)).isNull();
+        assertThat(response.getStatus()).isEqualTo(304);
+        verifyNoInteractions(purchaseService);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.project.controller;
+
+import com.example.project.dto.ProductSearchHitDto;
+import com.example.project.exception.BadRequestException;
+import com.example.project.service.ProductSearchIndex;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SearchControllerTest {
+
+    @Mock
+    private ProductSearchIndex productSearchIndex;
+
+    @InjectMocks
+    private SearchController searchController;
+
+    @Test
+    @DisplayName("search - happy flow")
+    public void test_search_happyFlow() {
+        List<ProductSearchHitDto> hits = List.of(ProductSearchHitDto.builder().productType("food").id(1L).brand("whiskas").score(1.5F).build());
+        when(productSearchIndex.search("whiskas", 10)).thenReturn(hits);
+
+        ResponseEntity<List<ProductSearchHitDto>> result = searchController.search("whiskas", 10);
+
+        assertThat(result.getStatusCodeValue()).isEqualTo(200);
+        assertThat(result.getBody()).isEqualTo(hits);
+        verify(productSearchIndex).search("whiskas", 10);
+    }
+
+    @Test
+    @DisplayName("search - the query is not valid")
+    public void test_search_throwsBadRequestException() {
+        when(productSearchIndex.search(" ", null)).thenThrow(new BadRequestException("The search query must contain a letter or a digit."));
+
+        BadRequestException ex = Assertions.assertThrows(BadRequestException.class, () -> searchController.search(" ", null));
+
+        assertThat(ex.getMessage()).isEqualTo("The search query must contain a letter or a digit.");
+    }
+}
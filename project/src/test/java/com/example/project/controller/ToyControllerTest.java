@@ -1,13 +1,17 @@
 package com.example.project.controller;
 
 import com.example.project.dto.InventoryDto;
+import com.example.project.dto.PageDto;
 import com.example.project.dto.ToyDto;
 import com.example.project.exception.BadRequestException;
 import com.example.project.exception.EntityNotFoundException;
 import com.example.project.mapper.ToyMapper;
 import com.example.project.model.Inventory;
+import com.example.project.model.KeysetPage;
+import com.example.project.model.ProductFilter;
 import com.example.project.model.Toy;
 import com.example.project.service.ToyService;
+import com.example.project.service.ResourceVersions;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -18,6 +22,9 @@ import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -34,9 +41,16 @@ class ToyControllerTest {
     @Spy
     private ToyMapper toyMapper;
 
+    @Mock
+    private ResourceVersions resourceVersions;
+
     @InjectMocks
     private ToyController toyController;
 
+    private final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+    private final ServletWebRequest webRequest = new ServletWebRequest(request, response);
+
     private Toy expectedToy;
     private ToyDto expectedDto;
 
@@ -62,17 +76,18 @@ class ToyControllerTest {
     @Test
     @DisplayName("get all toys - happy flow")
     public void test_getAll_happyFlow() {
-        List<Toy> toyList = new ArrayList<>();
-        toyList.add(expectedToy);
+        List<ToyDto> toyDtoList = new ArrayList<>();
+        toyDtoList.add(expectedDto);
 
-        when(toyService.findAll()).thenReturn(toyList);
-        ResponseEntity<List<ToyDto>> result = toyController.getAll();
+        when(toyService.findAll(any(ProductFilter.class), eq(null), eq(10), eq("-id"))).thenReturn(new KeysetPage<>(toyDtoList, "next"));
+        ResponseEntity<PageDto<ToyDto>> result = toyController.getAll(null, null, null, null, null, null, 10, "-id", webRequest);
 
         assertThat(result.getStatusCodeValue()).isEqualTo(200);
-        assertThat(result.getBody()).isEqualTo(toyMapper.toDto(toyList));
+        assertThat(result.getBody().getContent()).isEqualTo(toyDtoList);
+        assertThat(result.getBody().getNextCursor()).isEqualTo("next");
 
-        verify(toyService).findAll();
-        verify(toyMapper, times(2)).toDto(toyList);
+        verify(toyService).findAll(any(ProductFilter.class), eq(null), eq(10), eq("-id"));
+        verifyNoInteractions(toyMapper);
     }
 
     @Test
@@ -80,16 +95,15 @@ class ToyControllerTest {
     public void test_getToyById_happyFlow() {
         Long id = expectedToy.getId();
 
-        when(toyService.findById(id)).thenReturn(expectedToy);
-
+        when(toyService.findDtoById(id)).thenReturn(expectedDto);
 
-        ResponseEntity<ToyDto> result = toyController.getToyById(id);
+        ResponseEntity<ToyDto> result = toyController.getToyById(id, webRequest);
 
         assertThat(result.getStatusCodeValue()).isEqualTo(200);
-        assertThat(result.getBody()).isEqualTo(toyMapper.toDto(expectedToy));
+        assertThat(result.getBody()).isEqualTo(expectedDto);
 
-        verify(toyService).findById(id);
-        verify(toyMapper, times(2)).toDto(expectedToy);
+        verify(toyService).findDtoById(id);
+        verify(toyMapper, times(0)).toDto(expectedToy);
         verify(toyMapper, times(0)).toEntity(expectedDto);
     }
 
@@ -98,13 +112,13 @@ class ToyControllerTest {
     public void test_getToyById_throwsEntityNotFoundException_whenToyNotFound() {
         Long id = expectedToy.getId();
 
-        when(toyService.findById(id)).thenThrow(new EntityNotFoundException(String.format("The toy with id = %s does not exist in the database.",id.toString())));
+        when(toyService.findDtoById(id)).thenThrow(new EntityNotFoundException(String.format("The toy with id = %s does not exist in the database.",id.toString())));
 
-        EntityNotFoundException ex = Assertions.assertThrows(EntityNotFoundException.class, () -> toyController.getToyById(id));
+        EntityNotFoundException ex = Assertions.assertThrows(EntityNotFoundException.class, () -> toyController.getToyById(id, webRequest));
 
         assertThat(ex.getMessage()).isEqualTo(String.format("The toy with id = %s does not exist in the database.",id.toString()));
 
-        verify(toyService).findById(id);
+        verify(toyService).findDtoById(id);
         verify(toyMapper, times(0)).toDto(expectedToy);
         verify(toyMapper, times(0)).toEntity(expectedDto);
     }
@@ -119,15 +133,15 @@ class ToyControllerTest {
                 .brand("Un brand")
                 .inventoryDto(InventoryDto.builder().id(2L).build())
                 .build();
-        when(toyService.create(toyMapper.toEntity(toyDto))).thenReturn(expectedToy);
+        when(toyService.create(toyMapper.toEntity(toyDto))).thenReturn(expectedDto);
 
         ResponseEntity<ToyDto> result = toyController.createToy(toyDto);
 
         assertThat(result.getStatusCodeValue()).isEqualTo(201);
-        assertThat(result.getBody()).isEqualTo(toyMapper.toDto(expectedToy));
+        assertThat(result.getBody()).isEqualTo(expectedDto);
 
         verify(toyService, times(1)).create(toyMapper.toEntity(toyDto));
-        verify(toyMapper, times(2)).toDto(expectedToy);
+        verify(toyMapper, times(0)).toDto(expectedToy);
         verify(toyMapper, times(3)).toEntity(toyDto);
     }
 
@@ -136,15 +150,15 @@ class ToyControllerTest {
     public void test_updateToy_happyFlow() {
         Long id = expectedToy.getId();
 
-        when(toyService.update(toyMapper.toEntity(expectedDto))).thenReturn(expectedToy);
+        when(toyService.update(toyMapper.toEntity(expectedDto))).thenReturn(expectedDto);
 
         ResponseEntity<ToyDto> result = toyController.updateToy(id, expectedDto);
 
         assertThat(result.getStatusCodeValue()).isEqualTo(200);
-        assertThat(result.getBody()).isEqualTo(toyMapper.toDto(expectedToy));
+        assertThat(result.getBody()).isEqualTo(expectedDto);
 
         verify(toyService).update(toyMapper.toEntity(expectedDto));
-        verify(toyMapper, times(2)).toDto(expectedToy);
+        verify(toyMapper, times(0)).toDto(expectedToy);
         verify(toyMapper, times(3)).toEntity(expectedDto);
     }
 
@@ -194,4 +208,29 @@ class ToyControllerTest {
         verify(toyMapper, times(0)).toDto(expectedToy);
         verify(toyMapper, times(0)).toEntity(expectedDto);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("get toy by id - the tag in If-None-Match is current, 304 without reading the toy")
+    public void test_getToyById_notModified() {
+        when(resourceVersions.productTag("toy", 1L)).thenReturn("W/\"toy-1-3.7\"");
+        request.addHeader("If-None-Match", "W/\"toy-1-3.7\"");
+
+        ResponseEntity<ToyDto> result = toyController.getToyById(1L, webRequest);
+
+        assertThat(result).isNull();
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getHeader("ETag")).isEqualTo("W/\"toy-1-3.7\"");
+        verifyNoInteractions(toyService);
+    }
+
+    @Test
+    @DisplayName("get all toys - nothing changed since the tag in If-None-Match, 304 without a query")
+    public void test_getAll_notModified() {
+        when(resourceVersions.collectionTag(ResourceVersions.TOYS)).thenReturn("W/\"toys-list-kx2.12\"");
+        request.addHeader("If-None-Match", "W/\"toys-list-kx2.12\"");
+
+        assertThat(toyController.getAll(null, null, null, null, null, null, null, null, webRequest)).isNull();
+        assertThat(response.getStatus()).isEqualTo(304);
+        verifyNoInteractions(toyService);
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.project.repository;
+
+import com.example.project.dto.AnimalDto;
+import com.example.project.mapper.AnimalMapperImpl;
+import com.example.project.model.Animal;
+import com.example.project.model.Client;
+import com.example.project.model.FieldSet;
+import com.example.project.service.AnimalService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = {"spring.jpa.database=h2", "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false", "spring.flyway.enabled=false"})
+@Import(StatementRecorder.class)
+class AnimalRepositoryTest {
+
+    @Autowired
+    private AnimalRepository animalRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private StatementRecorder statements;
+
+    @Test
+    @DisplayName("find by owner id - the animals and their owner in one select")
+    void test_findByOwnerId_oneSelect() {
+        Client owner = entityManager.persist(Client.builder().first_name("Ana").email("ana@mail.com").build());
+        for (int i = 0; i < 3; i++) {
+            entityManager.persist(Animal.builder().name("animal " + i).owner(owner).build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statements.clear();
+
+        List<AnimalDto> animals = animalRepository.findByOwnerId(owner.getId()).stream()
+                .map(new AnimalMapperImpl()::toDto).collect(Collectors.toList());
+
+        assertEquals(1, statements.all().size());
+        assertEquals(3, animals.size());
+        assertThat(animals).allMatch(animal -> "Ana".equals(animal.getOwnerDto().getFirst_name()));
+    }
+
+    @Test
+    @DisplayName("find all - the lazy owners of a list of animals are loaded in one batch")
+    void test_findAll_ownersInOneBatch() {
+        for (int i = 0; i < 3; i++) {
+            Client owner = entityManager.persist(Client.builder().first_name("owner " + i).email("owner" + i + "@mail.com").build());
+            entityManager.persist(Animal.builder().name("animal " + i).owner(owner).build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statements.clear();
+
+        List<AnimalDto> animals = animalRepository.findAll().stream()
+                .map(new AnimalMapperImpl()::toDto).collect(Collectors.toList());
+
+        assertEquals(2, statements.all().size());
+        assertThat(animals).extracting(animal -> animal.getOwnerDto().getFirst_name())
+                .containsExactlyInAnyOrder("owner 0", "owner 1", "owner 2");
+    }
+
+    @Test
+    @DisplayName("summary projections - a page of animals in one select, without joining the owners")
+    void test_findSummaries_noJoin() {
+        Client owner = entityManager.persist(Client.builder().first_name("Ana").email("ana@mail.com").build());
+        for (int i = 0; i < 3; i++) {
+            entityManager.persist(Animal.builder().name("animal " + i).species("pisica").owner(owner).build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statements.clear();
+
+        List<AnimalDto> animals = animalRepository.findSummariesByIdGreaterThan(Long.MIN_VALUE, PageRequest.of(0, 2, Sort.by("id")));
+        List<AnimalDto> ofOwner = animalRepository.findSummariesByOwnerId(owner.getId());
+
+        assertEquals(2, statements.all().size());
+        assertThat(statements.all()).allMatch(statement -> !statement.getSql().contains("join"));
+        assertThat(animals).extracting(AnimalDto::getName).containsExactly("animal 0", "animal 1");
+        assertThat(ofOwner).hasSize(3).allMatch(animal -> animal.getOwnerDto() == null && "pisica".equals(animal.getSpecies()));
+    }
+
+    @Test
+    @DisplayName("mapper with fields - the lazy owner is not loaded when the fields leave it out")
+    void test_toDtoWithFields_ownerUntouched() {
+        Client owner = entityManager.persist(Client.builder().first_name("Ana").email("ana@mail.com").build());
+        Animal saved = entityManager.persist(Animal.builder().name("Piscot").owner(owner).build());
+        entityManager.flush();
+        entityManager.clear();
+        Animal animal = entityManager.find(Animal.class, saved.getId());
+        statements.clear();
+
+        AnimalDto summary = new AnimalMapperImpl().toDto(animal, FieldSet.of("summary", null, AnimalService.ASSOCIATIONS));
+
+        assertThat(statements.all()).isEmpty();
+        assertEquals("Piscot", summary.getName());
+        assertThat(summary.getOwnerDto()).isNull();
+        assertEquals("Ana", new AnimalMapperImpl().toDto(animal, FieldSet.of(null, "owner", AnimalService.ASSOCIATIONS)).getOwnerDto().getFirst_name());
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.project.repository;
+
+import ch.vorburger.exec.ManagedProcessException;
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfiguration;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+
+import java.io.File;
+
+// the mariadb the schema tests run the migrations on, started on a free port (the binaries of the test dependency are the
+// linux ones); the application reaches it through the mysql driver, on the petShop database
+final class EmbeddedMariaDb {
+
+    private EmbeddedMariaDb() {
+    }
+
+    static DB start() throws ManagedProcessException {
+        DBConfigurationBuilder configuration = DBConfigurationBuilder.newBuilder().setPort(0).setDatabaseVersion("mariadb-10.11.5");
+        // the 10.11 packages name their programs after mariadb, not mysql
+        String baseDir = configuration.getBaseDir();
+        configuration.setExecutable(DBConfiguration.Executable.InstallDB, () -> new File(baseDir, "scripts/mariadb-install-db"));
+        configuration.setExecutable(DBConfiguration.Executable.Server, () -> new File(baseDir, "bin/mariadbd"));
+        configuration.setExecutable(DBConfiguration.Executable.Client, () -> new File(baseDir, "bin/mariadb"));
+        configuration.setExecutable(DBConfiguration.Executable.Dump, () -> new File(baseDir, "bin/mariadb-dump"));
+        if ("root".equals(System.getProperty("user.name"))) {
+            configuration.addArg("--user=root");
+        }
+        DB database = DB.newEmbeddedDB(configuration.build());
+        database.start();
+        return database;
+    }
+
+    static String url(DB database) {
+        return "jdbc:mysql://localhost:" + database.getConfiguration().getPort() + "/petShop?createDatabaseIfNotExist=true&rewriteBatchedStatements=true";
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.project.repository;
+
+import com.example.project.dto.FoodDto;
+import com.example.project.mapper.FoodMapper;
+import com.example.project.mapper.FoodMapperImpl;
+import com.example.project.model.Food;
+import com.example.project.model.Inventory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// run with -Dbenchmark=true, compares a page of food read as entities and mapped against the same page projected into dtos
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DataJpaTest(properties = {"spring.jpa.database=h2", "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false", "spring.flyway.enabled=false"})
+class FoodReadBenchmarkTest {
+
+    private static final int ROWS = 500;
+    private static final int WARMUP = 200;
+    private static final int ROUNDS = 1000;
+
+    @Autowired
+    private FoodRepository foodRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private final FoodMapper foodMapper = new FoodMapperImpl();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < ROWS; i++) {
+            entityManager.persist(Food.builder().brand("brand " + i).type("dry").price((float) i)
+                    .inventory(Inventory.builder().availableQuantity(5L).build()).build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    @DisplayName("benchmark - a page read through the dto projection allocates less than entities mapped to dtos")
+    void benchmark_entitiesVersusProjection() {
+        Result entities = measure("entities + mapper", () -> entityManager.getEntityManager()
+                .createQuery("from Food f where f.id > :id order by f.id", Food.class)
+                .setParameter("id", Long.MIN_VALUE)
+                .setMaxResults(ROWS)
+                .getResultList().stream().map(foodMapper::toDto).collect(Collectors.toList()));
+        Result projection = measure("dto projection", () ->
+                foodRepository.findDtosByIdGreaterThan(Long.MIN_VALUE, PageRequest.of(0, ROWS, Sort.by("id"))));
+
+        assertThat(projection.bytesPerRound).isLessThan(entities.bytesPerRound);
+    }
+
+    private Result measure(String name, Supplier<List<FoodDto>> read) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        for (int i = 0; i < WARMUP; i++) {
+            read.get();
+            entityManager.clear();
+        }
+        long bytes = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            assertThat(read.get()).hasSize(ROWS);
+            entityManager.clear();
+        }
+        Result result = new Result((System.nanoTime() - start) / ROUNDS, (threads.getThreadAllocatedBytes(thread) - bytes) / ROUNDS);
+        System.out.printf("%-20s %8d us/page %10d bytes/page%n", name, result.nanosPerRound / 1000, result.bytesPerRound);
+        return result;
+    }
+
+    private static class Result {
+        private final long nanosPerRound;
+        private final long bytesPerRound;
+
+        private Result(long nanosPerRound, long bytesPerRound) {
+            this.nanosPerRound = nanosPerRound;
+            this.bytesPerRound = bytesPerRound;
+        }
+    }
+}
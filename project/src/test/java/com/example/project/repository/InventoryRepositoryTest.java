@@ -0,0 +1,81 @@
+package com.example.project.repository;
+
+import com.example.project.model.Food;
+import com.example.project.model.Inventory;
+import com.example.project.model.Item;
+import com.example.project.model.Purchase;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = {"spring.jpa.database=h2", "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false", "spring.flyway.enabled=false"})
+@Import(StatementRecorder.class)
+class InventoryRepositoryTest {
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private StatementRecorder statements;
+
+    @Test
+    @DisplayName("restock purchase - every inventory of the purchase gets its ordered quantity back, in one statement")
+    void test_restockPurchase() {
+        Inventory food = entityManager.persist(Inventory.builder().availableQuantity(10L).build());
+        Inventory toy = entityManager.persist(Inventory.builder().availableQuantity(3L).build());
+        Inventory untouched = entityManager.persist(Inventory.builder().availableQuantity(7L).build());
+        Purchase cancelled = purchase(new Item[]{item(food, 2L), item(food, 3L), item(toy, 1L)});
+        purchase(new Item[]{item(food, 4L), item(untouched, 1L)});
+        entityManager.flush();
+        statements.clear();
+
+        int updated = inventoryRepository.restockPurchase(cancelled.getId());
+        entityManager.clear();
+
+        assertEquals(2, updated);
+        assertEquals(1, statements.startingWith("update inventory").size());
+        assertEquals(15L, inventoryRepository.findAvailableQuantityById(food.getId()));
+        assertEquals(4L, inventoryRepository.findAvailableQuantityById(toy.getId()));
+        assertEquals(7L, inventoryRepository.findAvailableQuantityById(untouched.getId()));
+    }
+
+    @Test
+    @DisplayName("find by id - an inventory is read from the inventory table alone, its product is not joined nor selected")
+    void test_findById_inventoryTableOnly() {
+        Food food = entityManager.persist(Food.builder().price(10F).inventory(Inventory.builder().availableQuantity(5L).build()).build());
+        entityManager.flush();
+        entityManager.clear();
+        statements.clear();
+
+        Inventory inventory = inventoryRepository.findById(food.getInventory().getId()).orElseThrow();
+
+        assertEquals(5L, inventory.getAvailableQuantity());
+        assertEquals(1, statements.all().size());
+        assertThat(statements.all().get(0).getSql()).contains("from inventory").doesNotContain("product").doesNotContain("join");
+    }
+
+    private Purchase purchase(Item[] items) {
+        List<Item> products = new ArrayList<>(List.of(items));
+        Purchase purchase = Purchase.builder().price(1F).time(LocalDateTime.now()).products(products).build();
+        products.forEach(it -> it.setPurchase(purchase));
+        return entityManager.persist(purchase);
+    }
+
+    private Item item(Inventory inventory, Long quantity) {
+        return Item.builder().inventory(inventory).orderedQuantity(quantity).build();
+    }
+}
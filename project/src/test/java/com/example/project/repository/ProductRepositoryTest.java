@@ -0,0 +1,219 @@
+package com.example.project.repository;
+
+import com.example.project.dto.FoodDto;
+import com.example.project.model.Food;
+import com.example.project.model.Inventory;
+import com.example.project.model.KeysetPage;
+import com.example.project.model.Medicine;
+import com.example.project.model.ProductFilter;
+import com.example.project.model.ProductType;
+import com.example.project.model.Toy;
+import com.example.project.service.KeysetPagination;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {"spring.jpa.database=h2", "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false", "spring.flyway.enabled=false"})
+@Import(StatementRecorder.class)
+class ProductRepositoryTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private FoodRepository foodRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private StatementRecorder statements;
+
+    @Test
+    @DisplayName("find product types by inventory ids - food, toys and medicine are resolved with one statement")
+    void test_findProductTypesByInventoryIds() {
+        Food food = entityManager.persist(Food.builder().price(10F).inventory(inventory()).build());
+        Toy toy = entityManager.persist(Toy.builder().price(20F).inventory(inventory()).build());
+        Medicine medicine = entityManager.persist(Medicine.builder().price(30F).inventory(inventory()).build());
+        entityManager.flush();
+        entityManager.clear();
+        statements.clear();
+
+        Map<Long, ProductType> products = productRepository.findProductTypesByInventoryIds(Set.of(
+                food.getInventory().getId(), toy.getInventory().getId(), medicine.getInventory().getId()))
+                .stream().collect(Collectors.toMap(ProductType::getInventoryId, Function.identity()));
+
+        assertEquals(1, statements.all().size());
+        assertEquals(3, products.size());
+        assertEquals("food", products.get(food.getInventory().getId()).getType());
+        assertEquals(food.getId(), products.get(food.getInventory().getId()).getId());
+        assertEquals("toy", products.get(toy.getInventory().getId()).getType());
+        assertEquals(20F, products.get(toy.getInventory().getId()).getPrice());
+        assertEquals("medicine", products.get(medicine.getInventory().getId()).getType());
+    }
+
+    @Test
+    @DisplayName("find product type by inventory id - an inventory without a product is empty")
+    void test_findProductTypeByInventoryId_noProduct() {
+        Inventory inventory = entityManager.persist(inventory());
+        entityManager.flush();
+
+        assertTrue(productRepository.findProductTypeByInventoryId(inventory.getId()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("find search text by id between - the searched columns of every kind of product in the range")
+    void test_findSearchTextByIdBetween() {
+        Food food = entityManager.persist(Food.builder().price(10F).animal("pisica").brand("un brand").type("uscata").inventory(inventory()).build());
+        Toy toy = entityManager.persist(Toy.builder().price(20F).animal("caine").brand("alt brand").inventory(inventory()).build());
+        Medicine medicine = entityManager.persist(Medicine.builder().price(30F).animal("pisica").purpose("durere").inventory(inventory()).build());
+        entityManager.flush();
+
+        ProductRepository.IdRange range = productRepository.findIdRange();
+        Map<String, ProductRepository.SearchText> texts = productRepository.findSearchTextByIdBetween(range.getMin(), toy.getId())
+                .stream().collect(Collectors.toMap(ProductRepository.SearchText::getProductType, Function.identity()));
+
+        assertEquals(food.getId(), range.getMin());
+        assertEquals(medicine.getId(), range.getMax());
+        assertEquals(Set.of("food", "toy"), texts.keySet());
+        assertEquals(food.getId(), texts.get("food").getId());
+        assertEquals(10F, texts.get("food").getPrice());
+        assertEquals("uscata", texts.get("food").getType());
+        assertEquals("alt brand", texts.get("toy").getBrand());
+        assertEquals("caine", texts.get("toy").getAnimal());
+        assertNull(texts.get("toy").getPurpose());
+    }
+
+    @Test
+    @DisplayName("find all food - the other products in the table are filtered out by their type")
+    void test_foodRepository_onlyFood() {
+        entityManager.persist(Food.builder().price(10F).inventory(inventory()).build());
+        entityManager.persist(Toy.builder().price(20F).inventory(inventory()).build());
+        entityManager.flush();
+        entityManager.clear();
+
+        List<Food> food = foodRepository.findAll();
+
+        assertEquals(1, food.size());
+        assertEquals(10F, food.get(0).getPrice());
+    }
+
+    @Test
+    @DisplayName("find by id - a product is loaded without its inventory until the inventory is read")
+    void test_findById_inventoryNotFetched() {
+        Food saved = entityManager.persist(Food.builder().price(10F).inventory(inventory()).build());
+        entityManager.flush();
+        entityManager.clear();
+        statements.clear();
+
+        Food food = foodRepository.findById(saved.getId()).orElseThrow();
+
+        assertEquals(1, statements.all().size());
+        assertFalse(Hibernate.isInitialized(food.getInventory()));
+        assertEquals(saved.getInventory().getId(), food.getInventory().getId());
+        assertEquals(5L, food.getInventory().getAvailableQuantity());
+        assertEquals(2, statements.all().size());
+    }
+
+    @Test
+    @DisplayName("food pages - every page is one statement, inventory included, that starts after the previous page's last id")
+    void test_foodRepository_keysetPages() {
+        for (int i = 0; i < 5; i++) {
+            entityManager.persist(Food.builder().price((float) i).inventory(inventory()).build());
+            entityManager.persist(Toy.builder().price((float) i).inventory(inventory()).build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statements.clear();
+        KeysetPagination keysetPagination = new KeysetPagination(2, 10);
+
+        List<Float> prices = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            KeysetPage<FoodDto> page = keysetPagination.page(foodRepository::findDtosByIdGreaterThan, foodRepository::findDtosByIdLessThan,
+                    FoodDto::getId, cursor, null, null);
+            page.getContent().forEach(food -> prices.add(food.getPrice()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(List.of(0F, 1F, 2F, 3F, 4F), prices);
+        assertEquals(3, pages);
+        assertEquals(3, statements.all().size());
+    }
+
+    @Test
+    @DisplayName("filtered food pages - animal, brand, price range and stock are one statement with the inventory, paged by id")
+    void test_foodRepository_filteredKeysetPages() {
+        for (int i = 0; i < 6; i++) {
+            entityManager.persist(Food.builder().animal("pisica").brand("un brand").price(10F + i).inventory(inventory()).build());
+            entityManager.persist(Food.builder().animal("caine").brand("un brand").price(10F + i).inventory(inventory()).build());
+        }
+        entityManager.persist(Food.builder().animal("pisica").brand("alt brand").price(12F).inventory(inventory()).build());
+        entityManager.persist(Food.builder().animal("pisica").brand("un brand").price(12F)
+                .inventory(Inventory.builder().availableQuantity(0L).build()).build());
+        entityManager.persist(Toy.builder().animal("pisica").brand("un brand").price(12F).inventory(inventory()).build());
+        entityManager.flush();
+        entityManager.clear();
+        statements.clear();
+        KeysetPagination keysetPagination = new KeysetPagination(2, 10);
+        ProductFilter filter = ProductFilter.builder().animal("pisica").minPrice(11F).maxPrice(14F).inStock(true).build();
+        Specification<Food> specification = ProductSpecifications.<Food>matching(filter)
+                .and(ProductSpecifications.equalTo("brand", "un brand"));
+
+        List<Float> prices = new ArrayList<>();
+        String cursor = null;
+        do {
+            KeysetPage<Food> page = keysetPagination.page(foodRepository, specification, Function.identity(), Food::getId, cursor, null, null);
+            page.getContent().forEach(food -> {
+                assertTrue(Hibernate.isInitialized(food.getInventory()));
+                prices.add(food.getPrice());
+            });
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(List.of(11F, 12F, 13F, 14F), prices);
+        assertEquals(2, statements.all().size());
+        assertThat(statements.all()).allSatisfy(statement -> assertThat(statement.getSql()).doesNotContain("count("));
+    }
+
+    @Test
+    @DisplayName("filtered food - out of stock are the products with no quantity left")
+    void test_foodRepository_outOfStock() {
+        entityManager.persist(Food.builder().price(10F).inventory(inventory()).build());
+        Food soldOut = entityManager.persist(Food.builder().price(10F).inventory(Inventory.builder().availableQuantity(0L).build()).build());
+        entityManager.flush();
+        entityManager.clear();
+
+        List<Food> food = foodRepository.search(ProductSpecifications.matching(ProductFilter.builder().inStock(false).build()),
+                PageRequest.of(0, 10, Sort.by("id")));
+
+        assertEquals(List.of(soldOut.getId()), food.stream().map(Food::getId).collect(Collectors.toList()));
+    }
+
+    private Inventory inventory() {
+        return Inventory.builder().availableQuantity(5L).build();
+    }
+}
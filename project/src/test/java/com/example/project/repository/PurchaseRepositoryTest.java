@@ -0,0 +1,218 @@
+package com.example.project.repository;
+
+import com.example.project.dto.ItemDto;
+import com.example.project.dto.PurchaseDto;
+import com.example.project.mapper.PurchaseMapperImpl;
+import com.example.project.model.Client;
+import com.example.project.model.FieldSet;
+import com.example.project.model.Inventory;
+import com.example.project.model.Item;
+import com.example.project.model.Purchase;
+import com.example.project.service.PurchaseService;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = {"spring.jpa.database=h2", "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false", "spring.flyway.enabled=false"})
+@Import(StatementRecorder.class)
+class PurchaseRepositoryTest {
+
+    @Autowired
+    private PurchaseRepository purchaseRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private StatementRecorder statements;
+
+    @Test
+    @DisplayName("save - the items of a purchase are inserted in one jdbc batch")
+    void test_save_itemsInOneBatch() {
+        List<Item> items = new ArrayList<>();
+        Purchase purchase = Purchase.builder().price(10F).time(LocalDateTime.now()).products(items).build();
+        for (int i = 0; i < 5; i++) {
+            items.add(Item.builder().orderedQuantity(1L).purchase(purchase).build());
+        }
+        statements.clear();
+
+        purchaseRepository.save(purchase);
+        entityManager.flush();
+
+        List<StatementRecorder.Statement> itemInserts = statements.startingWith("insert into item");
+        assertEquals(1, itemInserts.size());
+        assertThat(itemInserts.get(0).isBatch()).isTrue();
+        assertEquals(5, itemInserts.get(0).getRows());
+        assertThat(items).allMatch(it -> it.getId() != null);
+    }
+
+    @Test
+    @DisplayName("save - ids are reserved in blocks, not fetched for every row")
+    void test_save_idsReservedInBlocks() {
+        List<Item> items = new ArrayList<>();
+        Purchase purchase = Purchase.builder().price(10F).time(LocalDateTime.now()).products(items).build();
+        for (int i = 0; i < 20; i++) {
+            items.add(Item.builder().orderedQuantity(1L).purchase(purchase).build());
+        }
+        statements.clear();
+
+        purchaseRepository.save(purchase);
+        entityManager.flush();
+
+        // one block for the purchase and one for the 20 items
+        assertThat(statements.startingWith("update id_generator")).hasSizeLessThanOrEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("dto projections - a page of purchases with client, items and inventories in two selects")
+    void test_findDtos_twoSelects() {
+        Client client = entityManager.persist(Client.builder().first_name("Ana").email("ana@mail.com").build());
+        Inventory inventory = entityManager.persist(Inventory.builder().availableQuantity(7L).build());
+        for (int i = 0; i < 3; i++) {
+            List<Item> items = new ArrayList<>();
+            Purchase purchase = Purchase.builder().price(10F).time(LocalDateTime.now()).client(client).products(items).build();
+            items.add(Item.builder().orderedQuantity(1L).unitPrice(5F).inventory(inventory).purchase(purchase).build());
+            items.add(Item.builder().orderedQuantity(2L).unitPrice(5F).inventory(inventory).purchase(purchase).build());
+            entityManager.persist(purchase);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statements.clear();
+
+        List<PurchaseDto> purchases = purchaseRepository.findDtosByIdGreaterThan(Long.MIN_VALUE, PageRequest.of(0, 2, Sort.by("id")));
+        List<ItemDto> items = itemRepository.findDtosByPurchaseIds(purchases.stream().map(PurchaseDto::getId).collect(Collectors.toList()));
+
+        assertEquals(2, statements.all().size());
+        assertEquals(2, purchases.size());
+        assertEquals("Ana", purchases.get(0).getClientDto().getFirst_name());
+        assertEquals(4, items.size());
+        assertThat(items).allMatch(it -> it.getInventoryDto().getAvailableQuantity() == 7L && purchases.get(0).getId() <= it.getPurchaseId());
+    }
+
+    @Test
+    @DisplayName("find by client id - purchases with client in one select, then one select for all the items and one for their inventories")
+    void test_findByClientId_boundedSelects() {
+        Client client = entityManager.persist(Client.builder().first_name("Ana").email("ana@mail.com").build());
+        for (int i = 0; i < 4; i++) {
+            persistPurchase(client, entityManager.persist(Inventory.builder().availableQuantity(7L).build()),
+                    entityManager.persist(Inventory.builder().availableQuantity(8L).build()));
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statements.clear();
+
+        List<PurchaseDto> purchases = purchaseRepository.findByClientId(client.getId()).stream()
+                .map(new PurchaseMapperImpl()::toDto).collect(Collectors.toList());
+
+        assertEquals(3, statements.startingWith("select").size());
+        assertEquals(4, purchases.size());
+        assertThat(purchases).allMatch(purchase -> "Ana".equals(purchase.getClientDto().getFirst_name())
+                && purchase.getProductsDto().size() == 2
+                && purchase.getProductsDto().stream().allMatch(item -> item.getInventoryDto().getAvailableQuantity() != null));
+    }
+
+    @Test
+    @DisplayName("find by id - the purchase, its client, items and inventories in one select")
+    void test_findById_oneSelect() {
+        Client client = entityManager.persist(Client.builder().first_name("Ana").email("ana@mail.com").build());
+        Purchase purchase = persistPurchase(client, entityManager.persist(Inventory.builder().availableQuantity(7L).build()),
+                entityManager.persist(Inventory.builder().availableQuantity(8L).build()));
+        entityManager.flush();
+        entityManager.clear();
+        statements.clear();
+
+        PurchaseDto result = new PurchaseMapperImpl().toDto(purchaseRepository.findById(purchase.getId()).orElseThrow());
+
+        assertEquals(1, statements.all().size());
+        assertEquals("Ana", result.getClientDto().getFirst_name());
+        assertThat(result.getProductsDto()).extracting(item -> item.getInventoryDto().getAvailableQuantity()).containsExactlyInAnyOrder(7L, 8L);
+    }
+
+    @Test
+    @DisplayName("summary projections - the purchases of a client in one select, without joining the client")
+    void test_findSummariesByClientId_noJoin() {
+        Client client = entityManager.persist(Client.builder().first_name("Ana").email("ana@mail.com").build());
+        for (int i = 0; i < 2; i++) {
+            persistPurchase(client, entityManager.persist(Inventory.builder().availableQuantity(7L).build()));
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statements.clear();
+
+        List<PurchaseDto> purchases = purchaseRepository.findSummariesByClientId(client.getId());
+
+        assertEquals(1, statements.all().size());
+        assertThat(statements.all().get(0).getSql()).doesNotContain("join");
+        assertThat(purchases).hasSize(2).allMatch(purchase -> purchase.getClientDto() == null && purchase.getPrice() == 10F);
+    }
+
+    @Test
+    @DisplayName("mapper with fields - the lazy associations the fields leave out are not loaded")
+    void test_toDtoWithFields_associationsUntouched() {
+        Client client = entityManager.persist(Client.builder().first_name("Ana").email("ana@mail.com").build());
+        Purchase saved = persistPurchase(client, entityManager.persist(Inventory.builder().availableQuantity(7L).build()));
+        entityManager.flush();
+        entityManager.clear();
+        Purchase purchase = entityManager.find(Purchase.class, saved.getId());
+        statements.clear();
+
+        PurchaseDto summary = new PurchaseMapperImpl().toDto(purchase, FieldSet.of("summary", null, PurchaseService.ASSOCIATIONS));
+
+        assertThat(statements.all()).isEmpty();
+        assertEquals(10F, summary.getPrice());
+        assertThat(summary.getClientDto()).isNull();
+        assertThat(summary.getProductsDto()).isNull();
+
+        PurchaseDto withClient = new PurchaseMapperImpl().toDto(purchase, FieldSet.of(null, "client", PurchaseService.ASSOCIATIONS));
+
+        assertEquals("Ana", withClient.getClientDto().getFirst_name());
+        assertThat(withClient.getProductsDto()).isNull();
+        assertThat(Hibernate.isInitialized(purchase.getProducts())).isFalse();
+    }
+
+    @Test
+    @DisplayName("immutable - a loaded purchase and its items are never dirty-checked nor updated")
+    void test_immutable_noUpdates() {
+        Client client = entityManager.persist(Client.builder().first_name("Ana").email("ana@mail.com").build());
+        Purchase saved = persistPurchase(client, entityManager.persist(Inventory.builder().availableQuantity(7L).build()));
+        entityManager.flush();
+        entityManager.clear();
+
+        Purchase purchase = purchaseRepository.findById(saved.getId()).orElseThrow();
+        purchase.setPrice(99F);
+        purchase.getProducts().get(0).setOrderedQuantity(99L);
+        statements.clear();
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(statements.startingWith("update")).isEmpty();
+        assertEquals(10F, purchaseRepository.findById(saved.getId()).orElseThrow().getPrice());
+    }
+
+    private Purchase persistPurchase(Client client, Inventory... inventories) {
+        List<Item> items = new ArrayList<>();
+        Purchase purchase = Purchase.builder().price(10F).time(LocalDateTime.now()).client(client).products(items).build();
+        for (Inventory inventory : inventories) {
+            items.add(Item.builder().orderedQuantity(1L).unitPrice(5F).inventory(inventory).purchase(purchase).build());
+        }
+        return entityManager.persist(purchase);
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.project.repository;
+
+import ch.vorburger.exec.ManagedProcessException;
+import ch.vorburger.mariadb4j.DB;
+import com.example.project.model.Client;
+import com.example.project.model.Food;
+import com.example.project.model.Item;
+import com.example.project.model.ProductFilter;
+import com.example.project.model.Purchase;
+import com.example.project.service.KeysetPagination;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// the flyway migrations on an empty embedded mariadb, through the mysql driver and dialect of the application: the context
+// only starts if hibernate validates the entities against the migrated schema, and the key queries are explained
+// against a few thousand rows
+@EnabledOnOs(OS.LINUX)
+@DataJpaTest(properties = {"spring.jpa.database=mysql", "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(StatementRecorder.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SchemaMigrationTest {
+
+    private static DB database;
+    private static boolean populated;
+    private static List<Long> firstIds;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StatementRecorder statements;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private PurchaseRepository purchaseRepository;
+
+    @Autowired
+    private AnimalRepository animalRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private FoodRepository foodRepository;
+
+    @BeforeAll
+    static void startDatabase() throws ManagedProcessException {
+        database = EmbeddedMariaDb.start();
+    }
+
+    @AfterAll
+    static void stopDatabase() throws ManagedProcessException {
+        database.stop();
+    }
+
+    @DynamicPropertySource
+    static void dataSource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> EmbeddedMariaDb.url(database));
+        registry.add("spring.datasource.username", () -> "root");
+        registry.add("spring.datasource.password", () -> "");
+    }
+
+    // 200 clients with 3 animals and 15 purchases of 3 items each, 900 products for 6 animals and of 20 brands;
+    // statistics refreshed afterwards. Before that a client and a purchase are saved through hibernate on the seeds
+    // of the migrations, their ids kept for test_idGenerator_seeds, and removed again
+    @BeforeEach
+    void populate() {
+        if (populated) {
+            return;
+        }
+        Client client = clientRepository.save(Client.builder().first_name("first").email("first@mail.com").build());
+        List<Item> items = new ArrayList<>();
+        Purchase purchase = Purchase.builder().price(10F).time(LocalDateTime.now()).client(client).products(items).build();
+        for (int i = 0; i < 3; i++) {
+            items.add(Item.builder().orderedQuantity(1L).unitPrice(10F / 3).purchase(purchase).build());
+        }
+        purchaseRepository.save(purchase);
+        firstIds = new ArrayList<>(List.of(client.getId(), purchase.getId()));
+        items.forEach(item -> firstIds.add(item.getId()));
+        jdbcTemplate.update("delete from item");
+        jdbcTemplate.update("delete from purchase");
+        jdbcTemplate.update("delete from client");
+
+        LocalDateTime now = LocalDateTime.now();
+        batch("insert into client (client_id, first_name, email) values (?, ?, ?)", 200, i -> new Object[]{i, "client " + i, "client" + i + "@mail.com"});
+        batch("insert into animal (animal_id, animal_name, species, owner_client_id) values (?, ?, ?, ?)", 600, i -> new Object[]{i, "animal " + i, "pisica", i % 200 + 1});
+        batch("insert into inventory (id, available_quantity) values (?, ?)", 900, i -> new Object[]{i, 100L});
+        batch("insert into product (product_type, id, price, animal, brand, inventory_id) values (?, ?, ?, ?, ?, ?)", 900,
+                i -> new Object[]{List.of("food", "toy", "medicine").get(i % 3), i, (float) (i % 50), "animal " + i % 6, "brand " + i % 20, i});
+        batch("insert into purchase (id, price, time, client_client_id) values (?, ?, ?, ?)", 3000, i -> new Object[]{i, 30F, Timestamp.valueOf(now.minusMinutes(i)), i % 200 + 1});
+        batch("insert into item (id, ordered_quantity, unit_price, inventory_id, purchase_id) values (?, ?, ?, ?, ?)", 9000, i -> new Object[]{i, 1L, 10F, i % 900 + 1, i % 3000 + 1});
+        jdbcTemplate.execute("analyze table client, animal, inventory, product, purchase, item");
+        populated = true;
+    }
+
+    @Test
+    @DisplayName("migrations - every table has exactly the keys and indexes of the migrations")
+    void test_migrations_indexSet() {
+        Map<String, Set<String>> indexes = jdbcTemplate.queryForList(
+                "select table_name, index_name from information_schema.statistics where table_schema = database() and table_name <> 'flyway_schema_history'")
+                .stream().collect(Collectors.groupingBy(row -> ((String) row.get("TABLE_NAME")).toLowerCase(),
+                        Collectors.mapping(row -> ((String) row.get("INDEX_NAME")).toLowerCase(), Collectors.toSet())));
+
+        assertThat(indexes).containsOnly(
+                Map.entry("id_generator", Set.of("primary")),
+                Map.entry("client", Set.of("primary", "uk_bfgjs3fem0hmjhvih80158x29")),
+                Map.entry("animal", Set.of("primary", "animal_owner_idx")),
+                Map.entry("inventory", Set.of("primary")),
+                Map.entry("product", Set.of("primary", "product_inventory_uk", "product_type_id_idx",
+                        "product_type_animal_idx", "product_type_brand_idx")),
+                Map.entry("purchase", Set.of("primary", "purchase_client_idx")),
+                Map.entry("item", Set.of("primary", "item_purchase_idx", "item_inventory_idx")));
+    }
+
+    @Test
+    @DisplayName("id generator - on the seeds of the migrations the first ids hibernate hands out are 1 and up")
+    void test_idGenerator_seeds() {
+        assertThat(firstIds).hasSize(5).allMatch(id -> id >= 1);
+    }
+
+    @Test
+    @DisplayName("ordered quantities of a purchase - read from item_purchase_idx alone")
+    void test_orderedQuantities_coveringIndex() {
+        Map<String, Object> item = plan(() -> itemRepository.findOrderedQuantitiesByPurchaseId(15L), "item");
+
+        assertThat(item.get("key")).isEqualTo("item_purchase_idx");
+        assertThat((String) item.get("Extra")).contains("Using index").doesNotContain("filesort");
+    }
+
+    @Test
+    @DisplayName("items of a page of purchases - looked up through item_purchase_idx")
+    void test_itemsOfPurchases_index() {
+        Map<String, Object> item = plan(() -> itemRepository.findDtosByPurchaseIds(List.of(15L, 16L, 17L)), "item");
+
+        assertThat(item.get("key")).isEqualTo("item_purchase_idx");
+    }
+
+    @Test
+    @DisplayName("purchase history of a client - in id order from purchase_client_idx alone")
+    void test_purchasesOfClient_coveringIndex() {
+        Map<String, Object> purchase = plan(() -> purchaseRepository.findDtosByClientId(15L), "purchase");
+
+        assertThat(purchase.get("key")).isEqualTo("purchase_client_idx");
+        assertThat((String) purchase.get("Extra")).contains("Using index").doesNotContain("filesort");
+    }
+
+    @Test
+    @DisplayName("animals of a client - in id order from animal_owner_idx")
+    void test_animalsOfClient_index() {
+        Map<String, Object> animal = plan(() -> animalRepository.findDtosByOwnerId(15L), "animal");
+
+        assertThat(animal.get("key")).isEqualTo("animal_owner_idx");
+        assertThat((String) animal.get("Extra")).doesNotContain("filesort");
+    }
+
+    @Test
+    @DisplayName("etag of a purchase - the client, item count and stock versions, its items through item_purchase_idx")
+    void test_purchaseVersion_index() {
+        Map<String, Object> item = plan(() -> assertThat(purchaseRepository.findVersionById(15L)).contains("0.3.0"), "products");
+
+        assertThat(item.get("key")).isEqualTo("item_purchase_idx");
+        assertThat(productRepository.findVersionById("food", 3L)).contains("0.0");
+        assertThat(productRepository.findVersionById("toy", 3L)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("checkout - the products of the ordered inventories through product_inventory_uk")
+    void test_productsOfInventories_uniqueKey() {
+        Map<String, Object> product = plan(() -> productRepository.findProductTypesByInventoryIds(Set.of(15L, 16L, 17L)), "product");
+
+        assertThat(product.get("key")).isEqualTo("product_inventory_uk");
+    }
+
+    @Test
+    @DisplayName("food page - one product_type in id order from product_type_id_idx")
+    void test_foodPage_index() {
+        Map<String, Object> product = plan(() -> foodRepository.findDtosByIdGreaterThan(300L, PageRequest.of(0, 51, Sort.by("id"))), "food");
+
+        assertThat(product.get("key")).isEqualTo("product_type_id_idx");
+        assertThat((String) product.get("Extra")).doesNotContain("filesort");
+    }
+
+    @Test
+    @DisplayName("filtered food page - one product_type and animal in id order from product_type_animal_idx")
+    void test_foodPageByAnimal_index() {
+        ProductFilter filter = ProductFilter.builder().animal("animal 2").minPrice(5F).maxPrice(40F).inStock(true).build();
+
+        Map<String, Object> product = plan(() -> new KeysetPagination(50, 500).page(foodRepository, ProductSpecifications.matching(filter),
+                Function.identity(), Food::getId, null, null, null), "food");
+
+        assertThat(product.get("key")).isEqualTo("product_type_animal_idx");
+        assertThat((String) product.get("Extra")).doesNotContain("filesort");
+    }
+
+    @Test
+    @DisplayName("filtered food page - one product_type and brand in id order from product_type_brand_idx")
+    void test_foodPageByBrand_index() {
+        Specification<Food> specification = ProductSpecifications.<Food>matching(ProductFilter.builder().build())
+                .and(ProductSpecifications.equalTo("brand", "brand 3"));
+
+        Map<String, Object> product = plan(() -> new KeysetPagination(50, 500).page(foodRepository, specification,
+                Function.identity(), Food::getId, null, null, "-id"), "food");
+
+        assertThat(product.get("key")).isEqualTo("product_type_brand_idx");
+        assertThat((String) product.get("Extra")).doesNotContain("filesort");
+    }
+
+    // explains the select the query sent, with its parameters, and returns the plan row of the table hibernate aliased after the entity
+    private Map<String, Object> plan(Runnable query, String entity) {
+        statements.clear();
+        query.run();
+        StatementRecorder.Statement select = statements.startingWith("select").get(0);
+        return jdbcTemplate.queryForList("explain " + select.getSql(), select.getParameters().toArray()).stream()
+                .filter(row -> ((String) row.get("table")).startsWith(entity))
+                .findFirst().orElseThrow();
+    }
+
+    private void batch(String sql, int rows, IntFunction<Object[]> row) {
+        List<Object[]> values = new ArrayList<>();
+        for (int i = 1; i <= rows; i++) {
+            values.add(row.apply(i));
+        }
+        jdbcTemplate.batchUpdate(sql, values);
+    }
+}
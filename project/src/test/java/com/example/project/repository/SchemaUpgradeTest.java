@@ -0,0 +1,196 @@
+package com.example.project.repository;
+
+import ch.vorburger.exec.ManagedProcessException;
+import ch.vorburger.mariadb4j.DB;
+import com.example.project.model.Animal;
+import com.example.project.model.Client;
+import com.example.project.model.Food;
+import com.example.project.model.Inventory;
+import com.example.project.model.Item;
+import com.example.project.model.Medicine;
+import com.example.project.model.Purchase;
+import com.example.project.model.Toy;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// the upgrade of a database created by hand before the migrations: it has the V1 schema and rows in it, flyway baselines
+// it at V1 when the context starts and runs the later migrations on it, then hibernate validates the entities and
+// saves new rows with the ids of the seeded id_generator
+@EnabledOnOs(OS.LINUX)
+@DataJpaTest(properties = {"spring.jpa.database=mysql", "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SchemaUpgradeTest {
+
+    private static DB database;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private AnimalRepository animalRepository;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private FoodRepository foodRepository;
+
+    @Autowired
+    private ToyRepository toyRepository;
+
+    @Autowired
+    private MedicineRepository medicineRepository;
+
+    @Autowired
+    private PurchaseRepository purchaseRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // the V1 schema run by hand, no flyway history, and the rows of the application before the migrations: two of each
+    // kind of product with an inventory each (pointing back at its product), two clients with an animal and a purchase each
+    @BeforeAll
+    static void createOriginalDatabase() throws ManagedProcessException {
+        database = EmbeddedMariaDb.start();
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(EmbeddedMariaDb.url(database), "root", "");
+        new ResourceDatabasePopulator(new ClassPathResource("db/migration/V1__create_schema.sql")).execute(dataSource);
+
+        JdbcTemplate original = new JdbcTemplate(dataSource);
+        original.update("insert into client (client_id, first_name, email) values (1, 'ana', 'ana@mail.com'), (2, 'ion', 'ion@mail.com')");
+        original.update("insert into animal (animal_id, animal_name, species, owner_client_id) values (1, 'rex', 'caine', 1), (2, 'tom', 'pisica', 2)");
+        original.update("insert into inventory (id, available_quantity) values (1, 10), (2, 20), (3, 30), (4, 40), (5, 50), (6, 60)");
+        original.update("insert into food (id, brand, type, price, quantity_per_unit, animal, inventory_id) " +
+                "values (1, 'brand f', 'uscata', 10, 2, 'caine', 1), (2, 'brand f', 'umeda', 11, 1, 'pisica', 2)");
+        original.update("insert into toy (id, animal, brand, price, inventory_id) values (1, 'caine', 'brand t', 5, 3), (2, 'pisica', 'brand t', 6, 4)");
+        original.update("insert into medicine (id, animal, price, purpose, inventory_id) values (1, 'caine', 20, 'purici', 5), (2, 'pisica', 21, 'viermi', 6)");
+        original.update("update inventory set food_id = id where id in (1, 2)");
+        original.update("update inventory set toy_id = id - 2 where id in (3, 4)");
+        original.update("update inventory set medicine_id = id - 4 where id in (5, 6)");
+        original.update("insert into purchase (id, price, time, client_client_id) values (1, 16, now(), 1), (2, 42, now(), 2)");
+        original.update("insert into item (id, ordered_quantity, inventory_id, purchase_id) values (1, 1, 1, 1), (2, 1, 4, 1), (3, 2, 6, 2)");
+    }
+
+    @AfterAll
+    static void stopDatabase() throws ManagedProcessException {
+        database.stop();
+    }
+
+    @DynamicPropertySource
+    static void dataSource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> EmbeddedMariaDb.url(database));
+        registry.add("spring.datasource.username", () -> "root");
+        registry.add("spring.datasource.password", () -> "");
+    }
+
+    @Test
+    @DisplayName("upgrade - baselined at V1, the later migrations ran on the existing rows")
+    void test_upgrade_baselined() {
+        List<String> versions = jdbcTemplate.queryForList("select version from flyway_schema_history where success = 1 order by installed_rank", String.class);
+
+        assertThat(versions).startsWith("1").contains("2", "3", "4", "5");
+    }
+
+    @Test
+    @DisplayName("upgrade - food, toys and medicine moved into product, numbered on one after the other")
+    void test_upgrade_productsMerged() {
+        List<Map<String, Object>> products = jdbcTemplate.queryForList("select product_type, id, price, inventory_id from product order by id");
+
+        assertThat(products).extracting(product -> product.get("product_type"))
+                .containsExactly("food", "food", "toy", "toy", "medicine", "medicine");
+        assertThat(products).extracting(product -> ((Number) product.get("id")).longValue()).containsExactly(1L, 2L, 3L, 4L, 5L, 6L);
+        assertThat(products).extracting(product -> ((Number) product.get("inventory_id")).longValue()).containsExactly(1L, 2L, 3L, 4L, 5L, 6L);
+        assertThat(products).extracting(product -> ((Number) product.get("price")).floatValue()).containsExactly(10F, 11F, 5F, 6F, 20F, 21F);
+        assertThat(jdbcTemplate.queryForObject("select count(*) from information_schema.tables where table_schema = database() " +
+                "and table_name in ('food', 'toy', 'medicine')", Long.class)).isZero();
+    }
+
+    @Test
+    @DisplayName("upgrade - the inventory has no columns pointing back at its product any more")
+    void test_upgrade_inventoryBackReferencesDropped() {
+        List<String> columns = jdbcTemplate.queryForList("select column_name from information_schema.columns " +
+                "where table_schema = database() and table_name = 'inventory'", String.class);
+
+        assertThat(columns).containsExactlyInAnyOrder("id", "available_quantity", "version");
+        assertThat(jdbcTemplate.queryForList("select available_quantity from inventory order by id", Long.class))
+                .containsExactly(10L, 20L, 30L, 40L, 50L, 60L);
+    }
+
+    @Test
+    @DisplayName("upgrade - the items bought before the snapshot get the product of their inventory, renumbered, and its price")
+    void test_upgrade_itemSnapshot() {
+        List<Map<String, Object>> items = jdbcTemplate.queryForList("select product_type, product_id, unit_price from item order by id");
+
+        assertThat(items).extracting(item -> item.get("product_type")).containsExactly("food", "toy", "medicine");
+        assertThat(items).extracting(item -> ((Number) item.get("product_id")).longValue()).containsExactly(1L, 4L, 6L);
+        assertThat(items).extracting(item -> ((Number) item.get("unit_price")).floatValue()).containsExactly(10F, 6F, 21F);
+    }
+
+    @Test
+    @DisplayName("upgrade - one entity of every type saved through hibernate, each gets an id above the existing rows")
+    void test_upgrade_idsAboveExistingRows() {
+        Map<String, Long> ids = new HashMap<>();
+        // the ids come from id_generator in a transaction of their own, so the rows are rolled back for the other tests
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Client client = clientRepository.save(Client.builder().first_name("new").email("new@mail.com").build());
+            Animal animal = animalRepository.save(Animal.builder().name("new").species("pisica").owner(client).build());
+            Inventory inventory = inventoryRepository.save(Inventory.builder().availableQuantity(1L).build());
+            Food food = foodRepository.save(Food.builder().brand("new").price(1F).inventory(inventory).build());
+            Toy toy = toyRepository.save(Toy.builder().brand("new").price(1F)
+                    .inventory(inventoryRepository.save(Inventory.builder().availableQuantity(1L).build())).build());
+            Medicine medicine = medicineRepository.save(Medicine.builder().purpose("new").price(1F)
+                    .inventory(inventoryRepository.save(Inventory.builder().availableQuantity(1L).build())).build());
+            Purchase purchase = Purchase.builder().price(1F).time(LocalDateTime.now()).client(client).products(new ArrayList<>()).build();
+            Item item = Item.builder().orderedQuantity(1L).unitPrice(1F).productType("food").productId(food.getId())
+                    .inventory(inventory).purchase(purchase).build();
+            purchase.getProducts().add(item);
+            purchaseRepository.saveAndFlush(purchase);
+            status.setRollbackOnly();
+
+            ids.put("client", client.getId());
+            ids.put("animal", animal.getId());
+            ids.put("inventory", inventory.getId());
+            ids.put("food", food.getId());
+            ids.put("toy", toy.getId());
+            ids.put("medicine", medicine.getId());
+            ids.put("purchase", purchase.getId());
+            ids.put("item", item.getId());
+        });
+
+        assertThat(ids.get("client")).isGreaterThan(2L);
+        assertThat(ids.get("animal")).isGreaterThan(2L);
+        assertThat(ids.get("inventory")).isGreaterThan(6L);
+        assertThat(List.of(ids.get("food"), ids.get("toy"), ids.get("medicine"))).allMatch(id -> id > 6L);
+        assertThat(ids.get("purchase")).isGreaterThan(2L);
+        assertThat(ids.get("item")).isGreaterThan(3L);
+    }
+}
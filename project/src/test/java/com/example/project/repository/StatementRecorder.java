@@ -0,0 +1,88 @@
+package com.example.project.repository;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+
+import javax.sql.DataSource;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+// wraps the test DataSource, so a test can check which statements hibernate sent and how they were batched
+@TestConfiguration
+public class StatementRecorder implements BeanPostProcessor, QueryExecutionListener {
+    private final List<Statement> statements = new CopyOnWriteArrayList<>();
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource && !(bean instanceof ProxyDataSource)) {
+            return ProxyDataSourceBuilder.create((DataSource) bean).listener(this).build();
+        }
+        return bean;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        for (QueryInfo queryInfo : queryInfoList) {
+            int rows = execInfo.isBatch() ? execInfo.getBatchSize() : 1;
+            // the values of the first (or only) execution, in parameter order
+            List<Object> parameters = queryInfo.getParametersList().isEmpty() ? List.of() : queryInfo.getParametersList().get(0).stream()
+                    .sorted(Comparator.comparingInt(operation -> (Integer) operation.getArgs()[0]))
+                    .map(operation -> "setNull".equals(operation.getMethod().getName()) ? null : operation.getArgs()[1])
+                    .collect(Collectors.toList());
+            statements.add(new Statement(queryInfo.getQuery().toLowerCase(), execInfo.isBatch(), rows, parameters));
+        }
+    }
+
+    public void clear() {
+        statements.clear();
+    }
+
+    public List<Statement> all() {
+        return List.copyOf(statements);
+    }
+
+    public List<Statement> startingWith(String prefix) {
+        return statements.stream().filter(statement -> statement.getSql().startsWith(prefix)).collect(Collectors.toList());
+    }
+
+    public static class Statement {
+        private final String sql;
+        private final boolean batch;
+        private final int rows;
+        private final List<Object> parameters;
+
+        Statement(String sql, boolean batch, int rows, List<Object> parameters) {
+            this.sql = sql;
+            this.batch = batch;
+            this.rows = rows;
+            this.parameters = parameters;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public boolean isBatch() {
+            return batch;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        public List<Object> getParameters() {
+            return parameters;
+        }
+    }
+}
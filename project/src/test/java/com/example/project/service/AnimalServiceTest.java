@@ -1,9 +1,14 @@
 package com.example.project.service;
 
+import com.example.project.dto.AnimalDto;
 import com.example.project.exception.BadRequestException;
 import com.example.project.exception.EntityNotFoundException;
+import com.example.project.mapper.AnimalMapper;
+import com.example.project.mapper.AnimalMapperImpl;
 import com.example.project.model.Animal;
 import com.example.project.model.Client;
+import com.example.project.model.FieldSet;
+import com.example.project.model.KeysetPage;
 import com.example.project.repository.AnimalRepository;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,7 +17,10 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
@@ -21,6 +29,7 @@ import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -32,6 +41,15 @@ public class AnimalServiceTest{
     @Mock
     private ClientService clientService;
 
+    @Mock
+    private ResourceVersions resourceVersions;
+
+    @Spy
+    private KeysetPagination keysetPagination = new KeysetPagination(50, 500);
+
+    @Spy
+    private AnimalMapper animalMapper = new AnimalMapperImpl();
+
     @InjectMocks
     private AnimalService animalService;
 
@@ -52,22 +70,53 @@ public class AnimalServiceTest{
     @Test
     @DisplayName("find all animals - happy flow")
     public void test_findAll_happyFlow() {
-        List<Animal> animalList = new ArrayList<>();
-        animalList.add(expectedAnimal);
+        AnimalDto animalDto = AnimalDto.builder().id(expectedAnimal.getId()).build();
+        when(animalRepository.findDtosByIdGreaterThan(Long.MIN_VALUE, PageRequest.of(0, 51, Sort.by("id")))).thenReturn(List.of(animalDto));
 
-        when(animalRepository.findAll()).thenReturn(animalList);
+        KeysetPage<AnimalDto> result = animalService.findAll(null, null, null, FieldSet.of(null, null, AnimalService.ASSOCIATIONS));
 
-        List<Animal> result = animalService.findAll();
+        assertEquals(List.of(animalDto), result.getContent());
+        assertNull(result.getNextCursor());
 
-        assertEquals(animalList.size(), result.size());
-        assertEquals(expectedAnimal.getId(), result.stream().findFirst().get().getId());
-        assertEquals(expectedAnimal.getSpecies(), result.stream().findFirst().get().getSpecies());
-        assertEquals(expectedAnimal.getBreed(), result.stream().findFirst().get().getBreed());
-        assertEquals(expectedAnimal.getName(), result.stream().findFirst().get().getName());
-        assertEquals(expectedAnimal.getBirth_date(), result.stream().findFirst().get().getBirth_date());
-        assertEquals(expectedAnimal.getOwner(), result.stream().findFirst().get().getOwner());
+        verify(animalRepository).findDtosByIdGreaterThan(Long.MIN_VALUE, PageRequest.of(0, 51, Sort.by("id")));
+        verify(animalRepository, times(0)).findAll();
+    }
+
+    @Test
+    @DisplayName("find all animals - view=summary reads the animal rows without joining their owner")
+    public void test_findAll_summary() {
+        AnimalDto animalDto = new AnimalDto(expectedAnimal.getId(), "Piscot", "pisica", "persana", null);
+        when(animalRepository.findSummariesByIdLessThan(Long.MAX_VALUE, PageRequest.of(0, 51, Sort.by("id").descending()))).thenReturn(List.of(animalDto));
 
-        verify(animalRepository).findAll();
+        KeysetPage<AnimalDto> result = animalService.findAll(null, null, "-id", FieldSet.of("summary", null, AnimalService.ASSOCIATIONS));
+
+        assertEquals(List.of(animalDto), result.getContent());
+        assertNull(animalDto.getOwnerDto());
+        verify(animalRepository, times(0)).findDtosByIdLessThan(any(), any());
+    }
+
+    @Test
+    @DisplayName("find animal dto by id - happy flow")
+    public void test_findDtoById_happyFlow() {
+        Long id = expectedAnimal.getId();
+        AnimalDto animalDto = AnimalDto.builder().id(id).build();
+
+        when(animalRepository.findDtoById(id)).thenReturn(Optional.of(animalDto));
+
+        assertEquals(animalDto, animalService.findDtoById(id));
+        verify(animalRepository, times(0)).findById(id);
+    }
+
+    @Test
+    @DisplayName("find animal dto by id - animal does not exist in database")
+    public void test_findDtoById_throwsEntityNotFoundException() {
+        Long id = expectedAnimal.getId();
+
+        when(animalRepository.findDtoById(id)).thenReturn(Optional.empty());
+
+        EntityNotFoundException ex = Assertions.assertThrows(EntityNotFoundException.class, () -> animalService.findDtoById(id));
+
+        assertEquals(String.format("The animal with id = %s does not exist in the database.", id), ex.getMessage());
     }
 
     @Test
@@ -135,6 +184,7 @@ public class AnimalServiceTest{
 
         verify(animalRepository).existsById(id);
         verify(animalRepository).deleteById(id);
+        verify(resourceVersions).animalChanged(null);
     }
 
     @Test
@@ -167,17 +217,18 @@ public class AnimalServiceTest{
         when(clientService.existById(animal.getOwner().getId())).thenReturn(true);
         when(animalRepository.save(animal)).thenReturn(expectedAnimal);
 
-        Animal result = animalService.create(animal);
+        AnimalDto result = animalService.create(animal);
 
         assertEquals(expectedAnimal.getId(),result.getId());
         assertEquals(expectedAnimal.getName(),result.getName());
         assertEquals(expectedAnimal.getBreed(),result.getBreed());
         assertEquals(expectedAnimal.getSpecies(),result.getSpecies());
         assertEquals(expectedAnimal.getBirth_date(),result.getBirth_date());
-        assertEquals(expectedAnimal.getOwner(),result.getOwner());
+        assertEquals(expectedAnimal.getOwner().getId(), result.getOwnerDto().getId());
 
         verify(animalRepository, times(1)).save(animal);
         verify(clientService).existById(animal.getOwner().getId());
+        verify(resourceVersions).animalChanged(null);
     }
 
     @Test
@@ -212,17 +263,18 @@ public class AnimalServiceTest{
         when(animalRepository.existsById(id)).thenReturn(true);
         when(animalRepository.save(animal)).thenReturn(expectedAnimal);
 
-        Animal result = animalService.update(animal);
+        AnimalDto result = animalService.update(animal);
 
         assertEquals(expectedAnimal.getId(),result.getId());
         assertEquals(expectedAnimal.getName(),result.getName());
         assertEquals(expectedAnimal.getBreed(),result.getBreed());
         assertEquals(expectedAnimal.getSpecies(),result.getSpecies());
         assertEquals(expectedAnimal.getBirth_date(),result.getBirth_date());
-        assertEquals(expectedAnimal.getOwner(),result.getOwner());
+        assertEquals(expectedAnimal.getOwner().getId(), result.getOwnerDto().getId());
 
         verify(animalRepository).existsById(id);
         verify(animalRepository).save(animal);
+        verify(resourceVersions).animalChanged(id);
     }
 
     @Test
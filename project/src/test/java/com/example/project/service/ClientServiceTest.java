@@ -1,8 +1,12 @@
 package com.example.project.service;
 
+import com.example.project.dto.ClientDto;
 import com.example.project.exception.EntityNotFoundException;
+import com.example.project.mapper.ClientMapper;
+import com.example.project.mapper.ClientMapperImpl;
 import com.example.project.model.Animal;
 import com.example.project.model.Client;
+import com.example.project.model.KeysetPage;
 import com.example.project.repository.ClientRepository;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,7 +15,10 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
@@ -20,6 +27,7 @@ import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -28,6 +36,15 @@ class ClientServiceTest {
     @Mock
     private ClientRepository clientRepository;
 
+    @Mock
+    private ResourceVersions resourceVersions;
+
+    @Spy
+    private KeysetPagination keysetPagination = new KeysetPagination(50, 500);
+
+    @Spy
+    private ClientMapper clientMapper = new ClientMapperImpl();
+
     @InjectMocks
     private ClientService clientService;
 
@@ -51,23 +68,40 @@ class ClientServiceTest {
     @Test
     @DisplayName("find all clients - happy flow")
     public void test_findAll_happyFlow() {
-        List<Client> clientList = new ArrayList<>();
-        clientList.add(expectedClient);
+        ClientDto clientDto = ClientDto.builder().id(expectedClient.getId()).build();
+        when(clientRepository.findDtosByIdGreaterThan(Long.MIN_VALUE, PageRequest.of(0, 51, Sort.by("id")))).thenReturn(List.of(clientDto));
+
+        KeysetPage<ClientDto> result = clientService.findAll(null, null, null);
+
+        assertEquals(List.of(clientDto), result.getContent());
+        assertNull(result.getNextCursor());
+
+        verify(clientRepository).findDtosByIdGreaterThan(Long.MIN_VALUE, PageRequest.of(0, 51, Sort.by("id")));
+        verify(clientRepository, times(0)).findAll();
+    }
 
-        when(clientRepository.findAll()).thenReturn(clientList);
+    @Test
+    @DisplayName("find client dto by id - happy flow")
+    public void test_findDtoById_happyFlow() {
+        Long id = expectedClient.getId();
+        ClientDto clientDto = ClientDto.builder().id(id).build();
+
+        when(clientRepository.findDtoById(id)).thenReturn(Optional.of(clientDto));
+
+        assertEquals(clientDto, clientService.findDtoById(id));
+        verify(clientRepository, times(0)).findById(id);
+    }
+
+    @Test
+    @DisplayName("find client dto by id - client does not exist in database")
+    public void test_findDtoById_throwsEntityNotFoundException() {
+        Long id = expectedClient.getId();
 
-        List<Client> result = clientService.findAll();
+        when(clientRepository.findDtoById(id)).thenReturn(Optional.empty());
 
-        assertEquals(clientList.size(), result.size());
-        assertEquals(expectedClient.getId(), result.stream().findFirst().get().getId());
-        assertEquals(expectedClient.getFirst_name(), result.stream().findFirst().get().getFirst_name());
-        assertEquals(expectedClient.getLast_name(), result.stream().findFirst().get().getLast_name());
-        assertEquals(expectedClient.getCity(), result.stream().findFirst().get().getCity());
-        assertEquals(expectedClient.getBirth_date(), result.stream().findFirst().get().getBirth_date());
-        //assertEquals(expectedClient.getType(), result.stream().findFirst().get().getType());
-        //assertEquals(expectedClient.getQuantityPerUnit(), result.stream().findFirst().get().getQuantityPerUnit());
+        EntityNotFoundException ex = Assertions.assertThrows(EntityNotFoundException.class, () -> clientService.findDtoById(id));
 
-        verify(clientRepository).findAll();
+        assertEquals(String.format("The client with id = %s does not exist in the database.", id), ex.getMessage());
     }
 
 
@@ -131,6 +165,7 @@ class ClientServiceTest {
 
         verify(clientRepository).existsById(id);
         verify(clientRepository).deleteById(id);
+        verify(resourceVersions).clientChanged(null);
     }
 
     @Test
@@ -160,7 +195,7 @@ class ClientServiceTest {
 
         when(clientRepository.save(client)).thenReturn(expectedClient);
 
-        Client result = clientService.create(client);
+        ClientDto result = clientService.create(client);
 
         assertEquals(expectedClient.getId(), result.getId());
         assertEquals(expectedClient.getCity(), result.getCity());
@@ -169,6 +204,7 @@ class ClientServiceTest {
         assertEquals(expectedClient.getLast_name(), result.getLast_name());
 
         verify(clientRepository).save(client);
+        verify(resourceVersions).clientChanged(null);
     }
 
     @Test
@@ -180,7 +216,7 @@ class ClientServiceTest {
         when(clientRepository.existsById(id)).thenReturn(true);
         when(clientRepository.save(client)).thenReturn(expectedClient);
 
-        Client result = clientService.update(client);
+        ClientDto result = clientService.update(client);
 
         assertEquals(expectedClient.getId(), result.getId());
         assertEquals(expectedClient.getCity(), result.getCity());
@@ -190,6 +226,7 @@ class ClientServiceTest {
 
         verify(clientRepository).existsById(id);
         verify(clientRepository).save(client);
+        verify(resourceVersions).clientChanged(id);
     }
 
     @Test
@@ -0,0 +1,74 @@
+package com.example.project.service;
+
+import com.example.project.repository.InventoryRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DatabaseStockLedgerTest {
+
+    @Mock
+    private InventoryRepository inventoryRepository;
+
+    @Mock
+    private ResourceVersions resourceVersions;
+
+    @InjectMocks
+    private DatabaseStockLedger stockLedger;
+
+    @Test
+    @DisplayName("reserve - the guarded update changed the row")
+    void test_reserve_happyFlow() {
+        when(inventoryRepository.adjustAvailableQuantity(1L, -5L)).thenReturn(1);
+
+        assertThat(stockLedger.reserve(1L, 5L)).isTrue();
+
+        verify(inventoryRepository).adjustAvailableQuantity(1L, -5L);
+        verify(resourceVersions).stockChanged();
+    }
+
+    @Test
+    @DisplayName("reserve - the guarded update did not match, not enough stock")
+    void test_reserve_notEnoughStock() {
+        when(inventoryRepository.adjustAvailableQuantity(1L, -5L)).thenReturn(0);
+
+        assertThat(stockLedger.reserve(1L, 5L)).isFalse();
+        verifyNoInteractions(resourceVersions);
+    }
+
+    @Test
+    @DisplayName("release - adds the quantity back to the row")
+    void test_release_happyFlow() {
+        when(inventoryRepository.adjustAvailableQuantity(1L, 5L)).thenReturn(1);
+
+        assertThat(stockLedger.release(1L, 5L)).isTrue();
+
+        verify(inventoryRepository).adjustAvailableQuantity(1L, 5L);
+        verify(resourceVersions).stockChanged();
+    }
+
+    @Test
+    @DisplayName("release purchase - one update over the items of the purchase")
+    void test_releasePurchase_happyFlow() {
+        stockLedger.releasePurchase(5L);
+
+        verify(inventoryRepository).restockPurchase(5L);
+        verify(resourceVersions).stockChanged();
+    }
+
+    @Test
+    @DisplayName("overwrite and evict - nothing to do, the database is the authority")
+    void test_overwriteAndEvict_touchNothing() {
+        stockLedger.overwrite(1L, 5L);
+        stockLedger.evict(1L);
+
+        verifyNoInteractions(inventoryRepository);
+    }
+}
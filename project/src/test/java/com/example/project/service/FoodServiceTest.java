@@ -1,8 +1,14 @@
 package com.example.project.service;
 
+import com.example.project.dto.FoodDto;
+import com.example.project.exception.BadRequestException;
 import com.example.project.exception.EntityNotFoundException;
+import com.example.project.mapper.FoodMapper;
+import com.example.project.mapper.FoodMapperImpl;
 import com.example.project.model.Food;
 import com.example.project.model.Inventory;
+import com.example.project.model.KeysetPage;
+import com.example.project.model.ProductFilter;
 import com.example.project.repository.FoodRepository;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,7 +17,10 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -19,6 +28,7 @@ import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,6 +37,21 @@ class FoodServiceTest {
     @Mock
     private FoodRepository foodRepository;
 
+    @Mock
+    private ProductCatalogCache productCatalogCache;
+
+    @Mock
+    private ProductSearchIndex productSearchIndex;
+
+    @Mock
+    private ResourceVersions resourceVersions;
+
+    @Spy
+    private KeysetPagination keysetPagination = new KeysetPagination(50, 500);
+
+    @Spy
+    private FoodMapper foodMapper = new FoodMapperImpl();
+
     @InjectMocks
     private FoodService foodService;
 
@@ -49,23 +74,69 @@ class FoodServiceTest {
     @Test
     @DisplayName("find all food - happy flow")
     public void test_findAll_happyFlow() {
-        List<Food> foodList = new ArrayList<>();
-        foodList.add(expectedFood);
+        FoodDto foodDto = FoodDto.builder().id(expectedFood.getId()).build();
+        when(foodRepository.findDtosByIdGreaterThan(Long.MIN_VALUE, PageRequest.of(0, 51, Sort.by("id")))).thenReturn(List.of(foodDto));
+
+        KeysetPage<FoodDto> result = foodService.findAll(ProductFilter.builder().build(), null, null, null);
+
+        assertEquals(List.of(foodDto), result.getContent());
+        assertNull(result.getNextCursor());
+
+        verify(foodRepository).findDtosByIdGreaterThan(Long.MIN_VALUE, PageRequest.of(0, 51, Sort.by("id")));
+        verify(foodRepository, times(0)).findAll();
+    }
 
-        when(foodRepository.findAll()).thenReturn(foodList);
+    @Test
+    @DisplayName("find all food - filtered, the entities of the page are read with one search and mapped")
+    public void test_findAll_filtered() {
+        when(foodRepository.search(any(), eq(PageRequest.of(0, 51, Sort.by("id"))))).thenReturn(List.of(expectedFood));
+
+        KeysetPage<FoodDto> result = foodService.findAll(ProductFilter.builder().animal("pisica").inStock(true).build(), null, null, null);
+
+        assertEquals(1, result.getContent().size());
+        assertEquals(expectedFood.getId(), result.getContent().get(0).getId());
+        assertEquals(expectedFood.getInventory().getId(), result.getContent().get(0).getInventoryDto().getId());
+        assertNull(result.getNextCursor());
 
-        List<Food> result = foodService.findAll();
+        verify(foodRepository, times(0)).findDtosByIdGreaterThan(any(), any());
+    }
+
+    @Test
+    @DisplayName("find all food - the minimum price is above the maximum price")
+    public void test_findAll_throwsBadRequestException_whenPriceRangeEmpty() {
+        ProductFilter filter = ProductFilter.builder().minPrice(20F).maxPrice(5F).build();
 
-        assertEquals(foodList.size(), result.size());
-        assertEquals(expectedFood.getId(), result.stream().findFirst().get().getId());
-        assertEquals(expectedFood.getAnimal(), result.stream().findFirst().get().getAnimal());
-        assertEquals(expectedFood.getBrand(), result.stream().findFirst().get().getBrand());
-        assertEquals(expectedFood.getPrice(), result.stream().findFirst().get().getPrice());
-        assertEquals(expectedFood.getInventory(), result.stream().findFirst().get().getInventory());
-        assertEquals(expectedFood.getType(), result.stream().findFirst().get().getType());
-        assertEquals(expectedFood.getQuantityPerUnit(), result.stream().findFirst().get().getQuantityPerUnit());
+        BadRequestException ex = Assertions.assertThrows(BadRequestException.class, () -> foodService.findAll(filter, null, null, null));
 
-        verify(foodRepository).findAll();
+        assertEquals("The minimum price (20.0) is above the maximum price (5.0).", ex.getMessage());
+        verifyNoInteractions(foodRepository);
+    }
+
+    @Test
+    @DisplayName("find food dto by id - happy flow")
+    public void test_findDtoById_happyFlow() {
+        Long id = expectedFood.getId();
+        when(foodRepository.findById(id)).thenReturn(Optional.of(expectedFood));
+
+        FoodDto result = foodService.findDtoById(id);
+
+        assertEquals(id, result.getId());
+        assertEquals(expectedFood.getPrice(), result.getPrice());
+        assertEquals(expectedFood.getInventory().getId(), result.getInventoryDto().getId());
+        verify(foodRepository).findById(id);
+        verify(foodMapper).toDto(expectedFood);
+    }
+
+    @Test
+    @DisplayName("find food dto by id - food does not exist in database")
+    public void test_findDtoById_throwsEntityNotFoundException() {
+        Long id = expectedFood.getId();
+
+        when(foodRepository.findById(id)).thenReturn(Optional.empty());
+
+        EntityNotFoundException ex = Assertions.assertThrows(EntityNotFoundException.class, () -> foodService.findDtoById(id));
+
+        assertEquals(String.format("The food with id = %s does not exist in the database.", id), ex.getMessage());
     }
 
     @Test
@@ -108,12 +179,16 @@ class FoodServiceTest {
         Long id = expectedFood.getId();
 
         when(foodRepository.existsById(id)).thenReturn(true);
+        when(foodRepository.findInventoryIdById(id)).thenReturn(Optional.of(3L));
         doNothing().when(foodRepository).deleteById(id);
 
         foodService.deleteById(id);
 
         verify(foodRepository).existsById(id);
         verify(foodRepository).deleteById(id);
+        verify(productCatalogCache).evictProduct(3L, null);
+        verify(productSearchIndex).remove("food", id);
+        verify(resourceVersions).catalogChanged(null, null);
     }
 
     @Test
@@ -145,17 +220,20 @@ class FoodServiceTest {
 
         when(foodRepository.save(food)).thenReturn(expectedFood);
 
-        Food result = foodService.create(food);
+        FoodDto result = foodService.create(food);
 
         assertEquals(expectedFood.getId(), result.getId());
         assertEquals(expectedFood.getAnimal(), result.getAnimal());
         assertEquals(expectedFood.getBrand(), result.getBrand());
         assertEquals(expectedFood.getPrice(), result.getPrice());
-        assertEquals(expectedFood.getInventory(), result.getInventory());
+        assertEquals(expectedFood.getInventory().getId(), result.getInventoryDto().getId());
         assertEquals(expectedFood.getType(), result.getType());
         assertEquals(expectedFood.getQuantityPerUnit(), result.getQuantityPerUnit());
 
         verify(foodRepository).save(food);
+        verify(productCatalogCache).evictProduct(null, expectedFood.getInventory());
+        verify(productSearchIndex).index(expectedFood);
+        verify(resourceVersions).catalogChanged(null, null);
     }
 
     @Test
@@ -165,20 +243,24 @@ class FoodServiceTest {
         Long id = expectedFood.getId();
 
         when(foodRepository.existsById(id)).thenReturn(true);
+        when(foodRepository.findInventoryIdById(id)).thenReturn(Optional.of(3L));
         when(foodRepository.save(food)).thenReturn(expectedFood);
 
-        Food result = foodService.update(food);
+        FoodDto result = foodService.update(food);
 
         assertEquals(expectedFood.getId(), result.getId());
         assertEquals(expectedFood.getAnimal(), result.getAnimal());
         assertEquals(expectedFood.getBrand(), result.getBrand());
         assertEquals(expectedFood.getPrice(), result.getPrice());
-        assertEquals(expectedFood.getInventory(), result.getInventory());
+        assertEquals(expectedFood.getInventory().getId(), result.getInventoryDto().getId());
         assertEquals(expectedFood.getType(), result.getType());
         assertEquals(expectedFood.getQuantityPerUnit(), result.getQuantityPerUnit());
 
         verify(foodRepository).existsById(id);
         verify(foodRepository).save(food);
+        verify(productCatalogCache).evictProduct(3L, expectedFood.getInventory());
+        verify(productSearchIndex).index(expectedFood);
+        verify(resourceVersions).catalogChanged(expectedFood.getId(), expectedFood.getInventory().getId());
     }
 
     @Test
@@ -197,6 +279,22 @@ class FoodServiceTest {
         verify(foodRepository, times(0)).save(expectedFood);
     }
 
+    @Test
+    @DisplayName("update a food - a new inventory is not created through the food")
+    public void test_update_throwsBadRequestException_whenInventoryIsNew() {
+        Long id = expectedFood.getId();
+        expectedFood.setInventory(Inventory.builder().availableQuantity(100L).build());
+
+        when(foodRepository.existsById(id)).thenReturn(true);
+
+        BadRequestException ex = Assertions.assertThrows(BadRequestException.class, () ->
+                foodService.update(expectedFood));
+
+        assertThat(ex.getMessage()).isEqualTo("The inventory of an existing food item is given by its id, its stock is changed through /inventory.");
+
+        verify(foodRepository, times(0)).save(expectedFood);
+    }
+
     @Test
     @DisplayName("check if food exists in inventory - happy flow")
     void test_existsByInventoryId_happyFlow() {
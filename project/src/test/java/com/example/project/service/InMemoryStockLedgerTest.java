@@ -0,0 +1,231 @@
+package com.example.project.service;
+
+import com.example.project.repository.InventoryRepository;
+import com.example.project.repository.ItemRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InMemoryStockLedgerTest {
+
+    @Mock
+    private InventoryRepository inventoryRepository;
+
+    @Mock
+    private ItemRepository itemRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private ResourceVersions resourceVersions;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private InMemoryStockLedger stockLedger;
+
+    @BeforeEach
+    void setUp() {
+        stockLedger = new InMemoryStockLedger(inventoryRepository, itemRepository, jdbcTemplate, resourceVersions, transactionManager, 60_000L, 1_000);
+        when(inventoryRepository.findAllQuantities()).thenReturn(List.of(stock(1L, 10L), stock(2L, 3L)));
+        stockLedger.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("reserve - the stock is taken from memory without touching the database")
+    void test_reserve_happyFlow() {
+        assertThat(stockLedger.reserve(1L, 4L)).isTrue();
+        assertThat(stockLedger.reserve(1L, 7L)).isFalse();
+
+        assertEquals(6L, stockLedger.availableQuantity(1L));
+        verify(inventoryRepository, times(0)).adjustAvailableQuantity(any(), any());
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @DisplayName("reserve - concurrent reservations never oversell")
+    void test_reserve_concurrently() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger reserved = new AtomicInteger();
+        for (int i = 0; i < 100; i++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                if (stockLedger.reserve(1L, 1L)) {
+                    reserved.incrementAndGet();
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        assertEquals(10, reserved.get());
+        assertEquals(0L, stockLedger.availableQuantity(1L));
+    }
+
+    @Test
+    @DisplayName("reserve - inventories created after startup are loaded on first use")
+    void test_reserve_loadsUnknownInventory() {
+        when(inventoryRepository.findAvailableQuantityById(3L)).thenReturn(2L);
+        when(inventoryRepository.findAvailableQuantityById(4L)).thenReturn(null);
+
+        assertThat(stockLedger.reserve(3L, 2L)).isTrue();
+        assertThat(stockLedger.reserve(4L, 1L)).isFalse();
+
+        assertEquals(0L, stockLedger.availableQuantity(3L));
+    }
+
+    @Test
+    @DisplayName("available quantities - the quantities in memory, an inventory that does not exist is left out")
+    void test_availableQuantities_happyFlow() {
+        when(inventoryRepository.findAvailableQuantityById(4L)).thenReturn(null);
+        stockLedger.reserve(1L, 4L);
+
+        assertThat(stockLedger.availableQuantities(List.of(1L, 2L, 4L))).isEqualTo(Map.of(1L, 6L, 2L, 3L));
+        assertEquals(6L, stockLedger.availableQuantity(1L));
+    }
+
+    @Test
+    @DisplayName("reserve - the reservation is given back when the transaction rolls back")
+    void test_reserve_undoneOnRollback() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        assertThat(stockLedger.reserve(2L, 3L)).isTrue();
+        assertEquals(0L, stockLedger.availableQuantity(2L));
+
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertEquals(3L, stockLedger.availableQuantity(2L));
+    }
+
+    @Test
+    @DisplayName("overwrite - the quantity written through the inventory is only taken once the transaction commits")
+    void test_overwrite_appliedAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        stockLedger.overwrite(1L, 50L);
+        stockLedger.evict(2L);
+        assertEquals(10L, stockLedger.availableQuantity(1L));
+        assertEquals(3L, stockLedger.availableQuantity(2L));
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        assertEquals(50L, stockLedger.availableQuantity(1L));
+        assertThat(stockLedger.availableQuantity(2L)).isNull();
+    }
+
+    @Test
+    @DisplayName("flush - the changed inventories are written back in one batch, the lists change once they are")
+    @SuppressWarnings("unchecked")
+    void test_flush_writesChangedInventories() {
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+
+        stockLedger.reserve(1L, 4L);
+        stockLedger.release(2L, 5L);
+        stockLedger.flush();
+        stockLedger.flush();
+
+        ArgumentCaptor<Collection<Object[]>> rows = ArgumentCaptor.forClass(Collection.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), rows.capture(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+        List<Object[]> written = new ArrayList<>(rows.getValue());
+        assertEquals(2, written.size());
+        assertThat(written).anyMatch(row -> row[0].equals(6L) && row[1].equals(1L));
+        assertThat(written).anyMatch(row -> row[0].equals(8L) && row[1].equals(2L));
+        verify(transactionManager).commit(any());
+        verify(resourceVersions, times(1)).stockChanged();
+    }
+
+    @Test
+    @DisplayName("drain - pending changes are written on shutdown")
+    @SuppressWarnings("unchecked")
+    void test_drain_flushesPendingChanges() throws InterruptedException {
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+
+        stockLedger.reserve(1L, 1L);
+        stockLedger.drain();
+
+        verify(jdbcTemplate).batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+    }
+
+    @Test
+    @DisplayName("release purchase - the ordered quantities are read once and put back in memory")
+    void test_releasePurchase_happyFlow() {
+        when(itemRepository.findOrderedQuantitiesByPurchaseId(5L)).thenReturn(List.of(ordered(1L, 4L), ordered(2L, 1L)));
+
+        stockLedger.releasePurchase(5L);
+
+        assertEquals(14L, stockLedger.availableQuantity(1L));
+        assertEquals(4L, stockLedger.availableQuantity(2L));
+        verify(inventoryRepository, times(0)).restockPurchase(any());
+        verifyNoInteractions(jdbcTemplate, resourceVersions);
+    }
+
+    private ItemRepository.OrderedQuantity ordered(Long inventoryId, Long quantity) {
+        return new ItemRepository.OrderedQuantity() {
+            @Override
+            public Long getInventoryId() {
+                return inventoryId;
+            }
+
+            @Override
+            public Long getQuantity() {
+                return quantity;
+            }
+        };
+    }
+
+    private InventoryRepository.Stock stock(Long id, Long availableQuantity) {
+        return new InventoryRepository.Stock() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Long getAvailableQuantity() {
+                return availableQuantity;
+            }
+        };
+    }
+}
@@ -1,8 +1,13 @@
 package com.example.project.service;
 
+import com.example.project.dto.InventoryDto;
 import com.example.project.exception.EntityNotFoundException;
+import com.example.project.mapper.InventoryMapper;
+import com.example.project.mapper.InventoryMapperImpl;
 import com.example.project.model.*;
 import com.example.project.repository.InventoryRepository;
+import com.example.project.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -10,11 +15,16 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -27,13 +37,22 @@ class InventoryServiceTest {
     private InventoryRepository inventoryRepository;
 
     @Mock
-    private FoodService foodService;
+    private ProductRepository productRepository;
 
     @Mock
-    private ToyService toyService;
+    private StockLedger stockLedger;
 
     @Mock
-    private MedicineService medicineService;
+    private ResourceVersions resourceVersions;
+
+    @Spy
+    private ProductCatalogCache productCatalogCache = new ProductCatalogCache(new SimpleMeterRegistry(), 100);
+
+    @Spy
+    private KeysetPagination keysetPagination = new KeysetPagination(50, 500);
+
+    @Spy
+    private InventoryMapper inventoryMapper = new InventoryMapperImpl();
 
     @InjectMocks
     private InventoryService inventoryService;
@@ -45,9 +64,6 @@ class InventoryServiceTest {
         expectedInventory = Inventory.builder()
                 .id(1L)
                 .availableQuantity(121L)
-                .food(Food.builder().id(2L).build())
-                .toy(Toy.builder().id(3L).build())
-                .medicine(Medicine.builder().id(4L).build())
                 //.purchases()
                 .build();
     }
@@ -58,19 +74,16 @@ class InventoryServiceTest {
         List<Inventory> inventoryList = new ArrayList<>();
         inventoryList.add(expectedInventory);
 
-        when(inventoryRepository.findAll()).thenReturn(inventoryList);
+        when(inventoryRepository.findByIdGreaterThan(Long.MIN_VALUE, PageRequest.of(0, 51, Sort.by("id")))).thenReturn(inventoryList);
 
-        List<Inventory> result = inventoryService.findAll();
+        List<InventoryDto> result = inventoryService.findAll(null, null, null).getContent();
 
         assertEquals(inventoryList.size(), result.size());
         assertEquals(expectedInventory.getId(), result.stream().findFirst().get().getId());
-        assertEquals(expectedInventory.getFood(), result.stream().findFirst().get().getFood());
-        assertEquals(expectedInventory.getMedicine(), result.stream().findFirst().get().getMedicine());
-        assertEquals(expectedInventory.getToy(), result.stream().findFirst().get().getToy());
         assertEquals(expectedInventory.getAvailableQuantity(), result.stream().findFirst().get().getAvailableQuantity());
        // assertEquals(expectedInventory.getPurchases(), result.stream().findFirst().get().getPurchases());
 
-        verify(inventoryRepository).findAll();
+        verify(inventoryRepository).findByIdGreaterThan(Long.MIN_VALUE, PageRequest.of(0, 51, Sort.by("id")));
     }
     @Test
     @DisplayName("find inventory by id - happy flow")
@@ -82,9 +95,6 @@ class InventoryServiceTest {
         Inventory result = inventoryService.findById(id);
 
         assertEquals(expectedInventory.getId(), result.getId());
-        assertEquals(expectedInventory.getFood(), result.getFood());
-        assertEquals(expectedInventory.getToy(), result.getToy());
-        assertEquals(expectedInventory.getMedicine(), result.getMedicine());
         assertEquals(expectedInventory.getAvailableQuantity(), result.getAvailableQuantity());
         //assertEquals(expectedInventory.getPurchases(), result.getPurchases());
 
@@ -117,6 +127,9 @@ class InventoryServiceTest {
 
         verify(inventoryRepository).existsById(id);
         verify(inventoryRepository).deleteById(id);
+        verify(stockLedger).evict(id);
+        verify(productCatalogCache).evictInventory(id);
+        verify(resourceVersions).catalogChanged(null, null);
     }
 
     @Test
@@ -139,9 +152,6 @@ class InventoryServiceTest {
     public void test_create_happyFlow() {
         Inventory inventory = Inventory.builder()
                 .availableQuantity(121L)
-                .food(Food.builder().id(2L).build())
-                .toy(Toy.builder().id(3L).build())
-                .medicine(Medicine.builder().id(4L).build())
                 //.purchases()
                 .build();
 
@@ -150,9 +160,6 @@ class InventoryServiceTest {
         Inventory result = inventoryService.create(inventory);
 
         assertEquals(expectedInventory.getId(), result.getId());
-        assertEquals(expectedInventory.getFood(), result.getFood());
-        assertEquals(expectedInventory.getToy(), result.getToy());
-        assertEquals(expectedInventory.getMedicine(), result.getMedicine());
         assertEquals(expectedInventory.getAvailableQuantity(), result.getAvailableQuantity());
         //assertEquals(expectedInventory.getPurchases(), result.getPurchases());
 
@@ -168,17 +175,17 @@ class InventoryServiceTest {
         when(inventoryRepository.existsById(id)).thenReturn(true);
         when(inventoryRepository.save(inventory)).thenReturn(expectedInventory);
 
-        Inventory result = inventoryService.update(inventory);
+        InventoryDto result = inventoryService.update(inventory);
 
         assertEquals(expectedInventory.getId(), result.getId());
-        assertEquals(expectedInventory.getFood(), result.getFood());
-        assertEquals(expectedInventory.getToy(), result.getToy());
-        assertEquals(expectedInventory.getMedicine(), result.getMedicine());
         assertEquals(expectedInventory.getAvailableQuantity(), result.getAvailableQuantity());
         //assertEquals(expectedInventory.getPurchases(), result.getPurchases());
 
         verify(inventoryRepository).existsById(id);
         verify(inventoryRepository).save(inventory);
+        verify(stockLedger).overwrite(id, expectedInventory.getAvailableQuantity());
+        verify(productCatalogCache).evictInventory(id);
+        verify(resourceVersions).catalogChanged(null, id);
     }
 
     @Test
@@ -198,119 +205,138 @@ class InventoryServiceTest {
     }
 
     @Test
-    @DisplayName("find product for inventory - product is food")
-    void test_findProductForInventory_productIsFood() {
+    @DisplayName("reserve stock - enough items in inventory")
+    void test_reserve_happyFlow() {
         Long id = expectedInventory.getId();
 
-        when(inventoryRepository.existsById(id)).thenReturn(true);
-        when(foodService.existsByInventoryId(id)).thenReturn(true);
-        ProductType product = new ProductType("food", expectedInventory.getFood().getId());
-        when(foodService.findByInventoryId(id)).thenReturn(product.getId());
-
-        ProductType result = inventoryService.findProductForInventory(id);
+        when(stockLedger.reserve(id, 10L)).thenReturn(true);
 
-        assertEquals(product.getType(), result.getType());
-        assertEquals(product.getId(), result.getId());
-
-        verify(inventoryRepository).existsById(id);
-        verify(foodService).existsByInventoryId(id);
-        verify(foodService).findByInventoryId(id);
+        assertThat(inventoryService.reserve(id, 10L)).isTrue();
 
+        verify(stockLedger).reserve(id, 10L);
+        verify(inventoryRepository, times(0)).save(any());
     }
 
     @Test
-    @DisplayName("find product for inventory - product is toy")
-    void test_findProductForInventory_productIsToy() {
+    @DisplayName("reserve stock - not enough items in inventory")
+    void test_reserve_notEnoughStock() {
         Long id = expectedInventory.getId();
 
-        when(inventoryRepository.existsById(id)).thenReturn(true);
-        when(foodService.existsByInventoryId(id)).thenReturn(false);
-        when(toyService.existsByInventoryId(id)).thenReturn(true);
-        ProductType product = new ProductType("toy", expectedInventory.getToy().getId());
-        when(toyService.findByInventoryId(id)).thenReturn(product.getId());
+        when(stockLedger.reserve(id, 500L)).thenReturn(false);
 
-        ProductType result = inventoryService.findProductForInventory(id);
-
-        assertEquals(product.getType(), result.getType());
-        assertEquals(product.getId(), result.getId());
+        assertThat(inventoryService.reserve(id, 500L)).isFalse();
 
-        verify(inventoryRepository).existsById(id);
-        verify(foodService).existsByInventoryId(id);
-        verify(toyService).existsByInventoryId(id);
-        verify(toyService).findByInventoryId(id);
-        verify(foodService, times(0)).findByInventoryId(id);
+        verify(stockLedger).reserve(id, 500L);
     }
 
     @Test
-    @DisplayName("find product for inventory - product is medicine")
-    void test_findProductForInventory_productIsMedicine() {
+    @DisplayName("restock - happy flow")
+    void test_restock_happyFlow() {
         Long id = expectedInventory.getId();
 
-        when(inventoryRepository.existsById(id)).thenReturn(true);
-        when(foodService.existsByInventoryId(id)).thenReturn(false);
-        when(toyService.existsByInventoryId(id)).thenReturn(false);
-        when(medicineService.existsByInventoryId(id)).thenReturn(true);
-        ProductType product = new ProductType("medicine", expectedInventory.getMedicine().getId());
-        when(medicineService.findByInventoryId(id)).thenReturn(product.getId());
+        when(stockLedger.release(id, 10L)).thenReturn(true);
 
-        ProductType result = inventoryService.findProductForInventory(id);
+        inventoryService.restock(id, 10L);
 
-        assertEquals(product.getType(), result.getType());
-        assertEquals(product.getId(), result.getId());
-
-        verify(inventoryRepository).existsById(id);
-        verify(foodService).existsByInventoryId(id);
-        verify(toyService).existsByInventoryId(id);
-        verify(medicineService).existsByInventoryId(id);
-        verify(medicineService).findByInventoryId(id);
-        verify(toyService, times(0)).findByInventoryId(id);
-        verify(foodService, times(0)).findByInventoryId(id);
+        verify(stockLedger).release(id, 10L);
     }
 
     @Test
-    @DisplayName("find product for inventory - inventory is not food, medicine or toy ")
-    public void test_throwsEntityNotFoundException_whenInventoryIsNotFoodInventoryToy() {
+    @DisplayName("restock - inventory does not exist in database")
+    void test_restock_throwsEntityNotFoundException_whenInventoryNotFound() {
         Long id = expectedInventory.getId();
 
-        when(inventoryRepository.existsById(id)).thenReturn(true);
-        when(foodService.existsByInventoryId(id)).thenReturn(false);
-        when(toyService.existsByInventoryId(id)).thenReturn(false);
-        when(medicineService.existsByInventoryId(id)).thenReturn(false);
+        when(stockLedger.release(id, 10L)).thenReturn(false);
 
         EntityNotFoundException ex = Assertions.assertThrows(EntityNotFoundException.class, () ->
-                inventoryService.findProductForInventory(id));
-
+                inventoryService.restock(id, 10L));
         assertThat(ex.getMessage()).isEqualTo(String.format("The inventory with id = %s does not exist in the database.", id.toString()));
-;
+    }
 
-        verify(inventoryRepository).existsById(id);
-        verify(foodService).existsByInventoryId(id);
-        verify(toyService).existsByInventoryId(id);
-        verify(medicineService).existsByInventoryId(id);
-        verify(medicineService, times(0)).findByInventoryId(id);
-        verify(toyService, times(0)).findByInventoryId(id);
-        verify(foodService, times(0)).findByInventoryId(id);
+    @Test
+    @DisplayName("restock purchase - delegated to the stock ledger")
+    void test_restockPurchase_happyFlow() {
+        inventoryService.restockPurchase(5L);
+
+        verify(stockLedger).releasePurchase(5L);
     }
 
     @Test
-    @DisplayName("find product for inventory - product does not exist in database")
+    @DisplayName("find product for inventory - product is food")
+    void test_findProductForInventory_productIsFood() {
+        assertProductFound(new ProductType("food", 2L, 10F, expectedInventory.getId()));
+    }
+
+    @Test
+    @DisplayName("find product for inventory - product is toy")
+    void test_findProductForInventory_productIsToy() {
+        assertProductFound(new ProductType("toy", 3L, 10F, expectedInventory.getId()));
+    }
+
+    @Test
+    @DisplayName("find product for inventory - product is medicine")
+    void test_findProductForInventory_productIsMedicine() {
+        assertProductFound(new ProductType("medicine", 4L, 10F, expectedInventory.getId()));
+    }
+
+    @Test
+    @DisplayName("find product for inventory - no product (or no inventory) in database")
     public void test_throwsEntityNotFoundException_whenInventoryNotFound() {
         Long id = expectedInventory.getId();
 
-        when(inventoryRepository.existsById(id)).thenReturn(false);
+        when(productRepository.findProductTypeByInventoryId(id)).thenReturn(Optional.empty());
 
         EntityNotFoundException ex = Assertions.assertThrows(EntityNotFoundException.class, () ->
                 inventoryService.findProductForInventory(id));
 
         assertThat(ex.getMessage()).isEqualTo(String.format("The inventory with id = %s does not exist in the database.", id.toString()));
-        ;
 
-        verify(inventoryRepository).existsById(id);
-        verify(foodService, times(0)).existsByInventoryId(id);
-        verify(toyService, times(0)).existsByInventoryId(id);
-        verify(medicineService, times(0)).existsByInventoryId(id);
-        verify(medicineService, times(0)).findByInventoryId(id);
-        verify(toyService, times(0)).findByInventoryId(id);
-        verify(foodService, times(0)).findByInventoryId(id);
+        verify(productRepository).findProductTypeByInventoryId(id);
+        verify(inventoryRepository, times(0)).existsById(id);
+    }
+
+    @Test
+    @DisplayName("find products for inventories - a single lookup for every kind of product")
+    void test_findProductsForInventories_happyFlow() {
+        List<Long> ids = List.of(1L, 2L, 3L);
+        Set<Long> missing = Set.of(1L, 2L, 3L);
+        ProductType food = new ProductType("food", 2L, 10F, 1L);
+        ProductType toy = new ProductType("toy", 3L, 20F, 2L);
+
+        when(productRepository.findProductTypesByInventoryIds(missing)).thenReturn(List.of(food, toy));
+
+        Map<Long, ProductType> result = inventoryService.findProductsForInventories(ids);
+
+        assertEquals(2, result.size());
+        assertEquals(food, result.get(1L));
+        assertEquals(toy, result.get(2L));
+
+        verify(productRepository, times(1)).findProductTypesByInventoryIds(missing);
+    }
+
+    @Test
+    @DisplayName("find products for inventories - cached inventories cost no query")
+    void test_findProductsForInventories_cached() {
+        ProductType food = new ProductType("food", 2L, 10F, 1L);
+        when(productRepository.findProductTypesByInventoryIds(Set.of(1L))).thenReturn(List.of(food));
+
+        inventoryService.findProductsForInventories(List.of(1L));
+        Map<Long, ProductType> result = inventoryService.findProductsForInventories(List.of(1L));
+
+        assertEquals(food, result.get(1L));
+        verify(productRepository, times(1)).findProductTypesByInventoryIds(Set.of(1L));
+    }
+
+    private void assertProductFound(ProductType product) {
+        Long id = expectedInventory.getId();
+        when(productRepository.findProductTypeByInventoryId(id)).thenReturn(Optional.of(product));
+
+        ProductType result = inventoryService.findProductForInventory(id);
+
+        assertEquals(product.getType(), result.getType());
+        assertEquals(product.getId(), result.getId());
+
+        verify(productRepository, times(1)).findProductTypeByInventoryId(id);
+        verifyNoMoreInteractions(productRepository, inventoryRepository);
     }
-}
\ No newline at end of file
+}
@@ -108,4 +108,15 @@ class ItemServiceTest {
         verify(itemRepository).existsById(id);
         verify(itemRepository, times(0)).deleteById(id);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("delete items by purchase id - one bulk delete")
+    public void test_deleteByPurchaseId_happyFlow() {
+        when(itemRepository.deleteByPurchaseId(5L)).thenReturn(3);
+
+        assertEquals(3, itemService.deleteByPurchaseId(5L));
+
+        verify(itemRepository).deleteByPurchaseId(5L);
+        verify(itemRepository, times(0)).findByPurchaseId(5L);
+    }
+}
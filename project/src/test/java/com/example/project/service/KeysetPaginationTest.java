@@ -0,0 +1,102 @@
+package com.example.project.service;
+
+import com.example.project.exception.BadRequestException;
+import com.example.project.model.Client;
+import com.example.project.model.KeysetPage;
+import com.example.project.repository.KeysetRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class KeysetPaginationTest {
+
+    @Mock
+    private KeysetRepository<Client> clientRepository;
+
+    private final KeysetPagination keysetPagination = new KeysetPagination(2, 3);
+
+    @Test
+    @DisplayName("page - the next page starts after the last id of the previous one")
+    void test_page_nextCursor() {
+        when(clientRepository.findByIdGreaterThan(Long.MIN_VALUE, PageRequest.of(0, 3, Sort.by("id"))))
+                .thenReturn(List.of(client(1L), client(4L), client(7L)));
+        when(clientRepository.findByIdGreaterThan(4L, PageRequest.of(0, 3, Sort.by("id"))))
+                .thenReturn(List.of(client(7L)));
+
+        KeysetPage<Client> first = keysetPagination.page(clientRepository, Client::getId, null, null, null);
+        KeysetPage<Client> second = keysetPagination.page(clientRepository, Client::getId, first.getNextCursor(), null, null);
+
+        assertThat(first.getContent()).extracting(Client::getId).containsExactly(1L, 4L);
+        assertThat(second.getContent()).extracting(Client::getId).containsExactly(7L);
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("page - descending pages walk the ids down")
+    void test_page_descending() {
+        when(clientRepository.findByIdLessThan(Long.MAX_VALUE, PageRequest.of(0, 2, Sort.by("id").descending())))
+                .thenReturn(List.of(client(9L), client(5L)));
+        when(clientRepository.findByIdLessThan(9L, PageRequest.of(0, 2, Sort.by("id").descending())))
+                .thenReturn(List.of(client(5L)));
+
+        KeysetPage<Client> first = keysetPagination.page(clientRepository, Client::getId, null, 1, "-id");
+        KeysetPage<Client> second = keysetPagination.page(clientRepository, Client::getId, first.getNextCursor(), 1, "-id");
+
+        assertThat(first.getContent()).extracting(Client::getId).containsExactly(9L);
+        assertThat(second.getContent()).extracting(Client::getId).containsExactly(5L);
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("page - the size is bounded by max-size")
+    void test_page_sizeTooLarge() {
+        BadRequestException ex = assertThrows(BadRequestException.class, () ->
+                keysetPagination.page(clientRepository, Client::getId, null, 4, null));
+
+        assertEquals("The page size must be between 1 and 3.", ex.getMessage());
+        verifyNoInteractions(clientRepository);
+    }
+
+    @Test
+    @DisplayName("page - only id and -id are accepted as sort")
+    void test_page_unknownSort() {
+        BadRequestException ex = assertThrows(BadRequestException.class, () ->
+                keysetPagination.page(clientRepository, Client::getId, null, null, "name"));
+
+        assertEquals("The list can only be sorted by id or -id.", ex.getMessage());
+        verifyNoInteractions(clientRepository);
+    }
+
+    @Test
+    @DisplayName("page - a cursor cannot be reused with another sort or tampered with")
+    void test_page_invalidCursor() {
+        when(clientRepository.findByIdGreaterThan(Long.MIN_VALUE, PageRequest.of(0, 2, Sort.by("id"))))
+                .thenReturn(List.of(client(1L), client(2L)));
+        String cursor = keysetPagination.page(clientRepository, Client::getId, null, 1, null).getNextCursor();
+
+        BadRequestException otherSort = assertThrows(BadRequestException.class, () ->
+                keysetPagination.page(clientRepository, Client::getId, cursor, 1, "-id"));
+        BadRequestException tampered = assertThrows(BadRequestException.class, () ->
+                keysetPagination.page(clientRepository, Client::getId, "not a cursor", 1, null));
+
+        assertEquals("The cursor was not issued for sort = -id.", otherSort.getMessage());
+        assertEquals("The cursor is not valid.", tampered.getMessage());
+    }
+
+    private Client client(Long id) {
+        return Client.builder().id(id).build();
+    }
+}
@@ -1,8 +1,14 @@
 package com.example.project.service;
 
+import com.example.project.dto.MedicineDto;
+import com.example.project.exception.BadRequestException;
 import com.example.project.exception.EntityNotFoundException;
+import com.example.project.mapper.MedicineMapper;
+import com.example.project.mapper.MedicineMapperImpl;
 import com.example.project.model.Inventory;
+import com.example.project.model.KeysetPage;
 import com.example.project.model.Medicine;
+import com.example.project.model.ProductFilter;
 import com.example.project.repository.MedicineRepository;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,7 +17,10 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -19,6 +28,7 @@ import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,6 +37,21 @@ class MedicineServiceTest {
     @Mock
     private MedicineRepository medicineRepository;
 
+    @Mock
+    private ProductCatalogCache productCatalogCache;
+
+    @Mock
+    private ProductSearchIndex productSearchIndex;
+
+    @Mock
+    private ResourceVersions resourceVersions;
+
+    @Spy
+    private KeysetPagination keysetPagination = new KeysetPagination(50, 500);
+
+    @Spy
+    private MedicineMapper medicineMapper = new MedicineMapperImpl();
+
     @InjectMocks
     private MedicineService medicineService;
 
@@ -46,21 +71,43 @@ class MedicineServiceTest {
     @Test
     @DisplayName("find all medicine - happy flow")
     public void test_findAll_happyFlow() {
-        List<Medicine> medicineList = new ArrayList<>();
-        medicineList.add(expectedMedicine);
+        MedicineDto medicineDto = MedicineDto.builder().id(expectedMedicine.getId()).build();
+        when(medicineRepository.findDtosByIdGreaterThan(Long.MIN_VALUE, PageRequest.of(0, 51, Sort.by("id")))).thenReturn(List.of(medicineDto));
+
+        KeysetPage<MedicineDto> result = medicineService.findAll(ProductFilter.builder().build(), null, null, null);
 
-        when(medicineRepository.findAll()).thenReturn(medicineList);
+        assertEquals(List.of(medicineDto), result.getContent());
+        assertNull(result.getNextCursor());
 
-        List<Medicine> result = medicineService.findAll();
+        verify(medicineRepository).findDtosByIdGreaterThan(Long.MIN_VALUE, PageRequest.of(0, 51, Sort.by("id")));
+        verify(medicineRepository, times(0)).findAll();
+    }
+
+    @Test
+    @DisplayName("find medicine dto by id - happy flow")
+    public void test_findDtoById_happyFlow() {
+        Long id = expectedMedicine.getId();
+        when(medicineRepository.findById(id)).thenReturn(Optional.of(expectedMedicine));
 
-        assertEquals(medicineList.size(), result.size());
-        assertEquals(expectedMedicine.getId(), result.stream().findFirst().get().getId());
-        assertEquals(expectedMedicine.getAnimal(), result.stream().findFirst().get().getAnimal());
-        assertEquals(expectedMedicine.getPrice(), result.stream().findFirst().get().getPrice());
-        assertEquals(expectedMedicine.getPurpose(), result.stream().findFirst().get().getPurpose());
-        assertEquals(expectedMedicine.getInventory(), result.stream().findFirst().get().getInventory());
+        MedicineDto result = medicineService.findDtoById(id);
 
-        verify(medicineRepository).findAll();
+        assertEquals(id, result.getId());
+        assertEquals(expectedMedicine.getPrice(), result.getPrice());
+        assertEquals(expectedMedicine.getInventory().getId(), result.getInventoryDto().getId());
+        verify(medicineRepository).findById(id);
+        verify(medicineMapper).toDto(expectedMedicine);
+    }
+
+    @Test
+    @DisplayName("find medicine dto by id - medicine does not exist in database")
+    public void test_findDtoById_throwsEntityNotFoundException() {
+        Long id = expectedMedicine.getId();
+
+        when(medicineRepository.findById(id)).thenReturn(Optional.empty());
+
+        EntityNotFoundException ex = Assertions.assertThrows(EntityNotFoundException.class, () -> medicineService.findDtoById(id));
+
+        assertEquals(String.format("The medicine with id = %s does not exist in the database.", id), ex.getMessage());
     }
 
     @Test
@@ -100,12 +147,16 @@ class MedicineServiceTest {
         Long id = expectedMedicine.getId();
 
         when(medicineRepository.existsById(id)).thenReturn(true);
+        when(medicineRepository.findInventoryIdById(id)).thenReturn(Optional.of(3L));
         doNothing().when(medicineRepository).deleteById(id);
 
         medicineService.deleteById(id);
 
         verify(medicineRepository).existsById(id);
         verify(medicineRepository).deleteById(id);
+        verify(productCatalogCache).evictProduct(3L, null);
+        verify(productSearchIndex).remove("medicine", id);
+        verify(resourceVersions).catalogChanged(null, null);
     }
 
     @Test
@@ -135,14 +186,17 @@ class MedicineServiceTest {
 
         when(medicineRepository.save(medicine)).thenReturn(expectedMedicine);
 
-        Medicine result = medicineService.create(medicine);
+        MedicineDto result = medicineService.create(medicine);
 
         assertEquals(expectedMedicine.getId(), result.getId());
         assertEquals(expectedMedicine.getPrice(), result.getPrice());
         assertEquals(expectedMedicine.getPurpose(), result.getPurpose());
         assertEquals(expectedMedicine.getAnimal(), result.getAnimal());
-        assertEquals(expectedMedicine.getInventory(), result.getInventory());
+        assertEquals(expectedMedicine.getInventory().getId(), result.getInventoryDto().getId());
         verify(medicineRepository).save(medicine);
+        verify(productCatalogCache).evictProduct(null, expectedMedicine.getInventory());
+        verify(productSearchIndex).index(expectedMedicine);
+        verify(resourceVersions).catalogChanged(null, null);
     }
 
     @Test
@@ -152,9 +206,10 @@ class MedicineServiceTest {
         Long id = expectedMedicine.getId();
 
         when(medicineRepository.existsById(id)).thenReturn(true);
+        when(medicineRepository.findInventoryIdById(id)).thenReturn(Optional.of(3L));
         when(medicineRepository.save(medicine)).thenReturn(expectedMedicine);
 
-        Medicine result = medicineService.update(medicine);
+        MedicineDto result = medicineService.update(medicine);
 
         assertEquals(expectedMedicine.getId(), result.getId());
         assertEquals(expectedMedicine.getAnimal(), result.getAnimal());
@@ -163,6 +218,9 @@ class MedicineServiceTest {
 
         verify(medicineRepository).existsById(id);
         verify(medicineRepository).save(medicine);
+        verify(productCatalogCache).evictProduct(3L, expectedMedicine.getInventory());
+        verify(productSearchIndex).index(expectedMedicine);
+        verify(resourceVersions).catalogChanged(expectedMedicine.getId(), expectedMedicine.getInventory().getId());
     }
 
     @Test
@@ -181,6 +239,22 @@ class MedicineServiceTest {
         verify(medicineRepository, times(0)).save(expectedMedicine);
     }
 
+    @Test
+    @DisplayName("update a medicine - a new inventory is not created through the medicine")
+    public void test_update_throwsBadRequestException_whenInventoryIsNew() {
+        Long id = expectedMedicine.getId();
+        expectedMedicine.setInventory(Inventory.builder().availableQuantity(100L).build());
+
+        when(medicineRepository.existsById(id)).thenReturn(true);
+
+        BadRequestException ex = Assertions.assertThrows(BadRequestException.class, () ->
+                medicineService.update(expectedMedicine));
+
+        assertThat(ex.getMessage()).isEqualTo("The inventory of an existing medicine item is given by its id, its stock is changed through /inventory.");
+
+        verify(medicineRepository, times(0)).save(expectedMedicine);
+    }
+
     @Test
     @DisplayName("check if medicine exists in inventory - happy flow")
     void test_existsByInventoryId_happyFlow() {
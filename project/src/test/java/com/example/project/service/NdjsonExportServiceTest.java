@@ -0,0 +1,103 @@
+package com.example.project.service;
+
+import com.example.project.dto.ClientDto;
+import com.example.project.mapper.PurchaseMapperImpl;
+import com.example.project.model.Client;
+import com.example.project.model.Inventory;
+import com.example.project.model.Item;
+import com.example.project.model.Purchase;
+import com.example.project.repository.StatementRecorder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {"spring.jpa.database=h2", "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false", "spring.flyway.enabled=false"})
+@Import(StatementRecorder.class)
+class NdjsonExportServiceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private StatementRecorder statements;
+
+    @Test
+    @DisplayName("export all - one line per row, in id order, read a chunk at a time")
+    void test_exportAll() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            entityManager.persist(Client.builder().email("client" + i + "@mail.com").build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statements.clear();
+        NdjsonExportService exportService = new NdjsonExportService(entityManager.getEntityManager(), transactionManager,
+                new ObjectMapper(), 2, 1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        List<Client> exported = new ArrayList<>();
+
+        exportService.exportAll(Client.class, null, Client::getId, client -> {
+            exported.add(client);
+            return ClientDto.builder().email(client.getEmail()).build();
+        }, out);
+
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().collect(Collectors.toList());
+        assertEquals(5, lines.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals("client" + i + "@mail.com", new ObjectMapper().readValue(lines.get(i), ClientDto.class).getEmail());
+        }
+        // 2 + 2 + 1 rows, the short chunk ends the export
+        assertEquals(3, statements.startingWith("select").size());
+        // the exported clients are not kept in the persistence context
+        assertFalse(exported.stream().anyMatch(client -> entityManager.getEntityManager().contains(client)));
+    }
+
+    @Test
+    @DisplayName("export all purchases - three selects per chunk: purchases with client, their items, the items' inventories")
+    void test_exportAll_purchasesBoundedSelects() throws Exception {
+        Client client = entityManager.persist(Client.builder().email("client@mail.com").build());
+        for (int i = 0; i < 5; i++) {
+            List<Item> items = new ArrayList<>();
+            Purchase purchase = Purchase.builder().price(10F).time(LocalDateTime.now()).client(client).products(items).build();
+            for (int j = 0; j < 2; j++) {
+                Inventory inventory = entityManager.persist(Inventory.builder().availableQuantity(5L).build());
+                items.add(Item.builder().orderedQuantity(1L).inventory(inventory).purchase(purchase).build());
+            }
+            entityManager.persist(purchase);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statements.clear();
+        NdjsonExportService exportService = new NdjsonExportService(entityManager.getEntityManager(), transactionManager,
+                new ObjectMapper().findAndRegisterModules(), 2, 1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.exportAll(Purchase.class, "Purchase.client", Purchase::getId, new PurchaseMapperImpl()::toDto, out);
+
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().collect(Collectors.toList());
+        assertEquals(5, lines.size());
+        assertTrue(lines.stream().allMatch(line -> line.contains("client@mail.com") && line.contains("\"availableQuantity\":5")));
+        // chunks of 2 + 2 + 1 purchases
+        assertEquals(9, statements.startingWith("select").size());
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.project.service;
+
+import com.example.project.model.Inventory;
+import com.example.project.model.ProductType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProductCatalogCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Map<Long, ProductType> catalog = new HashMap<>();
+    private SimpleMeterRegistry meterRegistry;
+    private ProductCatalogCache productCatalogCache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        productCatalogCache = new ProductCatalogCache(meterRegistry, 2);
+        catalog.put(1L, new ProductType("food", 10L, 5F, 1L));
+        catalog.put(2L, new ProductType("toy", 20L, 7F, 2L));
+        catalog.put(3L, new ProductType("medicine", 30L, 9F, 3L));
+    }
+
+    @Test
+    @DisplayName("get all - only the inventories that are not cached are loaded, hits and misses are counted")
+    void test_getAll_loadsMissingOnly() {
+        productCatalogCache.getAll(List.of(1L), this::load);
+        Map<Long, ProductType> products = productCatalogCache.getAll(List.of(1L, 2L), this::load);
+
+        assertEquals(2, products.size());
+        assertEquals(2, loads.get());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "product_catalog").tag("result", "hit").functionCounter().count());
+        assertEquals(2.0, meterRegistry.get("cache.gets").tag("cache", "product_catalog").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("get all - an inventory without a product is not cached")
+    void test_getAll_unknownInventoryNotCached() {
+        productCatalogCache.getAll(List.of(4L), this::load);
+        productCatalogCache.getAll(List.of(4L), this::load);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("evict product - the entry of the previous inventory is dropped when the product moved to another one")
+    void test_evictProduct() {
+        productCatalogCache.getAll(List.of(1L, 2L), this::load);
+        catalog.put(1L, new ProductType("food", 10L, 6F, 1L));
+
+        productCatalogCache.evictProduct(1L, Inventory.builder().id(5L).build());
+
+        assertEquals(6F, productCatalogCache.getAll(List.of(1L), this::load).get(1L).getPrice());
+        productCatalogCache.getAll(List.of(2L), this::load);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("get all - a lookup that overlapped an eviction does not store the old price")
+    void test_getAll_evictedDuringLoad() {
+        productCatalogCache.getAll(List.of(1L), ids -> {
+            Map<Long, ProductType> stale = load(ids);
+            productCatalogCache.evictInventory(1L);
+            return stale;
+        });
+
+        productCatalogCache.getAll(List.of(1L), this::load);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("get all - the cache is bounded")
+    void test_getAll_bounded() {
+        productCatalogCache.getAll(List.of(1L, 2L, 3L), this::load);
+
+        assertThat(productCatalogCache.size()).isLessThanOrEqualTo(2);
+    }
+
+    private Map<Long, ProductType> load(Set<Long> ids) {
+        loads.incrementAndGet();
+        return ids.stream().filter(catalog::containsKey).collect(Collectors.toMap(id -> id, catalog::get));
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.project.service;
+
+import com.example.project.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+// run with -Dbenchmark=true, searches a catalog of 100k products (a common word, a rare one, typos) and rebuilds it
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@ExtendWith(MockitoExtension.class)
+class ProductSearchBenchmarkTest {
+
+    private static final int PRODUCTS = 100_000;
+    private static final int WARMUP = 2_000;
+    private static final int ROUNDS = 10_000;
+    private static final List<String> ANIMALS = List.of("pisica", "caine", "papagal", "hamster", "iepure", "peste", "broasca", "sarpe");
+    private static final List<String> SYLLABLES = List.of("ka", "ro", "mi", "ve", "lu", "pa", "to", "ni", "se", "bo");
+    private static final List<String> TYPES = List.of("uscata", "umeda", "conserva", "recompense", "vitamine", "jucarie", "zgarda");
+
+    @Mock
+    private ProductRepository productRepository;
+
+    private ProductSearchIndex productSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        when(productRepository.findIdRange()).thenReturn(ProductSearchIndexTest.range(1L, (long) PRODUCTS));
+        when(productRepository.findSearchTextByIdBetween(anyLong(), anyLong())).thenAnswer(invocation -> LongStream
+                .rangeClosed(invocation.getArgument(0), invocation.getArgument(1))
+                .mapToObj(id -> ProductSearchIndexTest.text(List.of("food", "toy", "medicine").get((int) (id % 3)), id,
+                        ANIMALS.get((int) (id % ANIMALS.size())), brand(id % 2_000), TYPES.get((int) (id % TYPES.size())), null))
+                .collect(Collectors.toList()));
+        productSearchIndex = new ProductSearchIndex(productRepository, 4, 20, 100);
+        long start = System.nanoTime();
+        productSearchIndex.rebuild();
+        System.out.printf("%-28s %8d ms%n", "rebuild", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Test
+    @DisplayName("benchmark - a search of the 100k products answers in well under a millisecond")
+    void benchmark_search() {
+        assertThat(measure("rare word", brand(1234))).isLessThan(1_000_000);
+        assertThat(measure("rare word with a typo", "vpaemilu")).isLessThan(1_000_000);
+        assertThat(measure("two words, one common", "pisica " + brand(1234))).isLessThan(1_000_000);
+        assertThat(measure("common word with a typo", "pisca")).isLessThan(1_000_000);
+    }
+
+    // 2000 made up brand names of 4 to 8 letters
+    private static String brand(long number) {
+        StringBuilder brand = new StringBuilder(SYLLABLES.get((int) (number % 10)));
+        for (long rest = number / 10; rest > 0; rest /= 10) {
+            brand.append(SYLLABLES.get((int) (rest % 10)));
+        }
+        return brand.toString();
+    }
+
+    private long measure(String name, String query) {
+        for (int i = 0; i < WARMUP; i++) {
+            productSearchIndex.search(query, null);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            assertThat(productSearchIndex.search(query, null)).isNotEmpty();
+        }
+        long nanos = (System.nanoTime() - start) / ROUNDS;
+        System.out.printf("%-28s %8d us/search%n", name, nanos / 1000);
+        return nanos;
+    }
+}
@@ -0,0 +1,274 @@
+package com.example.project.service;
+
+import com.example.project.dto.ProductSearchHitDto;
+import com.example.project.exception.BadRequestException;
+import com.example.project.model.Food;
+import com.example.project.model.Medicine;
+import com.example.project.model.Toy;
+import com.example.project.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductSearchIndexTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    private ProductSearchIndex productSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        productSearchIndex = new ProductSearchIndex(productRepository, 4, 20, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("rebuild - the id range is read in one slice per thread, every product is indexed")
+    void test_rebuild_slices() {
+        when(productRepository.findIdRange()).thenReturn(range(1L, 100L));
+        when(productRepository.findSearchTextByIdBetween(anyLong(), anyLong())).thenAnswer(invocation -> LongStream
+                .rangeClosed(invocation.getArgument(0), invocation.getArgument(1))
+                .mapToObj(id -> text("food", id, "pisica", "brand " + id, "uscata", null))
+                .collect(Collectors.toList()));
+
+        productSearchIndex.rebuild();
+
+        assertEquals(100, productSearchIndex.size());
+        assertThat(productSearchIndex.search("uscata", 100)).hasSize(100);
+        verify(productRepository).findSearchTextByIdBetween(1L, 25L);
+        verify(productRepository).findSearchTextByIdBetween(26L, 50L);
+        verify(productRepository).findSearchTextByIdBetween(51L, 75L);
+        verify(productRepository).findSearchTextByIdBetween(76L, 100L);
+    }
+
+    @Test
+    @DisplayName("rebuild - a write committed while the table is read is kept")
+    void test_rebuild_keepsConcurrentWrites() {
+        productSearchIndex.index(toy(7L, "caine", "minge"));
+        when(productRepository.findIdRange()).thenReturn(range(1L, 2L));
+        when(productRepository.findSearchTextByIdBetween(anyLong(), anyLong())).thenAnswer(invocation -> {
+            productSearchIndex.remove("toy", 7L);
+            productSearchIndex.index(food(3L, "pisica", "whiskas", "umeda"));
+            return List.of(text("toy", 7L, "caine", "minge", null, null));
+        });
+
+        productSearchIndex.rebuild();
+
+        assertThat(productSearchIndex.search("minge", null)).isEmpty();
+        assertThat(productSearchIndex.search("whiskas", null)).extracting(ProductSearchHitDto::getId).containsExactly(3L);
+    }
+
+    @Test
+    @DisplayName("search - the products that match more and rarer words come first, equal scores by id")
+    void test_search_ranked() {
+        productSearchIndex.index(food(1L, "pisica", "whiskas", "uscata"));
+        productSearchIndex.index(food(2L, "caine", "pedigree", "uscata"));
+        productSearchIndex.index(food(3L, "pisica", "pedigree", "umeda"));
+        productSearchIndex.index(toy(4L, "pisica", "kong"));
+
+        List<ProductSearchHitDto> hits = productSearchIndex.search("pisica uscata whiskas", null);
+
+        assertThat(hits).extracting(ProductSearchHitDto::getId).containsExactly(1L, 2L, 3L, 4L);
+        assertThat(hits.get(0).getScore()).isGreaterThan(hits.get(1).getScore());
+        assertEquals(hits.get(2).getScore(), hits.get(3).getScore());
+        assertEquals("whiskas", hits.get(0).getBrand());
+        assertEquals("food", hits.get(0).getProductType());
+        assertEquals(10F, hits.get(0).getPrice());
+    }
+
+    @Test
+    @DisplayName("search - letters missing, added, changed or swapped are tolerated, fewer in short words, an exact match ranks higher")
+    void test_search_typos() {
+        productSearchIndex.index(food(1L, "pisica", "whiskas", "uscata"));
+        productSearchIndex.index(medicine(2L, "caine", "antiparazitar"));
+        productSearchIndex.index(toy(3L, "caine", "kong"));
+
+        assertThat(productSearchIndex.search("pisca", null)).extracting(ProductSearchHitDto::getId).containsExactly(1L);
+        assertThat(productSearchIndex.search("wihskas", null)).extracting(ProductSearchHitDto::getId).containsExactly(1L);
+        assertThat(productSearchIndex.search("antiparazitr", null)).extracting(ProductSearchHitDto::getId).containsExactly(2L);
+        assertThat(productSearchIndex.search("antiparasitat", null)).extracting(ProductSearchHitDto::getId).containsExactly(2L);
+        assertThat(productSearchIndex.search("knog", null)).extracting(ProductSearchHitDto::getId).containsExactly(3L);
+        assertThat(productSearchIndex.search("kon", null)).isEmpty();
+        assertThat(productSearchIndex.search("axtiparazxtxr", null)).isEmpty();
+        assertThat(productSearchIndex.search("caine kong", null).get(0).getScore())
+                .isGreaterThan(productSearchIndex.search("caine kong", null).get(1).getScore());
+    }
+
+    @Test
+    @DisplayName("search - case and diacritics are ignored, in the products and in the query")
+    void test_search_normalized() {
+        productSearchIndex.index(toy(1L, "Câine", "Kong"));
+        productSearchIndex.index(medicine(2L, "pisică", "Durere de burtă"));
+
+        assertThat(productSearchIndex.search("CAINE", null)).extracting(ProductSearchHitDto::getId).containsExactly(1L);
+        assertThat(productSearchIndex.search("burta", null)).extracting(ProductSearchHitDto::getId).containsExactly(2L);
+        assertThat(productSearchIndex.search("pisică", null)).extracting(ProductSearchHitDto::getId).containsExactly(2L);
+        assertEquals("Câine", productSearchIndex.search("caine", null).get(0).getAnimal());
+    }
+
+    @Test
+    @DisplayName("index - an updated product is found by its new words only, a removed one not at all")
+    void test_index_updateAndRemove() {
+        productSearchIndex.index(food(1L, "pisica", "whiskas", "uscata"));
+        productSearchIndex.index(food(1L, "pisica", "purina", "uscata"));
+        productSearchIndex.index(toy(2L, "pisica", "kong"));
+
+        assertThat(productSearchIndex.search("whiskas", null)).isEmpty();
+        assertThat(productSearchIndex.search("purina", null)).extracting(ProductSearchHitDto::getId).containsExactly(1L);
+
+        productSearchIndex.remove("toy", 2L);
+
+        assertThat(productSearchIndex.search("pisica", null)).extracting(ProductSearchHitDto::getId).containsExactly(1L);
+        assertEquals(1, productSearchIndex.size());
+    }
+
+    @Test
+    @DisplayName("index - inside a transaction the product is indexed after the commit, never after a rollback")
+    void test_index_afterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        productSearchIndex.index(food(1L, "pisica", "whiskas", "uscata"));
+
+        assertThat(productSearchIndex.search("whiskas", null)).isEmpty();
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+
+        assertThat(productSearchIndex.search("whiskas", null)).extracting(ProductSearchHitDto::getId).containsExactly(1L);
+
+        TransactionSynchronizationManager.initSynchronization();
+        productSearchIndex.remove("food", 1L);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertThat(productSearchIndex.search("whiskas", null)).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("index - the removed products are dropped from the index once they outnumber the others")
+    void test_index_renumbered() {
+        for (long id = 1; id <= 50; id++) {
+            productSearchIndex.index(food(id, "pisica", "brand" + id, "uscata"));
+        }
+        for (long id = 1; id <= 49; id++) {
+            productSearchIndex.remove("food", id);
+        }
+
+        assertEquals(1, productSearchIndex.size());
+        assertThat(productSearchIndex.search("uscata", null)).extracting(ProductSearchHitDto::getId).containsExactly(50L);
+        assertThat(productSearchIndex.search("brand50", null)).extracting(ProductSearchHitDto::getId).containsExactly(50L);
+    }
+
+    @Test
+    @DisplayName("search - at most size hits")
+    void test_search_size() {
+        for (long id = 1; id <= 30; id++) {
+            productSearchIndex.index(food(id, "pisica", "whiskas", "uscata"));
+        }
+
+        assertThat(productSearchIndex.search("pisica", null)).hasSize(20);
+        assertThat(productSearchIndex.search("pisica", 5)).extracting(ProductSearchHitDto::getId).containsExactly(1L, 2L, 3L, 4L, 5L);
+    }
+
+    @Test
+    @DisplayName("search - the query has no word, too many words or the size is out of range")
+    void test_search_throwsBadRequestException() {
+        BadRequestException empty = Assertions.assertThrows(BadRequestException.class, () -> productSearchIndex.search(" -- ", null));
+        BadRequestException words = Assertions.assertThrows(BadRequestException.class, () -> productSearchIndex.search("a b c d e f g h i j k", null));
+        BadRequestException size = Assertions.assertThrows(BadRequestException.class, () -> productSearchIndex.search("pisica", 101));
+
+        assertEquals("The search query must contain a letter or a digit.", empty.getMessage());
+        assertEquals("The search query can have at most 10 words.", words.getMessage());
+        assertEquals("The number of results must be between 1 and 100.", size.getMessage());
+        verifyNoInteractions(productRepository);
+    }
+
+    private static Food food(Long id, String animal, String brand, String type) {
+        return Food.builder().id(id).price(10F).animal(animal).brand(brand).type(type).build();
+    }
+
+    private static Toy toy(Long id, String animal, String brand) {
+        return Toy.builder().id(id).price(20F).animal(animal).brand(brand).build();
+    }
+
+    private static Medicine medicine(Long id, String animal, String purpose) {
+        return Medicine.builder().id(id).price(30F).animal(animal).purpose(purpose).build();
+    }
+
+    static ProductRepository.IdRange range(Long min, Long max) {
+        return new ProductRepository.IdRange() {
+            @Override
+            public Long getMin() {
+                return min;
+            }
+
+            @Override
+            public Long getMax() {
+                return max;
+            }
+        };
+    }
+
+    static ProductRepository.SearchText text(String productType, Long id, String animal, String brand, String type, String purpose) {
+        return new ProductRepository.SearchText() {
+            @Override
+            public String getProductType() {
+                return productType;
+            }
+
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Float getPrice() {
+                return 10F;
+            }
+
+            @Override
+            public String getAnimal() {
+                return animal;
+            }
+
+            @Override
+            public String getBrand() {
+                return brand;
+            }
+
+            @Override
+            public String getType() {
+                return type;
+            }
+
+            @Override
+            public String getPurpose() {
+                return purpose;
+            }
+        };
+    }
+}
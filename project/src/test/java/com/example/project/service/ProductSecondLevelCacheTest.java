@@ -0,0 +1,163 @@
+package com.example.project.service;
+
+import com.example.project.config.SecondLevelCacheConfig;
+import com.example.project.dto.FoodDto;
+import com.example.project.exception.EntityNotFoundException;
+import com.example.project.mapper.FoodMapperImpl;
+import com.example.project.model.Food;
+import com.example.project.model.Inventory;
+import com.example.project.model.Product;
+import com.example.project.repository.FoodRepository;
+import com.example.project.repository.InventoryRepository;
+import com.example.project.repository.StatementRecorder;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.cache.CacheManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// every statement commits here, the cache is only filled and invalidated by transactions that complete
+@DataJpaTest(properties = {"spring.jpa.database=h2", "spring.jpa.hibernate.ddl-auto=create-drop",
+        "petshop.second-level-cache.product.max-size=100", "petshop.second-level-cache.product.ttl-seconds=60",
+        "spring.flyway.enabled=false"})
+@Import({StatementRecorder.class, SecondLevelCacheConfig.class,
+        FoodService.class, ProductCatalogCache.class, ProductSearchIndex.class, ResourceVersions.class, KeysetPagination.class, FoodMapperImpl.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductSecondLevelCacheTest {
+
+    @Autowired
+    private FoodService foodService;
+
+    @Autowired
+    private FoodRepository foodRepository;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CacheManager secondLevelCacheManager;
+
+    @Autowired
+    private StatementRecorder statements;
+
+    private Food food;
+
+    @BeforeEach
+    void setUp() {
+        food = foodRepository.save(Food.builder().brand("un brand").type("uscata").price(10F)
+                .inventory(Inventory.builder().availableQuantity(5L).build()).build());
+        statements.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        foodRepository.deleteAll();
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    @DisplayName("find food dto by id - the product is read from the cache, only its inventory from the database")
+    void test_findDtoById_productCached() {
+        FoodDto first = foodService.findDtoById(food.getId());
+        FoodDto second = foodService.findDtoById(food.getId());
+
+        assertEquals(10F, second.getPrice());
+        assertEquals(first.getInventoryDto().getId(), second.getInventoryDto().getId());
+        assertThat(statements.all()).hasSize(2)
+                .allSatisfy(statement -> assertThat(statement.getSql()).contains("from inventory").doesNotContain("from product"));
+    }
+
+    @Test
+    @DisplayName("find food dto by id - the stock is never cached, a changed quantity is read at once")
+    void test_findDtoById_stockNotCached() {
+        foodService.findDtoById(food.getId());
+
+        inventoryRepository.adjustAvailableQuantity(food.getInventory().getId(), -3L);
+
+        assertEquals(2L, foodService.findDtoById(food.getId()).getInventoryDto().getAvailableQuantity());
+        assertThat(entityManagerFactory.getCache().contains(Inventory.class, food.getInventory().getId())).isFalse();
+    }
+
+    @Test
+    @DisplayName("update food - the committed product replaces the cached one")
+    void test_update_replacesCachedProduct() {
+        FoodDto cached = foodService.findDtoById(food.getId());
+
+        food.setPrice(12F);
+        foodService.update(food);
+        statements.clear();
+
+        FoodDto result = foodService.findDtoById(food.getId());
+
+        assertEquals(10F, cached.getPrice());
+        assertEquals(12F, result.getPrice());
+        assertThat(statements.all()).noneSatisfy(statement -> assertThat(statement.getSql()).contains("from product"));
+    }
+
+    @Test
+    @DisplayName("update food - the version is raised past hibernate, the other cached products stay in the region")
+    void test_update_keepsOtherCachedProducts() {
+        Food other = foodRepository.save(Food.builder().brand("alt brand").type("umeda").price(7F)
+                .inventory(Inventory.builder().availableQuantity(1L).build()).build());
+        foodService.findDtoById(food.getId());
+        foodService.findDtoById(other.getId());
+
+        food.setPrice(12F);
+        foodService.update(food);
+
+        assertThat(entityManagerFactory.getCache().contains(Product.class, other.getId())).isTrue();
+        assertThat(entityManagerFactory.getCache().contains(Product.class, food.getId())).isTrue();
+    }
+
+    @Test
+    @DisplayName("delete food - the cached product is not read any more")
+    void test_deleteById_evicted() {
+        foodService.findDtoById(food.getId());
+
+        foodService.deleteById(food.getId());
+
+        assertThrows(EntityNotFoundException.class, () -> foodService.findDtoById(food.getId()));
+    }
+
+    @Test
+    @DisplayName("product region - bounded by its max-size and ttl-seconds, hits and misses are counted")
+    void test_productRegion_configuredAndMeasured() {
+        entityManagerFactory.getCache().evictAll();
+        CacheRegionStatistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics()
+                .getDomainDataRegionStatistics(Product.CACHE_REGION);
+        long hits = statistics.getHitCount();
+        long misses = statistics.getMissCount();
+
+        foodService.findDtoById(food.getId());
+        foodService.findDtoById(food.getId());
+        foodService.findDtoById(food.getId());
+
+        @SuppressWarnings("unchecked")
+        CaffeineConfiguration<Object, Object> configuration = secondLevelCacheManager.getCache(Product.CACHE_REGION)
+                .getConfiguration(CaffeineConfiguration.class);
+        assertEquals(OptionalLong.of(100), configuration.getMaximumSize());
+        assertEquals(OptionalLong.of(TimeUnit.SECONDS.toNanos(60)), configuration.getExpireAfterWrite());
+        assertEquals(2, statistics.getHitCount() - hits);
+        assertEquals(1, statistics.getMissCount() - misses);
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.project.service;
+
+import com.example.project.exception.BadRequestException;
+import com.example.project.model.Item;
+import com.example.project.model.ProductType;
+import com.example.project.model.Purchase;
+import com.example.project.model.PurchaseResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PurchaseBatchServiceTest {
+
+    @Mock
+    private PurchaseService purchaseService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private PurchaseBatchService purchaseBatchService;
+
+    private final Map<Long, ProductType> products = Map.of(1L, new ProductType("food", 1L, 10F, 1L));
+
+    @BeforeEach
+    void setUp() {
+        purchaseBatchService = new PurchaseBatchService(purchaseService, transactionManager);
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+        when(purchaseService.findProducts(anyList())).thenReturn(products);
+    }
+
+    @Test
+    @DisplayName("create all - every purchase succeeds, one commit for the batch")
+    void test_createAll_happyFlow() {
+        List<Purchase> purchases = purchases(3);
+        purchases.forEach(purchase -> when(purchaseService.create(purchase, products)).thenReturn(purchase));
+
+        List<PurchaseResult> results = purchaseBatchService.createAll(purchases);
+
+        assertEquals(3, results.size());
+        assertThat(results).allMatch(PurchaseResult::isSuccess);
+        verify(transactionManager, times(1)).commit(any());
+        verify(transactionManager, times(0)).rollback(any());
+    }
+
+    @Test
+    @DisplayName("create all - a purchase out of stock is rejected before the transaction, the others share one commit")
+    void test_createAll_rejectedUpFront() {
+        List<Purchase> purchases = purchases(3);
+        BadRequestException outOfStock = new BadRequestException("the purchase cannot be confirmed; not enough items in inventory");
+        when(purchaseService.check(any(), eq(products), anyMap()))
+                .thenAnswer(invocation -> invocation.getArgument(0) == purchases.get(1) ? outOfStock : null);
+        when(purchaseService.create(purchases.get(0), products)).thenReturn(purchases.get(0));
+        when(purchaseService.create(purchases.get(2), products)).thenReturn(purchases.get(2));
+
+        List<PurchaseResult> results = purchaseBatchService.createAll(purchases);
+
+        assertThat(results.get(0).isSuccess()).isTrue();
+        assertEquals(outOfStock, results.get(1).getError());
+        assertThat(results.get(2).isSuccess()).isTrue();
+        verify(purchaseService, never()).create(purchases.get(1), products);
+        verify(transactionManager, times(1)).commit(any());
+        verify(transactionManager, never()).rollback(any());
+    }
+
+    @Test
+    @DisplayName("create all - every purchase rejected, no transaction is opened")
+    void test_createAll_allRejected() {
+        List<Purchase> purchases = purchases(2);
+        when(purchaseService.check(any(), eq(products), anyMap())).thenReturn(new BadRequestException("failed"));
+
+        List<PurchaseResult> results = purchaseBatchService.createAll(purchases);
+
+        assertThat(results).noneMatch(PurchaseResult::isSuccess);
+        verify(transactionManager, never()).getTransaction(any());
+    }
+
+    @Test
+    @DisplayName("create all - a purchase failing inside the transaction does not fail the others")
+    void test_createAll_oneFailure() {
+        List<Purchase> purchases = purchases(3);
+        BadRequestException outOfStock = new BadRequestException("the purchase cannot be confirmed; not enough items in inventory");
+        when(purchaseService.create(purchases.get(0), products)).thenAnswer(invocation -> {
+            purchases.get(0).setId(10L);
+            return purchases.get(0);
+        });
+        when(purchaseService.create(purchases.get(1), products)).thenThrow(outOfStock);
+        when(purchaseService.create(purchases.get(2), products)).thenReturn(purchases.get(2));
+
+        List<PurchaseResult> results = purchaseBatchService.createAll(purchases);
+
+        assertThat(results.get(0).isSuccess()).isTrue();
+        assertThat(results.get(1).isSuccess()).isFalse();
+        assertEquals(outOfStock, results.get(1).getError());
+        assertThat(results.get(2).isSuccess()).isTrue();
+
+        verify(purchaseService, times(2)).create(purchases.get(0), products);
+        verify(purchaseService, times(1)).create(purchases.get(1), products);
+        verify(purchaseService, times(1)).create(purchases.get(2), products);
+        verify(purchaseService, times(1)).findProducts(purchases);
+        verify(purchaseService, times(1)).findStock(products);
+        // the batch is rolled back once, then the two left commit on their own
+        verify(transactionManager, times(1)).rollback(any());
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    @DisplayName("create all - several failures inside the transaction, every purchase is created at most twice")
+    void test_createAll_manyFailuresLinear() {
+        List<Purchase> purchases = purchases(6);
+        for (int i = 0; i < purchases.size(); i++) {
+            if (i % 2 == 1) {
+                when(purchaseService.create(purchases.get(i), products)).thenThrow(new BadRequestException("failed"));
+            } else {
+                when(purchaseService.create(purchases.get(i), products)).thenReturn(purchases.get(i));
+            }
+        }
+
+        List<PurchaseResult> results = purchaseBatchService.createAll(purchases);
+
+        for (int i = 0; i < purchases.size(); i++) {
+            assertEquals(i % 2 == 0, results.get(i).isSuccess());
+            verify(purchaseService, atMost(2)).create(purchases.get(i), products);
+        }
+        verify(transactionManager, times(1 + 5)).getTransaction(any());
+    }
+
+    @Test
+    @DisplayName("create all - ids from the rolled back attempt are cleared before the retry")
+    void test_createAll_resetsIdsBeforeRetry() {
+        List<Purchase> purchases = purchases(2);
+        List<Long> idsOnRetry = new ArrayList<>();
+        when(purchaseService.create(purchases.get(0), products)).thenAnswer(invocation -> {
+            Purchase purchase = invocation.getArgument(0);
+            idsOnRetry.add(purchase.getId());
+            purchase.setId(10L);
+            purchase.getProducts().forEach(it -> it.setId(20L));
+            return purchase;
+        });
+        when(purchaseService.create(purchases.get(1), products)).thenThrow(new BadRequestException("failed"));
+
+        purchaseBatchService.createAll(purchases);
+
+        assertThat(idsOnRetry).containsExactly(null, null);
+    }
+
+    private List<Purchase> purchases(int count) {
+        List<Purchase> purchases = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            List<Item> products = new ArrayList<>();
+            products.add(Item.builder().orderedQuantity(1L).build());
+            purchases.add(Purchase.builder().products(products).build());
+        }
+        return purchases;
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.project.service;
+
+import com.example.project.dto.PurchaseDto;
+import com.example.project.exception.BadRequestException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PurchaseIdempotencyStoreTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger executions = new AtomicInteger();
+    private SimpleMeterRegistry meterRegistry;
+    private PurchaseIdempotencyStore store;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        store = new PurchaseIdempotencyStore(meterRegistry, 60, 2, clock::get);
+    }
+
+    @Test
+    @DisplayName("execute - a replayed key returns the first result without creating again")
+    void test_execute_replay() {
+        PurchaseDto first = store.execute("key", "1:3x2", () -> create(1L));
+        PurchaseDto replay = store.execute("key", "1:3x2", () -> create(2L));
+
+        assertEquals(first, replay);
+        assertEquals(1, executions.get());
+        assertEquals(1.0, meterRegistry.get("purchases.idempotency.replays").counter().count());
+    }
+
+    @Test
+    @DisplayName("execute - a key reused for another purchase is rejected")
+    void test_execute_differentPurchase() {
+        store.execute("key", "1:3x2", () -> create(1L));
+
+        assertThrows(BadRequestException.class, () -> store.execute("key", "1:3x5", () -> create(2L)));
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    @DisplayName("execute - a failed execution is not remembered")
+    void test_execute_failureIsRetried() {
+        assertThrows(BadRequestException.class, () -> store.execute("key", "1:3x2", () -> {
+            throw new BadRequestException("the purchase cannot be confirmed; not enough items in inventory");
+        }));
+
+        PurchaseDto retried = store.execute("key", "1:3x2", () -> create(1L));
+
+        assertEquals(1L, retried.getId());
+    }
+
+    @Test
+    @DisplayName("execute - a concurrent duplicate waits for the in-flight execution")
+    void test_execute_concurrentDuplicate() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<PurchaseDto> first = CompletableFuture.supplyAsync(() -> store.execute("key", "1:3x2", () -> {
+            started.countDown();
+            await(release);
+            return create(1L);
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<PurchaseDto> duplicate = CompletableFuture.supplyAsync(() -> store.execute("key", "1:3x2", () -> create(2L)));
+        Thread.sleep(50);
+        assertThat(duplicate).isNotDone();
+        release.countDown();
+
+        assertEquals(first.get(5, TimeUnit.SECONDS), duplicate.get(5, TimeUnit.SECONDS));
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    @DisplayName("execute - keys expire after the ttl")
+    void test_execute_ttl() {
+        store.execute("key", "1:3x2", () -> create(1L));
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(61));
+
+        PurchaseDto second = store.execute("key", "1:3x2", () -> create(2L));
+
+        assertEquals(2L, second.getId());
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    @DisplayName("execute - the oldest keys are dropped above max-entries")
+    void test_execute_bounded() {
+        store.execute("a", "1:3x2", () -> create(1L));
+        store.execute("b", "1:3x2", () -> create(2L));
+        store.execute("c", "1:3x2", () -> create(3L));
+        store.execute("d", "1:3x2", () -> create(4L));
+
+        assertThat(store.size()).isLessThanOrEqualTo(3);
+        assertEquals(5L, store.execute("a", "1:3x2", () -> create(5L)).getId());
+    }
+
+    @Test
+    @DisplayName("execute - an expired in-flight key is kept, the expired keys after it are still dropped")
+    void test_execute_expiredInFlightSkipped() {
+        PurchaseDto first = store.execute("a", "1:3x2", () -> {
+            store.execute("b", "1:3x2", () -> create(2L));
+            clock.addAndGet(TimeUnit.SECONDS.toNanos(61));
+            store.execute("c", "1:3x2", () -> create(3L));
+
+            // a is in flight and stays, b expired and is gone
+            assertEquals(2, store.size());
+            return create(1L);
+        });
+
+        assertEquals(1L, first.getId());
+        assertEquals(4L, store.execute("b", "1:3x2", () -> create(4L)).getId());
+    }
+
+    private PurchaseDto create(Long id) {
+        executions.incrementAndGet();
+        return PurchaseDto.builder().id(id).build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
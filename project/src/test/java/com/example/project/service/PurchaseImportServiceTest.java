@@ -0,0 +1,110 @@
+package com.example.project.service;
+
+import com.example.project.exception.BadRequestException;
+import com.example.project.mapper.PurchaseMapperImpl;
+import com.example.project.model.Purchase;
+import com.example.project.model.PurchaseResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.validation.Validation;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PurchaseImportServiceTest {
+    private static final String PURCHASE = "{\"clientDto\":{\"id\":1},\"productsDto\":[{\"orderedQuantity\":2,\"inventoryDto\":{\"id\":3}}]}";
+
+    @Mock
+    private PurchaseBatchService purchaseBatchService;
+
+    private PurchaseImportService purchaseImportService;
+
+    @BeforeEach
+    void setUp() {
+        purchaseImportService = new PurchaseImportService(purchaseBatchService, new PurchaseMapperImpl(),
+                Validation.buildDefaultValidatorFactory().getValidator(), new ObjectMapper().findAndRegisterModules(), 2);
+    }
+
+    @Test
+    @DisplayName("import all - the purchases are created chunk by chunk, one result per line")
+    void test_importAll_chunks() throws IOException {
+        when(purchaseBatchService.createAll(anyList())).thenAnswer(invocation -> {
+            List<Purchase> purchases = invocation.getArgument(0);
+            return purchases.stream()
+                    .map(purchase -> {
+                        purchase.setId(7L);
+                        return PurchaseResult.success(purchase);
+                    })
+                    .collect(Collectors.toList());
+        });
+
+        List<String> results = importAll(PURCHASE + "\n" + PURCHASE + "\n\n" + PURCHASE + "\n");
+
+        assertThat(results).containsExactly(
+                "{\"line\":1,\"id\":7,\"code\":201,\"message\":null}",
+                "{\"line\":2,\"id\":7,\"code\":201,\"message\":null}",
+                "{\"line\":4,\"id\":7,\"code\":201,\"message\":null}");
+        verify(purchaseBatchService, times(2)).createAll(anyList());
+    }
+
+    @Test
+    @DisplayName("import all - malformed and invalid records are reported without stopping the import")
+    void test_importAll_rejectedRecords() throws IOException {
+        when(purchaseBatchService.createAll(anyList()))
+                .thenReturn(List.of(PurchaseResult.failure(new BadRequestException("the purchase cannot be confirmed; not enough items in inventory"))));
+
+        List<String> results = importAll("{not json\n{\"clientDto\":{\"id\":1}}\n" + PURCHASE + "\n");
+
+        assertThat(results.get(0)).startsWith("{\"line\":1,\"id\":null,\"code\":400,\"message\":\"Malformed purchase");
+        assertThat(results.get(1)).isEqualTo("{\"line\":2,\"id\":null,\"code\":400,\"message\":\"productsDto must not be null\"}");
+        assertThat(results.get(2)).isEqualTo("{\"line\":3,\"id\":null,\"code\":400,\"message\":\"the purchase cannot be confirmed; not enough items in inventory\"}");
+        verify(purchaseBatchService, times(1)).createAll(argThat(purchases -> purchases.size() == 1));
+    }
+
+    @Test
+    @DisplayName("import all - the line null is a malformed record, not a failed import")
+    void test_importAll_nullRecord() throws IOException {
+        List<String> results = importAll("null\n");
+
+        assertThat(results).containsExactly("{\"line\":1,\"id\":null,\"code\":400,\"message\":\"Malformed purchase: a purchase object is expected\"}");
+        verifyNoInteractions(purchaseBatchService);
+    }
+
+    @Test
+    @DisplayName("import all - a null item is an invalid record")
+    void test_importAll_nullItem() throws IOException {
+        List<String> results = importAll("{\"clientDto\":{\"id\":1},\"productsDto\":[null]}\n");
+
+        assertThat(results).containsExactly("{\"line\":1,\"id\":null,\"code\":400,\"message\":\"productsDto[0].<list element> must not be null\"}");
+        verifyNoInteractions(purchaseBatchService);
+    }
+
+    @Test
+    @DisplayName("import all - a chunk without valid records does not reach the database")
+    void test_importAll_nothingValid() throws IOException {
+        List<String> results = importAll("{\"productsDto\":[{\"orderedQuantity\":2}]}\n");
+
+        assertThat(results).containsExactly("{\"line\":1,\"id\":null,\"code\":400,\"message\":\"Every item needs an inventory id\"}");
+        verifyNoInteractions(purchaseBatchService);
+    }
+
+    private List<String> importAll(String body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        purchaseImportService.importAll(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), out);
+        return out.toString(StandardCharsets.UTF_8).lines().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.project.service;
+
+import com.example.project.exception.BadRequestException;
+import com.example.project.exception.ServiceUnavailableException;
+import com.example.project.model.Purchase;
+import com.example.project.model.PurchaseResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PurchasePipelineTest {
+
+    @Mock
+    private PurchaseService purchaseService;
+
+    @Mock
+    private PurchaseBatchService purchaseBatchService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("create - group commit disabled, the purchase is created right away")
+    void test_create_disabled() {
+        PurchasePipeline pipeline = new PurchasePipeline(purchaseService, purchaseBatchService, meterRegistry, false, 32, 5, 1);
+        Purchase purchase = Purchase.builder().build();
+        when(purchaseService.create(purchase)).thenReturn(purchase);
+
+        assertEquals(purchase, pipeline.create(purchase));
+
+        verifyNoInteractions(purchaseBatchService);
+    }
+
+    @Test
+    @DisplayName("next batch - takes at most batch-size purchases from the queue")
+    void test_nextBatch_boundedByBatchSize() throws InterruptedException {
+        // no drainer, the test takes the batches itself
+        PurchasePipeline pipeline = new PurchasePipeline(purchaseService, purchaseBatchService, meterRegistry, true, 2, 5, 0);
+        pipeline.start();
+        pipeline.submit(Purchase.builder().build());
+        pipeline.submit(Purchase.builder().build());
+        pipeline.submit(Purchase.builder().build());
+
+        assertEquals(2, pipeline.nextBatch().size());
+        assertEquals(1, pipeline.nextBatch().size());
+        assertEquals(0, pipeline.nextBatch().size());
+    }
+
+    @Test
+    @DisplayName("run - every caller gets its own result and the batch size is recorded")
+    void test_run_completesEachSubmission() throws InterruptedException {
+        PurchasePipeline pipeline = new PurchasePipeline(purchaseService, purchaseBatchService, meterRegistry, true, 32, 5, 0);
+        pipeline.start();
+        Purchase created = Purchase.builder().id(1L).build();
+        BadRequestException outOfStock = new BadRequestException("the purchase cannot be confirmed; not enough items in inventory");
+        when(purchaseBatchService.createAll(anyList())).thenReturn(List.of(PurchaseResult.success(created), PurchaseResult.failure(outOfStock)));
+
+        CompletableFuture<Purchase> first = pipeline.submit(Purchase.builder().build());
+        CompletableFuture<Purchase> second = pipeline.submit(Purchase.builder().build());
+        pipeline.run(pipeline.nextBatch());
+
+        assertEquals(created, first.join());
+        assertThat(second).isCompletedExceptionally();
+        assertEquals(1, meterRegistry.get("purchases.group_commit.batch_size").summary().count());
+        assertEquals(2.0, meterRegistry.get("purchases.group_commit.batch_size").summary().totalAmount());
+    }
+
+    @Test
+    @DisplayName("create - group commit enabled, the caller waits for its batch and sees its own failure")
+    void test_create_enabled() throws InterruptedException {
+        PurchasePipeline pipeline = new PurchasePipeline(purchaseService, purchaseBatchService, meterRegistry, true, 32, 5, 1);
+        BadRequestException outOfStock = new BadRequestException("the purchase cannot be confirmed; not enough items in inventory");
+        when(purchaseBatchService.createAll(anyList())).thenReturn(List.of(PurchaseResult.failure(outOfStock)));
+        pipeline.start();
+
+        BadRequestException ex = assertThrows(BadRequestException.class, () -> pipeline.create(Purchase.builder().build()));
+
+        assertEquals(outOfStock, ex);
+        pipeline.stop();
+    }
+
+    @Test
+    @DisplayName("create - after stop the purchase is rejected instead of waiting forever")
+    void test_create_afterStop() throws InterruptedException {
+        PurchasePipeline pipeline = new PurchasePipeline(purchaseService, purchaseBatchService, meterRegistry, true, 32, 5, 1);
+        pipeline.start();
+        pipeline.stop();
+
+        assertThrows(ServiceUnavailableException.class, () -> pipeline.create(Purchase.builder().build()));
+
+        verifyNoInteractions(purchaseBatchService);
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.project.service;
 
+import com.example.project.dto.ItemDto;
+import com.example.project.dto.PurchaseDto;
 import com.example.project.exception.BadRequestException;
 import com.example.project.exception.EntityNotFoundException;
 import com.example.project.model.*;
@@ -9,14 +11,21 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -35,13 +44,10 @@ class PurchaseServiceTest {
     private InventoryService inventoryService;
 
     @Mock
-    private FoodService foodService;
+    private ResourceVersions resourceVersions;
 
-    @Mock
-    private MedicineService medicineService;
-
-    @Mock
-    private ToyService toyService;
+    @Spy
+    private KeysetPagination keysetPagination = new KeysetPagination(50, 500);
 
     @InjectMocks
     private PurchaseService purchaseService;
@@ -73,21 +79,77 @@ class PurchaseServiceTest {
     @Test
     @DisplayName("find all purchases - happy flow")
     public void test_findAll_happyFlow() {
-        List<Purchase> purchaseList = new ArrayList<>();
-        purchaseList.add(expectedPurchase);
+        PurchaseDto first = PurchaseDto.builder().id(1L).productsDto(new ArrayList<>()).build();
+        PurchaseDto second = PurchaseDto.builder().id(2L).productsDto(new ArrayList<>()).build();
+        ItemDto firstItem = ItemDto.builder().id(10L).purchaseId(1L).build();
+        ItemDto secondItem = ItemDto.builder().id(11L).purchaseId(2L).build();
+        ItemDto thirdItem = ItemDto.builder().id(12L).purchaseId(1L).build();
 
-        when(purchaseRepository.findAll()).thenReturn(purchaseList);
+        when(purchaseRepository.findDtosByIdGreaterThan(Long.MIN_VALUE, PageRequest.of(0, 51, Sort.by("id")))).thenReturn(List.of(first, second));
+        when(itemService.findDtosByPurchaseIds(Set.of(1L, 2L))).thenReturn(List.of(firstItem, secondItem, thirdItem));
 
-        List<Purchase> result = purchaseService.findAll();
+        List<PurchaseDto> result = purchaseService.findAll(null, null, null, FieldSet.of(null, null, PurchaseService.ASSOCIATIONS)).getContent();
 
-        assertEquals(purchaseList.size(), result.size());
-        assertEquals(expectedPurchase.getId(), result.stream().findFirst().get().getId());
-        assertEquals(expectedPurchase.getPrice(), result.stream().findFirst().get().getPrice());
-        assertEquals(expectedPurchase.getTime(), result.stream().findFirst().get().getTime());
-        assertEquals(expectedPurchase.getClient(), result.stream().findFirst().get().getClient());
-        //assertEquals(expectedPurchase.getProducts(), result.stream().findFirst().get().getProducts());
+        assertEquals(List.of(first, second), result);
+        assertEquals(List.of(firstItem, thirdItem), first.getProductsDto());
+        assertEquals(List.of(secondItem), second.getProductsDto());
 
-        verify(purchaseRepository).findAll();
+        // one query for the purchases and one for all their items
+        verify(itemService, times(1)).findDtosByPurchaseIds(Set.of(1L, 2L));
+        verify(purchaseRepository, times(0)).findAll();
+    }
+
+    @Test
+    @DisplayName("find all purchases - view=summary reads the purchase rows without their client and never the items")
+    public void test_findAll_summary() {
+        PurchaseDto first = new PurchaseDto(1L, 10F, LocalDateTime.now());
+        when(purchaseRepository.findSummariesByIdGreaterThan(Long.MIN_VALUE, PageRequest.of(0, 51, Sort.by("id")))).thenReturn(List.of(first));
+
+        List<PurchaseDto> result = purchaseService.findAll(null, null, null, FieldSet.of("summary", null, PurchaseService.ASSOCIATIONS)).getContent();
+
+        assertEquals(List.of(first), result);
+        assertThat(first.getClientDto()).isNull();
+        assertThat(first.getProductsDto()).isNull();
+        verify(purchaseRepository, times(0)).findDtosByIdGreaterThan(any(), any());
+        verifyNoInteractions(itemService);
+    }
+
+    @Test
+    @DisplayName("find purchase dtos by client - fields=items, the items of the purchase rows without their client")
+    public void test_findDtosByClient_itemsOnly() {
+        PurchaseDto first = new PurchaseDto(1L, 10F, LocalDateTime.now());
+        ItemDto item = ItemDto.builder().id(10L).purchaseId(1L).build();
+        when(purchaseRepository.findSummariesByClientId(1L)).thenReturn(List.of(first));
+        when(itemService.findDtosByPurchaseIds(Set.of(1L))).thenReturn(List.of(item));
+
+        List<PurchaseDto> result = purchaseService.findDtosByClient(1L, FieldSet.of(null, "items", PurchaseService.ASSOCIATIONS));
+
+        assertEquals(List.of(first), result);
+        assertThat(first.getClientDto()).isNull();
+        assertEquals(List.of(item), first.getProductsDto());
+        verify(purchaseRepository, times(0)).findDtosByClientId(any());
+    }
+
+    @Test
+    @DisplayName("find purchase dto by id - purchase does not exist in database")
+    public void test_findDtoById_throwsEntityNotFoundException() {
+        Long id = expectedPurchase.getId();
+
+        when(purchaseRepository.findDtoById(id)).thenReturn(Optional.empty());
+
+        EntityNotFoundException ex = Assertions.assertThrows(EntityNotFoundException.class, () -> purchaseService.findDtoById(id));
+
+        assertEquals(String.format("The purchase with id = %s does not exist in the database.", id), ex.getMessage());
+        verifyNoInteractions(itemService);
+    }
+
+    @Test
+    @DisplayName("find purchase dtos by client - no purchases, no item query")
+    public void test_findDtosByClient_noPurchases() {
+        when(purchaseRepository.findDtosByClientId(1L)).thenReturn(new ArrayList<>());
+
+        assertEquals(0, purchaseService.findDtosByClient(1L, FieldSet.of(null, null, PurchaseService.ASSOCIATIONS)).size());
+        verifyNoInteractions(itemService);
     }
 
     @Test
@@ -146,17 +208,17 @@ class PurchaseServiceTest {
     @DisplayName("delete purchase by id - happy flow")
     public void test_deleteById_happyFlow() {
         Long id = expectedPurchase.getId();
-        expectedPurchase.getProducts().stream().findFirst().get().setPurchase(expectedPurchase);
-        when(purchaseRepository.existsById(id)).thenReturn(true);
-        when(itemService.findByPurchaseId(id)).thenReturn(expectedPurchase.getProducts());
-        when(inventoryService.update(expectedPurchase.getProducts().stream().findFirst().get().getInventory())).thenReturn(expectedPurchase.getProducts().stream().findFirst().get().getInventory());
-
-        doNothing().when(purchaseRepository).deleteById(id);
+        when(purchaseRepository.findForUpdateById(id)).thenReturn(Optional.of(expectedPurchase));
 
         purchaseService.deleteById(id);
 
-        verify(purchaseRepository).existsById(id);
-        verify(purchaseRepository).deleteById(id);
+        InOrder inOrder = inOrder(purchaseRepository, inventoryService, itemService);
+        inOrder.verify(purchaseRepository).findForUpdateById(id);
+        inOrder.verify(inventoryService).restockPurchase(id);
+        inOrder.verify(itemService).deleteByPurchaseId(id);
+        inOrder.verify(purchaseRepository).deletePurchaseById(id);
+        verify(resourceVersions).purchasesChanged();
+        verify(itemService, times(0)).findByPurchaseId(id);
     }
 
     @Test
@@ -164,157 +226,140 @@ class PurchaseServiceTest {
     public void test_deleteById_throwsEntityNotFoundException_whenPurchaseNotFound() {
         Long id = expectedPurchase.getId();
 
-        when(purchaseRepository.existsById(id)).thenReturn(false);
+        when(purchaseRepository.findForUpdateById(id)).thenReturn(Optional.empty());
 
         EntityNotFoundException ex = Assertions.assertThrows(EntityNotFoundException.class, () ->
                 purchaseService.deleteById(id));
         assertThat(ex.getMessage()).isEqualTo(String.format("The purchase with id = %s does not exist in the database.",id.toString()));
 
-        verify(purchaseRepository).existsById(id);
-        verify(purchaseRepository, times(0)).deleteById(id);
+        verify(purchaseRepository).findForUpdateById(id);
+        verify(inventoryService, times(0)).restockPurchase(id);
+        verify(purchaseRepository, times(0)).deletePurchaseById(id);
     }
 
     @Test
-    @DisplayName("create purchase - happy flow - product is food")
-    public void test_create_productIsFood_happyFlow() {
-        Inventory inventory = Inventory.builder().id(1L).availableQuantity(500L).build();
-        ProductType productType = ProductType.builder().id(1L).type("food").build();
+    @DisplayName("create purchase - happy flow")
+    public void test_create_happyFlow() {
+        Long inventoryId = item.getInventory().getId();
+        ProductType productType = new ProductType("food", 1L, 100F, inventoryId);
         Purchase purchase = Purchase.builder()
-                //.price(12.123F)
-                //.time(LocalDateTime.now())
                 .client(Client.builder().id(1L).build())
                 .products(itemList)
                 .build();
-        Food food = Food.builder().id(1L).price(100F).build();
+        List<Long> inventoryIds = List.of(inventoryId);
 
-        when(inventoryService.findById(purchase.getProducts().stream().findFirst().get().getInventory().getId())).thenReturn(inventory);
-        when(inventoryService.findProductForInventory(purchase.getProducts().stream().findFirst().get().getInventory().getId())).thenReturn(productType);
-
-        when(foodService.findById(productType.getId())).thenReturn(food);
-        when(inventoryService.update(inventory)).thenReturn(inventory);
+        when(inventoryService.findProductsForInventories(inventoryIds)).thenReturn(Map.of(inventoryId, productType));
+        when(inventoryService.reserve(inventoryId, item.getOrderedQuantity())).thenReturn(true);
         when(purchaseRepository.save(purchase)).thenReturn(expectedPurchase);
-        when(itemService.create(item)).thenReturn(item);
 
         Purchase result = purchaseService.create(purchase);
 
-        // assert
-        verify(purchaseRepository).save(purchase);
-        verify(foodService).findById(productType.getId());
-        verify(toyService, times(0)).findById(productType.getId());
-        verify(medicineService, times(0)).findById(productType.getId());
-    }
-
-    @Test
-    @DisplayName("create purchase - happy flow - product is toy")
-    public void test_create_productIsToy_happyFlow() {
-        Inventory inventory = Inventory.builder().id(1L).availableQuantity(500L).build();
-        ProductType productType = ProductType.builder().id(1L).type("toy").build();
-        Purchase purchase = Purchase.builder()
-                //.price(12.123F)
-                //.time(LocalDateTime.now())
-                .client(Client.builder().id(1L).build())
-                .products(itemList)
-                .build();
-        Toy toy = Toy.builder().id(1L).price(100F).build();
-
-        when(inventoryService.findById(purchase.getProducts().stream().findFirst().get().getInventory().getId())).thenReturn(inventory);
-        when(inventoryService.findProductForInventory(purchase.getProducts().stream().findFirst().get().getInventory().getId())).thenReturn(productType);
-
-        when(toyService.findById(productType.getId())).thenReturn(toy);
-        when(inventoryService.update(inventory)).thenReturn(inventory);
-        when(purchaseRepository.save(purchase)).thenReturn(expectedPurchase);
-        when(itemService.create(item)).thenReturn(item);
-
-        Purchase result = purchaseService.create(purchase);
+        assertEquals(expectedPurchase.getId(), result.getId());
+        assertEquals(100F * item.getOrderedQuantity(), purchase.getPrice());
+        assertEquals(purchase, item.getPurchase());
+        assertEquals(100F, item.getUnitPrice());
+        assertEquals("food", item.getProductType());
+        assertEquals(1L, item.getProductId());
 
-        // assert
+        verify(inventoryService).reserve(inventoryId, item.getOrderedQuantity());
         verify(purchaseRepository).save(purchase);
-        verify(foodService, times(0)).findById(productType.getId());
-        verify(toyService, times(1)).findById(productType.getId());
-        verify(medicineService, times(0)).findById(productType.getId());
+        verify(resourceVersions).purchasesChanged();
+        verify(inventoryService, times(0)).findById(any());
+        verify(inventoryService, times(0)).update(any());
+        verify(itemService, times(0)).create(any());
     }
 
     @Test
-    @DisplayName("create purchase - happy flow - product is medicine")
-    public void test_create_productIsMedicine_happyFlow() {
-        Inventory inventory = Inventory.builder().id(1L).availableQuantity(500L).build();
-        ProductType productType = ProductType.builder().id(1L).type("medicine").build();
+    @DisplayName("create purchase - prices are loaded once and stock is reserved once per inventory")
+    public void test_create_loadsWholeCartAtOnce() {
+        List<Item> products = new ArrayList<>();
+        products.add(Item.builder().orderedQuantity(2L).inventory(Inventory.builder().id(2L).build()).build());
+        products.add(Item.builder().orderedQuantity(3L).inventory(Inventory.builder().id(1L).build()).build());
+        products.add(Item.builder().orderedQuantity(4L).inventory(Inventory.builder().id(2L).build()).build());
         Purchase purchase = Purchase.builder()
-                //.price(12.123F)
-                //.time(LocalDateTime.now())
                 .client(Client.builder().id(1L).build())
-                .products(itemList)
+                .products(products)
                 .build();
-        Medicine medicine = Medicine.builder().id(1L).price(100F).build();
-
-        when(inventoryService.findById(purchase.getProducts().stream().findFirst().get().getInventory().getId())).thenReturn(inventory);
-        when(inventoryService.findProductForInventory(purchase.getProducts().stream().findFirst().get().getInventory().getId())).thenReturn(productType);
+        List<Long> inventoryIds = List.of(2L, 1L);
 
-        when(medicineService.findById(productType.getId())).thenReturn(medicine);
-        when(inventoryService.update(inventory)).thenReturn(inventory);
+        when(inventoryService.findProductsForInventories(inventoryIds)).thenReturn(Map.of(
+                2L, new ProductType("food", 1L, 10F, 2L),
+                1L, new ProductType("toy", 1L, 20F, 1L)));
+        when(inventoryService.reserve(1L, 3L)).thenReturn(true);
+        when(inventoryService.reserve(2L, 6L)).thenReturn(true);
         when(purchaseRepository.save(purchase)).thenReturn(expectedPurchase);
-        when(itemService.create(item)).thenReturn(item);
 
-        Purchase result = purchaseService.create(purchase);
+        purchaseService.create(purchase);
 
-        // assert
-        verify(purchaseRepository).save(purchase);
-        verify(foodService, times(0)).findById(productType.getId());
-        verify(toyService, times(0)).findById(productType.getId());
-        verify(medicineService, times(1)).findById(productType.getId());
+        assertEquals(2 * 10F + 3 * 20F + 4 * 10F, purchase.getPrice());
+
+        InOrder inOrder = inOrder(inventoryService);
+        inOrder.verify(inventoryService).findProductsForInventories(inventoryIds);
+        inOrder.verify(inventoryService).reserve(1L, 3L);
+        inOrder.verify(inventoryService).reserve(2L, 6L);
+        verify(inventoryService, times(0)).findProductForInventory(any());
+        verify(purchaseRepository, times(1)).save(purchase);
     }
 
     @Test
     @DisplayName("create a purchase - wanted product quantity is less then available quantity")
     public void test_create_throwsEntityNotFoundException_whenPurchaseNotFound() {
-        //create Inventory with available quantity< available quantity din purchase
-        Inventory inventory = Inventory.builder().id(1L).availableQuantity(10L).build();
-        Long id = expectedPurchase.getId();
+        Long inventoryId = item.getInventory().getId();
+        List<Long> inventoryIds = List.of(inventoryId);
 
-        when(inventoryService.findById(expectedPurchase.getProducts().stream().findFirst().get().getInventory().getId())).thenReturn(inventory);
+        when(inventoryService.findProductsForInventories(inventoryIds)).thenReturn(Map.of(inventoryId, new ProductType("food", 1L, 100F, inventoryId)));
+        when(inventoryService.reserve(inventoryId, item.getOrderedQuantity())).thenReturn(false);
 
         BadRequestException ex = Assertions.assertThrows(BadRequestException.class, () ->
                 purchaseService.create(expectedPurchase));
 
         assertThat(ex.getMessage()).isEqualTo("the purchase cannot be confirmed; not enough items in inventory");
-        verify(inventoryService, times(1)).findById(id);
+        verify(inventoryService, times(1)).reserve(inventoryId, item.getOrderedQuantity());
         verify(purchaseRepository, times(0)).save(expectedPurchase);
+        verifyNoInteractions(resourceVersions);
     }
 
     @Test
-    @DisplayName("update a purchase - happy flow")
-    public void test_update_happyFlow() {
-        Purchase purchase = expectedPurchase;
-        Long id = expectedPurchase.getId();
-
-        when(purchaseRepository.existsById(id)).thenReturn(true);
-        when(purchaseRepository.save(purchase)).thenReturn(expectedPurchase);
+    @DisplayName("create a purchase - inventory does not exist in database")
+    public void test_create_throwsEntityNotFoundException_whenInventoryNotFound() {
+        Long inventoryId = item.getInventory().getId();
+        List<Long> inventoryIds = List.of(inventoryId);
 
-        Purchase result = purchaseService.update(purchase);
+        when(inventoryService.findProductsForInventories(inventoryIds)).thenReturn(Map.of());
 
-        assertEquals(expectedPurchase.getId(), result.getId());
-        assertEquals(expectedPurchase.getPrice(), result.getPrice());
-        assertEquals(expectedPurchase.getTime(), result.getTime());
-        assertEquals(expectedPurchase.getClient(), result.getClient());
-        //assertEquals(expectedPurchase.getProducts(), result.getProducts());
+        EntityNotFoundException ex = Assertions.assertThrows(EntityNotFoundException.class, () ->
+                purchaseService.create(expectedPurchase));
 
-        verify(purchaseRepository).existsById(id);
-        verify(purchaseRepository).save(purchase);
+        assertThat(ex.getMessage()).isEqualTo(String.format("The inventory with id = %s does not exist in the database.", inventoryId.toString()));
+        verify(inventoryService, times(0)).reserve(any(), any());
+        verify(purchaseRepository, times(0)).save(expectedPurchase);
+        verifyNoInteractions(resourceVersions);
     }
 
     @Test
-    @DisplayName("update a purchase - purchase does not exist in database")
-    public void test_update_throwsEntityNotFoundException_whenPurchaseNotFound() {
-        Long id = expectedPurchase.getId();
-
-        when(purchaseRepository.existsById(id)).thenReturn(false);
+    @DisplayName("check a purchase - the stock is taken for the purchases checked after it")
+    public void test_check_takesStock() {
+        Map<Long, ProductType> products = Map.of(1L, new ProductType("food", 1L, 10F, 1L));
+        Map<Long, Long> stock = new HashMap<>(Map.of(1L, 150L));
+
+        assertThat(purchaseService.check(expectedPurchase, products, stock)).isNull();
+        assertEquals(50L, stock.get(1L));
+
+        RuntimeException ex = purchaseService.check(expectedPurchase, products, stock);
+        assertThat(ex).isInstanceOf(BadRequestException.class)
+                .hasMessage("the purchase cannot be confirmed; not enough items in inventory");
+        assertEquals(50L, stock.get(1L));
+        verifyNoInteractions(inventoryService, purchaseRepository);
+    }
 
-        EntityNotFoundException ex = Assertions.assertThrows(EntityNotFoundException.class, () ->
-                purchaseService.update(expectedPurchase));
+    @Test
+    @DisplayName("check a purchase - inventory does not exist in database")
+    public void test_check_inventoryNotFound() {
+        Map<Long, Long> stock = new HashMap<>();
 
-        assertThat(ex.getMessage()).isEqualTo(String.format("The purchase with id = %s does not exist in the database.",id.toString()));
+        RuntimeException ex = purchaseService.check(expectedPurchase, Map.of(), stock);
 
-        verify(purchaseRepository).existsById(id);
-        verify(purchaseRepository, times(0)).save(expectedPurchase);
+        assertThat(ex).isInstanceOf(EntityNotFoundException.class)
+                .hasMessage("The inventory with id = 1 does not exist in the database.");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,111 @@
+package com.example.project.service;
+
+import com.example.project.dto.PurchaseDto;
+import com.example.project.dto.PurchaseTicketDto;
+import com.example.project.exception.BadRequestException;
+import com.example.project.exception.EntityNotFoundException;
+import com.example.project.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PurchaseTicketServiceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private PurchaseTicketService purchaseTicketService;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        release.countDown();
+        purchaseTicketService.stop();
+    }
+
+    @Test
+    @DisplayName("submit - the ticket is pending until a worker creates the purchase")
+    void test_submit_done() throws InterruptedException {
+        purchaseTicketService = new PurchaseTicketService(meterRegistry, 1, 10, 600);
+        PurchaseDto created = PurchaseDto.builder().id(1L).build();
+
+        PurchaseTicketDto ticket = purchaseTicketService.submit(() -> {
+            await(release);
+            return created;
+        });
+        assertThat(purchaseTicketService.findById(ticket.getId()).getStatus()).isIn("PENDING", "RUNNING");
+
+        release.countDown();
+        PurchaseTicketDto finished = waitForResult(ticket.getId());
+
+        assertEquals("DONE", finished.getStatus());
+        assertEquals(created, finished.getPurchaseDto());
+        assertEquals(1, meterRegistry.get("purchases.async.latency").tag("outcome", "done").timer().count());
+        assertEquals(1, meterRegistry.get("purchases.async.wait").timer().count());
+    }
+
+    @Test
+    @DisplayName("submit - a rejected purchase is reported on its ticket")
+    void test_submit_failed() throws InterruptedException {
+        purchaseTicketService = new PurchaseTicketService(meterRegistry, 1, 10, 600);
+
+        PurchaseTicketDto ticket = purchaseTicketService.submit(() -> {
+            throw new BadRequestException("the purchase cannot be confirmed; not enough items in inventory");
+        });
+        PurchaseTicketDto finished = waitForResult(ticket.getId());
+
+        assertEquals("FAILED", finished.getStatus());
+        assertEquals(400, finished.getError().getCode());
+        assertEquals("the purchase cannot be confirmed; not enough items in inventory", finished.getError().getMessage());
+    }
+
+    @Test
+    @DisplayName("submit - a full queue is refused")
+    void test_submit_queueFull() throws InterruptedException {
+        purchaseTicketService = new PurchaseTicketService(meterRegistry, 1, 1, 600);
+        CountDownLatch started = new CountDownLatch(1);
+        purchaseTicketService.submit(() -> {
+            started.countDown();
+            await(release);
+            return PurchaseDto.builder().build();
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        purchaseTicketService.submit(() -> PurchaseDto.builder().build());
+
+        // the only worker is busy and the queue holds one purchase
+        assertThrows(ServiceUnavailableException.class, () -> purchaseTicketService.submit(() -> PurchaseDto.builder().build()));
+        assertEquals(1.0, meterRegistry.get("purchases.async.queue_size").gauge().value());
+    }
+
+    @Test
+    @DisplayName("find by id - unknown ticket")
+    void test_findById_notFound() {
+        purchaseTicketService = new PurchaseTicketService(meterRegistry, 1, 10, 600);
+
+        assertThrows(EntityNotFoundException.class, () -> purchaseTicketService.findById("missing"));
+    }
+
+    private PurchaseTicketDto waitForResult(String id) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        PurchaseTicketDto ticket = purchaseTicketService.findById(id);
+        while (("PENDING".equals(ticket.getStatus()) || "RUNNING".equals(ticket.getStatus())) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            ticket = purchaseTicketService.findById(id);
+        }
+        return ticket;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
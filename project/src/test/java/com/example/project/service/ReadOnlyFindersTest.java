@@ -0,0 +1,39 @@
+package com.example.project.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadOnlyFindersTest {
+
+    // answered from the product catalog cache first, a transaction would take a connection even on a hit
+    private static final List<String> CACHED = List.of("findProductsForInventories");
+
+    @ParameterizedTest
+    @ValueSource(classes = {AnimalService.class, ClientService.class, FoodService.class, ToyService.class,
+            MedicineService.class, InventoryService.class, PurchaseService.class})
+    @DisplayName("finders - every find and exists method of the service runs in a read-only transaction")
+    void test_finders_readOnly(Class<?> service) {
+        List<Method> finders = Arrays.stream(service.getDeclaredMethods())
+                .filter(method -> Modifier.isPublic(method.getModifiers()))
+                .filter(method -> method.getName().startsWith("find") || method.getName().startsWith("exist"))
+                .filter(method -> !CACHED.contains(method.getName()))
+                .collect(Collectors.toList());
+
+        assertThat(finders).isNotEmpty();
+        assertThat(finders).allSatisfy(method -> {
+            Transactional transactional = method.getAnnotation(Transactional.class);
+            assertThat(transactional).as(method.getName()).isNotNull();
+            assertThat(transactional.readOnly()).as(method.getName()).isTrue();
+        });
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.project.service;
+
+import com.example.project.model.*;
+import com.example.project.repository.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// every statement commits here, the counters are only raised by transactions that complete
+@DataJpaTest(properties = {"spring.jpa.database=h2", "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false", "spring.flyway.enabled=false"})
+@Import(ResourceVersions.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ResourceVersionsTest {
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Autowired
+    private FoodRepository foodRepository;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private AnimalRepository animalRepository;
+
+    @Autowired
+    private PurchaseRepository purchaseRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        itemRepository.deleteAll();
+        purchaseRepository.deleteAll();
+        animalRepository.deleteAll();
+        clientRepository.deleteAll();
+        foodRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("product tag - the product and its stock are both in it, none for another kind or a missing id")
+    void test_productTag_productAndStock() {
+        Food food = food(5L);
+        Long id = food.getId();
+
+        assertEquals("W/\"food-" + id + "-0.0\"", resourceVersions.productTag("food", id));
+        assertNull(resourceVersions.productTag("toy", id));
+        assertNull(resourceVersions.productTag("food", id + 1000));
+
+        inventoryRepository.adjustAvailableQuantity(food.getInventory().getId(), -2L);
+
+        assertEquals("W/\"food-" + id + "-0.1\"", resourceVersions.productTag("food", id));
+        assertEquals("W/\"inventory-" + food.getInventory().getId() + "-1\"", resourceVersions.inventoryTag(food.getInventory().getId()));
+
+        inTransaction(() -> resourceVersions.catalogChanged(id, food.getInventory().getId()));
+
+        assertEquals("W/\"food-" + id + "-1.2\"", resourceVersions.productTag("food", id));
+    }
+
+    @Test
+    @DisplayName("animal tag - a change of the owner changes the tag of the animal")
+    void test_animalTag_followsOwner() {
+        Client owner = clientRepository.save(Client.builder().first_name("Ana").email("ana@mail.com").build());
+        Animal animal = animalRepository.save(Animal.builder().name("Piscot").owner(owner).build());
+
+        assertEquals("W/\"animal-" + animal.getId() + "-0.0\"", resourceVersions.animalTag(animal.getId()));
+
+        inTransaction(() -> resourceVersions.clientChanged(owner.getId()));
+
+        assertEquals("W/\"animal-" + animal.getId() + "-0.1\"", resourceVersions.animalTag(animal.getId()));
+        assertEquals("W/\"client-" + owner.getId() + "-1\"", resourceVersions.clientTag(owner.getId()));
+
+        inTransaction(() -> resourceVersions.animalChanged(animal.getId()));
+
+        assertEquals("W/\"animal-" + animal.getId() + "-1.1\"", resourceVersions.animalTag(animal.getId()));
+    }
+
+    @Test
+    @DisplayName("purchase tag - follows the client and the stock of the ordered inventories")
+    void test_purchaseTag_followsClientAndStock() {
+        Client client = clientRepository.save(Client.builder().first_name("Ana").email("ana@mail.com").build());
+        Food first = food(5L);
+        Food second = food(5L);
+        Purchase purchase = Purchase.builder().client(client).price(20F).build();
+        purchase.setProducts(List.of(
+                Item.builder().orderedQuantity(1L).unitPrice(10F).inventory(first.getInventory()).purchase(purchase).build(),
+                Item.builder().orderedQuantity(1L).unitPrice(10F).inventory(second.getInventory()).purchase(purchase).build()));
+        Long id = purchaseRepository.save(purchase).getId();
+
+        assertEquals("W/\"purchase-" + id + "-0.2.0\"", resourceVersions.purchaseTag(id));
+        assertNull(resourceVersions.purchaseTag(id + 1000));
+
+        inventoryRepository.adjustAvailableQuantity(second.getInventory().getId(), -1L);
+        inTransaction(() -> resourceVersions.clientChanged(client.getId()));
+
+        assertEquals("W/\"purchase-" + id + "-1.2.1\"", resourceVersions.purchaseTag(id));
+    }
+
+    @Test
+    @DisplayName("collection tag - raised once per transaction after its commit, never after a rollback")
+    void test_collectionTag_raisedAfterCommit() {
+        long food = count(ResourceVersions.FOOD);
+        long clients = count(ResourceVersions.CLIENTS);
+
+        inTransaction(() -> {
+            resourceVersions.catalogChanged(null, null);
+            resourceVersions.stockChanged();
+            assertEquals(food, count(ResourceVersions.FOOD));
+        });
+
+        assertEquals(food + 1, count(ResourceVersions.FOOD));
+        assertEquals(clients, count(ResourceVersions.CLIENTS));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            resourceVersions.clientChanged(null);
+            status.setRollbackOnly();
+        });
+
+        assertEquals(clients, count(ResourceVersions.CLIENTS));
+
+        resourceVersions.clientChanged(null);
+
+        assertEquals(clients + 1, count(ResourceVersions.CLIENTS));
+        assertEquals(food + 1, count(ResourceVersions.FOOD));
+    }
+
+    private Food food(Long availableQuantity) {
+        return foodRepository.save(Food.builder().brand("un brand").price(10F)
+                .inventory(Inventory.builder().availableQuantity(availableQuantity).build()).build());
+    }
+
+    private void inTransaction(Runnable work) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> work.run());
+    }
+
+    // the last part of W/"<collection>-list-<start>.<count>"
+    private long count(String collection) {
+        String tag = resourceVersions.collectionTag(collection);
+        return Long.parseLong(tag.substring(tag.lastIndexOf('.') + 1, tag.length() - 1));
+    }
+}
@@ -1,7 +1,13 @@
 package com.example.project.service;
 
+import com.example.project.dto.ToyDto;
+import com.example.project.exception.BadRequestException;
 import com.example.project.exception.EntityNotFoundException;
+import com.example.project.mapper.ToyMapper;
+import com.example.project.mapper.ToyMapperImpl;
 import com.example.project.model.Inventory;
+import com.example.project.model.KeysetPage;
+import com.example.project.model.ProductFilter;
 import com.example.project.model.Toy;
 import com.example.project.repository.ToyRepository;
 import org.junit.jupiter.api.Assertions;
@@ -11,7 +17,10 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -19,6 +28,7 @@ import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,6 +37,21 @@ class ToyServiceTest {
     @Mock
     private ToyRepository toyRepository;
 
+    @Mock
+    private ProductCatalogCache productCatalogCache;
+
+    @Mock
+    private ProductSearchIndex productSearchIndex;
+
+    @Mock
+    private ResourceVersions resourceVersions;
+
+    @Spy
+    private KeysetPagination keysetPagination = new KeysetPagination(50, 500);
+
+    @Spy
+    private ToyMapper toyMapper = new ToyMapperImpl();
+
     @InjectMocks
     private ToyService toyService;
 
@@ -47,21 +72,43 @@ class ToyServiceTest {
     @Test
     @DisplayName("find all toys - happy flow")
     public void test_findAll_happyFlow() {
-        List<Toy> toyList = new ArrayList<>();
-        toyList.add(expectedToy);
+        ToyDto toyDto = ToyDto.builder().id(expectedToy.getId()).build();
+        when(toyRepository.findDtosByIdGreaterThan(Long.MIN_VALUE, PageRequest.of(0, 51, Sort.by("id")))).thenReturn(List.of(toyDto));
+
+        KeysetPage<ToyDto> result = toyService.findAll(ProductFilter.builder().build(), null, null, null);
+
+        assertEquals(List.of(toyDto), result.getContent());
+        assertNull(result.getNextCursor());
+
+        verify(toyRepository).findDtosByIdGreaterThan(Long.MIN_VALUE, PageRequest.of(0, 51, Sort.by("id")));
+        verify(toyRepository, times(0)).findAll();
+    }
+
+    @Test
+    @DisplayName("find toy dto by id - happy flow")
+    public void test_findDtoById_happyFlow() {
+        Long id = expectedToy.getId();
+        when(toyRepository.findById(id)).thenReturn(Optional.of(expectedToy));
+
+        ToyDto result = toyService.findDtoById(id);
 
-        when(toyRepository.findAll()).thenReturn(toyList);
+        assertEquals(id, result.getId());
+        assertEquals(expectedToy.getPrice(), result.getPrice());
+        assertEquals(expectedToy.getInventory().getId(), result.getInventoryDto().getId());
+        verify(toyRepository).findById(id);
+        verify(toyMapper).toDto(expectedToy);
+    }
 
-        List<Toy> result = toyService.findAll();
+    @Test
+    @DisplayName("find toy dto by id - toy does not exist in database")
+    public void test_findDtoById_throwsEntityNotFoundException() {
+        Long id = expectedToy.getId();
 
-        assertEquals(toyList.size(), result.size());
-        assertEquals(expectedToy.getId(), result.stream().findFirst().get().getId());
-        assertEquals(expectedToy.getAnimal(), result.stream().findFirst().get().getAnimal());
-        assertEquals(expectedToy.getBrand(), result.stream().findFirst().get().getBrand());
-        assertEquals(expectedToy.getPrice(), result.stream().findFirst().get().getPrice());
-        assertEquals(expectedToy.getInventory(), result.stream().findFirst().get().getInventory());
+        when(toyRepository.findById(id)).thenReturn(Optional.empty());
 
-        verify(toyRepository).findAll();
+        EntityNotFoundException ex = Assertions.assertThrows(EntityNotFoundException.class, () -> toyService.findDtoById(id));
+
+        assertEquals(String.format("The toy with id = %s does not exist in the database.", id), ex.getMessage());
     }
 
     @Test
@@ -100,12 +147,16 @@ class ToyServiceTest {
         Long id = expectedToy.getId();
 
         when(toyRepository.existsById(id)).thenReturn(true);
+        when(toyRepository.findInventoryIdById(id)).thenReturn(Optional.of(3L));
         doNothing().when(toyRepository).deleteById(id);
 
         toyService.deleteById(id);
 
         verify(toyRepository).existsById(id);
         verify(toyRepository).deleteById(id);
+        verify(productCatalogCache).evictProduct(3L, null);
+        verify(productSearchIndex).remove("toy", id);
+        verify(resourceVersions).catalogChanged(null, null);
     }
 
     @Test
@@ -134,7 +185,7 @@ class ToyServiceTest {
 
         when(toyRepository.save(toy)).thenReturn(expectedToy);
 
-        Toy result = toyService.create(toy);
+        ToyDto result = toyService.create(toy);
 
         assertEquals(expectedToy.getId(), result.getId());
         assertEquals(expectedToy.getAnimal(), result.getAnimal());
@@ -142,6 +193,9 @@ class ToyServiceTest {
         assertEquals(expectedToy.getPrice(), result.getPrice());
 
         verify(toyRepository).save(toy);
+        verify(productCatalogCache).evictProduct(null, expectedToy.getInventory());
+        verify(productSearchIndex).index(expectedToy);
+        verify(resourceVersions).catalogChanged(null, null);
     }
 
     @Test
@@ -151,9 +205,10 @@ class ToyServiceTest {
         Long id = expectedToy.getId();
 
         when(toyRepository.existsById(id)).thenReturn(true);
+        when(toyRepository.findInventoryIdById(id)).thenReturn(Optional.of(3L));
         when(toyRepository.save(toy)).thenReturn(expectedToy);
 
-        Toy result = toyService.update(toy);
+        ToyDto result = toyService.update(toy);
 
         assertEquals(expectedToy.getId(), result.getId());
         assertEquals(expectedToy.getAnimal(), result.getAnimal());
@@ -162,6 +217,9 @@ class ToyServiceTest {
 
         verify(toyRepository).existsById(id);
         verify(toyRepository).save(toy);
+        verify(productCatalogCache).evictProduct(3L, expectedToy.getInventory());
+        verify(productSearchIndex).index(expectedToy);
+        verify(resourceVersions).catalogChanged(expectedToy.getId(), expectedToy.getInventory().getId());
     }
 
     @Test
@@ -180,6 +238,22 @@ class ToyServiceTest {
         verify(toyRepository, times(0)).save(expectedToy);
     }
 
+    @Test
+    @DisplayName("update a toy - a new inventory is not created through the toy")
+    public void test_update_throwsBadRequestException_whenInventoryIsNew() {
+        Long id = expectedToy.getId();
+        expectedToy.setInventory(Inventory.builder().availableQuantity(100L).build());
+
+        when(toyRepository.existsById(id)).thenReturn(true);
+
+        BadRequestException ex = Assertions.assertThrows(BadRequestException.class, () ->
+                toyService.update(expectedToy));
+
+        assertThat(ex.getMessage()).isEqualTo("The inventory of an existing toy is given by its id, its stock is changed through /inventory.");
+
+        verify(toyRepository, times(0)).save(expectedToy);
+    }
+
     @Test
     @DisplayName("check if toy exists in inventory - happy flow")
     void test_existsByInventoryId_happyFlow() {